@@ -15,11 +15,10 @@ package org.eclipse.core.commands.operations;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.internal.commands.operations.OperationIndex;
 import org.eclipse.core.commands.util.Tracing;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IAdaptable;
@@ -52,8 +51,13 @@ import org.eclipse.core.runtime.Status;
  * <p>
  * The data structures used by the DefaultOperationHistory are synchronized, and
  * entry points that modify the undo and redo history concurrently are also
- * synchronized. This means that the DefaultOperationHistory is relatively
- * "thread-friendly" in its implementation. Outbound notifications or operation
+ * synchronized. The undo and redo histories are indexed by undo context, so
+ * queries for a context do not depend on the size of the whole history and
+ * only contend with changes to the history they read. This means that the
+ * DefaultOperationHistory is relatively "thread-friendly" in its
+ * implementation. Clients that change the contexts of an operation that is in
+ * the history should notify the history using
+ * {@link #operationChanged(IUndoableOperation)}. Outbound notifications or operation
  * approval requests will occur on the thread that initiated the request.
  * Clients may use DefaultOperationHistory API from any thread; however,
  * listeners or operation approvers that receive notifications from the
@@ -127,18 +131,18 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	ListenerList listeners = new ListenerList(ListenerList.IDENTITY);
 
 	/**
-	 * the list of operations available for redo, LIFO
+	 * the operations available for redo, LIFO, indexed by context
 	 */
-	private List redoList = Collections.synchronizedList(new ArrayList());
+	private OperationIndex redoList = new OperationIndex();
 
 	/**
-	 * the list of operations available for undo, LIFO
+	 * the operations available for undo, LIFO, indexed by context
 	 */
-	private List undoList = Collections.synchronizedList(new ArrayList());
+	private OperationIndex undoList = new OperationIndex();
 
 	/**
-	 * a lock that is used to synchronize access between the undo and redo
-	 * history
+	 * a lock that is used to synchronize changes that span the undo and redo
+	 * history. Queries only synchronize on the history they read.
 	 */
 	final Object undoRedoHistoryLock = new Object();
 
@@ -539,34 +543,6 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		return status;
 	}
 
-	/*
-	 * Filter the specified list to include only the specified undo context.
-	 */
-	private IUndoableOperation[] filter(List list, IUndoContext context) {
-		/*
-		 * This method is used whenever there is a need to filter the undo or
-		 * redo history on a particular context. Currently there are no caches
-		 * kept to optimize repeated requests for the same filter. If benchmarks
-		 * show this to be a common pattern that causes performances problems,
-		 * we could implement a filtered cache here that is nullified whenever
-		 * the global history changes.
-		 */
-
-		List filtered = new ArrayList();
-		synchronized (undoRedoHistoryLock) {
-			Iterator iterator = list.iterator();
-			while (iterator.hasNext()) {
-				IUndoableOperation operation = (IUndoableOperation) iterator
-						.next();
-				if (operation.hasContext(context)) {
-					filtered.add(operation);
-				}
-			}
-		}
-		return (IUndoableOperation[]) filtered
-				.toArray(new IUndoableOperation[filtered.size()]);
-	}
-
 	/*
 	 * Flush the redo stack of all operations that have the given context.
 	 */
@@ -578,7 +554,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 
 		synchronized (undoRedoHistoryLock) {
 			
-			Object[] filtered = filter(redoList, context);
+			Object[] filtered = redoList.getOperations(context);
 			for (int i = 0; i < filtered.length; i++) {
 				IUndoableOperation operation = (IUndoableOperation) filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
@@ -602,6 +578,8 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					if (operation.getContexts().length == 0) {
 						redoList.remove(operation);
 						internalRemove(operation);
+					} else {
+						redoList.reindex(operation);
 					}
 				}
 			}
@@ -620,7 +598,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		synchronized (undoRedoHistoryLock) {
 			
 			// Get all operations that have the context (or one that matches)
-			Object[] filtered = filter(undoList, context);
+			Object[] filtered = undoList.getOperations(context);
 			for (int i = 0; i < filtered.length; i++) {
 				IUndoableOperation operation = (IUndoableOperation) filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
@@ -644,6 +622,8 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					if (operation.getContexts().length == 0) {
 						undoList.remove(operation);
 						internalRemove(operation);
+					} else {
+						undoList.reindex(operation);
 					}
 				}
 			}
@@ -680,30 +660,26 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	private void forceRedoLimit(IUndoContext context, int max) {
 		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(redoList, context);
-			int size = filtered.length;
-			if (size > 0) {
-				int index = 0;
-				while (size > max) {
-					IUndoableOperation removed = (IUndoableOperation) filtered[index];
-					if (context == GLOBAL_UNDO_CONTEXT
-							|| removed.getContexts().length == 1) {
-						/*
-						 * remove the operation if we are enforcing a global limit
-						 * or if the operation only has the specified context
-						 */
-						redoList.remove(removed);
-						internalRemove(removed);
-					} else {
-						/*
-						 * if the operation has multiple contexts and we've reached
-						 * the limit for only one of them, then just remove the
-						 * context, not the operation.
-						 */
-						removed.removeContext(context);
-					}
-					size--;
-					index++;
+			// only the oldest operations in excess of the limit are returned
+			Object[] filtered = redoList.getOverflow(context, max);
+			for (int index = 0; index < filtered.length; index++) {
+				IUndoableOperation removed = (IUndoableOperation) filtered[index];
+				if (context == GLOBAL_UNDO_CONTEXT
+						|| removed.getContexts().length == 1) {
+					/*
+					 * remove the operation if we are enforcing a global limit
+					 * or if the operation only has the specified context
+					 */
+					redoList.remove(removed);
+					internalRemove(removed);
+				} else {
+					/*
+					 * if the operation has multiple contexts and we've reached
+					 * the limit for only one of them, then just remove the
+					 * context, not the operation.
+					 */
+					removed.removeContext(context);
+					redoList.reindex(removed);
 				}
 			}
 		}
@@ -715,30 +691,26 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	private void forceUndoLimit(IUndoContext context, int max) {
 		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(undoList, context);
-			int size = filtered.length;
-			if (size > 0) {
-				int index = 0;
-				while (size > max) {
-					IUndoableOperation removed = (IUndoableOperation) filtered[index];
-					if (context == GLOBAL_UNDO_CONTEXT
-							|| removed.getContexts().length == 1) {
-						/*
-						 * remove the operation if we are enforcing a global limit
-						 * or if the operation only has the specified context
-						 */
-						undoList.remove(removed);
-						internalRemove(removed);
-					} else {
-						/*
-						 * if the operation has multiple contexts and we've reached
-						 * the limit for only one of them, then just remove the
-						 * context, not the operation.
-						 */
-						removed.removeContext(context);
-					}
-					size--;
-					index++;
+			// only the oldest operations in excess of the limit are returned
+			Object[] filtered = undoList.getOverflow(context, max);
+			for (int index = 0; index < filtered.length; index++) {
+				IUndoableOperation removed = (IUndoableOperation) filtered[index];
+				if (context == GLOBAL_UNDO_CONTEXT
+						|| removed.getContexts().length == 1) {
+					/*
+					 * remove the operation if we are enforcing a global limit
+					 * or if the operation only has the specified context
+					 */
+					undoList.remove(removed);
+					internalRemove(removed);
+				} else {
+					/*
+					 * if the operation has multiple contexts and we've reached
+					 * the limit for only one of them, then just remove the
+					 * context, not the operation.
+					 */
+					removed.removeContext(context);
+					undoList.reindex(removed);
 				}
 			}
 		}
@@ -788,7 +760,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getRedoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(redoList, context);
+		return redoList.getOperations(context);
 	}
 
 	/*
@@ -798,16 +770,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getRedoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = redoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) redoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return redoList.getTop(context);
 	}
 
 	/*
@@ -842,7 +805,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getUndoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(undoList, context);
+		return undoList.getOperations(context);
 	}
 
 	/*
@@ -852,16 +815,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getUndoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = undoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) undoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return undoList.getTop(context);
 	}
 
 	/*
@@ -1165,10 +1119,8 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		// check the undo history first.
 		boolean inUndo = false;
 		synchronized (undoRedoHistoryLock) {
-			int index = undoList.indexOf(operation);
-			if (index > -1) {
+			if (undoList.replace(operation, replacements)) {
 				inUndo = true;
-				undoList.remove(operation);
 				// notify listeners after the lock on undoList is released
 				ArrayList allContexts = new ArrayList(replacements.length);
 				for (int i = 0; i < replacements.length; i++) {
@@ -1176,9 +1128,6 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					for (int j = 0; j < opContexts.length; j++) {
 						allContexts.add(opContexts[j]);
 					}
-					undoList.add(index, replacements[i]);
-					// notify listeners after the lock on the history is
-					// released
 				}
 				// recheck all the limits. We do this at the end so the index
 				// doesn't change during replacement
@@ -1200,20 +1149,16 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		// operation was not in the undo history. Check the redo history.
 
 		synchronized (undoRedoHistoryLock) {
-			int index = redoList.indexOf(operation);
-			if (index == -1) {
+			if (!redoList.replace(operation, replacements)) {
 				return;
 			}
-			ArrayList allContexts = new ArrayList(replacements.length);
-			redoList.remove(operation);
 			// notify listeners after we release the lock on redoList
+			ArrayList allContexts = new ArrayList(replacements.length);
 			for (int i = 0; i < replacements.length; i++) {
 				IUndoContext[] opContexts = replacements[i].getContexts();
 				for (int j = 0; j < opContexts.length; j++) {
 					allContexts.add(opContexts[j]);
 				}
-				redoList.add(index, replacements[i]);
-				// notify listeners after we release the lock on redoList
 			}
 			// recheck all the limits. We do this at the end so the index
 			// doesn't change during replacement
@@ -1389,7 +1334,18 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 * @see org.eclipse.core.commands.operations.IOperationHistory#operationChanged(org.eclipse.core.commands.operations.IUndoableOperation)
 	 */
 	public void operationChanged(IUndoableOperation operation) {
-		if (undoList.contains(operation) || redoList.contains(operation)) {
+		boolean inHistory = false;
+		synchronized (undoRedoHistoryLock) {
+			// the contexts of the operation may have changed
+			if (undoList.contains(operation)) {
+				undoList.reindex(operation);
+				inHistory = true;
+			} else if (redoList.contains(operation)) {
+				redoList.reindex(operation);
+				inHistory = true;
+			}
+		}
+		if (inHistory) {
 			notifyChanged(operation);
 		}
 	}
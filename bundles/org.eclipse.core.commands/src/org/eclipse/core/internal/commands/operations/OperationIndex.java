@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.commands.operations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.core.commands.operations.AbstractOperation;
+import org.eclipse.core.commands.operations.IUndoContext;
+import org.eclipse.core.commands.operations.IUndoableOperation;
+
+/**
+ * <p>
+ * A linear history of operations, such as the undo or the redo history of an
+ * operation history, that is indexed by undo context. Every operation is kept
+ * in a stack for each of its contexts, so that queries for a context only
+ * look at the stacks of the contexts that match it rather than at the whole
+ * history.
+ * </p>
+ * <p>
+ * Operations are indexed by the contexts they have when they are added, and
+ * {@link #reindex} indexes an operation again when the history knows its
+ * contexts changed. Contexts can also be added or removed without the history
+ * being told. {@link AbstractOperation}s report these changes through
+ * {@link #contextsChanged(IUndoableOperation)}, which indexes them again in
+ * every history right away. Only the operations of other classes are checked
+ * for changed contexts before each query. Candidates are verified with
+ * {@link IUndoableOperation#hasContext(IUndoContext)} before they are
+ * answered.
+ * </p>
+ * <p>
+ * All methods are synchronized on the receiver, so that queries only
+ * contend with modifications of the same history.
+ * </p>
+ */
+public final class OperationIndex {
+
+	private static final IUndoableOperation[] NO_OPERATIONS = new IUndoableOperation[0];
+
+	/**
+	 * The indexes that are not garbage yet, as keys
+	 */
+	private static final Map INDEXES = new WeakHashMap();
+
+	/**
+	 * An operation in the history with its position and the contexts it is
+	 * indexed by.
+	 */
+	private static final class Entry {
+		final IUndoableOperation operation;
+
+		final IUndoContext[] contexts;
+
+		long sequence;
+
+		boolean removed = false;
+
+		Entry(IUndoableOperation operation, long sequence) {
+			this.operation = operation;
+			this.contexts = (IUndoContext[]) operation.getContexts().clone();
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Return whether the contexts of the operation differ from the ones
+		 * it is indexed by.
+		 */
+		boolean isStale() {
+			IUndoContext[] current = operation.getContexts();
+			if (current.length != contexts.length) {
+				return true;
+			}
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] != contexts[i]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The entries of one context in the order of the history. Removed entries
+	 * are dropped from the ends right away and compacted out of the middle
+	 * once they outnumber the live ones.
+	 */
+	private static final class ContextStack {
+		final ArrayList entries = new ArrayList();
+
+		/**
+		 * All entries before this index are removed.
+		 */
+		int head = 0;
+
+		int live = 0;
+
+		void insert(Entry entry) {
+			int size = entries.size();
+			if (size == 0
+					|| ((Entry) entries.get(size - 1)).sequence < entry.sequence) {
+				entries.add(entry);
+			} else {
+				int low = head;
+				int high = size - 1;
+				while (low <= high) {
+					int middle = (low + high) >>> 1;
+					if (((Entry) entries.get(middle)).sequence < entry.sequence) {
+						low = middle + 1;
+					} else {
+						high = middle - 1;
+					}
+				}
+				entries.add(low, entry);
+			}
+			live++;
+		}
+
+		void entryRemoved() {
+			live--;
+			int size = entries.size();
+			while (size > head && ((Entry) entries.get(size - 1)).removed) {
+				entries.remove(--size);
+			}
+			while (head < size && ((Entry) entries.get(head)).removed) {
+				head++;
+			}
+			if (head == size) {
+				entries.clear();
+				head = 0;
+			} else if (size - live > live && size > 16) {
+				compact();
+			}
+		}
+
+		void compact() {
+			int size = entries.size();
+			int kept = 0;
+			for (int i = head; i < size; i++) {
+				Entry entry = (Entry) entries.get(i);
+				if (!entry.removed) {
+					entries.set(kept++, entry);
+				}
+			}
+			for (int i = size - 1; i >= kept; i--) {
+				entries.remove(i);
+			}
+			head = 0;
+		}
+	}
+
+	private static final Comparator SEQUENCE_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			long s1 = ((Entry) o1).sequence;
+			long s2 = ((Entry) o2).sequence;
+			return s1 < s2 ? -1 : (s1 == s2 ? 0 : 1);
+		}
+	};
+
+	/**
+	 * The entry of every operation in the history, by operation
+	 */
+	private final Map entries = new HashMap();
+
+	/**
+	 * The stack of every context of an operation in the history, by context
+	 */
+	private final Map stacks = new HashMap();
+
+	/**
+	 * The entries of the operations that do not report changes of their
+	 * contexts
+	 */
+	private final Set unobserved = new HashSet();
+
+	private long nextSequence = 0;
+
+	/**
+	 * Create an empty history.
+	 */
+	public OperationIndex() {
+		synchronized (INDEXES) {
+			INDEXES.put(this, null);
+		}
+	}
+
+	/**
+	 * Index the operation again in every history that contains it, because
+	 * its contexts changed.
+	 *
+	 * @param operation
+	 *            the operation whose contexts changed
+	 */
+	public static void contextsChanged(IUndoableOperation operation) {
+		OperationIndex[] indexes;
+		synchronized (INDEXES) {
+			indexes = (OperationIndex[]) INDEXES.keySet().toArray(
+					new OperationIndex[INDEXES.size()]);
+		}
+		for (int i = 0; i < indexes.length; i++) {
+			if (indexes[i] != null) {
+				indexes[i].reindex(operation);
+			}
+		}
+	}
+
+	/**
+	 * Add the operation to the top of the history.
+	 *
+	 * @param operation
+	 *            the operation to add
+	 */
+	public synchronized void add(IUndoableOperation operation) {
+		Entry existing = (Entry) entries.get(operation);
+		if (existing != null) {
+			unindex(existing);
+		}
+		index(new Entry(operation, nextSequence++));
+	}
+
+	/**
+	 * Remove the operation from the history.
+	 *
+	 * @param operation
+	 *            the operation to remove
+	 * @return <code>true</code> if the operation was in the history
+	 */
+	public synchronized boolean remove(IUndoableOperation operation) {
+		Entry entry = (Entry) entries.get(operation);
+		if (entry == null) {
+			return false;
+		}
+		unindex(entry);
+		return true;
+	}
+
+	/**
+	 * Return whether the operation is in the history.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @return <code>true</code> if the operation is in the history
+	 */
+	public synchronized boolean contains(IUndoableOperation operation) {
+		return entries.containsKey(operation);
+	}
+
+	/**
+	 * Index the operation by its current contexts, keeping its position in
+	 * the history. This has no effect if the operation is not in the history.
+	 *
+	 * @param operation
+	 *            the operation whose contexts changed
+	 */
+	public synchronized void reindex(IUndoableOperation operation) {
+		Entry entry = (Entry) entries.get(operation);
+		if (entry != null) {
+			unindex(entry);
+			index(new Entry(operation, entry.sequence));
+		}
+	}
+
+	/**
+	 * Replace the operation with the given operations, at its position in the
+	 * history.
+	 *
+	 * @param operation
+	 *            the operation to replace
+	 * @param replacements
+	 *            the operations that replace it, most recent first
+	 * @return <code>true</code> if the operation was in the history and has
+	 *         been replaced
+	 */
+	public synchronized boolean replace(IUndoableOperation operation,
+			IUndoableOperation[] replacements) {
+		Entry entry = (Entry) entries.get(operation);
+		if (entry == null) {
+			return false;
+		}
+		unindex(entry);
+		for (int i = 0; i < replacements.length; i++) {
+			Entry existing = (Entry) entries.get(replacements[i]);
+			if (existing != null) {
+				unindex(existing);
+			}
+		}
+		if (replacements.length > 1) {
+			// make room for the replacements after the replaced operation
+			int shift = replacements.length - 1;
+			Iterator iterator = stacks.values().iterator();
+			while (iterator.hasNext()) {
+				((ContextStack) iterator.next()).compact();
+			}
+			iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				Entry other = (Entry) iterator.next();
+				if (other.sequence > entry.sequence) {
+					other.sequence += shift;
+				}
+			}
+			nextSequence += shift;
+		}
+		for (int i = 0; i < replacements.length; i++) {
+			index(new Entry(replacements[i], entry.sequence
+					+ replacements.length - 1 - i));
+		}
+		return true;
+	}
+
+	/**
+	 * Return the most recent operation that has the given context.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the operation, or <code>null</code>
+	 */
+	public synchronized IUndoableOperation getTop(IUndoContext context) {
+		refresh();
+		Entry top = null;
+		Iterator iterator = stacks.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry mapEntry = (Map.Entry) iterator.next();
+			if (!matches((IUndoContext) mapEntry.getKey(), context)) {
+				continue;
+			}
+			ContextStack stack = (ContextStack) mapEntry.getValue();
+			for (int i = stack.entries.size() - 1; i >= stack.head; i--) {
+				Entry entry = (Entry) stack.entries.get(i);
+				if (top != null && entry.sequence <= top.sequence) {
+					break;
+				}
+				if (!entry.removed && entry.operation.hasContext(context)) {
+					top = entry;
+					break;
+				}
+			}
+		}
+		return top == null ? null : top.operation;
+	}
+
+	/**
+	 * Return the operations that have the given context, oldest first.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the operations
+	 */
+	public synchronized IUndoableOperation[] getOperations(IUndoContext context) {
+		refresh();
+		return toOperations(find(context, getMatchingStacks(context)), -1);
+	}
+
+	/**
+	 * Return the oldest operations that have to be removed so that no more
+	 * than the given number of operations have the context.
+	 *
+	 * @param context
+	 *            the context
+	 * @param max
+	 *            the number of operations that may have the context
+	 * @return the operations in excess of the limit, oldest first
+	 */
+	public synchronized IUndoableOperation[] getOverflow(IUndoContext context,
+			int max) {
+		refresh();
+		List matching = getMatchingStacks(context);
+		int bound = 0;
+		for (int i = 0; i < matching.size(); i++) {
+			bound += ((ContextStack) matching.get(i)).live;
+		}
+		if (bound <= max) {
+			// no need to look at the operations
+			return NO_OPERATIONS;
+		}
+		Entry[] found = find(context, matching);
+		if (found.length <= max) {
+			return NO_OPERATIONS;
+		}
+		return toOperations(found, found.length - max);
+	}
+
+	/**
+	 * Index again the operations whose contexts changed without the history
+	 * being told, among the ones that do not report it.
+	 */
+	private void refresh() {
+		if (unobserved.isEmpty()) {
+			return;
+		}
+		List stale = null;
+		Iterator iterator = unobserved.iterator();
+		while (iterator.hasNext()) {
+			Entry entry = (Entry) iterator.next();
+			if (entry.isStale()) {
+				if (stale == null) {
+					stale = new ArrayList();
+				}
+				stale.add(entry);
+			}
+		}
+		if (stale != null) {
+			for (int i = 0; i < stale.size(); i++) {
+				Entry entry = (Entry) stale.get(i);
+				unindex(entry);
+				index(new Entry(entry.operation, entry.sequence));
+			}
+		}
+	}
+
+	private static boolean matches(IUndoContext key, IUndoContext context) {
+		return key == context || context.matches(key) || key.matches(context);
+	}
+
+	private List getMatchingStacks(IUndoContext context) {
+		List matching = new ArrayList();
+		Iterator iterator = stacks.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry mapEntry = (Map.Entry) iterator.next();
+			if (matches((IUndoContext) mapEntry.getKey(), context)) {
+				matching.add(mapEntry.getValue());
+			}
+		}
+		return matching;
+	}
+
+	private Entry[] find(IUndoContext context, List matching) {
+		List found = new ArrayList();
+		if (matching.size() == 1) {
+			// a single stack is already in order and has no duplicates
+			ContextStack stack = (ContextStack) matching.get(0);
+			for (int i = stack.head; i < stack.entries.size(); i++) {
+				Entry entry = (Entry) stack.entries.get(i);
+				if (!entry.removed && entry.operation.hasContext(context)) {
+					found.add(entry);
+				}
+			}
+			return (Entry[]) found.toArray(new Entry[found.size()]);
+		}
+		Set seen = new HashSet();
+		for (int i = 0; i < matching.size(); i++) {
+			ContextStack stack = (ContextStack) matching.get(i);
+			for (int j = stack.head; j < stack.entries.size(); j++) {
+				Entry entry = (Entry) stack.entries.get(j);
+				if (!entry.removed && seen.add(entry)
+						&& entry.operation.hasContext(context)) {
+					found.add(entry);
+				}
+			}
+		}
+		Entry[] result = (Entry[]) found.toArray(new Entry[found.size()]);
+		Arrays.sort(result, SEQUENCE_ORDER);
+		return result;
+	}
+
+	private static IUndoableOperation[] toOperations(Entry[] found, int count) {
+		int length = count < 0 ? found.length : count;
+		IUndoableOperation[] operations = new IUndoableOperation[length];
+		for (int i = 0; i < length; i++) {
+			operations[i] = found[i].operation;
+		}
+		return operations;
+	}
+
+	private void index(Entry entry) {
+		entries.put(entry.operation, entry);
+		if (!(entry.operation instanceof AbstractOperation)) {
+			unobserved.add(entry);
+		}
+		IUndoContext[] contexts = entry.contexts;
+		for (int i = 0; i < contexts.length; i++) {
+			if (isDuplicate(contexts, i)) {
+				continue;
+			}
+			ContextStack stack = (ContextStack) stacks.get(contexts[i]);
+			if (stack == null) {
+				stack = new ContextStack();
+				stacks.put(contexts[i], stack);
+			}
+			stack.insert(entry);
+		}
+	}
+
+	private void unindex(Entry entry) {
+		entry.removed = true;
+		entries.remove(entry.operation);
+		unobserved.remove(entry);
+		IUndoContext[] contexts = entry.contexts;
+		for (int i = 0; i < contexts.length; i++) {
+			if (isDuplicate(contexts, i)) {
+				continue;
+			}
+			ContextStack stack = (ContextStack) stacks.get(contexts[i]);
+			if (stack != null) {
+				stack.entryRemoved();
+				if (stack.live == 0) {
+					stacks.remove(contexts[i]);
+				}
+			}
+		}
+	}
+
+	private static boolean isDuplicate(IUndoContext[] contexts, int index) {
+		for (int i = 0; i < index; i++) {
+			if (contexts[i] == contexts[index]) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.core.commands.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+
+/**
+ * The keys the handlers of commands are stored under in the contexts.
+ * <p>
+ * The key of each command is built once, so lookups do not concatenate
+ * strings. The handlers themselves are always resolved through the active
+ * leaf: a cached answer would not register the dependency of a RunAndTrack
+ * on the handler, and would hide a handler set directly in a closer context.
+ * </p>
+ */
+final class HandlerKeys {
+
+	/**
+	 * The keys handlers are stored under in the contexts, by command id.
+	 */
+	private static final Map<String, String> keys = new ConcurrentHashMap<String, String>();
+
+	private HandlerKeys() {
+		// not instantiated
+	}
+
+	/**
+	 * Returns the context key of the handler for the given command.
+	 *
+	 * @param commandId
+	 *            the command id
+	 * @return the key, the same instance for equal command ids
+	 */
+	static String getKey(String commandId) {
+		String key = keys.get(commandId);
+		if (key == null) {
+			key = (HandlerServiceImpl.H_ID + commandId).intern();
+			keys.put(commandId.intern(), key);
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the handler of a command for the given active leaf.
+	 *
+	 * @param leaf
+	 *            the active leaf
+	 * @param commandId
+	 *            the command id
+	 * @return the handler, or <code>null</code>
+	 */
+	static Object lookUp(IEclipseContext leaf, String commandId) {
+		return leaf.get(getKey(commandId));
+	}
+}
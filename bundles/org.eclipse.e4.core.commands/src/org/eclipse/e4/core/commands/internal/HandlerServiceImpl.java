@@ -42,7 +42,7 @@ public class HandlerServiceImpl implements EHandlerService {
 	 * @return a handler, or <code>null</code>
 	 */
 	public static Object lookUpHandler(IEclipseContext context, String commandId) {
-		return context.getActiveLeaf().get(H_ID + commandId);
+		return HandlerKeys.lookUp(context.getActiveLeaf(), commandId);
 	}
 
 	private IEclipseContext context;
@@ -60,8 +60,7 @@ public class HandlerServiceImpl implements EHandlerService {
 	 * java.lang.Object)
 	 */
 	public void activateHandler(String commandId, Object handler) {
-		String handlerId = H_ID + commandId;
-		context.set(handlerId, handler);
+		context.set(HandlerKeys.getKey(commandId), handler);
 	}
 
 	/**
@@ -130,7 +129,7 @@ public class HandlerServiceImpl implements EHandlerService {
 	 * java.lang.Object)
 	 */
 	public void deactivateHandler(String commandId, Object handler) {
-		context.remove(H_ID + commandId);
+		context.remove(HandlerKeys.getKey(commandId));
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ package org.eclipse.e4.ui.bindings.internal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import javax.inject.Inject;
@@ -49,6 +50,11 @@ public class BindingServiceImpl implements EBindingService {
 
 	private ContextSet contextSet = ContextSet.EMPTY;
 
+	/**
+	 * The identifiers of the contexts in <code>contextSet</code>.
+	 */
+	private Set<String> contextIds = Collections.emptySet();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -224,16 +230,27 @@ public class BindingServiceImpl implements EBindingService {
 	public void setContextIds(@Named(ACTIVE_CONTEXTS) @Optional Set<String> set) {
 		if (set == null || set.isEmpty() || contextManager == null) {
 			contextSet = ContextSet.EMPTY;
+			contextIds = Collections.emptySet();
 			if (contextManager != null) {
 				contextManager.setActiveContextIds(Collections.EMPTY_SET);
 			}
 			return;
 		}
-		ArrayList<Context> contexts = new ArrayList<Context>();
+		// only the contexts that changed are merged into the current set
+		ArrayList<Context> added = new ArrayList<Context>();
 		for (String id : set) {
-			contexts.add(contextManager.getContext(id));
+			if (!contextIds.contains(id)) {
+				added.add(contextManager.getContext(id));
+			}
+		}
+		ArrayList<Context> removed = new ArrayList<Context>();
+		for (String id : contextIds) {
+			if (!set.contains(id)) {
+				removed.add(contextManager.getContext(id));
+			}
 		}
-		contextSet = manager.createContextSet(contexts);
+		contextSet = manager.updateContextSet(contextSet, added, removed);
+		contextIds = new HashSet<String>(set);
 		contextManager.setActiveContextIds(set);
 	}
 
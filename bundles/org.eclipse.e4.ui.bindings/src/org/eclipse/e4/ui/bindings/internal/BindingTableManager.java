@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,8 +14,8 @@ package org.eclipse.e4.ui.bindings.internal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
 import javax.inject.Inject;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.contexts.Context;
@@ -36,6 +36,12 @@ public class BindingTableManager {
 
 	private String[] activeSchemeIds;
 
+	/**
+	 * Incremented when a table is added or removed, so that the tables remembered by the context
+	 * sets are looked up again.
+	 */
+	private int tablesVersion = 0;
+
 	public void addTable(BindingTable table) {
 		String contextId = getTableId(table.getId());
 		if (eclipseContext.containsKey(contextId)) {
@@ -43,12 +49,9 @@ public class BindingTableManager {
 			//			throw new IllegalArgumentException("Already contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.set(contextId, table);
-		final List<Context> contexts = definedTables.getContexts();
-		if (!contexts.contains(table.getTableId())) {
-			// this is only valid because I'm throwing away the old definedTables contextSet
-			contexts.add(table.getTableId());
-			definedTables = createContextSet(contexts);
-		}
+		tablesVersion++;
+		definedTables = definedTables.update(Collections.singleton(table.getTableId()),
+				Collections.<Context> emptySet());
 	}
 
 	private String getTableId(String id) {
@@ -61,12 +64,9 @@ public class BindingTableManager {
 			throw new IllegalArgumentException("Does not contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.remove(contextId);
-		final List<Context> contexts = definedTables.getContexts();
-		if (contexts.contains(table.getTableId())) {
-			// this is only valid because I'm throwing away the old definedTables contextSet
-			contexts.remove(table.getTableId());
-			definedTables = createContextSet(contexts);
-		}
+		tablesVersion++;
+		definedTables = definedTables.update(Collections.<Context> emptySet(),
+				Collections.singleton(table.getTableId()));
 	}
 
 	public BindingTable getTable(String id) {
@@ -77,8 +77,7 @@ public class BindingTableManager {
 	// flat list of bindings here
 	public Collection<Binding> getActiveBindings() {
 		ArrayList<Binding> bindings = new ArrayList<Binding>();
-		for (Context ctx : definedTables.getContexts()) {
-			BindingTable table = getTable(ctx.getId());
+		for (BindingTable table : getTables(definedTables)) {
 			if (table != null) {
 				bindings.addAll(table.getBindings());
 			}
@@ -90,11 +89,62 @@ public class BindingTableManager {
 		return new ContextSet(contexts);
 	}
 
+	/**
+	 * Returns the context set that results from adding and removing contexts from the given one.
+	 * The binding tables of the contexts that stay are carried over to the new set, so only the
+	 * tables of the added contexts are looked up.
+	 * 
+	 * @param contextSet
+	 *            the previous context set
+	 * @param added
+	 *            the contexts that became active
+	 * @param removed
+	 *            the contexts that became inactive
+	 * @return the new context set
+	 */
+	public ContextSet updateContextSet(ContextSet contextSet, Collection<Context> added,
+			Collection<Context> removed) {
+		ContextSet result = contextSet.update(added, removed);
+		BindingTable[] previous = contextSet.getTables(this, tablesVersion);
+		if (result == contextSet || previous == null) {
+			return result;
+		}
+		HashMap<Context, BindingTable> kept = new HashMap<Context, BindingTable>();
+		List<Context> contexts = contextSet.getContexts();
+		for (int i = 0; i < previous.length; i++) {
+			kept.put(contexts.get(i), previous[i]);
+		}
+		contexts = result.getContexts();
+		BindingTable[] tables = new BindingTable[contexts.size()];
+		for (int i = 0; i < tables.length; i++) {
+			Context ctx = contexts.get(i);
+			tables[i] = kept.containsKey(ctx) ? kept.get(ctx) : getTable(ctx.getId());
+		}
+		result.setTables(this, tables, tablesVersion);
+		return result;
+	}
+
+	/**
+	 * Returns the binding tables of the contexts of the set, in the same order. Contexts without a
+	 * table have a <code>null</code> entry.
+	 */
+	private BindingTable[] getTables(ContextSet contextSet) {
+		BindingTable[] tables = contextSet.getTables(this, tablesVersion);
+		if (tables == null) {
+			List<Context> contexts = contextSet.getContexts();
+			tables = new BindingTable[contexts.size()];
+			for (int i = 0; i < tables.length; i++) {
+				tables[i] = getTable(contexts.get(i).getId());
+			}
+			contextSet.setTables(this, tables, tablesVersion);
+		}
+		return tables;
+	}
+
 	public Collection<Binding> getConflictsFor(ContextSet contextSet,
 			TriggerSequence triggerSequence) {
 		Collection<Binding> matches = new ArrayList<Binding>();
-		for (Context ctx : contextSet.getContexts()) {
-			BindingTable table = getTable(ctx.getId());
+		for (BindingTable table : getTables(contextSet)) {
 			if (table != null) {
 				final Collection<Binding> matchesFor = table.getConflictsFor(triggerSequence);
 				if (matchesFor != null) {
@@ -107,8 +157,7 @@ public class BindingTableManager {
 
 	public Collection<Binding> getAllConflicts() {
 		Collection<Binding> conflictsList = new ArrayList<Binding>();
-		for (Context ctx : definedTables.getContexts()) {
-			BindingTable table = getTable(ctx.getId());
+		for (BindingTable table : getTables(definedTables)) {
 			if (table != null) {
 				Collection<Binding> conflictsInTable = table.getConflicts();
 				if (conflictsInTable != null) {
@@ -122,11 +171,9 @@ public class BindingTableManager {
 	public Binding getPerfectMatch(ContextSet contextSet, TriggerSequence triggerSequence) {
 		Binding result = null;
 		Binding currentResult = null;
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
+		BindingTable[] tables = getTables(contextSet);
+		for (int i = tables.length - 1; i >= 0; i--) {
+			BindingTable table = tables[i];
 			if (table != null) {
 				currentResult = table.getPerfectMatch(triggerSequence);
 			}
@@ -172,11 +219,9 @@ public class BindingTableManager {
 	public Collection<Binding> getSequencesFor(ContextSet contextSet,
 			ParameterizedCommand parameterizedCommand) {
 		ArrayList<Binding> bindings = new ArrayList<Binding>();
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
+		BindingTable[] tables = getTables(contextSet);
+		for (int i = tables.length - 1; i >= 0; i--) {
+			BindingTable table = tables[i];
 			if (table != null) {
 				Collection<Binding> sequences = table.getSequencesFor(parameterizedCommand);
 				if (sequences != null) {
@@ -190,8 +235,7 @@ public class BindingTableManager {
 
 	public Collection<Binding> getBindingsFor(ContextSet contextSet, ParameterizedCommand cmd) {
 		Collection<Binding> bindings = new ArrayList<Binding>();
-		for (Context ctx : contextSet.getContexts()) {
-			BindingTable table = getTable(ctx.getId());
+		for (BindingTable table : getTables(contextSet)) {
 			if (table != null) {
 				Collection<Binding> matches = table.getSequencesFor(cmd);
 				if (matches != null) {
@@ -203,11 +247,9 @@ public class BindingTableManager {
 	}
 
 	public boolean isPartialMatch(ContextSet contextSet, TriggerSequence sequence) {
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
+		BindingTable[] tables = getTables(contextSet);
+		for (int i = tables.length - 1; i >= 0; i--) {
+			BindingTable table = tables[i];
 			if (table != null) {
 				if (table.isPartialMatch(sequence)) {
 					return true;
@@ -219,11 +261,9 @@ public class BindingTableManager {
 
 	public Collection<Binding> getPartialMatches(ContextSet contextSet, TriggerSequence sequence) {
 		ArrayList<Binding> bindings = new ArrayList<Binding>();
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
+		BindingTable[] tables = getTables(contextSet);
+		for (int i = tables.length - 1; i >= 0; i--) {
+			BindingTable table = tables[i];
 			if (table != null) {
 				Collection<Binding> partialMatches = table.getPartialMatches(sequence);
 				if (partialMatches != null) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,11 +15,18 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.eclipse.core.commands.common.NotDefinedException;
 import org.eclipse.core.commands.contexts.Context;
 import org.eclipse.core.commands.contexts.ContextManager;
 
+/**
+ * The active contexts, ordered from the root contexts to their most nested children. A context
+ * set is not modified once created; {@link #update(Collection, Collection)} returns a new set that
+ * keeps the unchanged contexts in their order and only sorts the added ones.
+ */
 public class ContextSet {
 	public static ContextSet EMPTY = new ContextSet(Collections.EMPTY_LIST);
 
@@ -71,15 +78,112 @@ public class ContextSet {
 
 	private List<Context> contexts;
 
+	private Set<Context> members;
+
+	private int hashCode;
+
+	/**
+	 * The binding tables of the contexts, in the same order, the binding table manager they were
+	 * looked up in and the version of its tables.
+	 */
+	private BindingTable[] tables;
+
+	private BindingTableManager tablesManager;
+
+	private int tablesVersion;
+
 	public ContextSet(Collection<Context> c) {
-		contexts = new ArrayList<Context>(c);
-		Collections.sort(contexts, CONTEXT_COMP);
+		ArrayList<Context> sorted = new ArrayList<Context>(c);
+		Collections.sort(sorted, CONTEXT_COMP);
+		init(sorted);
+	}
+
+	private ContextSet(ArrayList<Context> sorted) {
+		init(sorted);
+	}
+
+	private void init(ArrayList<Context> sorted) {
+		contexts = Collections.unmodifiableList(sorted);
+		members = new HashSet<Context>(sorted);
+		hashCode = sorted.hashCode();
 	}
 
 	public List<Context> getContexts() {
 		return contexts;
 	}
 
+	public boolean contains(Context context) {
+		return members.contains(context);
+	}
+
+	/**
+	 * Returns the context set that results from adding and removing contexts from this one. The
+	 * contexts of this set that are not removed keep their order, and the added ones are merged in
+	 * by the comparator.
+	 * 
+	 * @param added
+	 *            the contexts to add, may contain contexts already in this set
+	 * @param removed
+	 *            the contexts to remove, may contain contexts not in this set
+	 * @return the new context set, or this one if nothing changed
+	 */
+	public ContextSet update(Collection<Context> added, Collection<Context> removed) {
+		if (removed.size() > 1 && !(removed instanceof Set<?>)) {
+			removed = new HashSet<Context>(removed);
+		}
+		ArrayList<Context> toAdd = new ArrayList<Context>();
+		for (Context context : added) {
+			if (!members.contains(context) && !removed.contains(context)) {
+				toAdd.add(context);
+			}
+		}
+		boolean removing = false;
+		for (Context context : removed) {
+			if (members.contains(context)) {
+				removing = true;
+				break;
+			}
+		}
+		if (toAdd.isEmpty() && !removing) {
+			return this;
+		}
+		Collections.sort(toAdd, CONTEXT_COMP);
+
+		ArrayList<Context> merged = new ArrayList<Context>(contexts.size() + toAdd.size());
+		int i = 0;
+		for (Context context : contexts) {
+			if (removing && removed.contains(context)) {
+				continue;
+			}
+			while (i < toAdd.size() && compare(toAdd.get(i), context) < 0) {
+				merged.add(toAdd.get(i++));
+			}
+			merged.add(context);
+		}
+		while (i < toAdd.size()) {
+			merged.add(toAdd.get(i++));
+		}
+		return new ContextSet(merged);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int compare(Context c1, Context c2) {
+		if (CONTEXT_COMP == null) {
+			return c1.compareTo(c2);
+		}
+		return CONTEXT_COMP.compare(c1, c2);
+	}
+
+	BindingTable[] getTables(BindingTableManager manager, int version) {
+		return manager == tablesManager && version == tablesVersion ? tables : null;
+	}
+
+	void setTables(BindingTableManager manager, BindingTable[] tables, int version) {
+		this.tablesManager = manager;
+		this.tables = tables;
+		this.tablesVersion = version;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -93,6 +197,9 @@ public class ContextSet {
 		if (!(o instanceof ContextSet)) {
 			return false;
 		}
+		if (hashCode != ((ContextSet) o).hashCode) {
+			return false;
+		}
 		return contexts.equals(((ContextSet) o).contexts);
 	}
 
@@ -103,6 +210,6 @@ public class ContextSet {
 	 */
 	@Override
 	public int hashCode() {
-		return contexts.hashCode();
+		return hashCode;
 	}
 }
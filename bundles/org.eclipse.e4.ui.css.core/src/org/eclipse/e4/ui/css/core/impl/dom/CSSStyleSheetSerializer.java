@@ -0,0 +1,481 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.eclipse.e4.ui.css.core.dom.CSSProperty;
+import org.eclipse.e4.ui.css.core.dom.CSSPropertyList;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSLexicalUnitImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSSelectorListImpl;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CSSException;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionFactory;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.LangCondition;
+import org.w3c.css.sac.LexicalUnit;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorFactory;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.css.sac.SiblingSelector;
+import org.w3c.css.sac.SimpleSelector;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.CSSValue;
+import org.w3c.dom.css.CSSValueList;
+
+/**
+ * Writes the rules of a parsed style sheet in a compact binary form and reads
+ * them back without parsing the CSS again.
+ * <p>
+ * Only style rules are supported. A style sheet that has other rules, or
+ * selectors and values that cannot be written, fails with an
+ * {@link IOException}; callers are expected to keep parsing such style
+ * sheets from their source.
+ * </p>
+ * <p>
+ * Selectors and conditions are read back through the factories the engine
+ * gives its parser, so that they match elements exactly as the parsed ones.
+ * </p>
+ */
+public class CSSStyleSheetSerializer {
+
+	/**
+	 * The version of the binary form, to be changed whenever it changes.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	private final SelectorFactory selectorFactory;
+
+	private final ConditionFactory conditionFactory;
+
+	public CSSStyleSheetSerializer(SelectorFactory selectorFactory,
+			ConditionFactory conditionFactory) {
+		this.selectorFactory = selectorFactory;
+		this.conditionFactory = conditionFactory;
+	}
+
+	/**
+	 * Write the rules of the style sheet.
+	 *
+	 * @param styleSheet
+	 *            the style sheet
+	 * @param out
+	 *            the output
+	 * @throws IOException
+	 *             if the output fails or the style sheet cannot be written
+	 */
+	public void write(CSSStyleSheet styleSheet, DataOutput out)
+			throws IOException {
+		CSSRuleList rules = styleSheet.getCssRules();
+		int length = rules.getLength();
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(length);
+		for (int i = 0; i < length; i++) {
+			CSSRule rule = rules.item(i);
+			if (!(rule instanceof CSSStyleRuleImpl)) {
+				throw new IOException("Unsupported rule type: "
+						+ rule.getType());
+			}
+			writeRule((CSSStyleRuleImpl) rule, out);
+		}
+	}
+
+	/**
+	 * Read back the rules of a style sheet.
+	 *
+	 * @param in
+	 *            the input
+	 * @return the style sheet
+	 * @throws IOException
+	 *             if the input fails or is not in the expected form
+	 */
+	public CSSStyleSheet read(DataInput in) throws IOException {
+		int version = in.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported format version: " + version);
+		}
+		CSSStyleSheetImpl styleSheet = new CSSStyleSheetImpl();
+		CSSRuleListImpl rules = new CSSRuleListImpl();
+		int length = in.readInt();
+		try {
+			for (int i = 0; i < length; i++) {
+				rules.add(readRule(styleSheet, in));
+			}
+		} catch (CSSException e) {
+			throw new IOException(e.getMessage());
+		}
+		styleSheet.setRuleList(rules);
+		return styleSheet;
+	}
+
+	private void writeRule(CSSStyleRuleImpl rule, DataOutput out)
+			throws IOException {
+		SelectorList selectors = rule.getSelectorList();
+		out.writeInt(selectors.getLength());
+		for (int i = 0; i < selectors.getLength(); i++) {
+			writeSelector(selectors.item(i), out);
+		}
+		CSSPropertyList properties = rule.getCSSPropertyList();
+		int length = properties == null ? 0 : properties.getLength();
+		out.writeInt(length);
+		for (int i = 0; i < length; i++) {
+			CSSProperty property = properties.item(i);
+			out.writeUTF(property.getName());
+			out.writeBoolean(property.isImportant());
+			writeUnits(getLexicalUnit(property.getValue()), out);
+		}
+	}
+
+	private CSSRule readRule(CSSStyleSheet styleSheet, DataInput in)
+			throws IOException {
+		Selector[] selectors = new Selector[in.readInt()];
+		for (int i = 0; i < selectors.length; i++) {
+			selectors[i] = readSelector(in);
+		}
+		CSSStyleRuleImpl rule = new CSSStyleRuleImpl(styleSheet, null,
+				new CSSSelectorListImpl(selectors));
+		CSSStyleDeclarationImpl declaration = new CSSStyleDeclarationImpl(rule);
+		int length = in.readInt();
+		for (int i = 0; i < length; i++) {
+			String name = in.readUTF();
+			boolean important = in.readBoolean();
+			LexicalUnit value = readUnits(in);
+			declaration.addProperty(new CSSPropertyImpl(name, CSSValueFactory
+					.newValue(value), important));
+		}
+		rule.setStyle(declaration);
+		return rule;
+	}
+
+	/**
+	 * Return the first lexical unit of the value, as it was given to
+	 * {@link CSSValueFactory#newValue(LexicalUnit)}.
+	 */
+	private static LexicalUnit getLexicalUnit(CSSValue value)
+			throws IOException {
+		if (value instanceof Measure) {
+			return ((Measure) value).value;
+		}
+		if (value instanceof RGBColorImpl) {
+			return ((RGBColorImpl) value).lexicalUnit;
+		}
+		if (value instanceof CSSValueList
+				&& ((CSSValueList) value).getLength() > 0) {
+			return getLexicalUnit(((CSSValueList) value).item(0));
+		}
+		throw new IOException("Unsupported value: " + value);
+	}
+
+	// Selectors
+
+	private void writeSelector(Selector selector, DataOutput out)
+			throws IOException {
+		short type = selector.getSelectorType();
+		out.writeShort(type);
+		switch (type) {
+		case Selector.SAC_CONDITIONAL_SELECTOR:
+			ConditionalSelector conditional = (ConditionalSelector) selector;
+			writeSelector(conditional.getSimpleSelector(), out);
+			writeCondition(conditional.getCondition(), out);
+			break;
+		case Selector.SAC_ELEMENT_NODE_SELECTOR:
+		case Selector.SAC_PSEUDO_ELEMENT_SELECTOR:
+			ElementSelector element = (ElementSelector) selector;
+			writeString(element.getNamespaceURI(), out);
+			writeString(element.getLocalName(), out);
+			break;
+		case Selector.SAC_DESCENDANT_SELECTOR:
+		case Selector.SAC_CHILD_SELECTOR:
+			DescendantSelector descendant = (DescendantSelector) selector;
+			writeSelector(descendant.getAncestorSelector(), out);
+			writeSelector(descendant.getSimpleSelector(), out);
+			break;
+		case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+			SiblingSelector sibling = (SiblingSelector) selector;
+			out.writeShort(sibling.getNodeType());
+			writeSelector(sibling.getSelector(), out);
+			writeSelector(sibling.getSiblingSelector(), out);
+			break;
+		default:
+			throw new IOException("Unsupported selector type: " + type);
+		}
+	}
+
+	private Selector readSelector(DataInput in) throws IOException {
+		short type = in.readShort();
+		switch (type) {
+		case Selector.SAC_CONDITIONAL_SELECTOR:
+			SimpleSelector simple = (SimpleSelector) readSelector(in);
+			return selectorFactory.createConditionalSelector(simple,
+					readCondition(in));
+		case Selector.SAC_ELEMENT_NODE_SELECTOR:
+			return selectorFactory.createElementSelector(readString(in),
+					readString(in));
+		case Selector.SAC_PSEUDO_ELEMENT_SELECTOR:
+			return selectorFactory.createPseudoElementSelector(readString(in),
+					readString(in));
+		case Selector.SAC_DESCENDANT_SELECTOR:
+			Selector ancestor = readSelector(in);
+			return selectorFactory.createDescendantSelector(ancestor,
+					(SimpleSelector) readSelector(in));
+		case Selector.SAC_CHILD_SELECTOR:
+			Selector parent = readSelector(in);
+			return selectorFactory.createChildSelector(parent,
+					(SimpleSelector) readSelector(in));
+		case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+			short nodeType = in.readShort();
+			Selector child = readSelector(in);
+			return selectorFactory.createDirectAdjacentSelector(nodeType,
+					child, (SimpleSelector) readSelector(in));
+		default:
+			throw new IOException("Unsupported selector type: " + type);
+		}
+	}
+
+	private void writeCondition(Condition condition, DataOutput out)
+			throws IOException {
+		short type = condition.getConditionType();
+		out.writeShort(type);
+		switch (type) {
+		case Condition.SAC_AND_CONDITION:
+			CombinatorCondition combinator = (CombinatorCondition) condition;
+			writeCondition(combinator.getFirstCondition(), out);
+			writeCondition(combinator.getSecondCondition(), out);
+			break;
+		case Condition.SAC_ATTRIBUTE_CONDITION:
+		case Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION:
+		case Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+			AttributeCondition attribute = (AttributeCondition) condition;
+			writeString(attribute.getLocalName(), out);
+			writeString(attribute.getNamespaceURI(), out);
+			out.writeBoolean(attribute.getSpecified());
+			writeString(attribute.getValue(), out);
+			break;
+		case Condition.SAC_ID_CONDITION:
+			writeString(((AttributeCondition) condition).getValue(), out);
+			break;
+		case Condition.SAC_CLASS_CONDITION:
+		case Condition.SAC_PSEUDO_CLASS_CONDITION:
+			AttributeCondition named = (AttributeCondition) condition;
+			writeString(named.getNamespaceURI(), out);
+			writeString(named.getValue(), out);
+			break;
+		case Condition.SAC_LANG_CONDITION:
+			writeString(((LangCondition) condition).getLang(), out);
+			break;
+		default:
+			throw new IOException("Unsupported condition type: " + type);
+		}
+	}
+
+	private Condition readCondition(DataInput in) throws IOException {
+		short type = in.readShort();
+		switch (type) {
+		case Condition.SAC_AND_CONDITION:
+			Condition first = readCondition(in);
+			return conditionFactory.createAndCondition(first,
+					readCondition(in));
+		case Condition.SAC_ATTRIBUTE_CONDITION:
+		case Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION:
+		case Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+			String localName = readString(in);
+			String namespaceURI = readString(in);
+			boolean specified = in.readBoolean();
+			String value = readString(in);
+			if (type == Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION) {
+				return conditionFactory.createOneOfAttributeCondition(
+						localName, namespaceURI, specified, value);
+			}
+			if (type == Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION) {
+				return conditionFactory.createBeginHyphenAttributeCondition(
+						localName, namespaceURI, specified, value);
+			}
+			return conditionFactory.createAttributeCondition(localName,
+					namespaceURI, specified, value);
+		case Condition.SAC_ID_CONDITION:
+			return conditionFactory.createIdCondition(readString(in));
+		case Condition.SAC_CLASS_CONDITION:
+			String classNamespaceURI = readString(in);
+			return conditionFactory.createClassCondition(classNamespaceURI,
+					readString(in));
+		case Condition.SAC_PSEUDO_CLASS_CONDITION:
+			String pseudoNamespaceURI = readString(in);
+			return conditionFactory.createPseudoClassCondition(
+					pseudoNamespaceURI, readString(in));
+		case Condition.SAC_LANG_CONDITION:
+			return conditionFactory.createLangCondition(readString(in));
+		default:
+			throw new IOException("Unsupported condition type: " + type);
+		}
+	}
+
+	// Values
+
+	private static void writeUnits(LexicalUnit unit, DataOutput out)
+			throws IOException {
+		for (; unit != null; unit = unit.getNextLexicalUnit()) {
+			out.writeBoolean(true);
+			writeUnit(unit, out);
+		}
+		out.writeBoolean(false);
+	}
+
+	private static void writeUnit(LexicalUnit unit, DataOutput out)
+			throws IOException {
+		short type = unit.getLexicalUnitType();
+		out.writeShort(type);
+		switch (type) {
+		case LexicalUnit.SAC_INTEGER:
+			out.writeInt(unit.getIntegerValue());
+			break;
+		case LexicalUnit.SAC_REAL:
+			out.writeFloat(unit.getFloatValue());
+			break;
+		case LexicalUnit.SAC_EM:
+		case LexicalUnit.SAC_EX:
+		case LexicalUnit.SAC_PIXEL:
+		case LexicalUnit.SAC_INCH:
+		case LexicalUnit.SAC_CENTIMETER:
+		case LexicalUnit.SAC_MILLIMETER:
+		case LexicalUnit.SAC_POINT:
+		case LexicalUnit.SAC_PICA:
+		case LexicalUnit.SAC_PERCENTAGE:
+		case LexicalUnit.SAC_DEGREE:
+		case LexicalUnit.SAC_GRADIAN:
+		case LexicalUnit.SAC_RADIAN:
+		case LexicalUnit.SAC_MILLISECOND:
+		case LexicalUnit.SAC_SECOND:
+		case LexicalUnit.SAC_HERTZ:
+		case LexicalUnit.SAC_KILOHERTZ:
+		case LexicalUnit.SAC_DIMENSION:
+			out.writeFloat(unit.getFloatValue());
+			writeString(unit.getDimensionUnitText(), out);
+			break;
+		case LexicalUnit.SAC_URI:
+		case LexicalUnit.SAC_IDENT:
+		case LexicalUnit.SAC_STRING_VALUE:
+		case LexicalUnit.SAC_ATTR:
+		case LexicalUnit.SAC_UNICODERANGE:
+			writeString(unit.getStringValue(), out);
+			break;
+		case LexicalUnit.SAC_FUNCTION:
+		case LexicalUnit.SAC_RGBCOLOR:
+		case LexicalUnit.SAC_RECT_FUNCTION:
+		case LexicalUnit.SAC_COUNTER_FUNCTION:
+		case LexicalUnit.SAC_COUNTERS_FUNCTION:
+			writeString(unit.getFunctionName(), out);
+			writeUnits(unit.getParameters(), out);
+			break;
+		case LexicalUnit.SAC_SUB_EXPRESSION:
+			writeUnits(unit.getSubValues(), out);
+			break;
+		case LexicalUnit.SAC_INHERIT:
+			break;
+		default:
+			if (type < 0 || type > LexicalUnit.SAC_OPERATOR_TILDE) {
+				throw new IOException("Unsupported lexical unit type: " + type);
+			}
+			// operators have no value
+		}
+	}
+
+	private static LexicalUnit readUnits(DataInput in) throws IOException {
+		LexicalUnit first = null;
+		LexicalUnit previous = null;
+		while (in.readBoolean()) {
+			previous = readUnit(in, previous);
+			if (first == null) {
+				first = previous;
+			}
+		}
+		return first;
+	}
+
+	private static LexicalUnit readUnit(DataInput in, LexicalUnit previous)
+			throws IOException {
+		short type = in.readShort();
+		switch (type) {
+		case LexicalUnit.SAC_INTEGER:
+			return CSSLexicalUnitImpl.createInteger(in.readInt(), previous);
+		case LexicalUnit.SAC_REAL:
+			return CSSLexicalUnitImpl.createFloat(type, in.readFloat(), "",
+					previous);
+		case LexicalUnit.SAC_EM:
+		case LexicalUnit.SAC_EX:
+		case LexicalUnit.SAC_PIXEL:
+		case LexicalUnit.SAC_INCH:
+		case LexicalUnit.SAC_CENTIMETER:
+		case LexicalUnit.SAC_MILLIMETER:
+		case LexicalUnit.SAC_POINT:
+		case LexicalUnit.SAC_PICA:
+		case LexicalUnit.SAC_PERCENTAGE:
+		case LexicalUnit.SAC_DEGREE:
+		case LexicalUnit.SAC_GRADIAN:
+		case LexicalUnit.SAC_RADIAN:
+		case LexicalUnit.SAC_MILLISECOND:
+		case LexicalUnit.SAC_SECOND:
+		case LexicalUnit.SAC_HERTZ:
+		case LexicalUnit.SAC_KILOHERTZ:
+		case LexicalUnit.SAC_DIMENSION:
+			float value = in.readFloat();
+			return CSSLexicalUnitImpl.createFloat(type, value, readString(in),
+					previous);
+		case LexicalUnit.SAC_URI:
+		case LexicalUnit.SAC_IDENT:
+		case LexicalUnit.SAC_STRING_VALUE:
+		case LexicalUnit.SAC_ATTR:
+		case LexicalUnit.SAC_UNICODERANGE:
+			return CSSLexicalUnitImpl.createString(type, readString(in),
+					previous);
+		case LexicalUnit.SAC_FUNCTION:
+		case LexicalUnit.SAC_RGBCOLOR:
+		case LexicalUnit.SAC_RECT_FUNCTION:
+		case LexicalUnit.SAC_COUNTER_FUNCTION:
+		case LexicalUnit.SAC_COUNTERS_FUNCTION:
+			CSSLexicalUnitImpl function = CSSLexicalUnitImpl.createFunction(
+					type, readString(in), previous);
+			function.setParameters(readUnits(in));
+			return function;
+		case LexicalUnit.SAC_SUB_EXPRESSION:
+			CSSLexicalUnitImpl expression = CSSLexicalUnitImpl
+					.createSubExpression(previous);
+			expression.setSubValues(readUnits(in));
+			return expression;
+		case LexicalUnit.SAC_INHERIT:
+			return CSSLexicalUnitImpl.createSimple(type, previous);
+		default:
+			if (type < 0 || type > LexicalUnit.SAC_OPERATOR_TILDE) {
+				throw new IOException("Unsupported lexical unit type: " + type);
+			}
+			return CSSLexicalUnitImpl.createSimple(type, previous);
+		}
+	}
+
+	private static void writeString(String value, DataOutput out)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -24,8 +24,14 @@ public class RGBColorImpl extends CSSValueImpl implements RGBColor, Serializable
 	private CSSPrimitiveValue red;
 	private CSSPrimitiveValue green;
 	private CSSPrimitiveValue blue;
+
+	/**
+	 * The unit the color was created from, kept to write the color back.
+	 */
+	transient LexicalUnit lexicalUnit;
 	
 	public RGBColorImpl(LexicalUnit lexicalUnit) {
+		this.lexicalUnit = lexicalUnit;
 		LexicalUnit nextUnit = lexicalUnit.getParameters();
 		red = new Measure(nextUnit);
 		nextUnit = nextUnit.getNextLexicalUnit().getNextLexicalUnit();
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.css.core.impl.engine;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -45,9 +47,11 @@ import org.eclipse.e4.ui.css.core.engine.CSSErrorHandler;
 import org.eclipse.e4.ui.css.core.exceptions.UnsupportedPropertyException;
 import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleSheetImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleSheetSerializer;
 import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
 import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
+import org.eclipse.e4.ui.css.core.resources.AbstractResourcesRegistry;
 import org.eclipse.e4.ui.css.core.resources.CSSResourcesHelpers;
 import org.eclipse.e4.ui.css.core.resources.IResourcesRegistry;
 import org.eclipse.e4.ui.css.core.util.impl.resources.ResourcesLocatorManager;
@@ -127,6 +131,18 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 
 	private Map<String, String> currentCSSPropertiesApplyed;
 
+	/**
+	 * The key of the resources used by the properties applied to an element,
+	 * in the data of its {@link CSSElementContext}.
+	 */
+	private static final String RESOURCE_REFERENCES = "org.eclipse.e4.ui.css.core.resourceReferences"; //$NON-NLS-1$
+
+	/**
+	 * The types and keys of the resources converted for the property being
+	 * applied, or <code>null</code> if they are not reference counted.
+	 */
+	private List<Object> currentResourceReferences;
+
 	private boolean throwError;
 
 	private Map<Object, ICSSValueConverter> valueConverters = null;
@@ -174,6 +190,24 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 * @see org.eclipse.e4.ui.core.css.engine.CSSEngine#parseStyleSheet(org.w3c.css.sac.InputSource)
 	 */
 	public StyleSheet parseStyleSheet(InputSource source) throws IOException {
+		return parseStyleSheet(source, null);
+	}
+
+	/**
+	 * Parse the style sheet like {@link #parseStyleSheet(InputSource)}, and
+	 * collect the {@link URL} of every style sheet it imports, directly or
+	 * through other imported style sheets.
+	 * 
+	 * @param source
+	 *            the style sheet source
+	 * @param imports
+	 *            the list to add the URLs of the imported style sheets to, or
+	 *            <code>null</code>
+	 * @return the style sheet
+	 * @throws IOException
+	 */
+	public StyleSheet parseStyleSheet(InputSource source, List imports)
+			throws IOException {
 		// Check that CharacterStream or ByteStream is not null
 		checkInputSource(source);
 		CSSParser parser = makeCSSParser();
@@ -201,12 +235,15 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		    		url = new URL(path);
 		    	}
 		    }
+			if (imports != null) {
+				imports.add(url);
+			}
 			InputStream stream = url.openStream();
 			InputSource tempStream = new InputSource();
 			tempStream.setURI(url.toString());
 			tempStream.setByteStream(stream);
 			parseImport = true;
-			styleSheet = (CSSStyleSheet) this.parseStyleSheet(tempStream);
+			styleSheet = (CSSStyleSheet) this.parseStyleSheet(tempStream, imports);
 			parseImport = false;
 			CSSRuleList tempRules = styleSheet.getCssRules();
 			for (int j = 0; j < tempRules.getLength(); j++) {
@@ -230,6 +267,58 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		return s;
 	}
 
+	/**
+	 * Write the rules of a style sheet returned by
+	 * {@link #parseStyleSheet(InputSource)} in a binary form that
+	 * {@link #readStyleSheet(DataInput)} reads back without parsing.
+	 * 
+	 * @param styleSheet
+	 *            the style sheet
+	 * @param out
+	 *            the output
+	 * @throws IOException
+	 *             if the output fails or the style sheet has rules that
+	 *             cannot be written
+	 */
+	public void writeStyleSheet(StyleSheet styleSheet, DataOutput out)
+			throws IOException {
+		if (!(styleSheet instanceof CSSStyleSheet)) {
+			throw new IOException("Unsupported style sheet: " + styleSheet);
+		}
+		makeStyleSheetSerializer().write((CSSStyleSheet) styleSheet, out);
+	}
+
+	/**
+	 * Read a style sheet written by
+	 * {@link #writeStyleSheet(StyleSheet, DataOutput)} and add it to the
+	 * document like {@link #parseStyleSheet(InputSource)} does.
+	 * 
+	 * @param in
+	 *            the input
+	 * @return the style sheet
+	 * @throws IOException
+	 *             if the input fails or is not a written style sheet
+	 */
+	public StyleSheet readStyleSheet(DataInput in) throws IOException {
+		CSSStyleSheet s = makeStyleSheetSerializer().read(in);
+		if (documentCSS instanceof ExtendedDocumentCSS) {
+			documentCSS.addStyleSheet(s);
+		}
+		return s;
+	}
+
+	private CSSStyleSheetSerializer makeStyleSheetSerializer()
+			throws IOException {
+		CSSParser parser = makeCSSParser();
+		if (parser.getSelectorFactory() == null
+				|| parser.getConditionFactory() == null) {
+			// the selectors could not be created as the parser creates them
+			throw new IOException("The parser has no SAC factories");
+		}
+		return new CSSStyleSheetSerializer(parser.getSelectorFactory(),
+				parser.getConditionFactory());
+	}
+
 	/**
 	 * Return true if <code>source</code> is valid and false otherwise.
 	 * 
@@ -768,36 +857,99 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		}
 
 		element = getElement(element); // in case we're passed a node
-		for (ICSSPropertyHandlerProvider provider : propertyHandlerProviders) {
-			Collection<ICSSPropertyHandler> handlers = provider
-					.getCSSPropertyHandlers(element, property);
-			if (handlers == null) {
-				continue;
-			}
-			for (ICSSPropertyHandler handler : handlers) {
-				try {
-					boolean result = handler.applyCSSProperty(element,
-							property,
-							value, pseudo, this);
-					if (result) {
-						// Add CSS Property to flag that this CSS Property was
-						// applied.
-						if (currentCSSPropertiesApplyed != null) {
-							currentCSSPropertiesApplyed.put(property, property);
+		// reference count the resources of the elements that are released
+		// when their widget is disposed
+		CSSElementContext context = resourcesRegistry instanceof AbstractResourcesRegistry ? getCSSElementContext(element)
+				: null;
+		List<Object> previousResourceReferences = currentResourceReferences;
+		try {
+			for (ICSSPropertyHandlerProvider provider : propertyHandlerProviders) {
+				Collection<ICSSPropertyHandler> handlers = provider
+						.getCSSPropertyHandlers(element, property);
+				if (handlers == null) {
+					continue;
+				}
+				for (ICSSPropertyHandler handler : handlers) {
+					currentResourceReferences = context != null ? new ArrayList<Object>()
+							: null;
+					try {
+						boolean result = handler.applyCSSProperty(element,
+								property,
+								value, pseudo, this);
+						if (result) {
+							// Add CSS Property to flag that this CSS Property was
+							// applied.
+							if (currentCSSPropertiesApplyed != null) {
+								currentCSSPropertiesApplyed.put(property, property);
+							}
+							if (context != null) {
+								setResourceReferences(context, property + ":" //$NON-NLS-1$
+										+ pseudo, currentResourceReferences);
+							}
+							return handler;
 						}
-						return handler;
+						releaseResources(currentResourceReferences);
+					} catch (Exception e) {
+						releaseResources(currentResourceReferences);
+						if (throwError
+								|| (!throwError && !(e instanceof UnsupportedPropertyException)))
+							handleExceptions(e);
 					}
-				} catch (Exception e) {
-					if (throwError
-							|| (!throwError && !(e instanceof UnsupportedPropertyException)))
-						handleExceptions(e);
 				}
 			}
+		} finally {
+			currentResourceReferences = previousResourceReferences;
 		}
 
 		return null;
 	}
 
+	/**
+	 * Remembers the resources used by the property applied to the element of
+	 * the context, and releases the resources that it used before.
+	 */
+	private void setResourceReferences(CSSElementContext context,
+			String property, List<Object> references) {
+		Map<String, List<Object>> properties = (Map<String, List<Object>>) context
+				.getData(RESOURCE_REFERENCES);
+		if (properties == null) {
+			if (references.isEmpty()) {
+				return;
+			}
+			properties = new HashMap<String, List<Object>>();
+			context.setData(RESOURCE_REFERENCES, properties);
+		}
+		List<Object> previous = references.isEmpty() ? properties
+				.remove(property) : properties.put(property, references);
+		releaseResources(previous);
+	}
+
+	/**
+	 * Releases the resources used by the element of the context.
+	 */
+	private void releaseResources(CSSElementContext context) {
+		Map<String, List<Object>> properties = (Map<String, List<Object>>) context
+				.getData(RESOURCE_REFERENCES);
+		if (properties == null) {
+			return;
+		}
+		context.setData(RESOURCE_REFERENCES, null);
+		for (List<Object> references : properties.values()) {
+			releaseResources(references);
+		}
+	}
+
+	private void releaseResources(List<Object> references) {
+		if (references == null
+				|| !(resourcesRegistry instanceof AbstractResourcesRegistry)) {
+			return;
+		}
+		AbstractResourcesRegistry registry = (AbstractResourcesRegistry) resourcesRegistry;
+		for (int i = 0; i < references.size(); i += 2) {
+			registry.releaseResource(references.get(i), references.get(i + 1));
+		}
+	}
+
 	public String retrieveCSSProperty(Object element, String property,
 			String pseudo) {
 		try {
@@ -953,8 +1105,12 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	protected void handleWidgetDisposed(Object widget) {
 		if (widgetsMap != null)
 			widgetsMap.remove(widget);
-		if (elementsContext != null)
-			elementsContext.remove(widget);
+		if (elementsContext != null) {
+			CSSElementContext context = elementsContext.remove(widget);
+			if (context != null) {
+				releaseResources(context);
+			}
+		}
 	}
 
 	public Object getDocument() {
@@ -1115,6 +1271,27 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		Object newValue = null;
 		String key = CSSResourcesHelpers.getCSSValueKey(value);
 		IResourcesRegistry resourcesRegistry = getResourcesRegistry();
+		if (currentResourceReferences != null && key != null
+				&& resourcesRegistry instanceof AbstractResourcesRegistry) {
+			// the resource is used by the element being styled, until it is
+			// restyled or disposed
+			AbstractResourcesRegistry registry = (AbstractResourcesRegistry) resourcesRegistry;
+			newValue = registry.getReferencedResource(toType, key);
+			if (newValue == null) {
+				ICSSValueConverter converter = getCSSValueConverter(toType);
+				if (converter == null) {
+					return null;
+				}
+				newValue = converter.convert(value, this, context);
+				if (newValue == null) {
+					return null;
+				}
+				registry.registerReferencedResource(toType, key, newValue);
+			}
+			currentResourceReferences.add(toType);
+			currentResourceReferences.add(key);
+			return newValue;
+		}
 		if (resourcesRegistry != null) {
 			if (key != null)
 				newValue = resourcesRegistry.getResource(toType, key);
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.sac;
+
+import org.w3c.css.sac.LexicalUnit;
+
+/**
+ * This class provides an implementation of the
+ * {@link org.w3c.css.sac.LexicalUnit} interface for values that are not
+ * created by a SAC parser, such as the values of a style sheet that is read
+ * back from its binary form.
+ */
+public class CSSLexicalUnitImpl implements LexicalUnit {
+
+	private final short type;
+
+	private int integerValue;
+
+	private float floatValue;
+
+	private String dimensionUnitText;
+
+	private String functionName;
+
+	private String stringValue;
+
+	private LexicalUnit parameters;
+
+	private LexicalUnit subValues;
+
+	private LexicalUnit previous;
+
+	private LexicalUnit next;
+
+	private CSSLexicalUnitImpl(short type, LexicalUnit previous) {
+		this.type = type;
+		this.previous = previous;
+		if (previous instanceof CSSLexicalUnitImpl) {
+			((CSSLexicalUnitImpl) previous).next = this;
+		}
+	}
+
+	/**
+	 * Creates a unit without a value, such as an operator or
+	 * <code>inherit</code>.
+	 */
+	public static CSSLexicalUnitImpl createSimple(short type,
+			LexicalUnit previous) {
+		return new CSSLexicalUnitImpl(type, previous);
+	}
+
+	/**
+	 * Creates an integer unit.
+	 */
+	public static CSSLexicalUnitImpl createInteger(int value,
+			LexicalUnit previous) {
+		CSSLexicalUnitImpl unit = new CSSLexicalUnitImpl(
+				LexicalUnit.SAC_INTEGER, previous);
+		unit.integerValue = value;
+		return unit;
+	}
+
+	/**
+	 * Creates a real number or a dimension unit.
+	 */
+	public static CSSLexicalUnitImpl createFloat(short type, float value,
+			String dimensionUnitText, LexicalUnit previous) {
+		CSSLexicalUnitImpl unit = new CSSLexicalUnitImpl(type, previous);
+		unit.floatValue = value;
+		unit.dimensionUnitText = dimensionUnitText;
+		return unit;
+	}
+
+	/**
+	 * Creates a unit whose value is a string, such as an identifier or an URI.
+	 */
+	public static CSSLexicalUnitImpl createString(short type, String value,
+			LexicalUnit previous) {
+		CSSLexicalUnitImpl unit = new CSSLexicalUnitImpl(type, previous);
+		unit.stringValue = value;
+		return unit;
+	}
+
+	/**
+	 * Creates a function unit, such as <code>rgb(...)</code>. The parameters
+	 * are set with {@link #setParameters(LexicalUnit)} once they are created.
+	 */
+	public static CSSLexicalUnitImpl createFunction(short type, String name,
+			LexicalUnit previous) {
+		CSSLexicalUnitImpl unit = new CSSLexicalUnitImpl(type, previous);
+		unit.functionName = name;
+		return unit;
+	}
+
+	/**
+	 * Creates a sub expression unit. The sub values are set with
+	 * {@link #setSubValues(LexicalUnit)} once they are created.
+	 */
+	public static CSSLexicalUnitImpl createSubExpression(LexicalUnit previous) {
+		return new CSSLexicalUnitImpl(LexicalUnit.SAC_SUB_EXPRESSION, previous);
+	}
+
+	public void setParameters(LexicalUnit parameters) {
+		this.parameters = parameters;
+	}
+
+	public void setSubValues(LexicalUnit subValues) {
+		this.subValues = subValues;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getLexicalUnitType()}.
+	 */
+	public short getLexicalUnitType() {
+		return type;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getNextLexicalUnit()}.
+	 */
+	public LexicalUnit getNextLexicalUnit() {
+		return next;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getPreviousLexicalUnit()}.
+	 */
+	public LexicalUnit getPreviousLexicalUnit() {
+		return previous;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getIntegerValue()}.
+	 */
+	public int getIntegerValue() {
+		return integerValue;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getFloatValue()}.
+	 */
+	public float getFloatValue() {
+		return floatValue;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getDimensionUnitText()}.
+	 */
+	public String getDimensionUnitText() {
+		return dimensionUnitText;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getFunctionName()}.
+	 */
+	public String getFunctionName() {
+		return functionName;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getParameters()}.
+	 */
+	public LexicalUnit getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getStringValue()}.
+	 */
+	public String getStringValue() {
+		return stringValue;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link LexicalUnit#getSubValues()}.
+	 */
+	public LexicalUnit getSubValues() {
+		return subValues;
+	}
+}
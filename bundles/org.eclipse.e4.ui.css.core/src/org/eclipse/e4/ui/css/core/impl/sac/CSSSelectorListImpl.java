@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.sac;
+
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+
+/**
+ * This class provides an implementation of the
+ * {@link org.w3c.css.sac.SelectorList} interface over an array of selectors.
+ */
+public class CSSSelectorListImpl implements SelectorList {
+
+	private final Selector[] selectors;
+
+	public CSSSelectorListImpl(Selector[] selectors) {
+		this.selectors = selectors;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link SelectorList#getLength()}.
+	 */
+	public int getLength() {
+		return selectors.length;
+	}
+
+	/**
+	 * <b>SAC</b>: Implements {@link SelectorList#item(int)}.
+	 */
+	public Selector item(int index) {
+		if (index < 0 || index >= selectors.length) {
+			return null;
+		}
+		return selectors[index];
+	}
+}
@@ -11,12 +11,22 @@
 package org.eclipse.e4.ui.css.core.resources;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Abstract class resources registry which implement basic cache with Map.
+ * <p>
+ * Resources can also be reference counted. A resource registered with
+ * {@link #registerReferencedResource(Object, Object, Object)} is disposed as
+ * soon as its last reference is released, unless it was also handed out
+ * through {@link #getResource(Object, Object)} or registered through
+ * {@link #registerResource(Object, Object, Object)}, whose callers do not
+ * release what they use. Those resources are kept until the registry is
+ * disposed.
+ * </p>
  * 
  * @version 1.0.0
  * @author <a href="mailto:angelo.zerr@gmail.com">Angelo ZERR</a>
@@ -26,6 +36,16 @@ public abstract class AbstractResourcesRegistry implements IResourcesRegistry {
 
 	private Map allResourcesMap = null;
 
+	/**
+	 * The number of references to each resource, by type and key.
+	 */
+	private Map referencesMap = null;
+
+	/**
+	 * The keys of the resources that are used without references, by type.
+	 */
+	private Map sharedKeysMap = null;
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -33,12 +53,10 @@ public abstract class AbstractResourcesRegistry implements IResourcesRegistry {
 	 *      java.lang.Object)
 	 */
 	public Object getResource(Object type, Object key) {
-		if (allResourcesMap == null)
-			return null;
-		Map resourcesMap = (Map) allResourcesMap.get(type);
-		if (resourcesMap == null)
-			return null;
-		return resourcesMap.get(key);
+		Object resource = lookUpResource(type, key);
+		if (resource != null)
+			setShared(type, key);
+		return resource;
 	}
 
 	/*
@@ -48,6 +66,125 @@ public abstract class AbstractResourcesRegistry implements IResourcesRegistry {
 	 *      java.lang.Object, java.lang.Object)
 	 */
 	public void registerResource(Object type, Object key, Object resource) {
+		putResource(type, key, resource);
+		setShared(type, key);
+	}
+
+	/**
+	 * Return the resource type of <code>type</code> stored into cache with
+	 * <code>key</code> and add a reference to it. The reference must be
+	 * released with {@link #releaseResource(Object, Object)}.
+	 * 
+	 * @param type
+	 *            Resource type like Font, Color, Cursor, Image
+	 * @param key
+	 * @return the resource, or <code>null</code> if there is none and no
+	 *         reference was added
+	 */
+	public Object getReferencedResource(Object type, Object key) {
+		Object resource = lookUpResource(type, key);
+		if (resource != null)
+			getReferences(type, key, true)[0]++;
+		return resource;
+	}
+
+	/**
+	 * Register into cache the resource <code>resource</code> type of
+	 * <code>type</code> with key <code>key</code>, with one reference that
+	 * must be released with {@link #releaseResource(Object, Object)}.
+	 * 
+	 * @param type
+	 *            Resource type like Font, Color, Cursor, Image
+	 * @param key
+	 * @param resource
+	 */
+	public void registerReferencedResource(Object type, Object key,
+			Object resource) {
+		putResource(type, key, resource);
+		getReferences(type, key, true)[0]++;
+	}
+
+	/**
+	 * Release a reference to the resource type of <code>type</code> stored
+	 * with <code>key</code>. The resource is unregistered and disposed when
+	 * no references remain and it is not used without references.
+	 * 
+	 * @param type
+	 *            Resource type like Font, Color, Cursor, Image
+	 * @param key
+	 */
+	public void releaseResource(Object type, Object key) {
+		int[] references = getReferences(type, key, false);
+		if (references == null)
+			return;
+		if (--references[0] > 0)
+			return;
+		((Map) referencesMap.get(type)).remove(key);
+		if (isShared(type, key))
+			return;
+		Map resourcesMap = (Map) allResourcesMap.get(type);
+		Object resource = resourcesMap == null ? null : resourcesMap
+				.remove(key);
+		if (resource != null && !isDisposed(resource))
+			disposeResource(type, String.valueOf(key), resource);
+	}
+
+	/**
+	 * Return the number of resources type of <code>type</code> stored into
+	 * cache that are not disposed.
+	 * 
+	 * @param type
+	 *            Resource type like Font, Color, Cursor, Image
+	 * @return the number of live resources
+	 */
+	public int getResourceCount(Object type) {
+		if (allResourcesMap == null)
+			return 0;
+		Map resourcesMap = (Map) allResourcesMap.get(type);
+		if (resourcesMap == null)
+			return 0;
+		int count = 0;
+		for (Iterator iterator = resourcesMap.values().iterator(); iterator
+				.hasNext();) {
+			if (!isDisposed(iterator.next()))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Return the number of live resources by resource type.
+	 * 
+	 * @return a map of the types to {@link Integer} counts
+	 */
+	public Map getResourceCounts() {
+		Map counts = new HashMap();
+		if (allResourcesMap == null)
+			return counts;
+		for (Iterator iterator = allResourcesMap.keySet().iterator(); iterator
+				.hasNext();) {
+			Object type = iterator.next();
+			counts.put(type, new Integer(getResourceCount(type)));
+		}
+		return counts;
+	}
+
+	private Object lookUpResource(Object type, Object key) {
+		if (allResourcesMap == null)
+			return null;
+		Map resourcesMap = (Map) allResourcesMap.get(type);
+		if (resourcesMap == null)
+			return null;
+		Object resource = resourcesMap.get(key);
+		if (resource != null && isDisposed(resource)) {
+			// disposed by someone else, forget it
+			resourcesMap.remove(key);
+			return null;
+		}
+		return resource;
+	}
+
+	private void putResource(Object type, Object key, Object resource) {
 		if (allResourcesMap == null)
 			allResourcesMap = new HashMap();
 		Map resourcesMap = (Map) allResourcesMap.get(type);
@@ -58,6 +195,45 @@ public abstract class AbstractResourcesRegistry implements IResourcesRegistry {
 		resourcesMap.put(key, resource);
 	}
 
+	private int[] getReferences(Object type, Object key, boolean create) {
+		if (referencesMap == null) {
+			if (!create)
+				return null;
+			referencesMap = new HashMap();
+		}
+		Map references = (Map) referencesMap.get(type);
+		if (references == null) {
+			if (!create)
+				return null;
+			references = new HashMap();
+			referencesMap.put(type, references);
+		}
+		int[] count = (int[]) references.get(key);
+		if (count == null && create) {
+			count = new int[1];
+			references.put(key, count);
+		}
+		return count;
+	}
+
+	private void setShared(Object type, Object key) {
+		if (sharedKeysMap == null)
+			sharedKeysMap = new HashMap();
+		Set keys = (Set) sharedKeysMap.get(type);
+		if (keys == null) {
+			keys = new HashSet();
+			sharedKeysMap.put(type, keys);
+		}
+		keys.add(key);
+	}
+
+	private boolean isShared(Object type, Object key) {
+		if (sharedKeysMap == null)
+			return false;
+		Set keys = (Set) sharedKeysMap.get(type);
+		return keys != null && keys.contains(key);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -70,17 +246,17 @@ public abstract class AbstractResourcesRegistry implements IResourcesRegistry {
 		Map resourcesMap = (Map) allResourcesMap.get(type);
 		if (resourcesMap == null)
 			return;
-		Object resource = resourcesMap.get(key);
-		if (resource != null)
-			resourcesMap.remove(resource);
+		resourcesMap.remove(key);
 	}
 
 	public void unregisterResource(Object resource) {
+		if (allResourcesMap == null)
+			return;
 		Object type = getResourceType(resource);
 		if (type != null) {
 			Map resourcesMap = (Map) allResourcesMap.get(type);
 			if (resourcesMap != null) {
-				resourcesMap.remove(resource);
+				resourcesMap.values().remove(resource);
 			}
 		}
 	}
@@ -88,6 +264,17 @@ public abstract class AbstractResourcesRegistry implements IResourcesRegistry {
 	public Object getResourceType(Object resource) {
 		return resource.getClass();
 	}
+
+	/**
+	 * Return true if the resource was disposed and should not be handed out
+	 * anymore. The default implementation returns false.
+	 * 
+	 * @param resource
+	 * @return
+	 */
+	protected boolean isDisposed(Object resource) {
+		return false;
+	}
 	
 	/*
 	 * (non-Javadoc)
@@ -95,6 +282,8 @@ public abstract class AbstractResourcesRegistry implements IResourcesRegistry {
 	 * @see org.eclipse.e4.ui.core.css.resources.IResourcesRegistry#dispose()
 	 */
 	public void dispose() {
+		referencesMap = null;
+		sharedKeysMap = null;
 		if (allResourcesMap == null)
 			return;
 		// Loop for all resources stored into cache
@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.swt.internal.theme;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.e4.ui.css.core.engine.CSSEngine;
+import org.eclipse.e4.ui.css.core.impl.engine.AbstractCSSEngine;
+import org.eclipse.osgi.service.datalocation.Location;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.w3c.css.sac.InputSource;
+import org.w3c.dom.stylesheets.StyleSheet;
+
+/**
+ * Keeps the parsed rules of the theme style sheets in a binary form, so that
+ * style sheets that did not change are loaded into the CSS engines without
+ * being parsed again.
+ * <p>
+ * An entry is kept for every style sheet URL, in memory and in a file under
+ * the metadata of the instance location. It records a SHA-1 hash of the
+ * content of the style sheet and of every style sheet it imports, and is only
+ * used while all of them are unchanged. Style sheets that cannot be written
+ * in the binary form, such as ones with media rules, are always parsed.
+ * </p>
+ */
+final class StyleSheetCache {
+
+	/**
+	 * The version of the cache files, to be changed whenever their layout
+	 * changes.
+	 */
+	private static final int CACHE_VERSION = 1;
+
+	private static final String CACHE_DIRECTORY = "stylesheets"; //$NON-NLS-1$
+
+	private static final String METADATA_DIRECTORY = ".metadata/.plugins/" //$NON-NLS-1$
+			+ ThemeEngine.THEME_PLUGIN_ID;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	/**
+	 * A cached style sheet.
+	 */
+	private static final class Entry {
+		final String hash;
+
+		final String[] importURLs;
+
+		final String[] importHashes;
+
+		final byte[] rules;
+
+		Entry(String hash, String[] importURLs, String[] importHashes,
+				byte[] rules) {
+			this.hash = hash;
+			this.importURLs = importURLs;
+			this.importHashes = importHashes;
+			this.rules = rules;
+		}
+	}
+
+	/**
+	 * The directory of the cache files, or <code>null</code> to only keep
+	 * entries in memory.
+	 */
+	private final File directory;
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * Creates a cache that keeps its files in the given directory.
+	 *
+	 * @param directory
+	 *            the directory, or <code>null</code> to only keep the entries
+	 *            in memory
+	 */
+	StyleSheetCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the directory of the cache files in the metadata of the
+	 * instance location, or in the data area of the bundle when there is no
+	 * writable instance location.
+	 *
+	 * @return the directory, or <code>null</code>
+	 */
+	static File getDefaultDirectory() {
+		Bundle bundle = FrameworkUtil.getBundle(StyleSheetCache.class);
+		if (bundle == null || bundle.getBundleContext() == null) {
+			return null;
+		}
+		BundleContext context = bundle.getBundleContext();
+		try {
+			ServiceReference[] references = context.getServiceReferences(
+					Location.class.getName(), Location.INSTANCE_FILTER);
+			if (references != null && references.length > 0) {
+				Location location = (Location) context
+						.getService(references[0]);
+				try {
+					URL url = location == null ? null : location.getURL();
+					if (url != null && !location.isReadOnly()
+							&& "file".equals(url.getProtocol())) { //$NON-NLS-1$
+						return new File(new File(url.getFile(),
+								METADATA_DIRECTORY), CACHE_DIRECTORY);
+					}
+				} finally {
+					if (location != null) {
+						context.ungetService(references[0]);
+					}
+				}
+			}
+		} catch (InvalidSyntaxException e) {
+			// the filter is a constant
+		}
+		return context.getDataFile(CACHE_DIRECTORY);
+	}
+
+	/**
+	 * Loads the style sheet at the given URL into the engine, from the cache
+	 * if it did not change since it was cached.
+	 *
+	 * @param engine
+	 *            the engine
+	 * @param url
+	 *            the resolved URL of the style sheet
+	 * @throws IOException
+	 *             if the style sheet cannot be read or parsed
+	 */
+	void load(CSSEngine engine, URL url) throws IOException {
+		byte[] content = read(url);
+		if (!(engine instanceof AbstractCSSEngine)) {
+			engine.parseStyleSheet(createSource(url, content));
+			return;
+		}
+		AbstractCSSEngine cssEngine = (AbstractCSSEngine) engine;
+		String key = url.toString();
+		String hash = hash(content);
+		Entry entry = getEntry(key);
+		if (entry != null && isValid(entry, hash)) {
+			try {
+				cssEngine.readStyleSheet(new DataInputStream(
+						new ByteArrayInputStream(entry.rules)));
+				return;
+			} catch (IOException e) {
+				// written by an incompatible version, parse it again
+				remove(key);
+			}
+		}
+
+		List<URL> imports = new ArrayList<URL>();
+		StyleSheet styleSheet = cssEngine.parseStyleSheet(
+				createSource(url, content), imports);
+		ByteArrayOutputStream rules = new ByteArrayOutputStream();
+		try {
+			cssEngine.writeStyleSheet(styleSheet, new DataOutputStream(rules));
+		} catch (IOException e) {
+			// has rules that cannot be cached
+			return;
+		}
+		String[] importURLs = new String[imports.size()];
+		String[] importHashes = new String[imports.size()];
+		for (int i = 0; i < importURLs.length; i++) {
+			URL importURL = imports.get(i);
+			importURLs[i] = importURL.toString();
+			importHashes[i] = hash(read(importURL));
+		}
+		put(key, new Entry(hash, importURLs, importHashes, rules.toByteArray()));
+	}
+
+	private static InputSource createSource(URL url, byte[] content) {
+		InputSource source = new InputSource();
+		source.setByteStream(new ByteArrayInputStream(content));
+		source.setURI(url.toString());
+		return source;
+	}
+
+	private boolean isValid(Entry entry, String hash) {
+		if (!entry.hash.equals(hash)) {
+			return false;
+		}
+		for (int i = 0; i < entry.importURLs.length; i++) {
+			try {
+				if (!entry.importHashes[i].equals(hash(read(new URL(
+						entry.importURLs[i]))))) {
+					return false;
+				}
+			} catch (IOException e) {
+				// the imported style sheet is gone
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private synchronized Entry getEntry(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null && directory != null) {
+			entry = readEntry(key, getFile(key));
+			if (entry != null) {
+				entries.put(key, entry);
+			}
+		}
+		return entry;
+	}
+
+	private synchronized void put(String key, Entry entry) {
+		entries.put(key, entry);
+		if (directory != null) {
+			writeEntry(key, entry, getFile(key));
+		}
+	}
+
+	private synchronized void remove(String key) {
+		entries.remove(key);
+		if (directory != null) {
+			getFile(key).delete();
+		}
+	}
+
+	private File getFile(String key) {
+		try {
+			return new File(directory, hash(key.getBytes("UTF-8")) + ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (IOException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+
+	private static Entry readEntry(String key, File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+					read(file)));
+			if (in.readInt() != CACHE_VERSION || !key.equals(in.readUTF())) {
+				return null;
+			}
+			String hash = in.readUTF();
+			int count = in.readInt();
+			String[] importURLs = new String[count];
+			String[] importHashes = new String[count];
+			for (int i = 0; i < count; i++) {
+				importURLs[i] = in.readUTF();
+				importHashes[i] = in.readUTF();
+			}
+			byte[] rules = new byte[in.readInt()];
+			in.readFully(rules);
+			return new Entry(hash, importURLs, importHashes, rules);
+		} catch (IOException e) {
+			// a broken file is written again
+			return null;
+		}
+	}
+
+	private static void writeEntry(String key, Entry entry, File file) {
+		File directory = file.getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			return;
+		}
+		// write to a temporary file first, so that a cache file is never
+		// seen half written
+		File temp = new File(directory, file.getName() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new FileOutputStream(temp));
+			out.writeInt(CACHE_VERSION);
+			out.writeUTF(key);
+			out.writeUTF(entry.hash);
+			out.writeInt(entry.importURLs.length);
+			for (int i = 0; i < entry.importURLs.length; i++) {
+				out.writeUTF(entry.importURLs[i]);
+				out.writeUTF(entry.importHashes[i]);
+			}
+			out.writeInt(entry.rules.length);
+			out.write(entry.rules);
+			out.close();
+			out = null;
+			if (!temp.renameTo(file)) {
+				file.delete();
+				if (!temp.renameTo(file)) {
+					temp.delete();
+				}
+			}
+		} catch (IOException e) {
+			// the style sheet is parsed again next time
+			temp.delete();
+		} finally {
+			close(out);
+		}
+	}
+
+	private static byte[] read(URL url) throws IOException {
+		return read(url.openStream());
+	}
+
+	private static byte[] read(File file) throws IOException {
+		return read(new FileInputStream(file));
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} finally {
+			close(in);
+		}
+	}
+
+	private static String hash(byte[] content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-1
+			throw new IllegalStateException(e.getMessage());
+		}
+		byte[] bytes = digest.digest(content);
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	private static void close(Closeable stream) {
+		if (stream == null) {
+			return;
+		}
+		try {
+			stream.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+}
@@ -13,7 +13,6 @@ package org.eclipse.e4.ui.css.swt.internal.theme;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -46,7 +45,6 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.prefs.BackingStoreException;
-import org.w3c.css.sac.InputSource;
 import org.w3c.dom.Element;
 import org.w3c.dom.css.CSSStyleDeclaration;
 
@@ -66,6 +64,9 @@ public class ThemeEngine implements IThemeEngine {
 	private HashMap<String, List<String>> modifiedStylesheets = new HashMap<String, List<String>>();
 	private HashMap<String, List<IResourceLocator>> sourceLocators = new HashMap<String, List<IResourceLocator>>();
 
+	// parsed style sheets, created on the first theme change
+	private StyleSheetCache styleSheetCache;
+
 	private static final String THEMEID_KEY = "themeid";
 
 	public static final String THEME_PLUGIN_ID = "org.eclipse.e4.ui.css.swt.theme";
@@ -360,28 +361,14 @@ public class ThemeEngine implements IThemeEngine {
 			}
 			for (String stylesheet : getAllStyles(theme.getId())) {
 				URL url;
-				InputStream stream = null;
 				try {
 					url = FileLocator.resolve(new URL(stylesheet.toString()));
 					for (CSSEngine engine : cssEngines) {
 						try {
-							stream = url.openStream();
-							InputSource source = new InputSource();
-							source.setByteStream(stream);
-							source.setURI(url.toString());
-							engine.parseStyleSheet(source);
+							getStyleSheetCache().load(engine, url);
 						} catch (IOException e) {
 							// TODO Auto-generated catch block
 							e.printStackTrace();
-						} finally {
-							if (stream != null) {
-								try {
-									stream.close();
-								} catch (IOException e) {
-									// TODO Auto-generated catch block
-									e.printStackTrace();
-								}
-							}
 						}
 					}
 				} catch (MalformedURLException e) {
@@ -411,6 +398,14 @@ public class ThemeEngine implements IThemeEngine {
 		sendThemeChangeEvent(restore);
 	}
 
+	private StyleSheetCache getStyleSheetCache() {
+		if (styleSheetCache == null) {
+			styleSheetCache = new StyleSheetCache(
+					StyleSheetCache.getDefaultDirectory());
+		}
+		return styleSheetCache;
+	}
+
 	/**
 	 * Broadcast theme-change event using OSGi Event Admin.
 	 */
@@ -23,7 +23,8 @@ import org.eclipse.swt.widgets.Listener;
 
 /**
  * SWT Resources Registry to cache SWT Resource like Color, Cursor and Font and
- * dispose it.
+ * dispose it. The number of SWT resources it holds by type, such as
+ * <code>Color.class</code>, is given by {@link #getResourceCount(Object)}.
  */
 public class SWTResourcesRegistry extends AbstractResourcesRegistry {
 
@@ -39,20 +40,6 @@ public class SWTResourcesRegistry extends AbstractResourcesRegistry {
 		});
 	}
 
-	public Object getResource(Object type, Object key) {
-		Object resource = super.getResource(type, key);
-		if (resource != null) {
-			// test if resource is disposed
-			if (isDisposed(resource)) {
-				// SWT Resource is disposed
-				// unregister it.
-				super.unregisterResource(resource);
-				return null;
-			}
-		}
-		return resource;
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -81,6 +68,19 @@ public class SWTResourcesRegistry extends AbstractResourcesRegistry {
 		super.registerResource(type, key, resource);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.e4.ui.css.core.resources.AbstractResourcesRegistry#registerReferencedResource(java.lang.Object,
+	 *      java.lang.Object, java.lang.Object)
+	 */
+	public void registerReferencedResource(Object type, Object key,
+			Object resource) {
+		if (resource == null)
+			return;
+		super.registerReferencedResource(type, key, resource);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -24,6 +24,7 @@ import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IContextFunction;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.ui.internal.workbench.ContributionsAnalyzer;
+import org.eclipse.e4.ui.internal.workbench.ExpressionResultCache;
 import org.eclipse.e4.ui.model.application.ui.MCoreExpression;
 import org.eclipse.e4.ui.model.application.ui.MElementContainer;
 import org.eclipse.e4.ui.model.application.ui.MExpression;
@@ -87,14 +88,25 @@ public class ContributionRecord {
 	 * @param context
 	 */
 	public void updateVisibility(IEclipseContext context) {
+		updateVisibility(context, null);
+	}
+
+	/**
+	 * @param context
+	 * @param cache
+	 *            the expression results of the current menu update, or
+	 *            <code>null</code>
+	 */
+	public void updateVisibility(IEclipseContext context,
+			ExpressionResultCache cache) {
 		ExpressionContext exprContext = new ExpressionContext(context);
-		updateIsVisible(exprContext);
+		updateIsVisible(exprContext, cache);
 		HashSet<ContributionRecord> recentlyUpdated = new HashSet<ContributionRecord>();
 		recentlyUpdated.add(this);
 		boolean changed = false;
 		for (MMenuElement item : generatedElements) {
 			boolean currentVisibility = computeVisibility(recentlyUpdated,
-					item, exprContext);
+					item, exprContext, cache);
 			if (item.isVisible() != currentVisibility) {
 				changed = true;
 				item.setVisible(currentVisibility);
@@ -102,7 +114,7 @@ public class ContributionRecord {
 		}
 		for (MMenuElement item : sharedElements) {
 			boolean currentVisibility = computeVisibility(recentlyUpdated,
-					item, exprContext);
+					item, exprContext, cache);
 			if (item.isVisible() != currentVisibility) {
 				changed = true;
 				item.setVisible(currentVisibility);
@@ -129,13 +141,24 @@ public class ContributionRecord {
 	}
 
 	public void updateIsVisible(ExpressionContext exprContext) {
+		updateIsVisible(exprContext, null);
+	}
+
+	public void updateIsVisible(ExpressionContext exprContext,
+			ExpressionResultCache cache) {
 		isVisible = ContributionsAnalyzer.isVisible(menuContribution,
-				exprContext);
+				exprContext, cache);
 	}
 
 	public boolean computeVisibility(
 			HashSet<ContributionRecord> recentlyUpdated, MMenuElement item,
 			ExpressionContext exprContext) {
+		return computeVisibility(recentlyUpdated, item, exprContext, null);
+	}
+
+	public boolean computeVisibility(
+			HashSet<ContributionRecord> recentlyUpdated, MMenuElement item,
+			ExpressionContext exprContext, ExpressionResultCache cache) {
 		boolean currentVisibility = isVisible;
 		if (item instanceof MMenu || item instanceof MMenuSeparator) {
 			ArrayList<ContributionRecord> list = renderer.getList(item);
@@ -144,7 +167,7 @@ public class ContributionRecord {
 				while (!currentVisibility && cr.hasNext()) {
 					ContributionRecord rec = cr.next();
 					if (!recentlyUpdated.contains(rec)) {
-						rec.updateIsVisible(exprContext);
+						rec.updateIsVisible(exprContext, cache);
 						recentlyUpdated.add(rec);
 					}
 					currentVisibility |= rec.isVisible;
@@ -154,7 +177,7 @@ public class ContributionRecord {
 		if (currentVisibility
 				&& item.getVisibleWhen() instanceof MCoreExpression) {
 			boolean val = ContributionsAnalyzer.isVisible(
-					(MCoreExpression) item.getVisibleWhen(), exprContext);
+					(MCoreExpression) item.getVisibleWhen(), exprContext, cache);
 			currentVisibility = val;
 		}
 		return currentVisibility;
@@ -26,6 +26,7 @@ import org.eclipse.e4.core.contexts.RunAndTrack;
 import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.internal.workbench.ContributionsAnalyzer;
+import org.eclipse.e4.ui.internal.workbench.ExpressionResultCache;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.ui.MCoreExpression;
 import org.eclipse.e4.ui.model.application.ui.MElementContainer;
@@ -76,6 +77,14 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 	private static final String NO_LABEL = "UnLabled"; //$NON-NLS-1$
 	public static final String GROUP_MARKER = "org.eclipse.jface.action.GroupMarker.GroupMarker(String)"; //$NON-NLS-1$
 
+	/**
+	 * The tag of a menu whose submenus are only rendered when they are first
+	 * shown.
+	 */
+	public static final String LAZY_SUBMENUS = "LazySubmenus"; //$NON-NLS-1$
+
+	private static final String PENDING_MENU_ID = "org.eclipse.e4.ui.workbench.renderers.swt.pendingMenu"; //$NON-NLS-1$
+
 	private Map<MMenu, MenuManager> modelToManager = new HashMap<MMenu, MenuManager>();
 	private Map<MenuManager, MMenu> managerToModel = new HashMap<MenuManager, MMenu>();
 
@@ -85,6 +94,12 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 	private Map<MMenuElement, ContributionRecord> modelContributionToRecord = new HashMap<MMenuElement, ContributionRecord>();
 	private Map<MMenuElement, ArrayList<ContributionRecord>> sharedElementToRecord = new HashMap<MMenuElement, ArrayList<ContributionRecord>>();
 
+	/**
+	 * The submenus whose children are rendered when they are first shown,
+	 * with whether they belong to a popup menu.
+	 */
+	private Map<MMenu, Boolean> pendingMenus = new HashMap<MMenu, Boolean>();
+
 	@Inject
 	private Logger logger;
 
@@ -131,7 +146,8 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 					}
 					MenuManager parent = getManager((MMenu) obj);
 					if (itemModel.isToBeRendered()) {
-						if (parent != null) {
+						// a lazy submenu renders its items when it is shown
+						if (parent != null && isRendered((MMenu) obj)) {
 							modelProcessSwitch(parent, itemModel);
 						}
 					} else {
@@ -314,6 +330,7 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 			newMenu.addDisposeListener(new DisposeListener() {
 				public void widgetDisposed(DisposeEvent e) {
 					cleanUp(menuModel);
+					clearPendingMenus(menuModel);
 				}
 			});
 		}
@@ -378,12 +395,98 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 				toContribute, null, isPopup);
 		generateContributions(menuModel, toContribute, isMenuBar);
 		for (MMenuElement element : menuModel.getChildren()) {
-			if (element instanceof MMenu) {
+			// lazy submenus get their contributions when they are shown
+			if (element instanceof MMenu && !isLazy((MMenu) element)) {
 				processContributions((MMenu) element, false, isPopup);
 			}
 		}
 	}
 
+	/**
+	 * Returns whether the menu is a submenu of a menu tagged with
+	 * {@link #LAZY_SUBMENUS}.
+	 * 
+	 * @param menuModel
+	 * @return <code>true</code> if the children of the menu are rendered when
+	 *         it is first shown
+	 */
+	boolean isLazy(MMenu menuModel) {
+		MElementContainer<?> parent = menuModel.getParent();
+		while (parent instanceof MMenu) {
+			if (parent.getTags().contains(LAZY_SUBMENUS)) {
+				return true;
+			}
+			parent = parent.getParent();
+		}
+		return false;
+	}
+
+	private boolean isInPopup(MMenu menuModel) {
+		MUIElement element = menuModel;
+		while (element.getParent() instanceof MMenu) {
+			element = element.getParent();
+		}
+		return element instanceof MPopupMenu;
+	}
+
+	/**
+	 * Renders the children of a lazy submenu that was not shown yet.
+	 * 
+	 * @param menuModel
+	 *            the submenu
+	 * @return <code>true</code> if the children were rendered,
+	 *         <code>false</code> if they already were
+	 */
+	public boolean renderPendingMenu(MMenu menuModel) {
+		Boolean isPopup = pendingMenus.remove(menuModel);
+		if (isPopup == null) {
+			return false;
+		}
+		MenuManager menuManager = getManager(menuModel);
+		if (menuManager == null) {
+			return false;
+		}
+		IContributionItem placeholder = menuManager.remove(PENDING_MENU_ID);
+		if (placeholder != null) {
+			placeholder.dispose();
+		}
+		processContributions(menuModel, false, isPopup.booleanValue());
+		MMenuElement[] plist = menuModel.getChildren().toArray(
+				new MMenuElement[menuModel.getChildren().size()]);
+		for (int i = 0; i < plist.length; i++) {
+			modelProcessSwitch(menuManager, plist[i]);
+		}
+		return true;
+	}
+
+	/**
+	 * Forgets the submenus of an unrendered menu that were never shown.
+	 * 
+	 * @param menuModel
+	 */
+	private void clearPendingMenus(MMenu menuModel) {
+		if (pendingMenus.isEmpty()) {
+			return;
+		}
+		pendingMenus.remove(menuModel);
+		for (MMenuElement element : menuModel.getChildren()) {
+			if (element instanceof MMenu) {
+				clearPendingMenus((MMenu) element);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the children of the menu are rendered.
+	 * 
+	 * @param menuModel
+	 * @return <code>false</code> if the menu is a lazy submenu that was not
+	 *         shown yet
+	 */
+	public boolean isRendered(MMenu menuModel) {
+		return !pendingMenus.containsKey(menuModel);
+	}
+
 	/**
 	 * @param menuModel
 	 * @param toContribute
@@ -539,6 +642,15 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 			linkModelToManager(menuModel, menuManager);
 			menuManager.setVisible(menuModel.isVisible());
 			addToManager(parentManager, menuModel, menuManager);
+			if (isLazy(menuModel)) {
+				// keep the submenu visible until it is shown and rendered
+				menuManager.add(new PendingMenuItem());
+				pendingMenus.put(menuModel,
+						Boolean.valueOf(isInPopup(menuModel)));
+				return;
+			}
+		} else if (pendingMenus.containsKey(menuModel)) {
+			return;
 		}
 		// processContributions(menuModel, false);
 		List<MMenuElement> parts = menuModel.getChildren();
@@ -727,6 +839,7 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 	}
 
 	public void clearModelToManager(MMenu model, MenuManager manager) {
+		pendingMenus.remove(model);
 		modelToManager.remove(model);
 		managerToModel.remove(manager);
 	}
@@ -898,14 +1011,37 @@ public class MenuManagerRenderer extends SWTPartRenderer {
 	 */
 	public static void updateVisibility(MenuManager menuManager,
 			MMenuElement element, ExpressionContext evalContext) {
+		updateVisibility(menuManager, element, evalContext, null);
+	}
+
+	/**
+	 * @param menuManager
+	 * @param element
+	 * @param evalContext
+	 * @param cache
+	 *            the expression results of the current menu update, or
+	 *            <code>null</code>
+	 */
+	public static void updateVisibility(MenuManager menuManager,
+			MMenuElement element, ExpressionContext evalContext,
+			ExpressionResultCache cache) {
 		if (!(element.getVisibleWhen() instanceof MCoreExpression)) {
 			return;
 		}
 		boolean val = ContributionsAnalyzer.isVisible(
-				(MCoreExpression) element.getVisibleWhen(), evalContext);
+				(MCoreExpression) element.getVisibleWhen(), evalContext, cache);
 		if (val != element.isVisible()) {
 			element.setVisible(val);
 			menuManager.markDirty();
 		}
 	}
+
+	/**
+	 * Stands for the children of a lazy submenu until it is first shown.
+	 */
+	private static class PendingMenuItem extends ContributionItem {
+		PendingMenuItem() {
+			super(PENDING_MENU_ID);
+		}
+	}
 }
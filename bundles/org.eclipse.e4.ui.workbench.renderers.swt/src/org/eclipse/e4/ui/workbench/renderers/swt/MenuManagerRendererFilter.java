@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2011 IBM Corporation and others.
+ * Copyright (c) 2010, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,6 +26,7 @@ import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.annotations.CanExecute;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.internal.workbench.ContributionsAnalyzer;
+import org.eclipse.e4.ui.internal.workbench.ExpressionResultCache;
 import org.eclipse.e4.ui.internal.workbench.swt.AbstractPartRenderer;
 import org.eclipse.e4.ui.internal.workbench.swt.Policy;
 import org.eclipse.e4.ui.internal.workbench.swt.WorkbenchSWTActivator;
@@ -247,6 +248,9 @@ public class MenuManagerRendererFilter implements Listener {
 		if (menuModel.getWidget() == null) {
 			renderer.bindWidget(menuModel, menuManager.getMenu());
 		}
+		// a lazy submenu is rendered on its first show, its visibility and
+		// enablement are computed below
+		renderer.renderPendingMenu(menuModel);
 
 		Method handleAboutToShow = getAboutToShow();
 		try {
@@ -268,8 +272,14 @@ public class MenuManagerRendererFilter implements Listener {
 		} else {
 			evalContext = modelService.getContainingContext(menuModel);
 		}
+		// the contributions of a menu often share their visibleWhen
+		// expressions, evaluate each of them once
+		ExpressionResultCache cache = new ExpressionResultCache();
 		updateElementVisibility(menuModel, renderer, menuManager, evalContext,
-				2, true);
+				2, true, cache);
+		if (WorkbenchSWTActivator.isTracing(Policy.MENUS)) {
+			trace(cache.toString(), menu, menuModel);
+		}
 
 		// last thing to do, kill the event and update the menu manager
 		event.type = SWT.None;
@@ -308,17 +318,34 @@ public class MenuManagerRendererFilter implements Listener {
 			MenuManagerRenderer renderer, MenuManager menuManager,
 			final IEclipseContext evalContext, final int recurseLevel,
 			boolean updateEnablement) {
+		updateElementVisibility(menuModel, renderer, menuManager, evalContext,
+				recurseLevel, updateEnablement, null);
+	}
+
+	/**
+	 * @param menuModel
+	 * @param renderer
+	 * @param menuManager
+	 * @param evalContext
+	 * @param cache
+	 *            the expression results of this menu update, or
+	 *            <code>null</code>
+	 */
+	public static void updateElementVisibility(final MMenu menuModel,
+			MenuManagerRenderer renderer, MenuManager menuManager,
+			final IEclipseContext evalContext, final int recurseLevel,
+			boolean updateEnablement, ExpressionResultCache cache) {
 		final ExpressionContext exprContext = new ExpressionContext(evalContext);
 		HashSet<ContributionRecord> records = new HashSet<ContributionRecord>();
 		for (MMenuElement element : menuModel.getChildren()) {
 			ContributionRecord record = renderer.getContributionRecord(element);
 			if (record != null) {
 				if (records.add(record)) {
-					record.updateVisibility(evalContext);
+					record.updateVisibility(evalContext, cache);
 				}
 			} else {
 				MenuManagerRenderer.updateVisibility(menuManager, element,
-						exprContext);
+						exprContext, cache);
 			}
 			if (recurseLevel > 0 && element.isVisible()
 					&& element instanceof MMenu) {
@@ -326,7 +353,7 @@ public class MenuManagerRendererFilter implements Listener {
 				MenuManager childManager = renderer.getManager(childMenu);
 				if (childManager != null) {
 					updateElementVisibility(childMenu, renderer, childManager,
-							evalContext, recurseLevel - 1, false);
+							evalContext, recurseLevel - 1, false, cache);
 				}
 			}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -132,6 +132,17 @@ public class WorkbenchSWTActivator implements BundleActivator { // extends
 		return null;
 	}
 
+	/**
+	 * @param option
+	 *            the trace option, relative to this bundle
+	 * @return whether the trace option is enabled
+	 */
+	public static boolean isTracing(String option) {
+		final DebugOptions debugOptions = activator.getDebugOptions();
+		return debugOptions != null && debugOptions.isDebugEnabled()
+				&& debugOptions.getBooleanOption(PI_RENDERERS + option, false);
+	}
+
 	public static void trace(String option, String msg, Throwable error) {
 		final DebugOptions debugOptions = activator.getDebugOptions();
 		if (debugOptions.isDebugEnabled()
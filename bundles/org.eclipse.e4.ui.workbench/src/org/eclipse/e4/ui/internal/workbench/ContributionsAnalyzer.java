@@ -209,10 +209,15 @@ public final class ContributionsAnalyzer {
 	}
 
 	public static boolean isVisible(MMenuContribution menuContribution, ExpressionContext eContext) {
+		return isVisible(menuContribution, eContext, null);
+	}
+
+	public static boolean isVisible(MMenuContribution menuContribution,
+			ExpressionContext eContext, ExpressionResultCache cache) {
 		if (menuContribution.getVisibleWhen() == null) {
 			return true;
 		}
-		return isVisible((MCoreExpression) menuContribution.getVisibleWhen(), eContext);
+		return isVisible((MCoreExpression) menuContribution.getVisibleWhen(), eContext, cache);
 	}
 
 	public static boolean isVisible(MToolBarContribution contribution, ExpressionContext eContext) {
@@ -230,6 +235,24 @@ public final class ContributionsAnalyzer {
 	}
 
 	public static boolean isVisible(MCoreExpression exp, ExpressionContext eContext) {
+		return isVisible(exp, eContext, null);
+	}
+
+	/**
+	 * Evaluates the expression, reusing the result of a structurally equal
+	 * expression evaluated with the same variable values when a cache is
+	 * given.
+	 * 
+	 * @param exp
+	 *            the visibleWhen expression
+	 * @param eContext
+	 *            the context to evaluate it in
+	 * @param cache
+	 *            the results of the current menu update, or <code>null</code>
+	 * @return whether the expression is not false
+	 */
+	public static boolean isVisible(MCoreExpression exp, ExpressionContext eContext,
+			ExpressionResultCache cache) {
 		Expression ref = null;
 		if (exp.getCoreExpression() instanceof Expression) {
 			ref = (Expression) exp.getCoreExpression();
@@ -240,12 +263,21 @@ public final class ContributionsAnalyzer {
 		try {
 			// Creates dependency on a predefined value that can be "poked" by the evaluation
 			// service
-			ExpressionInfo info = ref.computeExpressionInfo();
+			ExpressionInfo info = cache == null ? ref.computeExpressionInfo() : cache
+					.getExpressionInfo(ref);
 			String[] names = info.getAccessedPropertyNames();
 			for (String name : names) {
 				eContext.getVariable(name + ".evaluationServiceLink"); //$NON-NLS-1$
 			}
-			return ref.evaluate(eContext) != EvaluationResult.FALSE;
+			if (cache == null) {
+				return ref.evaluate(eContext) != EvaluationResult.FALSE;
+			}
+			Boolean result = cache.get(ref, eContext);
+			if (result == null) {
+				result = Boolean.valueOf(ref.evaluate(eContext) != EvaluationResult.FALSE);
+				cache.put(ref, eContext, result.booleanValue());
+			}
+			return result.booleanValue();
 		} catch (CoreException e) {
 			trace("isVisible exception", e); //$NON-NLS-1$
 		}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionInfo;
+import org.eclipse.core.expressions.IEvaluationContext;
+
+/**
+ * Remembers the results of the visibleWhen expressions evaluated while a menu
+ * is shown, so that the many contributions of a menu that share an expression
+ * evaluate it once.
+ * <p>
+ * Results are keyed by the expression, which core expressions compare
+ * structurally, and by the values of the variables the expression reads. A
+ * cache is meant to live as long as one update of a menu and must not be kept
+ * across changes of the state the expressions test without reading a
+ * variable, such as property testers.
+ * </p>
+ */
+public final class ExpressionResultCache {
+
+	private static final class Key {
+		private final Expression expression;
+		private final Object[] values;
+		private final int hashCode;
+
+		Key(Expression expression, Object[] values) {
+			this.expression = expression;
+			this.values = values;
+			this.hashCode = expression.hashCode() * 31 + Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && expression.equals(other.expression)
+					&& Arrays.equals(values, other.values);
+		}
+	}
+
+	private final Map<Key, Boolean> results = new HashMap<Key, Boolean>();
+
+	private final Map<Expression, ExpressionInfo> infos = new HashMap<Expression, ExpressionInfo>();
+
+	private int hits;
+
+	private int misses;
+
+	/**
+	 * Returns the information about what the expression accesses, computed
+	 * once per structurally equal expression.
+	 *
+	 * @param expression
+	 *            the expression
+	 * @return the expression information
+	 */
+	public ExpressionInfo getExpressionInfo(Expression expression) {
+		ExpressionInfo info = infos.get(expression);
+		if (info == null) {
+			info = expression.computeExpressionInfo();
+			infos.put(expression, info);
+		}
+		return info;
+	}
+
+	/**
+	 * Returns the remembered visibility for the expression in the context.
+	 *
+	 * @param expression
+	 *            the expression
+	 * @param context
+	 *            the context the expression is evaluated in
+	 * @return the visibility, or <code>null</code> if the expression was not
+	 *         evaluated with the same variable values yet
+	 */
+	public Boolean get(Expression expression, IEvaluationContext context) {
+		Boolean result = results.get(createKey(expression, context));
+		if (result == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return result;
+	}
+
+	/**
+	 * Remembers the visibility for the expression in the context.
+	 *
+	 * @param expression
+	 *            the expression
+	 * @param context
+	 *            the context the expression was evaluated in
+	 * @param visible
+	 *            the visibility
+	 */
+	public void put(Expression expression, IEvaluationContext context, boolean visible) {
+		results.put(createKey(expression, context), Boolean.valueOf(visible));
+	}
+
+	private Key createKey(Expression expression, IEvaluationContext context) {
+		ExpressionInfo info = getExpressionInfo(expression);
+		String[] names = info.getAccessedVariableNames();
+		int count = names.length;
+		boolean defaultVariable = info.hasDefaultVariableAccess();
+		Object[] values = new Object[defaultVariable ? count + 1 : count];
+		for (int i = 0; i < count; i++) {
+			values[i] = context.getVariable(names[i]);
+		}
+		if (defaultVariable) {
+			values[count] = context.getDefaultVariable();
+		}
+		return new Key(expression, values);
+	}
+
+	/**
+	 * @return the number of evaluations that were answered by the cache
+	 */
+	public int getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of evaluations that were not answered by the cache
+	 */
+	public int getMissCount() {
+		return misses;
+	}
+
+	@Override
+	public String toString() {
+		return "ExpressionResultCache: " + results.size() + " results, " + hits //$NON-NLS-1$ //$NON-NLS-2$
+				+ " hits, " + misses + " misses"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -19,7 +19,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -83,6 +85,11 @@ public final class BindingManager extends HandleObjectManager implements
 	 */
 	private static final String LOCALE_SEPARATOR = "_"; //$NON-NLS-1$
 
+	/**
+	 * The maximum number of binding sets kept in <code>cachedBindings</code>.
+	 */
+	private static final int MAX_CACHED_BINDING_SETS = 50;
+
 	private Map currentConflicts = null;
 
 	/**
@@ -222,9 +229,73 @@ public final class BindingManager extends HandleObjectManager implements
 	/**
 	 * A cache of the bindings previously computed by this manager. This value
 	 * may be empty, but it is never <code>null</code>. This is a map of
-	 * <code>CachedBindingSet</code> to <code>CachedBindingSet</code>.
+	 * <code>CachedBindingSet</code> to <code>CachedBindingSet</code>. It
+	 * keeps the <code>MAX_CACHED_BINDING_SETS</code> most recently used
+	 * binding sets.
+	 */
+	private Map cachedBindings = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_CACHED_BINDING_SETS;
+		}
+	};
+
+	/**
+	 * The bindings that match the current locale, platform and scheme and are
+	 * not deleted, grouped by context identifier. This is a map of context
+	 * identifier (<code>String</code>) to <code>List</code> of
+	 * <code>Binding</code>, in the order of the <code>bindings</code>
+	 * array. This value is <code>null</code> if it has not been computed for
+	 * the current state.
+	 */
+	private Map candidatesByContextId = null;
+
+	/**
+	 * The position of each binding of <code>candidatesByContextId</code> in
+	 * the <code>bindings</code> array. This is a map of <code>Binding</code>
+	 * to <code>Integer</code>, by identity.
+	 */
+	private Map candidatePositions = null;
+
+	/**
+	 * The context tree of the last computed solution, from which the next one
+	 * is computed by only adding the bindings of the contexts that became
+	 * active and removing the bindings of the contexts that became inactive.
+	 * This value is <code>null</code> if there is no such solution.
+	 */
+	private Map baseContextTree = null;
+
+	/**
+	 * The candidate bindings of the contexts in <code>baseContextTree</code>
+	 * by trigger. This is a map of <code>TriggerSequence</code> to
+	 * <code>List</code> of <code>Binding</code>, in the order of the
+	 * <code>bindings</code> array. It is only used by this manager, and is
+	 * modified in place.
+	 */
+	private Map baseCandidatesByTrigger = null;
+
+	/**
+	 * The solution for <code>baseContextTree</code>. These maps are also held
+	 * by <code>cachedBindings</code>, and so are never modified.
+	 */
+	private Map baseBindingsByTrigger = null;
+
+	private Map baseTriggersByCommandId = null;
+
+	private Map basePrefixTable = null;
+
+	private Map baseConflictsByTrigger = null;
+
+	/**
+	 * The locales, platforms and scheme identifiers for which the candidate
+	 * bindings were computed.
 	 */
-	private Map cachedBindings = new HashMap();
+	private String[] baseLocales = null;
+
+	private String[] basePlatforms = null;
+
+	private String[] baseSchemeIds = null;
 
 	/**
 	 * The command manager for this binding manager. This manager is only needed
@@ -354,66 +425,6 @@ public final class BindingManager extends HandleObjectManager implements
 		addListenerObject(listener);
 	}
 
-	/**
-	 * <p>
-	 * Builds a prefix table look-up for a map of active bindings.
-	 * </p>
-	 * <p>
-	 * This method takes <code>O(mn)</code>, where <code>m</code> is the
-	 * length of the trigger sequences and <code>n</code> is the number of
-	 * bindings.
-	 * </p>
-	 * 
-	 * @param activeBindings
-	 *            The map of triggers (<code>TriggerSequence</code>) to
-	 *            command ids (<code>String</code>) which are currently
-	 *            active. This value may be <code>null</code> if there are no
-	 *            active bindings, and it may be empty. It must not be
-	 *            <code>null</code>.
-	 * @return A map of prefixes (<code>TriggerSequence</code>) to a map of
-	 *         available completions (possibly <code>null</code>, which means
-	 *         there is an exact match). The available completions is a map of
-	 *         trigger (<code>TriggerSequence</code>) to command identifier (<code>String</code>).
-	 *         This value will never be <code>null</code>, but may be empty.
-	 */
-	private final Map buildPrefixTable(final Map activeBindings) {
-		final Map prefixTable = new HashMap();
-
-		final Iterator bindingItr = activeBindings.entrySet().iterator();
-		while (bindingItr.hasNext()) {
-			final Map.Entry entry = (Map.Entry) bindingItr.next();
-			final TriggerSequence triggerSequence = (TriggerSequence) entry
-					.getKey();
-
-			// Add the perfect match.
-			if (!prefixTable.containsKey(triggerSequence)) {
-				prefixTable.put(triggerSequence, null);
-			}
-
-			final TriggerSequence[] prefixes = triggerSequence.getPrefixes();
-			final int prefixesLength = prefixes.length;
-			if (prefixesLength == 0) {
-				continue;
-			}
-
-			// Break apart the trigger sequence.
-			final Binding binding = (Binding) entry.getValue();
-			for (int i = 0; i < prefixesLength; i++) {
-				final TriggerSequence prefix = prefixes[i];
-				final Object value = prefixTable.get(prefix);
-				if ((prefixTable.containsKey(prefix)) && (value instanceof Map)) {
-					((Map) value).put(triggerSequence, binding);
-				} else {
-					final Map map = new HashMap();
-					prefixTable.put(prefix, map);
-					map.put(triggerSequence, binding);
-				}
-			}
-		}
-
-		return prefixTable;
-	}
-
 	/**
 	 * <p>
 	 * Clears the cache, and the existing solution. If debugging is turned on,
@@ -428,6 +439,9 @@ public final class BindingManager extends HandleObjectManager implements
 			Tracing.printTrace("BINDINGS", "Clearing cache"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		cachedBindings.clear();
+		candidatesByContextId = null;
+		candidatePositions = null;
+		baseContextTree = null;
 		clearSolution();
 	}
 
@@ -633,33 +647,8 @@ public final class BindingManager extends HandleObjectManager implements
 					final Binding winner = resolveConflicts((Collection) match,
 							activeContextTree);
 					if (winner == null) {
-						// warn once ... so as not to flood the logs
 						conflictsByTrigger.put(trigger, match);
-						if (triggerConflicts.add(trigger)) {
-							final StringWriter sw = new StringWriter();
-							final BufferedWriter buffer = new BufferedWriter(sw);
-							try {
-								buffer.write("A conflict occurred for "); //$NON-NLS-1$
-								buffer.write(trigger.toString());
-								buffer.write(':');
-								Iterator i = ((Collection) match).iterator();
-								while (i.hasNext()) {
-									buffer.newLine();
-									buffer.write(i.next().toString());
-								}
-								buffer.flush();
-							} catch (IOException e) {
-								// we should not get this
-							}
-							conflicts.add(new Status(IStatus.WARNING,
-									"org.eclipse.jface", //$NON-NLS-1$
-									sw.toString()));
-						}
-						if (DEBUG) {
-							Tracing.printTrace("BINDINGS", //$NON-NLS-1$
-									"A conflict occurred for " + trigger); //$NON-NLS-1$
-							Tracing.printTrace("BINDINGS", "    " + match); //$NON-NLS-1$ //$NON-NLS-2$
-						}
+						addConflict(trigger, (Collection) match, conflicts);
 					} else {
 						bindingsByTrigger.put(trigger, winner);
 						addReverseLookup(triggersByCommandId, winner
@@ -673,6 +662,390 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 	}
 
+	/**
+	 * <p>
+	 * Reports a conflict between bindings that could not be resolved. Each
+	 * trigger is only reported once, so as not to flood the logs.
+	 * </p>
+	 * 
+	 * @param trigger
+	 *            The trigger of the bindings; must not be <code>null</code>.
+	 * @param match
+	 *            The conflicting bindings; must not be <code>null</code>.
+	 * @param conflicts
+	 *            The status to add the warning to; must not be
+	 *            <code>null</code>.
+	 */
+	private final void addConflict(final TriggerSequence trigger,
+			final Collection match, final MultiStatus conflicts) {
+		// warn once ... so as not to flood the logs
+		if (triggerConflicts.add(trigger)) {
+			final StringWriter sw = new StringWriter();
+			final BufferedWriter buffer = new BufferedWriter(sw);
+			try {
+				buffer.write("A conflict occurred for "); //$NON-NLS-1$
+				buffer.write(trigger.toString());
+				buffer.write(':');
+				Iterator i = match.iterator();
+				while (i.hasNext()) {
+					buffer.newLine();
+					buffer.write(i.next().toString());
+				}
+				buffer.flush();
+			} catch (IOException e) {
+				// we should not get this
+			}
+			conflicts.add(new Status(IStatus.WARNING, "org.eclipse.jface", //$NON-NLS-1$
+					sw.toString()));
+		}
+		if (DEBUG) {
+			Tracing.printTrace("BINDINGS", //$NON-NLS-1$
+					"A conflict occurred for " + trigger); //$NON-NLS-1$
+			Tracing.printTrace("BINDINGS", "    " + match); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * <p>
+	 * Computes the bindings for the given context tree from the solution of
+	 * the previous context tree. Only the bindings of the contexts that
+	 * entered or left the tree are added or removed, and only the triggers of
+	 * those bindings are resolved again. The maps of the previous solution
+	 * are copied rather than modified, as they may be cached. When there is
+	 * no previous solution for the current locale, platform and scheme, the
+	 * solution is computed from an empty one.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(c+m)</code>, where <code>c</code>
+	 * is the number of bindings in the contexts that changed and
+	 * <code>m</code> is the size of the previous solution.
+	 * </p>
+	 * 
+	 * @param activeContextTree
+	 *            The map of child to parent context identifiers for the active
+	 *            contexts; must not be <code>null</code>.
+	 */
+	private final void computeBindingsIncrementally(final Map activeContextTree) {
+		if (!isBaseValid(activeContextTree)) {
+			candidatesByContextId = null;
+			baseContextTree = Collections.EMPTY_MAP;
+			baseCandidatesByTrigger = new HashMap();
+			baseBindingsByTrigger = Collections.EMPTY_MAP;
+			baseTriggersByCommandId = Collections.EMPTY_MAP;
+			basePrefixTable = Collections.EMPTY_MAP;
+			baseConflictsByTrigger = Collections.EMPTY_MAP;
+			baseLocales = locales;
+			basePlatforms = platforms;
+			baseSchemeIds = activeSchemeIds;
+		}
+
+		// Add and remove the candidates of the contexts that changed.
+		final Map candidates = getCandidatesByContextId();
+		final Set changedTriggers = new HashSet();
+		Iterator contextIdItr = baseContextTree.keySet().iterator();
+		while (contextIdItr.hasNext()) {
+			final Object contextId = contextIdItr.next();
+			if (!activeContextTree.containsKey(contextId)) {
+				final List contextBindings = (List) candidates.get(contextId);
+				if (contextBindings != null) {
+					for (int i = 0; i < contextBindings.size(); i++) {
+						removeCandidate((Binding) contextBindings.get(i),
+								changedTriggers);
+					}
+				}
+			}
+		}
+		contextIdItr = activeContextTree.keySet().iterator();
+		while (contextIdItr.hasNext()) {
+			final Object contextId = contextIdItr.next();
+			if (!baseContextTree.containsKey(contextId)) {
+				final List contextBindings = (List) candidates.get(contextId);
+				if (contextBindings != null) {
+					for (int i = 0; i < contextBindings.size(); i++) {
+						addCandidate((Binding) contextBindings.get(i),
+								changedTriggers);
+					}
+				}
+			}
+		}
+		if (DEBUG) {
+			Tracing.printTrace("BINDINGS", "Resolving " //$NON-NLS-1$ //$NON-NLS-2$
+					+ changedTriggers.size() + " changed triggers"); //$NON-NLS-1$
+		}
+
+		// Resolve the changed triggers, copying the maps on write.
+		final Map bindingsByTrigger = new HashMap(baseBindingsByTrigger);
+		final Map triggersByCommandId = new HashMap(baseTriggersByCommandId);
+		final Map prefixTable = new HashMap(basePrefixTable);
+		final Map conflictsByTrigger = new HashMap(baseConflictsByTrigger);
+		final Set copiedCommands = new HashSet();
+		final Set copiedPrefixes = new HashSet();
+		final MultiStatus conflicts = new MultiStatus("org.eclipse.jface", 0, //$NON-NLS-1$
+				"Keybinding conflicts occurred.  They may interfere with normal accelerator operation.", //$NON-NLS-1$
+				null);
+		final Iterator triggerItr = changedTriggers.iterator();
+		while (triggerItr.hasNext()) {
+			final TriggerSequence trigger = (TriggerSequence) triggerItr
+					.next();
+			final Binding oldWinner = (Binding) bindingsByTrigger.get(trigger);
+			conflictsByTrigger.remove(trigger);
+			final List matches = (List) baseCandidatesByTrigger.get(trigger);
+			Binding winner = null;
+			if (matches != null) {
+				if (matches.size() == 1) {
+					winner = (Binding) matches.get(0);
+				} else {
+					winner = resolveConflicts(matches, activeContextTree);
+					if (winner == null) {
+						final Collection match = new ArrayList(matches);
+						conflictsByTrigger.put(trigger, match);
+						addConflict(trigger, match, conflicts);
+					}
+				}
+			}
+			if (winner == oldWinner) {
+				continue;
+			}
+
+			if (oldWinner != null) {
+				bindingsByTrigger.remove(trigger);
+				final Collection triggers = (Collection) getForWrite(
+						triggersByCommandId, oldWinner
+								.getParameterizedCommand(), copiedCommands);
+				if (triggers != null) {
+					triggers.remove(trigger);
+					if (triggers.isEmpty()) {
+						triggersByCommandId.remove(oldWinner
+								.getParameterizedCommand());
+					}
+				}
+				removeFromPrefixTable(prefixTable, trigger, bindingsByTrigger,
+						copiedPrefixes);
+			}
+			if (winner != null) {
+				bindingsByTrigger.put(trigger, winner);
+				final ParameterizedCommand command = winner
+						.getParameterizedCommand();
+				final Collection triggers = (Collection) getForWrite(
+						triggersByCommandId, command, copiedCommands);
+				if (triggers == null) {
+					addReverseLookup(triggersByCommandId, command, trigger);
+					copiedCommands.add(command);
+				} else {
+					triggers.add(trigger);
+				}
+				addToPrefixTable(prefixTable, trigger, winner, copiedPrefixes);
+			}
+		}
+		if (conflicts.getSeverity() != IStatus.OK) {
+			Policy.getLog().log(conflicts);
+		}
+
+		baseContextTree = activeContextTree;
+		baseBindingsByTrigger = bindingsByTrigger;
+		baseTriggersByCommandId = triggersByCommandId;
+		basePrefixTable = prefixTable;
+		baseConflictsByTrigger = conflictsByTrigger;
+	}
+
+	/**
+	 * Returns whether the previous solution can be used to compute the
+	 * solution for the given context tree. It must have been computed for the
+	 * current locale, platform, scheme and bindings, and the contexts in both
+	 * trees must still have the same parents.
+	 */
+	private final boolean isBaseValid(final Map activeContextTree) {
+		if ((baseContextTree == null) || !Arrays.equals(baseLocales, locales)
+				|| !Arrays.equals(basePlatforms, platforms)
+				|| !Arrays.equals(baseSchemeIds, activeSchemeIds)) {
+			return false;
+		}
+		final Iterator entryItr = activeContextTree.entrySet().iterator();
+		while (entryItr.hasNext()) {
+			final Map.Entry entry = (Map.Entry) entryItr.next();
+			final Object contextId = entry.getKey();
+			if (baseContextTree.containsKey(contextId)
+					&& !Util.equals(entry.getValue(), baseContextTree
+							.get(contextId))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the bindings that match the current locale, platform and scheme
+	 * and are not deleted, grouped by context identifier. These are computed
+	 * again whenever the previous solution is discarded.
+	 * 
+	 * @return A map of context identifier (<code>String</code>) to
+	 *         <code>List</code> of <code>Binding</code>; never
+	 *         <code>null</code>.
+	 */
+	private final Map getCandidatesByContextId() {
+		if (candidatesByContextId != null) {
+			return candidatesByContextId;
+		}
+		candidatesByContextId = new HashMap();
+		candidatePositions = new IdentityHashMap();
+		final Binding[] trimmedBindings = removeDeletions(bindings);
+		for (int i = 0; i < trimmedBindings.length; i++) {
+			final Binding binding = trimmedBindings[i];
+			if (!localeMatches(binding) || !platformMatches(binding)) {
+				continue;
+			}
+			final String schemeId = binding.getSchemeId();
+			boolean found = false;
+			if (activeSchemeIds != null) {
+				for (int j = 0; j < activeSchemeIds.length; j++) {
+					if (Util.equals(schemeId, activeSchemeIds[j])) {
+						found = true;
+						break;
+					}
+				}
+			}
+			if (!found) {
+				continue;
+			}
+			List contextBindings = (List) candidatesByContextId.get(binding
+					.getContextId());
+			if (contextBindings == null) {
+				contextBindings = new ArrayList();
+				candidatesByContextId.put(binding.getContextId(),
+						contextBindings);
+			}
+			contextBindings.add(binding);
+			candidatePositions.put(binding, new Integer(i));
+		}
+		return candidatesByContextId;
+	}
+
+	/**
+	 * Adds a binding to the candidates of its trigger, keeping them in the
+	 * order of the <code>bindings</code> array.
+	 */
+	private final void addCandidate(final Binding binding,
+			final Set changedTriggers) {
+		final TriggerSequence trigger = binding.getTriggerSequence();
+		List matches = (List) baseCandidatesByTrigger.get(trigger);
+		if (matches == null) {
+			matches = new ArrayList(1);
+			baseCandidatesByTrigger.put(trigger, matches);
+		}
+		final int position = ((Integer) candidatePositions.get(binding))
+				.intValue();
+		int index = matches.size();
+		while ((index > 0)
+				&& (((Integer) candidatePositions.get(matches.get(index - 1)))
+						.intValue() > position)) {
+			index--;
+		}
+		matches.add(index, binding);
+		changedTriggers.add(trigger);
+	}
+
+	/**
+	 * Removes a binding, by identity, from the candidates of its trigger.
+	 */
+	private final void removeCandidate(final Binding binding,
+			final Set changedTriggers) {
+		final TriggerSequence trigger = binding.getTriggerSequence();
+		final List matches = (List) baseCandidatesByTrigger.get(trigger);
+		if (matches == null) {
+			return;
+		}
+		for (int i = 0; i < matches.size(); i++) {
+			if (matches.get(i) == binding) {
+				matches.remove(i);
+				break;
+			}
+		}
+		if (matches.isEmpty()) {
+			baseCandidatesByTrigger.remove(trigger);
+		}
+		changedTriggers.add(trigger);
+	}
+
+	/**
+	 * Returns the value of a map of collections or maps, replacing it with a
+	 * copy the first time it is written to.
+	 */
+	private static final Object getForWrite(final Map map, final Object key,
+			final Set copiedKeys) {
+		final Object value = map.get(key);
+		if ((value == null) || copiedKeys.contains(key)) {
+			return value;
+		}
+		final Object copy;
+		if (value instanceof Map) {
+			copy = new HashMap((Map) value);
+		} else {
+			copy = new ArrayList((Collection) value);
+		}
+		map.put(key, copy);
+		copiedKeys.add(key);
+		return copy;
+	}
+
+	/**
+	 * Adds a bound trigger to the prefix table. The table maps each prefix
+	 * (<code>TriggerSequence</code>) to a map of its completions
+	 * (<code>TriggerSequence</code>) to <code>Binding</code>, or to
+	 * <code>null</code> if it is only a perfect match.
+	 */
+	private static final void addToPrefixTable(final Map prefixTable,
+			final TriggerSequence trigger, final Binding binding,
+			final Set copiedPrefixes) {
+		if (!prefixTable.containsKey(trigger)) {
+			prefixTable.put(trigger, null);
+		}
+		final TriggerSequence[] prefixes = trigger.getPrefixes();
+		for (int i = 0; i < prefixes.length; i++) {
+			final TriggerSequence prefix = prefixes[i];
+			if (prefixTable.get(prefix) instanceof Map) {
+				((Map) getForWrite(prefixTable, prefix, copiedPrefixes)).put(
+						trigger, binding);
+			} else {
+				final Map map = new HashMap();
+				map.put(trigger, binding);
+				prefixTable.put(prefix, map);
+				copiedPrefixes.add(prefix);
+			}
+		}
+	}
+
+	/**
+	 * Removes a trigger that is no longer bound from the prefix table. A
+	 * prefix without completions is kept as a perfect match if it is still
+	 * bound.
+	 */
+	private static final void removeFromPrefixTable(final Map prefixTable,
+			final TriggerSequence trigger, final Map bindingsByTrigger,
+			final Set copiedPrefixes) {
+		if (prefixTable.containsKey(trigger)
+				&& (prefixTable.get(trigger) == null)) {
+			prefixTable.remove(trigger);
+		}
+		final TriggerSequence[] prefixes = trigger.getPrefixes();
+		for (int i = 0; i < prefixes.length; i++) {
+			final TriggerSequence prefix = prefixes[i];
+			if (!(prefixTable.get(prefix) instanceof Map)) {
+				continue;
+			}
+			final Map completions = (Map) getForWrite(prefixTable, prefix,
+					copiedPrefixes);
+			completions.remove(trigger);
+			if (completions.isEmpty()) {
+				if (bindingsByTrigger.containsKey(prefix)) {
+					prefixTable.put(prefix, null);
+				} else {
+					prefixTable.remove(prefix);
+				}
+				copiedPrefixes.remove(prefix);
+			}
+		}
+	}
+
 	/**
 	 * <p>
 	 * Notifies this manager that the context manager has changed. This method
@@ -1750,19 +2123,14 @@ public final class BindingManager extends HandleObjectManager implements
 			Tracing.printTrace("BINDINGS", "Cache miss"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 
-		// Compute the active bindings.
-		commandIdsByTrigger = new HashMap();
-		final Map triggersByParameterizedCommand = new HashMap();
-		final Map conflictsByTrigger = new HashMap();
-		computeBindings(activeContextTree, commandIdsByTrigger,
-				triggersByParameterizedCommand, conflictsByTrigger);
-		existingCache.setBindingsByTrigger(commandIdsByTrigger);
-		existingCache.setTriggersByCommandId(triggersByParameterizedCommand);
-		existingCache.setConflictsByTrigger(conflictsByTrigger);
-		setActiveBindings(commandIdsByTrigger, triggersByParameterizedCommand,
-				buildPrefixTable(commandIdsByTrigger),
-				conflictsByTrigger);
-		existingCache.setPrefixTable(prefixTable);
+		// Compute the active bindings from the previous solution.
+		computeBindingsIncrementally(activeContextTree);
+		existingCache.setBindingsByTrigger(baseBindingsByTrigger);
+		existingCache.setTriggersByCommandId(baseTriggersByCommandId);
+		existingCache.setConflictsByTrigger(baseConflictsByTrigger);
+		existingCache.setPrefixTable(basePrefixTable);
+		setActiveBindings(baseBindingsByTrigger, baseTriggersByCommandId,
+				basePrefixTable, baseConflictsByTrigger);
 	}
 
 	/**
@@ -0,0 +1,466 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.resource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.Device;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Manages SWT resources for a particular device, keeping recently released
+ * resources alive in an idle pool.
+ * <p>
+ * Like {@link DeviceResourceManager}, this manager reference counts every
+ * resource it allocates. When the last reference to a resource is removed the
+ * resource is not disposed immediately but parked in an idle pool. A later
+ * request for an equal descriptor revives the pooled resource instead of
+ * allocating a new OS handle. Pooled resources are disposed once the pool holds
+ * more than <code>maxIdleCount</code> entries (oldest first), once they have
+ * been idle for longer than <code>maxIdleTime</code> milliseconds, or when the
+ * manager is disposed.
+ * </p>
+ * <p>
+ * Descriptor lookup is thread safe, so resources may be requested from any
+ * thread. Idle timeouts are checked whenever the manager is used and when
+ * {@link #trimIdle()} is called. The resources of a <code>Display</code> are
+ * always disposed in its UI thread: resources evicted from another thread are
+ * disposed later with <code>Display.asyncExec</code>. Once the manager is
+ * disposed, {@link #create(DeviceResourceDescriptor)} throws a
+ * {@link DeviceResourceException}.
+ * </p>
+ *
+ * @see DeviceResourceManager
+ * @see LocalResourceManager
+ *
+ * @since 3.8
+ */
+public final class PooledDeviceResourceManager extends ResourceManager {
+
+	/**
+	 * The default maximum number of unreferenced resources kept in the pool.
+	 */
+	public static final int DEFAULT_MAX_IDLE_COUNT = 64;
+
+	/**
+	 * The default number of milliseconds an unreferenced resource is kept in
+	 * the pool.
+	 */
+	public static final long DEFAULT_MAX_IDLE_TIME = 10000;
+
+	/**
+	 * Holds a reference count for a previously-allocated resource
+	 */
+	private static class RefCount {
+		Object resource;
+		int count = 1;
+		long idleSince;
+
+		RefCount(Object resource) {
+			this.resource = resource;
+		}
+	}
+
+	private Device device;
+
+	private final int maxIdleCount;
+	private final long maxIdleTime;
+
+	/**
+	 * Guards all of the fields below.
+	 */
+	private final Object lock = new Object();
+
+	private Image missingImage;
+
+	/**
+	 * Map of DeviceResourceDescriptor onto RefCount for referenced resources.
+	 */
+	private final HashMap live = new HashMap();
+
+	/**
+	 * Map of DeviceResourceDescriptor onto RefCount for unreferenced resources,
+	 * in the order they were released.
+	 */
+	private final LinkedHashMap idle = new LinkedHashMap();
+
+	private boolean disposed = false;
+
+	private long allocations = 0;
+	private long poolHits = 0;
+	private long disposals = 0;
+
+	/**
+	 * Creates a new pooled manager for the given device using
+	 * {@link #DEFAULT_MAX_IDLE_COUNT} and {@link #DEFAULT_MAX_IDLE_TIME}.
+	 *
+	 * @param device
+	 *            device to manage
+	 */
+	public PooledDeviceResourceManager(Device device) {
+		this(device, DEFAULT_MAX_IDLE_COUNT, DEFAULT_MAX_IDLE_TIME);
+	}
+
+	/**
+	 * Creates a new pooled manager for the given device.
+	 *
+	 * @param device
+	 *            device to manage
+	 * @param maxIdleCount
+	 *            maximum number of unreferenced resources to keep alive, or
+	 *            <code>0</code> to dispose resources as soon as they are
+	 *            released
+	 * @param maxIdleTime
+	 *            maximum number of milliseconds an unreferenced resource is
+	 *            kept alive, or a negative value to keep it until it is
+	 *            evicted by count
+	 */
+	public PooledDeviceResourceManager(Device device, int maxIdleCount,
+			long maxIdleTime) {
+		this.device = device;
+		this.maxIdleCount = Math.max(0, maxIdleCount);
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.resource.ResourceManager#getDevice()
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.resource.ResourceManager#create(org.eclipse.jface.resource.DeviceResourceDescriptor)
+	 */
+	public Object create(DeviceResourceDescriptor descriptor) {
+		List expired = new ArrayList();
+		Object existing = acquire(descriptor, expired);
+		deallocateAll(expired);
+		if (existing != null) {
+			return existing;
+		}
+
+		// Allocate outside of the lock so that slow allocations in one thread
+		// do not block lookups in another
+		Object resource = descriptor.createResource(device);
+
+		Object winner;
+		boolean wasDisposed;
+		synchronized (lock) {
+			allocations++;
+			wasDisposed = disposed;
+			winner = wasDisposed ? null : acquire(descriptor, null);
+			if (!wasDisposed && winner == null) {
+				live.put(descriptor, new RefCount(resource));
+				return resource;
+			}
+		}
+		// Either another thread allocated the same resource in the meantime,
+		// or the manager was disposed
+		List unused = new ArrayList();
+		unused.add(new Object[] { descriptor, new RefCount(resource) });
+		deallocateAll(unused);
+		if (wasDisposed) {
+			throw new DeviceResourceException(descriptor);
+		}
+		return winner;
+	}
+
+	/**
+	 * Returns an already allocated resource for the given descriptor,
+	 * incrementing its reference count, or <code>null</code> if none exists.
+	 *
+	 * @param descriptor
+	 *            identifier for the resource
+	 * @param expired
+	 *            if not <code>null</code>, receives any idle entries that have
+	 *            timed out
+	 * @return the existing resource or <code>null</code>
+	 */
+	private Object acquire(DeviceResourceDescriptor descriptor, List expired) {
+		synchronized (lock) {
+			if (disposed) {
+				throw new DeviceResourceException(descriptor);
+			}
+			if (expired != null) {
+				collectExpired(System.currentTimeMillis(), expired);
+			}
+			RefCount count = (RefCount) live.get(descriptor);
+			if (count != null) {
+				count.count++;
+				return count.resource;
+			}
+			count = (RefCount) idle.remove(descriptor);
+			if (count != null) {
+				count.count = 1;
+				live.put(descriptor, count);
+				poolHits++;
+				return count.resource;
+			}
+			return null;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.resource.ResourceManager#destroy(org.eclipse.jface.resource.DeviceResourceDescriptor)
+	 */
+	public void destroy(DeviceResourceDescriptor descriptor) {
+		List toDeallocate = new ArrayList();
+		synchronized (lock) {
+			RefCount count = (RefCount) live.get(descriptor);
+			if (count == null) {
+				return;
+			}
+			count.count--;
+			if (count.count > 0) {
+				return;
+			}
+			live.remove(descriptor);
+
+			long now = System.currentTimeMillis();
+			if (disposed || maxIdleCount == 0 || maxIdleTime == 0) {
+				toDeallocate.add(new Object[] { descriptor, count });
+			} else {
+				count.idleSince = now;
+				idle.put(descriptor, count);
+			}
+			collectExpired(now, toDeallocate);
+			collectOverflow(toDeallocate);
+		}
+		deallocateAll(toDeallocate);
+	}
+
+	/**
+	 * Disposes all pooled resources that have been idle for longer than the
+	 * configured idle time.
+	 */
+	public void trimIdle() {
+		List expired = new ArrayList();
+		synchronized (lock) {
+			collectExpired(System.currentTimeMillis(), expired);
+		}
+		deallocateAll(expired);
+	}
+
+	/**
+	 * Disposes all pooled resources that are not currently referenced.
+	 * Referenced resources are not affected.
+	 */
+	public void flushIdle() {
+		List toDeallocate = new ArrayList();
+		synchronized (lock) {
+			removeIdle(idle.size(), toDeallocate);
+		}
+		deallocateAll(toDeallocate);
+	}
+
+	/**
+	 * Removes idle entries whose idle time has elapsed. Must be called while
+	 * holding the lock.
+	 */
+	private void collectExpired(long now, List result) {
+		if (maxIdleTime < 0) {
+			return;
+		}
+		// Entries are kept in release order, so the first entry that has not
+		// expired ends the scan
+		for (Iterator iter = idle.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry next = (Map.Entry) iter.next();
+			RefCount count = (RefCount) next.getValue();
+			if (now - count.idleSince < maxIdleTime) {
+				break;
+			}
+			result.add(new Object[] { next.getKey(), count });
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Removes the oldest idle entries until the pool is within its size limit.
+	 * Must be called while holding the lock.
+	 */
+	private void collectOverflow(List result) {
+		removeIdle(idle.size() - maxIdleCount, result);
+	}
+
+	/**
+	 * Removes up to <code>toRemove</code> of the oldest idle entries. Must be
+	 * called while holding the lock.
+	 */
+	private void removeIdle(int toRemove, List result) {
+		for (Iterator iter = idle.entrySet().iterator(); toRemove > 0
+				&& iter.hasNext(); toRemove--) {
+			Map.Entry next = (Map.Entry) iter.next();
+			result.add(new Object[] { next.getKey(), next.getValue() });
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Deallocates the given (descriptor, RefCount) pairs in the UI thread of
+	 * the device, now if this is the current thread and later otherwise. Must
+	 * be called without holding the lock.
+	 */
+	private void deallocateAll(final List pairs) {
+		if (pairs.isEmpty()) {
+			return;
+		}
+		if (device instanceof Display) {
+			Display display = (Display) device;
+			try {
+				if (display.getThread() != Thread.currentThread()) {
+					display.asyncExec(new Runnable() {
+						public void run() {
+							destroyAll(pairs);
+						}
+					});
+					return;
+				}
+			} catch (SWTException e) {
+				// The display is disposed, and its resources with it
+				return;
+			}
+		}
+		destroyAll(pairs);
+	}
+
+	private void destroyAll(List pairs) {
+		for (Iterator iter = pairs.iterator(); iter.hasNext();) {
+			Object[] next = (Object[]) iter.next();
+			DeviceResourceDescriptor descriptor = (DeviceResourceDescriptor) next[0];
+			RefCount count = (RefCount) next[1];
+			descriptor.destroyResource(count.resource);
+		}
+		synchronized (lock) {
+			disposals += pairs.size();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.resource.ResourceManager#find(org.eclipse.jface.resource.DeviceResourceDescriptor)
+	 */
+	public Object find(DeviceResourceDescriptor descriptor) {
+		synchronized (lock) {
+			RefCount count = (RefCount) live.get(descriptor);
+			if (count == null) {
+				return null;
+			}
+			return count.resource;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.resource.ResourceManager#getDefaultImage()
+	 */
+	protected Image getDefaultImage() {
+		synchronized (lock) {
+			if (missingImage == null) {
+				missingImage = ImageDescriptor.getMissingImageDescriptor()
+						.createImage();
+			}
+			return missingImage;
+		}
+	}
+
+	/**
+	 * Deallocates all resources allocated by this manager, whether they are
+	 * still referenced or pooled.
+	 */
+	public void dispose() {
+		super.dispose();
+
+		List toDeallocate = new ArrayList();
+		Image image;
+		synchronized (lock) {
+			disposed = true;
+			image = missingImage;
+			missingImage = null;
+			for (Iterator iter = live.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry next = (Map.Entry) iter.next();
+				toDeallocate.add(new Object[] { next.getKey(), next.getValue() });
+			}
+			live.clear();
+			removeIdle(idle.size(), toDeallocate);
+		}
+		deallocateAll(toDeallocate);
+
+		if (image != null) {
+			image.dispose();
+		}
+	}
+
+	/**
+	 * Returns the number of OS resources currently allocated by this manager,
+	 * including pooled resources that are no longer referenced.
+	 *
+	 * @return the number of live handles
+	 */
+	public int getLiveCount() {
+		synchronized (lock) {
+			return live.size() + idle.size();
+		}
+	}
+
+	/**
+	 * Returns the number of unreferenced resources currently held in the idle
+	 * pool.
+	 *
+	 * @return the number of pooled resources
+	 */
+	public int getIdleCount() {
+		synchronized (lock) {
+			return idle.size();
+		}
+	}
+
+	/**
+	 * Returns the number of OS resources allocated by this manager since it was
+	 * created.
+	 *
+	 * @return the total number of allocations
+	 */
+	public long getAllocationCount() {
+		synchronized (lock) {
+			return allocations;
+		}
+	}
+
+	/**
+	 * Returns the number of requests that were satisfied by reviving a pooled
+	 * resource rather than allocating a new one.
+	 *
+	 * @return the total number of pool hits
+	 */
+	public long getPoolHitCount() {
+		synchronized (lock) {
+			return poolHits;
+		}
+	}
+
+	/**
+	 * Returns the number of OS resources disposed by this manager since it was
+	 * created.
+	 *
+	 * @return the total number of disposals
+	 */
+	public long getDisposalCount() {
+		synchronized (lock) {
+			return disposals;
+		}
+	}
+}
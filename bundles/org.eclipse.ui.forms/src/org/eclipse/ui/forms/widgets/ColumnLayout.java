@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,13 @@ import org.eclipse.ui.internal.forms.widgets.ColumnLayoutUtils;
  * Child controls are layed out according to their 'natural' (preferred) size.
  * For 'stretchy' controls that do not have natural preferred size, it is
  * possible to set width and/or height hints using ColumnLayoutData objects.
+ * <p>
+ * The preferred sizes of the children are cached, as {@link TableWrapLayout}
+ * caches them, until the layout is asked to flush its cache. A client that
+ * changes the contents of a child must flush the size of that child, for
+ * example with <code>parent.layout(new Control[] {child})</code>, or flush
+ * all of them with <code>parent.layout(true)</code> or
+ * <code>form.reflow(true)</code>.
  * 
  * @see ColumnLayoutData
  * @since 3.0
@@ -71,6 +78,8 @@ public final class ColumnLayout extends Layout implements ILayoutExtension {
 	 */
 	public int rightMargin = 5;
 
+	private LayoutCache cache = new LayoutCache();
+
 	/**
 	 * Creates a new instance of the column layout.
 	 */
@@ -78,6 +87,7 @@ public final class ColumnLayout extends Layout implements ILayoutExtension {
 	}
 
 	protected Point computeSize(Composite composite, int wHint, int hHint, boolean flushCache) {
+		updateCache(composite, flushCache);
 		if (wHint == 0)
 			return computeSize(composite, wHint, hHint, minNumColumns);
 		else if (wHint == SWT.DEFAULT)
@@ -102,7 +112,7 @@ public final class ColumnLayout extends Layout implements ILayoutExtension {
 		}
 
 		for (int i = 0; i < children.length; i++) {
-			sizes[i] = computeControlSize(children[i], cwHint);
+			sizes[i] = computeControlSize(i, children[i], cwHint);
 			cwidth = Math.max(cwidth, sizes[i].x);
 			cheight += sizes[i].y;
 		}
@@ -149,11 +159,17 @@ public final class ColumnLayout extends Layout implements ILayoutExtension {
 		return size;
 	}
 
-	private Point computeControlSize(Control c, int wHint) {
+	private Point computeControlSize(int index, Control c, int wHint) {
 		ColumnLayoutData cd = (ColumnLayoutData) c.getLayoutData();
 		int widthHint = cd != null ? cd.widthHint : wHint;
 		int heightHint = cd != null ? cd.heightHint : SWT.DEFAULT;
-		return c.computeSize(widthHint, heightHint);
+		return cache.computeSize(index, widthHint, heightHint);
+	}
+
+	private void updateCache(Composite parent, boolean flushCache) {
+		if (flushCache)
+			cache.flush();
+		cache.setControls(parent.getChildren());
 	}
 
 	private int findShortestColumn(int[] heights) {
@@ -175,13 +191,14 @@ public final class ColumnLayout extends Layout implements ILayoutExtension {
 	 *      boolean)
 	 */
 	protected void layout(Composite parent, boolean flushCache) {
+		updateCache(parent, flushCache);
 		Control[] children = parent.getChildren();
 		Rectangle carea = parent.getClientArea();
 		int cwidth = 0;
 		int cheight = 0;
 		Point[] sizes = new Point[children.length];
 		for (int i = 0; i < children.length; i++) {
-			sizes[i] = computeControlSize(children[i], SWT.DEFAULT);
+			sizes[i] = computeControlSize(i, children[i], SWT.DEFAULT);
 			cwidth = Math.max(cwidth, sizes[i].x);
 			cheight += sizes[i].y;
 		}
@@ -249,6 +266,19 @@ public final class ColumnLayout extends Layout implements ILayoutExtension {
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.swt.widgets.Layout#flushCache(org.eclipse.swt.widgets.Control)
+	 */
+	protected boolean flushCache(Control control) {
+		// the sizes of the siblings are still valid
+		SizeCache controlCache = cache.getCache(control);
+		if (controlCache != null)
+			controlCache.flush(false);
+		return true;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -251,6 +251,17 @@ public class ExpandableComposite extends Canvas {
 			}
 		}
 
+		protected boolean flushCache(Control control) {
+			// only the size of this part changed
+			SizeCache[] caches = { toggleCache, textClientCache,
+					textLabelCache, descriptionCache, clientCache };
+			for (int i = 0; i < caches.length; i++) {
+				if (caches[i].getControl() == control)
+					caches[i].flush(false);
+			}
+			return true;
+		}
+
 		protected void layout(Composite parent, boolean changed) {
 			initCache(changed);
 
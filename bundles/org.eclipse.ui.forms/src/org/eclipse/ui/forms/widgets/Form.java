@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -158,6 +158,14 @@ public class Form extends Composite {
 			bodyCache
 					.setBounds(0, hsize.y, carea.width, carea.height - hsize.y);
 		}
+
+		protected boolean flushCache(Control control) {
+			if (control == body)
+				bodyCache.flush(false);
+			else if (control == head)
+				headCache.flush(false);
+			return true;
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1595,6 +1595,9 @@ public class FormText extends Canvas {
 			selectedLink = null;
 		for (int i = 0; i < paragraphs.length; i++) {
 			Paragraph p = paragraphs[i];
+			// only paint the paragraphs in the damaged region
+			if (!p.intersects(repaintRegion))
+				continue;
 			p
 					.paint(textGC, repaintRegion, resourceTable, selectedLink,
 							selData);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2005 IBM Corporation and others.
+ * Copyright (c) 2004, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -46,6 +46,22 @@ public class LayoutCache {
         return caches[idx];
     }
 
+    /**
+     * Returns the size cache for the given control, or null if the control
+     * is not cached here
+     * 
+     * @param control
+     * @return the size cache for the given control, or null
+     */
+    SizeCache getCache(Control control) {
+        for (int idx = 0; idx < caches.length; idx++) {
+            if (caches[idx].getControl() == control) {
+                return caches[idx];
+            }
+        }
+        return null;
+    }
+
     /**
      * Sets the controls that are being cached here. If these are the same
      * controls that were used last time, this method does nothing. Otherwise,
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2010 IBM Corporation and others.
+ *  Copyright (c) 2000, 2012 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -117,7 +117,8 @@ public class Section extends ExpandableComposite {
 
 	/**
 	 * Reflows this section and all the parents up the hierarchy until a
-	 * SharedScrolledComposite is reached.
+	 * SharedScrolledComposite is reached. The other controls in the
+	 * SharedScrolledComposite keep their cached sizes.
 	 */
 	protected void reflow() {
 		Composite c = this;
@@ -128,13 +129,16 @@ public class Section extends ExpandableComposite {
 				break;
 			}
 		}
-		c = this;
-		while (c != null) {
-			c.layout(true);
+		layout(true);
+		c = getParent();
+		while (c != null && !(c instanceof SharedScrolledComposite)) {
 			c = c.getParent();
-			if (c instanceof SharedScrolledComposite) {
-				((SharedScrolledComposite) c).reflow(true);
-				break;
+		}
+		if (c != null) {
+			((SharedScrolledComposite) c).reflow(this);
+		} else {
+			for (c = getParent(); c != null; c = c.getParent()) {
+				c.layout(true);
 			}
 		}
 		c = this;
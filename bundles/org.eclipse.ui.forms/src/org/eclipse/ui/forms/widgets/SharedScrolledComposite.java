@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2009 IBM Corporation and others.
+ *  Copyright (c) 2000, 2012 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -177,20 +177,61 @@ public abstract class SharedScrolledComposite extends ScrolledComposite {
 	 */
 	public void reflow(boolean flushCache) {
 		Composite c = (Composite) getContent();
-		Rectangle clientArea = getClientArea();
 		if (c == null)
 			return;
+		contentCache.setControl(c);
+		if (flushCache) {
+			contentCache.flush();
+		}
+		updateContent(c, flushCache);
+	}
+
+	/**
+	 * Recomputes the layout and the scroll bars after the size of the changed
+	 * control, a descendant of the body, may have changed. Only the cached
+	 * sizes of the control and of its ancestors are dropped, and only these
+	 * ancestors are laid out again; the other controls keep their cached
+	 * sizes. Falls back to {@link #reflow(boolean)} if the control is not in
+	 * the body.
+	 * 
+	 * @param changed
+	 *            the control whose size may have changed
+	 */
+	void reflow(Control changed) {
+		Composite c = (Composite) getContent();
+		if (c == null)
+			return;
+		if (changed != c) {
+			if (!isDescendant(changed, c)) {
+				reflow(true);
+				return;
+			}
+			// flush the layouts on the path to the control and lay them out
+			c.layout(new Control[] { changed });
+		}
+		contentCache.setControl(c);
+		contentCache.flush(false);
+		updateContent(c, false);
+	}
+
+	private static boolean isDescendant(Control control, Composite ancestor) {
+		for (Composite parent = control.getParent(); parent != null; parent = parent
+				.getParent()) {
+			if (parent == ancestor)
+				return true;
+		}
+		return false;
+	}
+
+	private void updateContent(Composite c, boolean flushCache) {
+		Rectangle clientArea = getClientArea();
 		if (clientArea.width == getSize().x) {
 			ScrollBar bar = getVerticalBar();
 			if (bar != null) {
 			    clientArea.width -= bar.getSize().x;
 			}
 		}
-			
-		contentCache.setControl(c);
-		if (flushCache) {
-			contentCache.flush();
-		}
+
 		Point newSize = contentCache.computeSize(FormUtil.getWidthHint(
 				clientArea.width, c), FormUtil.getHeightHint(clientArea.height,
 				c));
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2010 IBM Corporation and others.
+ * Copyright (c) 2004, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -269,7 +269,7 @@ public class SizeCache {
             // it from scratch.
             Point newHeight = controlComputeSize(widthHint - widthAdjustment, SWT.DEFAULT);
 
-            cachedHeightQuery = heightHint;
+            cachedHeightQuery = widthHint;
             cachedHeightResult = newHeight.y;
             
             return newHeight;
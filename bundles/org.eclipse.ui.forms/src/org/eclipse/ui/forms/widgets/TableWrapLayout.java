@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2011 IBM Corporation and others.
+ *  Copyright (c) 2000, 2012 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -203,6 +203,20 @@ public final class TableWrapLayout extends Layout implements ILayoutExtension {
 		return internalGetMaximumWidth(parent, changed);
 	}
 
+	/**
+	 * Flushes the cached size of the control only, so that the sizes of its
+	 * siblings are reused by the next layout.
+	 * 
+	 * @see Layout#flushCache(Control)
+	 */
+	protected boolean flushCache(Control control) {
+		SizeCache controlCache = cache.getCache(control);
+		if (controlCache != null) {
+			controlCache.flush(false);
+		}
+		return true;
+	}
+
 	/**
 	 * @see Layout#layout(Composite, boolean)
 	 */
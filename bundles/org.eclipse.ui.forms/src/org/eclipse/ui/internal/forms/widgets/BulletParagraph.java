@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -113,6 +113,11 @@ public class BulletParagraph extends Paragraph {
 		super.paint(gc, repaintRegion, resourceTable, selectedLink, selData);
 	}
 
+	public boolean intersects(Rectangle region) {
+		return super.intersects(region)
+				|| (bbounds != null && bbounds.intersects(region));
+	}
+
 	private void layoutBullet(GC gc, Locator loc, int lineHeight,
 			Hashtable resourceTable) {
 		int x = loc.x - getIndent() + getBulletIndent();
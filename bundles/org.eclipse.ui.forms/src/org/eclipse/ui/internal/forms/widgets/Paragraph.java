@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,9 @@ public class Paragraph {
 
 	private boolean addVerticalSpace = true;
 
+	// the vertical extent of the last layout, if any
+	private int top, bottom = -1;
+
 	public Paragraph(boolean addVerticalSpace) {
 		this.addVerticalSpace = addVerticalSpace;
 	}
@@ -149,6 +152,7 @@ public class Paragraph {
 	public void layout(GC gc, int width, Locator loc, int lineHeight,
 			Hashtable resourceTable, IHyperlinkSegment selectedLink) {
 		ParagraphSegment[] segments = getSegments();
+		top = loc.y;
 		//int height;
 		if (segments.length > 0) {
 			/*
@@ -171,6 +175,24 @@ public class Paragraph {
 		} else {
 			loc.y += lineHeight;
 		}
+		// the text areas and underlines of the last row may reach a little
+		// below it
+		bottom = loc.y + lineHeight;
+	}
+
+	/**
+	 * Tests if the region intersects with the rows of this paragraph at its
+	 * last layout. Paragraphs that were not laid out yet intersect with any
+	 * region.
+	 * 
+	 * @param region
+	 * @return <code>true</code> if the paragraph may paint in the region,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean intersects(Rectangle region) {
+		if (bottom == -1)
+			return true;
+		return region.y < bottom && region.y + region.height > top;
 	}
 
 	public void paint(GC gc, Rectangle repaintRegion,
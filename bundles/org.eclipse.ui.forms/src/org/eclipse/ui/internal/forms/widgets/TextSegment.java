@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -45,17 +45,35 @@ public class TextSegment extends ParagraphSegment {
 
 	private TextFragment[] textFragments;
 
+	private Point textExtent;
+
+	private LineBreaks layoutLines;
+
+	private LineBreaks sizeLines;
+
 	class AreaRectangle {
 		Rectangle rect;
 
 		int from, to;
 
+		private int textWidth = -1;
+
 		public AreaRectangle(Rectangle rect, int from, int to) {
 			this.rect = rect;
 			this.from = from;
 			this.to = to;
 		}
 
+		/*
+		 * The width of the text of this area, measured once with the font
+		 * of the segment set in the gc.
+		 */
+		int getTextWidth(GC gc) {
+			if (textWidth == -1)
+				textWidth = gc.textExtent(getText()).x;
+			return textWidth;
+		}
+
 		public boolean contains(int x, int y) {
 			return rect.contains(x, y);
 		}
@@ -99,6 +117,74 @@ public class TextSegment extends ParagraphSegment {
 		}
 	}
 
+	/*
+	 * The lines the text fragments wrap to, starting at x with the next lines
+	 * starting at wrapX, for text that must not go past limit. Kept so that
+	 * layouts at an unchanged width do not break the text into lines again.
+	 */
+	static class LineBreaks {
+		int x, wrapX, limit;
+
+		boolean wrapFirst;
+
+		int count;
+
+		// the index of the fragment after the last one of each line
+		int[] ends = new int[4];
+
+		// the sum of the fragment widths of each line
+		int[] widths = new int[4];
+
+		LineBreaks(TextFragment[] fragments, int x, boolean wrapFirst,
+				int wrapX, int limit) {
+			this.x = x;
+			this.wrapFirst = wrapFirst;
+			this.wrapX = wrapX;
+			this.limit = limit;
+			int lineX = x;
+			int lineWidth = 0;
+			for (int i = 0; i < fragments.length; i++) {
+				// only wrap on the first fragment if we are not at the start
+				// of a line
+				if ((i != 0 || wrapFirst)
+						&& lineX + lineWidth + fragments[i].length > limit) {
+					addLine(i, lineWidth);
+					lineX = wrapX;
+					lineWidth = 0;
+				}
+				lineWidth += fragments[i].length;
+			}
+			addLine(fragments.length, lineWidth);
+		}
+
+		private void addLine(int end, int width) {
+			if (count == ends.length) {
+				int[] newEnds = new int[count * 2];
+				int[] newWidths = new int[count * 2];
+				System.arraycopy(ends, 0, newEnds, 0, count);
+				System.arraycopy(widths, 0, newWidths, 0, count);
+				ends = newEnds;
+				widths = newWidths;
+			}
+			ends[count] = end;
+			widths[count] = width;
+			count++;
+		}
+
+		int getStart(int line) {
+			return line == 0 ? 0 : ends[line - 1];
+		}
+
+		boolean isEmpty(int line) {
+			return getStart(line) == ends[line];
+		}
+
+		boolean matches(int x, boolean wrapFirst, int wrapX, int limit) {
+			return this.x == x && this.wrapFirst == wrapFirst
+					&& this.wrapX == wrapX && this.limit == limit;
+		}
+	}
+
 	public TextSegment(String text, String fontId) {
 		this(text, fontId, null, true);
 	}
@@ -149,7 +235,7 @@ public class TextSegment extends ParagraphSegment {
 
 	void setText(String text) {
 		this.text = cleanup(text);
-		textFragments = null;
+		clearMetrics();
 	}
 
 	void setColorId(String colorId) {
@@ -158,7 +244,7 @@ public class TextSegment extends ParagraphSegment {
 
 	void setFontId(String fontId) {
 		this.fontId = fontId;
-		textFragments = null;
+		clearMetrics();
 	}
 
 	public boolean contains(int x, int y) {
@@ -233,7 +319,7 @@ public class TextSegment extends ParagraphSegment {
 		boolean newLine = false;
 
 		if (wHint == SWT.DEFAULT || !wrapAllowed) {
-			Point extent = gc.textExtent(text);
+			Point extent = getTextExtent(gc);
 			int totalExtent = locator.x+extent.x;
 			if (isSelectable())
 				totalExtent+=1;
@@ -260,21 +346,22 @@ public class TextSegment extends ParagraphSegment {
 
 		computeTextFragments(gc);
 
+		int selectableOffset = isSelectable() ? 1 : 0;
+		boolean wrapFirst = locator.x > locator.getStartX() + selectableOffset;
+		int wrapX = locator.indent + selectableOffset;
+		if (sizeLines == null
+				|| !sizeLines.matches(locator.x + selectableOffset, wrapFirst,
+						wrapX, wHint))
+			sizeLines = new LineBreaks(textFragments, locator.x
+					+ selectableOffset, wrapFirst, wrapX, wHint);
+
 		int width = 0;
 		Point lineExtent = new Point(0, 0);
 
-		for (int i = 0; i < textFragments.length; i++) {
-			TextFragment textFragment = textFragments[i];
-			int currentExtent = locator.x + lineExtent.x;
-			
-			if (isSelectable())
-				currentExtent += 1;
-
-			// i != 0 || locator.x > locator.getStartX() + (isSelectable() ? 1 : 0) means:
-			// only wrap on the first fragment if we are not at the start of a line
-			if ((i != 0 || locator.x > locator.getStartX() + (isSelectable() ? 1 : 0)) && currentExtent + textFragment.length > wHint) {
+		for (int line = 0; line < sizeLines.count; line++) {
+			if (line > 0) {
 				// overflow
-				int lineWidth = currentExtent;
+				int lineWidth = locator.x + lineExtent.x + selectableOffset;
 				locator.rowHeight = Math.max(locator.rowHeight, lineExtent.y);
 				locator.leading = Math.max(locator.leading, fm.getLeading());
 				if (computeHeightOnly)
@@ -283,14 +370,13 @@ public class TextSegment extends ParagraphSegment {
 				locator.y += locator.rowHeight;
 				locator.rowHeight = 0;
 				locator.leading = 0;
-				lineExtent.x = 0;
-				lineExtent.y = 0;
 				width = Math.max(width, lineWidth);
 				newLine = true;
 			}
-			lineExtent.x += textFragment.length;
-			lineExtent.y = Math.max(lineHeight, lineExtent.y);
-			width = Math.max (width, locator.x + lineExtent.x);
+			lineExtent.x = sizeLines.widths[line];
+			lineExtent.y = sizeLines.isEmpty(line) ? 0 : lineHeight;
+			if (!sizeLines.isEmpty(line))
+				width = Math.max(width, locator.x + lineExtent.x);
 		}
 		int lineWidth = lineExtent.x;
 		if (isSelectable())
@@ -318,7 +404,7 @@ public class TextSegment extends ParagraphSegment {
 	 */
 	private void layoutWithoutWrapping(GC gc, int width, Locator locator,
 			boolean selected, FontMetrics fm, int lineHeight, int descent) {
-		Point extent = gc.textExtent(text);
+		Point extent = getTextExtent(gc);
 		int ewidth = extent.x;
 		if (isSelectable())
 			ewidth += 1;
@@ -411,10 +497,9 @@ public class TextSegment extends ParagraphSegment {
 			AreaRectangle areaRectangle = (AreaRectangle) areaRectangles.get(i);
 			Rectangle rect = areaRectangle.rect;
 			String text = areaRectangle.getText();
-			Point extent = gc.textExtent(text);
 			int textX = rect.x + (isSelectable()?1:0);
 			int lineY = rect.y + lineHeight - descent + 1;
-			paintString(gc, text, extent.x, textX, rect.y, lineY, selData,
+			paintString(gc, text, areaRectangle.getTextWidth(gc), textX, rect.y, lineY, selData,
 					rect, hover, rollover, repaintRegion);
 			if (selected) {
 				int fx = rect.x;
@@ -458,8 +543,7 @@ public class TextSegment extends ParagraphSegment {
 			AreaRectangle areaRectangle = (AreaRectangle) areaRectangles.get(i);
 			Rectangle rect = areaRectangle.rect;
 			String text = areaRectangle.getText();
-			Point extent = gc.textExtent(text);
-			computeSelection(gc, text, extent.x, selData,
+			computeSelection(gc, text, areaRectangle.getTextWidth(gc), selData,
 					rect);
 		}
 		// restore GC resources
@@ -489,7 +573,7 @@ public class TextSegment extends ParagraphSegment {
 
 			if ((firstRow && x + swidth < leftOffset)
 					|| (lastRow && x > rightOffset)) {
-				paintStringSegment(gc, s, gc.textExtent(s).x, x, y, lineY,
+				paintStringSegment(gc, s, swidth, x, y, lineY,
 						hover, rolloverMode, repaintRegion);
 				return;
 			}
@@ -524,7 +608,7 @@ public class TextSegment extends ParagraphSegment {
 				gc.setForeground(savedFg);
 				gc.setBackground(savedBg);
 			} else {
-				paintStringSegment(gc, s, gc.textExtent(s).x, x, y, lineY,
+				paintStringSegment(gc, s, swidth, x, y, lineY,
 						hover, rolloverMode, repaintRegion);
 			}
 			if (lastRow && sstop != -1) {
@@ -533,7 +617,7 @@ public class TextSegment extends ParagraphSegment {
 						lineY, hover, rolloverMode, repaintRegion);
 			}
 		} else {
-			paintStringSegment(gc, s, gc.textExtent(s).x, x, y, lineY, hover,
+			paintStringSegment(gc, s, swidth, x, y, lineY, hover,
 					rolloverMode, repaintRegion);
 		}
 	}
@@ -650,16 +734,18 @@ public class TextSegment extends ParagraphSegment {
 			Point lineExtent = new Point(0, 0);
 			computeTextFragments(gc);
 			int rightEdge = width-locator.marginWidth;
-			for (int i = 0; i < textFragments.length; i++) {
-				TextFragment fragment = textFragments[i];
-				int breakLoc = fragment.index;
-				if (breakLoc == 0)
-					continue;
-				// (i != 0 || locator.x > locator.getStartX() + (isSelectable() ? 1 : 0)) means:
-				// only wrap on the first fragment if we are not at the start of a line
-				if ((i != 0 || locator.x > locator.getStartX() + (isSelectable() ? 1 : 0)) && locator.x + lineExtent.x + fragment.length > rightEdge) {
+			int selectableOffset = isSelectable() ? 1 : 0;
+			boolean wrapFirst = locator.x > locator.getStartX() + selectableOffset;
+			int wrapX = locator.getStartX() + selectableOffset;
+			if (layoutLines == null
+					|| !layoutLines.matches(locator.x, wrapFirst, wrapX,
+							rightEdge))
+				layoutLines = new LineBreaks(textFragments, locator.x,
+						wrapFirst, wrapX, rightEdge);
+			for (int line = 0; line < layoutLines.count; line++) {
+				if (line > 0) {
 					// overflow
-					if ( i != 0 ) {
+					if (!layoutLines.isEmpty(line - 1)) {
 						int ly = locator.getBaseline(lineHeight - fm.getLeading());
 						Rectangle br = new Rectangle(isSelectable()?
 								locator.x - 1:locator.x, ly,
@@ -677,12 +763,11 @@ public class TextSegment extends ParagraphSegment {
 					locator.rowCounter++;
 					locator.rowHeight = 0;
 					lineStart = lastLoc;
-					lineExtent.x = 0;
-					lineExtent.y = 0;
 				}
-				lastLoc = breakLoc;
-				lineExtent.x += fragment.length;
-				lineExtent.y = Math.max(lineHeight, lineExtent.y);
+				if (!layoutLines.isEmpty(line))
+					lastLoc = textFragments[layoutLines.ends[line] - 1].index;
+				lineExtent.x = layoutLines.widths[line];
+				lineExtent.y = layoutLines.isEmpty(line) ? 0 : lineHeight;
 			}
 			//String lastLine = text.substring(lineStart, lastLoc);
 			int ly = locator.getBaseline(lineHeight - fm.getLeading());
@@ -702,6 +787,19 @@ public class TextSegment extends ParagraphSegment {
 		}
 	}
 
+	private void clearMetrics() {
+		textFragments = null;
+		textExtent = null;
+		layoutLines = null;
+		sizeLines = null;
+	}
+
+	private Point getTextExtent(GC gc) {
+		if (textExtent == null)
+			textExtent = gc.textExtent(text);
+		return textExtent;
+	}
+
 	private void computeTextFragments(GC gc) {
 		if (textFragments != null)
 			return;
@@ -723,8 +821,8 @@ public class TextSegment extends ParagraphSegment {
 	
 	public void clearCache(String fontId) {
 		if (fontId==null && (this.fontId==null||this.fontId.equals(FormTextModel.BOLD_FONT_ID)))
-			textFragments = null;
+			clearMetrics();
 		else if (fontId!=null && this.fontId!=null && fontId.equals(this.fontId))
-			textFragments = null;
+			clearMetrics();
 	}
 }
@@ -0,0 +1,474 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.internal.views.markers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.views.markers.MarkerField;
+import org.eclipse.ui.views.markers.MarkerItem;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
+
+import com.ibm.icu.text.Collator;
+
+/**
+ * The MarkerAttributeColumns is a snapshot of the attributes a range of
+ * {@link MarkerEntry}s is sorted by, held in one int array per attribute.
+ * <p>
+ * Severities, priorities, lines and completion states are stored as they are.
+ * Strings and times are interned into ranks, so that comparing two ranks gives
+ * the same result as the {@link MarkerField} comparing the values. The entries
+ * are then sorted by comparing ints instead of looking up and comparing the
+ * attribute values of the entries, each attribute being read once per entry.
+ * </p>
+ * <p>
+ * Only the fields whose comparison is known can be sorted this way: the
+ * fields of the markers views and the fields that compare their
+ * {@link MarkerField#getValue(MarkerItem)}.
+ * </p>
+ *
+ * @since 3.8
+ *
+ */
+public class MarkerAttributeColumns {
+
+	/*
+	 * The number of entries from which the rows are sorted in parallel, if
+	 * there is more than one processor.
+	 */
+	private static final int PARALLEL_THRESHOLD = 50000;
+
+	private static final int MAX_JOBS = 4;
+
+	private static final Class[] COMPARE_PARAMETERS = new Class[] {
+			MarkerItem.class, MarkerItem.class };
+
+	/* The kinds of columns */
+	private static final int PLAIN = 0;
+
+	/*
+	 * The location rank, or -1 if there is no location, followed by the
+	 * column of the lines it falls back to
+	 */
+	private static final int LOCATION = 1;
+
+	private static final int LINE = 2;
+
+	private final MarkerEntry[] rows;
+
+	private final List columns = new ArrayList();
+
+	private final List kinds = new ArrayList();
+
+	private final List signs = new ArrayList();
+
+	private int[][] columnArray;
+
+	private int[] kindArray;
+
+	private int[] signArray;
+
+	/**
+	 * Sorts the entries in [from,to] by the fields, using a snapshot of their
+	 * attributes.
+	 *
+	 * @param entries
+	 * @param from
+	 * @param to
+	 * @param fields
+	 *            the fields in order of compare significance
+	 * @param descending
+	 *            whether each of the fields sorts in descending order
+	 * @param monitor
+	 * @return <code>false</code> if one of the fields cannot be sorted by a
+	 *         snapshot of attributes, or if the entries are sorted by path
+	 *         and some have no marker, in which case the entries were not
+	 *         sorted. The entries are not sorted either if the monitor is
+	 *         canceled.
+	 */
+	public static boolean sort(MarkerEntry[] entries, int from, int to,
+			MarkerField[] fields, boolean[] descending, IProgressMonitor monitor) {
+		boolean path = false;
+		for (int i = 0; i < fields.length; i++) {
+			Class declaring = getDeclaringClass(fields[i]);
+			if (declaring == null) {
+				return false;
+			}
+			path |= declaring == MarkerPathField.class;
+		}
+		if (path) {
+			// entries without a marker compare equal to any path, which no
+			// rank can represent
+			for (int i = from; i <= to; i++) {
+				if (entries[i].getMarker() == null) {
+					return false;
+				}
+			}
+		}
+		MarkerEntry[] rows = new MarkerEntry[to - from + 1];
+		System.arraycopy(entries, from, rows, 0, rows.length);
+		MarkerAttributeColumns snapshot = new MarkerAttributeColumns(rows);
+		for (int i = 0; i < fields.length; i++) {
+			if (monitor.isCanceled()) {
+				return true;
+			}
+			snapshot.addColumns(fields[i], descending[i] ? -1 : 1);
+		}
+		for (int i = 0; i < rows.length; i++) {
+			rows[i].clearCache();
+		}
+		if (monitor.isCanceled()) {
+			return true;
+		}
+		int[] order = snapshot.sortRows();
+		for (int i = 0; i < order.length; i++) {
+			entries[from + i] = rows[order[i]];
+		}
+		return true;
+	}
+
+	/**
+	 * Return the class that declares the comparison of the field, or
+	 * <code>null</code> if it is not known.
+	 *
+	 * @param field
+	 * @return Class or <code>null</code>
+	 */
+	private static Class getDeclaringClass(MarkerField field) {
+		Class declaring;
+		try {
+			declaring = field.getClass().getMethod("compare", //$NON-NLS-1$
+					COMPARE_PARAMETERS).getDeclaringClass();
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+		if (declaring == MarkerField.class
+				|| declaring == MarkerSeverityField.class
+				|| declaring == MarkerPriorityField.class
+				|| declaring == MarkerLocationField.class
+				|| declaring == MarkerPathField.class
+				|| declaring == MarkerDescriptionField.class
+				|| declaring == MarkerSeverityAndDescriptionField.class
+				|| declaring == MarkerProblemSeverityAndMessageField.class
+				|| declaring == MarkerCreationTimeField.class
+				|| declaring == MarkerIDField.class
+				|| declaring == MarkerCompletionField.class) {
+			return declaring;
+		}
+		return null;
+	}
+
+	private MarkerAttributeColumns(MarkerEntry[] rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * Add the columns that sort like the field.
+	 *
+	 * @param field
+	 * @param sign
+	 *            -1 to reverse the comparison of the field
+	 */
+	private void addColumns(MarkerField field, int sign) {
+		Class declaring = getDeclaringClass(field);
+		int length = rows.length;
+		if (declaring == MarkerSeverityField.class) {
+			addColumn(readSeverities(), PLAIN, -sign);
+		} else if (declaring == MarkerSeverityAndDescriptionField.class
+				|| declaring == MarkerProblemSeverityAndMessageField.class) {
+			addColumn(readSeverities(), PLAIN, -sign);
+			addColumn(readDescriptions(), PLAIN, sign);
+		} else if (declaring == MarkerDescriptionField.class) {
+			addColumn(readDescriptions(), PLAIN, sign);
+		} else if (declaring == MarkerPriorityField.class) {
+			int[] priorities = new int[length];
+			for (int i = 0; i < length; i++) {
+				priorities[i] = rows[i].getAttributeValue(IMarker.PRIORITY,
+						IMarker.PRIORITY_NORMAL);
+			}
+			addColumn(priorities, PLAIN, -sign);
+		} else if (declaring == MarkerCompletionField.class) {
+			MarkerCompletionField completion = (MarkerCompletionField) field;
+			int[] done = new int[length];
+			for (int i = 0; i < length; i++) {
+				done[i] = completion.getDoneConstant(rows[i]);
+			}
+			addColumn(done, PLAIN, -sign);
+		} else if (declaring == MarkerLocationField.class) {
+			String[] locations = new String[length];
+			int[] lines = new int[length];
+			for (int i = 0; i < length; i++) {
+				String location = rows[i].getAttributeValue(IMarker.LOCATION,
+						MarkerSupportInternalUtilities.EMPTY_STRING);
+				locations[i] = location.length() == 0 ? null : location;
+				lines[i] = rows[i].getAttributeValue(IMarker.LINE_NUMBER, -1);
+			}
+			addColumn(rank(locations, null), LOCATION, sign);
+			addColumn(lines, LINE, sign);
+		} else if (declaring == MarkerPathField.class) {
+			String[] paths = new String[length];
+			for (int i = 0; i < length; i++) {
+				paths[i] = rows[i].getPath();
+			}
+			addColumn(rank(paths, null), PLAIN, sign);
+		} else if (declaring == MarkerCreationTimeField.class) {
+			long[] times = new long[length];
+			for (int i = 0; i < length; i++) {
+				times[i] = rows[i].getCreationTime();
+			}
+			addColumn(rank(times), PLAIN, sign);
+		} else if (declaring == MarkerIDField.class) {
+			long[] ids = new long[length];
+			for (int i = 0; i < length; i++) {
+				ids[i] = rows[i].getID();
+			}
+			addColumn(rank(ids), PLAIN, sign);
+		} else {
+			String[] values = new String[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = field.getValue(rows[i]);
+			}
+			addColumn(rank(values, null), PLAIN, sign);
+		}
+	}
+
+	private void addColumn(int[] column, int kind, int sign) {
+		columns.add(column);
+		kinds.add(new Integer(kind));
+		signs.add(new Integer(sign));
+	}
+
+	private int[] readSeverities() {
+		int[] severities = new int[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			severities[i] = MarkerSupportInternalUtilities.getSeverity(rows[i]);
+		}
+		return severities;
+	}
+
+	private int[] readDescriptions() {
+		String[] descriptions = new String[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			descriptions[i] = rows[i].getAttributeValue(IMarker.MESSAGE,
+					MarkerSupportInternalUtilities.UNKNOWN_ATRRIBTE_VALUE_STRING);
+		}
+		return rank(descriptions, Collator.getInstance());
+	}
+
+	/**
+	 * Return the rank of each value among the distinct values, values that
+	 * compare equal having the same rank. <code>null</code> values have the
+	 * rank -1.
+	 *
+	 * @param values
+	 * @param comparator
+	 *            the comparator of the values, or <code>null</code> to use
+	 *            their natural order
+	 * @return int[]
+	 */
+	private static int[] rank(String[] values, Comparator comparator) {
+		Map ranks = new HashMap();
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				ranks.put(values[i], null);
+			}
+		}
+		String[] distinct = (String[]) ranks.keySet().toArray(
+				new String[ranks.size()]);
+		if (comparator == null) {
+			Arrays.sort(distinct);
+		} else {
+			Arrays.sort(distinct, comparator);
+		}
+		int rank = 0;
+		for (int i = 0; i < distinct.length; i++) {
+			if (i > 0
+					&& (comparator == null ? distinct[i - 1]
+							.compareTo(distinct[i]) : comparator.compare(
+							distinct[i - 1], distinct[i])) != 0) {
+				rank++;
+			}
+			ranks.put(distinct[i], new Integer(rank));
+		}
+		int[] column = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			column[i] = values[i] == null ? -1 : ((Integer) ranks
+					.get(values[i])).intValue();
+		}
+		return column;
+	}
+
+	/**
+	 * Return the rank of each value among the distinct values.
+	 *
+	 * @param values
+	 * @return int[]
+	 */
+	private static int[] rank(long[] values) {
+		long[] sorted = (long[]) values.clone();
+		Arrays.sort(sorted);
+		int[] column = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			// the first of equal values is the rank of all of them
+			int index = Arrays.binarySearch(sorted, values[i]);
+			while (index > 0 && sorted[index - 1] == values[i]) {
+				index--;
+			}
+			column[i] = index;
+		}
+		return column;
+	}
+
+	/**
+	 * Return the indices of the rows in sorted order. The sort is stable.
+	 *
+	 * @return int[]
+	 */
+	private int[] sortRows() {
+		int count = columns.size();
+		columnArray = (int[][]) columns.toArray(new int[count][]);
+		kindArray = new int[count];
+		signArray = new int[count];
+		for (int i = 0; i < count; i++) {
+			kindArray[i] = ((Integer) kinds.get(i)).intValue();
+			signArray[i] = ((Integer) signs.get(i)).intValue();
+		}
+
+		final int[] order = new int[rows.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		final int[] buffer = new int[order.length];
+		int slices = Math.min(MAX_JOBS, Runtime.getRuntime()
+				.availableProcessors());
+		if (order.length < PARALLEL_THRESHOLD || slices < 2) {
+			mergeSort(order, buffer, 0, order.length);
+			return order;
+		}
+
+		// sort a slice per job, then merge the slices
+		final int[] bounds = new int[slices + 1];
+		for (int i = 0; i <= slices; i++) {
+			bounds[i] = (int) ((long) order.length * i / slices);
+		}
+		Job[] sorters = new Job[slices - 1];
+		for (int i = 1; i < slices; i++) {
+			final int slice = i;
+			sorters[i - 1] = new Job(MarkerMessages.sortDialog_title) {
+				protected IStatus run(IProgressMonitor monitor) {
+					mergeSort(order, buffer, bounds[slice], bounds[slice + 1]);
+					return Status.OK_STATUS;
+				}
+			};
+			sorters[i - 1].setSystem(true);
+			sorters[i - 1].schedule();
+		}
+		mergeSort(order, buffer, bounds[0], bounds[1]);
+		boolean interrupted = false;
+		for (int i = 0; i < sorters.length; i++) {
+			try {
+				sorters[i].join();
+			} catch (InterruptedException e) {
+				// keep waiting, the slices are merged below
+				interrupted = true;
+				i--;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		for (int i = 1; i < slices; i++) {
+			merge(order, buffer, 0, bounds[i], bounds[i + 1]);
+		}
+		return order;
+	}
+
+	/**
+	 * Sort order[from,to) using buffer[from,to) as work space.
+	 */
+	private void mergeSort(int[] order, int[] buffer, int from, int to) {
+		if (to - from < 8) {
+			// insertion sort for the short runs
+			for (int i = from + 1; i < to; i++) {
+				int row = order[i];
+				int j = i;
+				while (j > from && compare(order[j - 1], row) > 0) {
+					order[j] = order[j - 1];
+					j--;
+				}
+				order[j] = row;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, from, middle);
+		mergeSort(order, buffer, middle, to);
+		merge(order, buffer, from, middle, to);
+	}
+
+	/**
+	 * Merge the sorted order[from,middle) and order[middle,to).
+	 */
+	private void merge(int[] order, int[] buffer, int from, int middle, int to) {
+		if (compare(order[middle - 1], order[middle]) <= 0) {
+			return;
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to
+					|| (left < middle && compare(buffer[left], buffer[right]) <= 0)) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+
+	/**
+	 * Compare two rows the way the fields compare their entries.
+	 */
+	private int compare(int row1, int row2) {
+		for (int i = 0; i < columnArray.length; i++) {
+			int[] column = columnArray[i];
+			int value;
+			if (kindArray[i] == LOCATION) {
+				int location1 = column[row1];
+				int location2 = column[row2];
+				// without a location on both, compare the lines
+				int[] lines = columnArray[i + 1];
+				if (location1 < 0 || location2 < 0) {
+					value = lines[row1] - lines[row2];
+				} else {
+					value = location1 - location2;
+				}
+				i++;
+			} else {
+				value = column[row1] - column[row2];
+			}
+			if (value != 0) {
+				return value * signArray[i];
+			}
+		}
+		return 0;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.ui.IMemento;
 import org.eclipse.ui.views.markers.MarkerField;
 import org.eclipse.ui.views.markers.MarkerItem;
@@ -128,11 +129,36 @@ class MarkerComparator implements Comparator {
 	 * @return Comparator
 	 */
 	Comparator getFieldsComparator(){
-		return new Comparator(){
-			public int compare(Object o1, Object o2) {
-				return compareFields(o1, o2);
-			}			
-		};
+		MarkerComparator fieldsComparator = new MarkerComparator(null, fields);
+		fieldsComparator.descendingFields = new HashSet(descendingFields);
+		return fieldsComparator;
+	}
+
+	/**
+	 * Sort the entries in [from,to] like the receiver would, using a snapshot
+	 * of the attributes of the entries.
+	 * 
+	 * @param entries
+	 * @param from
+	 * @param to
+	 * @param monitor
+	 * @return <code>false</code> if the fields cannot be sorted this way
+	 * @see MarkerAttributeColumns
+	 */
+	boolean sortByColumns(MarkerEntry[] entries, int from, int to,
+			IProgressMonitor monitor) {
+		int offset = category == null ? 0 : 1;
+		MarkerField[] sortFields = new MarkerField[fields.length + offset];
+		boolean[] descending = new boolean[sortFields.length];
+		if (category != null) {
+			sortFields[0] = category;
+		}
+		for (int i = 0; i < fields.length; i++) {
+			sortFields[i + offset] = fields[i];
+			descending[i + offset] = descendingFields.contains(fields[i]);
+		}
+		return MarkerAttributeColumns.sort(entries, from, to, sortFields,
+				descending, monitor);
 	}
 
 	/**
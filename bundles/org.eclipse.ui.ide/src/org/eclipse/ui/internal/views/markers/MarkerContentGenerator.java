@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,11 +25,16 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.mapping.ResourceMapping;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
@@ -44,6 +49,7 @@ import org.eclipse.ui.views.markers.FilterConfigurationArea;
 import org.eclipse.ui.views.markers.MarkerField;
 import org.eclipse.ui.views.markers.internal.ContentGeneratorDescriptor;
 import org.eclipse.ui.views.markers.internal.MarkerGroup;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 import org.eclipse.ui.views.markers.internal.MarkerType;
 import org.eclipse.ui.views.markers.internal.MarkerTypesModel;
@@ -69,6 +75,12 @@ public class MarkerContentGenerator {
 	private static final String TAG_LEGACY_FILTER_ENTRY = "filter"; //$NON-NLS-1$
 	private static final String TAG_MARKER_LIMIT = "markerLimit"; //$NON-NLS-1$
 	private static final String TAG_MARKER_LIMIT_ENABLED = "markerLimitEnabled"; //$NON-NLS-1$
+
+	/*
+	 * The most threads the markers of the projects are gathered on, including
+	 * the update job's
+	 */
+	private static final int MAX_GATHER_THREADS = 4;
 	
 	/*Use this to indicate filter change rather than a null*/
 	private final Collection FILTERS_CHANGED = Collections.EMPTY_SET;
@@ -1108,7 +1120,11 @@ public class MarkerContentGenerator {
 
 	/**
 	 * A helper to the
-	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}
+	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}.
+	 * The markers are found and selected by the thread safe filters by
+	 * project, on up to {@link #MAX_GATHER_THREADS} threads. The calling
+	 * thread adds them to the result in the order of the projects, selecting
+	 * them by the other filters first.
 	 * 
 	 * @param resources
 	 * @param typeId
@@ -1124,41 +1140,306 @@ public class MarkerContentGenerator {
 		IResource[] selected = getSelectedResources();
 		Collection filters = getEnabledFilters();
 		boolean andFilters = andFilters();
+		boolean threadSafe = true;
+		Iterator filtersIterator = filters.iterator();
+		while (filtersIterator.hasNext()) {
+			MarkerFieldFilterGroup group = (MarkerFieldFilterGroup) filtersIterator
+					.next();
+			group.prepareSelection();
+			threadSafe &= group.isThreadSafe();
+		}
+		MarkerGatherer gatherer = new MarkerGatherer(partition(resources),
+				typeId, includeSubTypes, selected, filters, andFilters, monitor);
+		gatherer.schedule(Math.min(Math.min(MAX_GATHER_THREADS, Runtime
+				.getRuntime().availableProcessors()),
+				gatherer.partitions.length) - 1);
+		try {
+			for (int i = 0; i < gatherer.partitions.length; i++) {
+				List entries = gatherer.getEntries(i);
+				if (entries == null || monitor.isCanceled()) {
+					return false;
+				}
+				if (threadSafe) {
+					result.addAll(entries);
+					continue;
+				}
+				int lenght = entries.size();
+				for (int j = 0; j < lenght; j++) {
+					MarkerEntry entry = (MarkerEntry) entries.get(j);
+					if (select(entry, selected, filters, andFilters)) {
+						result.add(entry);
+					}
+					entry.clearCache();
+					if (j % 500 == 0) {
+						if (monitor.isCanceled()) {
+							return false;
+						}
+					}
+				}
+			}
+		} finally {
+			gatherer.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 * Split the resources by project. The workspace root is replaced by its
+	 * own markers and its projects.
+	 * 
+	 * @param resources
+	 * @return MarkerPartition[]
+	 */
+	private MarkerPartition[] partition(Collection resources) {
+		List partitions = new ArrayList();
 		Iterator iterator = resources.iterator();
 		while (iterator.hasNext()) {
+			IResource resource = (IResource) iterator.next();
+			if (resource.getType() == IResource.ROOT) {
+				partitions.add(new MarkerPartition(resource,
+						IResource.DEPTH_ZERO));
+				IProject[] projects = ((IWorkspaceRoot) resource).getProjects();
+				for (int i = 0; i < projects.length; i++) {
+					partitions.add(new MarkerPartition(projects[i],
+							IResource.DEPTH_INFINITE));
+				}
+			} else {
+				partitions.add(new MarkerPartition(resource,
+						IResource.DEPTH_INFINITE));
+			}
+		}
+		return (MarkerPartition[]) partitions
+				.toArray(new MarkerPartition[partitions.size()]);
+	}
+
+	/**
+	 * The MarkerPartition is a resource whose markers are found and selected
+	 * together.
+	 */
+	private static class MarkerPartition {
+		final IResource resource;
+		final int depth;
+		List entries;
+		boolean found = false;
+
+		MarkerPartition(IResource resource, int depth) {
+			this.resource = resource;
+			this.depth = depth;
+		}
+	}
+
+	/**
+	 * The MarkerGatherer finds the markers of the partitions in order and
+	 * selects them by the thread safe filters. Jobs take the partitions ahead
+	 * of the thread that adds them to the result, at most
+	 * {@link #MAX_PARTITIONS_AHEAD} partitions ahead of it. That thread
+	 * gathers a partition itself when no job has taken it yet. A runtime
+	 * exception in a job is rethrown on that thread.
+	 */
+	private static class MarkerGatherer {
+		private static final int MAX_PARTITIONS_AHEAD = 8;
+		private static final long POLL_INTERVAL = 100;
+		final MarkerPartition[] partitions;
+		private final String typeId;
+		private final boolean includeSubTypes;
+		private final IResource[] selected;
+		private final MarkerFieldFilterGroup[] filters;
+		private final boolean andFilters;
+		private final IProgressMonitor monitor;
+		private final List jobs = new ArrayList();
+		private int next = 0;
+		private int consumed = 0;
+		private boolean cancelled = false;
+		private RuntimeException exception;
+
+		MarkerGatherer(MarkerPartition[] partitions, String typeId,
+				boolean includeSubTypes, IResource[] selected,
+				Collection filters, boolean andFilters, IProgressMonitor monitor) {
+			this.partitions = partitions;
+			this.typeId = typeId;
+			this.includeSubTypes = includeSubTypes;
+			this.selected = selected;
+			this.filters = (MarkerFieldFilterGroup[]) filters
+					.toArray(new MarkerFieldFilterGroup[filters.size()]);
+			this.andFilters = andFilters;
+			this.monitor = monitor;
+		}
+
+		/**
+		 * Schedule count jobs that gather the next partitions.
+		 * 
+		 * @param count
+		 */
+		void schedule(int count) {
+			for (int i = 0; i < count; i++) {
+				Job job = new Job(
+						MarkerMessages.MarkerView_searching_for_markers) {
+					protected IStatus run(IProgressMonitor jobMonitor) {
+						MarkerPartition partition;
+						while ((partition = nextPartition()) != null) {
+							try {
+								gather(partition);
+							} catch (RuntimeException e) {
+								fail(e);
+								// the consuming thread reports the exception
+								return Status.CANCEL_STATUS;
+							}
+							if (jobMonitor.isCanceled()) {
+								return Status.CANCEL_STATUS;
+							}
+						}
+						return Status.OK_STATUS;
+					}
+				};
+				job.setSystem(true);
+				jobs.add(job);
+				job.schedule();
+			}
+		}
+
+		/**
+		 * Return the entries of the partition at index once they are
+		 * gathered, and let the jobs gather the partitions after it.
+		 * 
+		 * @param index
+		 * @return List of {@link MarkerEntry} or <code>null</code> if
+		 *         gathering was cancelled
+		 */
+		List getEntries(int index) {
+			MarkerPartition partition = partitions[index];
+			synchronized (this) {
+				consumed = index;
+				notifyAll();
+				if (next == index) {
+					next++;
+				} else {
+					while (!partition.found) {
+						if (exception != null) {
+							throw exception;
+						}
+						if (cancelled || monitor.isCanceled()) {
+							return null;
+						}
+						try {
+							wait(POLL_INTERVAL);
+						} catch (InterruptedException e) {
+							// check again
+						}
+					}
+					return release(partition);
+				}
+			}
+			gather(partition);
+			synchronized (this) {
+				return release(partition);
+			}
+		}
+
+		/**
+		 * Stop gathering and cancel the jobs.
+		 */
+		void cancel() {
+			synchronized (this) {
+				cancelled = true;
+				notifyAll();
+			}
+			Iterator iterator = jobs.iterator();
+			while (iterator.hasNext()) {
+				((Job) iterator.next()).cancel();
+			}
+		}
+
+		private synchronized MarkerPartition nextPartition() {
+			while (next < partitions.length
+					&& next >= consumed + MAX_PARTITIONS_AHEAD
+					&& !cancelled && !monitor.isCanceled()) {
+				try {
+					wait(POLL_INTERVAL);
+				} catch (InterruptedException e) {
+					// check again
+				}
+			}
+			if (cancelled || monitor.isCanceled() || next == partitions.length) {
+				return null;
+			}
+			return partitions[next++];
+		}
+
+		private List release(MarkerPartition partition) {
+			// the consuming thread holds on to the entries from now on
+			List entries = partition.entries;
+			partition.entries = null;
+			return entries;
+		}
+
+		private synchronized void fail(RuntimeException e) {
+			if (exception == null) {
+				exception = e;
+			}
+			notifyAll();
+		}
+
+		private void gather(MarkerPartition partition) {
 			IMarker[] markers = null;
 			try {
-				IResource resource = (IResource) iterator.next();
-				if (!resource.isAccessible()) {
-					continue;
+				if (partition.resource.isAccessible()) {
+					markers = partition.resource.findMarkers(typeId,
+							includeSubTypes, partition.depth);
 				}
-				markers = resource.findMarkers(typeId, includeSubTypes,
-						IResource.DEPTH_INFINITE);
 			} catch (CoreException e) {
 				MarkerSupportInternalUtilities.logViewError(e);
 			}
-			if (markers == null) {
-				continue;
+			List entries = new ArrayList();
+			if (markers != null) {
+				MarkerEntry entry = null;
+				int lenght = markers.length;
+				for (int i = 0; i < lenght; i++) {
+					entry = new MarkerEntry(markers[i]);
+					if (select(entry)) {
+						entries.add(entry);
+					}
+					entry.clearCache();
+					if (i % 500 == 0) {
+						if (cancelled || monitor.isCanceled()) {
+							break;
+						}
+					}
+				}
 			}
-			if (monitor.isCanceled()) {
-				return false;
+			synchronized (this) {
+				partition.entries = entries;
+				partition.found = true;
+				notifyAll();
 			}
-			MarkerEntry entry = null;
-			int lenght =  markers.length;
-			for (int i = 0; i < lenght; i++) {
-				entry = new MarkerEntry(markers[i]);
-				if (select(entry, selected, filters, andFilters)) {
-					result.add(entry);
-				}
-				entry.clearCache();
-				if (i % 500 == 0) {
-					if (monitor.isCanceled()) {
+		}
+
+		/**
+		 * Return whether or not the entry passes the thread safe filters, as
+		 * MarkerContentGenerator#select(MarkerEntry, IResource[], Collection,
+		 * boolean) combines the filter groups.
+		 * 
+		 * @param entry
+		 * @return boolean
+		 */
+		private boolean select(MarkerEntry entry) {
+			if (filters.length == 0) {
+				return true;
+			}
+			if (andFilters) {
+				for (int i = 0; i < filters.length; i++) {
+					if (!filters[i].selectByThreadSafeFilters(entry, selected)) {
 						return false;
 					}
 				}
+				return true;
 			}
+			for (int i = 0; i < filters.length; i++) {
+				if (filters[i].selectByThreadSafeFilters(entry, selected)) {
+					return true;
+				}
+			}
+			return false;
 		}
-		return true;
 	}
 
 	void dispose() {
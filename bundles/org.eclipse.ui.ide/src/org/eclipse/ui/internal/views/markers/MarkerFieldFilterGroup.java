@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -702,6 +702,61 @@ class MarkerFieldFilterGroup {
 		}
 	}
 	
+	/**
+	 * Compute the filters and working set resources the receiver computes on
+	 * its first selection, so that the thread safe filters can then select
+	 * on several threads.
+	 * 
+	 * @see #selectByThreadSafeFilters(MarkerEntry, IResource[])
+	 */
+	void prepareSelection() {
+		getFieldFilters();
+		if (getScope() == ON_WORKING_SET && wSetResources == null) {
+			computeWorkingSetResources();
+		}
+	}
+
+	/**
+	 * Return whether or not all the filters of the receiver are thread safe.
+	 * 
+	 * @return boolean
+	 * @see MarkerFieldFilter#isThreadSafe()
+	 */
+	boolean isThreadSafe() {
+		MarkerFieldFilter[] filters = getFieldFilters();
+		for (int i = 0; i < filters.length; i++) {
+			if (!filters[i].isThreadSafe()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return whether or not the entry is in the scope of the receiver and
+	 * passes its thread safe filters. Once the selection is prepared, this
+	 * may be called on several threads at once. If the receiver is thread
+	 * safe, this is the same as selecting by scope and by filters.
+	 * 
+	 * @param entry
+	 * @param resources
+	 *            the selected resources
+	 * @return boolean
+	 * @see #prepareSelection()
+	 */
+	boolean selectByThreadSafeFilters(MarkerEntry entry, IResource[] resources) {
+		if (!selectByScope(entry, resources)) {
+			return false;
+		}
+		MarkerFieldFilter[] filters = fieldFilters;
+		for (int i = 0; i < filters.length; i++) {
+			if (filters[i].isThreadSafe() && !filters[i].select(entry)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public boolean selectByFilters(MarkerEntry entry) {
 		return select(entry);
 	}
@@ -63,6 +63,13 @@ public class MarkerSortUtil {
 	 */
 	private static float MERGE_OR_HEAP_SWITCH=1.5f;
 
+	/*
+	 * For more elements than this, the markers views sort a snapshot of the
+	 * attributes of the entries rather than the entries themselves. See
+	 * MarkerAttributeColumns.
+	 */
+	private static int COLUMNS_THRESHOLD = BATCH_SIZE;
+
 	/**
 	 * Sorts [first,middle] in the array of [first,last] using a variant of
 	 * modified heapsort, such that
@@ -315,6 +322,11 @@ public class MarkerSortUtil {
 				|| last > to || to > entries.length - 1 || to < 0)
 			return;
 		int n=to-from+1;
+		if (n > COLUMNS_THRESHOLD && comparator instanceof MarkerComparator
+				&& ((MarkerComparator) comparator).sortByColumns(entries, from,
+						to, monitor)) {
+			return;
+		}
 		if (n <= BATCH_SIZE && (((float) n / k) <= MERGE_OR_HEAP_SWITCH)
 				/*|| ((float) n / k) <= MERGE_OR_HEAP_SWITCH*/) { 
 			// use arrays sort
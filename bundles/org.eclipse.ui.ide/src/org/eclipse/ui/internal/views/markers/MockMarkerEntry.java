@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,6 +9,10 @@
  *     IBM Corporation - initial API and implementation
  *******************************************************************************/
 package org.eclipse.ui.internal.views.markers;
+
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @since 3.4
  *	Mock Class needed for testing Sort
@@ -18,6 +22,7 @@ public class MockMarkerEntry extends MarkerEntry{
 	 * 
 	 */
 	public String name;
+	private Map attributes = new HashMap();
 	/**
 	 * @param name
 	 */
@@ -25,6 +30,21 @@ public class MockMarkerEntry extends MarkerEntry{
 		super(null);
 		this.name=name;
 	}
+	/**
+	 * Set the value the entry answers for attribute.
+	 * 
+	 * @param attribute
+	 * @param value
+	 */
+	public void setAttribute(String attribute, Object value) {
+		attributes.put(attribute, value);
+	}
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.internal.views.markers.MarkerEntry#getAttributeValue(java.lang.String)
+	 */
+	Object getAttributeValue(String attribute) {
+		return attributes.get(attribute);
+	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
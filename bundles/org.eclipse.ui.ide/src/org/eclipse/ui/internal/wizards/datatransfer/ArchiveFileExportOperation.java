@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -271,7 +271,12 @@ public class ArchiveFileExportOperation implements IRunnableWithProgress {
     	if(useTarFormat) {
     		exporter = new TarFileExporter(destinationFilename, useCompression);
     	} else {
-        	exporter = new ZipFileExporter(destinationFilename, useCompression);
+        	exporter = new PipelinedZipFileExporter(destinationFilename, useCompression,
+        			new PipelinedZipFileExporter.ErrorHandler() {
+        				public void handleError(IFile file, Exception e) {
+        					addError(NLS.bind(DataTransferMessages.DataTransfer_errorExporting, file.getFullPath().makeRelative(), e.getMessage()), e);
+        				}
+        			});
     	}
     }
 
@@ -338,6 +343,10 @@ public class ArchiveFileExportOperation implements IRunnableWithProgress {
                         NLS.bind(DataTransferMessages.ZipExport_cannotClose, e.getMessage()));
             }
         } finally {
+            if (exporter instanceof PipelinedZipFileExporter) {
+                // stop the compressing threads when the export is canceled
+                ((PipelinedZipFileExporter) exporter).dispose();
+            }
             monitor.done();
         }
     }
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.wizards.datatransfer;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * The ArchiveStructureCache shares the directory trees of the archives
+ * between their structure providers. The import wizards create several
+ * providers for the same archive, and each would otherwise list the whole
+ * archive again.
+ * <p>
+ * A tree is found by the path, the length and the modification time of its
+ * archive, so a changed archive is listed again. The trees of the
+ * {@link #MAX_ARCHIVES} archives used last are kept.
+ * </p>
+ *
+ * @since 3.8
+ */
+public class ArchiveStructureCache {
+
+	/**
+	 * The most archives whose trees are kept.
+	 */
+	public static final int MAX_ARCHIVES = 4;
+
+	/**
+	 * The directory tree of an archive. It must not be changed once it is
+	 * cached.
+	 */
+	public static final class Tree {
+
+		private final Object root;
+
+		private final Map children;
+
+		private final Map directories;
+
+		/**
+		 * Create a new instance of the receiver.
+		 *
+		 * @param root
+		 *            the entry that is the root of the tree
+		 * @param children
+		 *            the {@link List} of the children of each folder entry
+		 * @param directories
+		 *            the folder entry for each {@link IPath}
+		 */
+		public Tree(Object root, Map children, Map directories) {
+			this.root = root;
+			this.children = children;
+			this.directories = directories;
+		}
+
+		/**
+		 * @return the entry that is the root of the tree
+		 */
+		public Object getRoot() {
+			return root;
+		}
+
+		/**
+		 * @return the {@link List} of the children of each folder entry
+		 */
+		public Map getChildren() {
+			return children;
+		}
+
+		/**
+		 * @return the folder entry for each {@link IPath}
+		 */
+		public Map getDirectories() {
+			return directories;
+		}
+	}
+
+	private static final Map trees = new LinkedHashMap(MAX_ARCHIVES, 0.75f,
+			true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_ARCHIVES;
+		}
+	};
+
+	private ArchiveStructureCache() {
+		// no instances
+	}
+
+	/**
+	 * Return the tree of the archive, or <code>null</code> if it is not
+	 * cached or the archive changed since.
+	 *
+	 * @param archivePath
+	 *            the path of the archive file
+	 * @return Tree or <code>null</code>
+	 */
+	public static synchronized Tree getTree(String archivePath) {
+		return (Tree) trees.get(getKey(archivePath));
+	}
+
+	/**
+	 * Cache the tree of the archive.
+	 *
+	 * @param archivePath
+	 *            the path of the archive file
+	 * @param tree
+	 */
+	public static synchronized void putTree(String archivePath, Tree tree) {
+		trees.put(getKey(archivePath), tree);
+	}
+
+	/**
+	 * Forget all the trees.
+	 */
+	public static synchronized void clear() {
+		trees.clear();
+	}
+
+	private static String getKey(String archivePath) {
+		File file = new File(archivePath);
+		return file.getAbsolutePath() + '|' + file.length() + '|'
+				+ file.lastModified();
+	}
+}
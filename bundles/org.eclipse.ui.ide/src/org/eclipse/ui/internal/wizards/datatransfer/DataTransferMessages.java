@@ -134,6 +134,7 @@ public class DataTransferMessages extends NLS {
 	public static String ZipExport_alreadyExistsError;
 	public static String ZipExport_cannotOpen;
 	public static String ZipExport_cannotClose;
+	public static String ZipExport_tooLarge;
 	public static String ZipExport_selectDestinationTitle;
 	public static String ZipExport_destinationEmpty;
 
@@ -0,0 +1,761 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.wizards.datatransfer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Exports resources to a .zip file, reading and compressing the files on
+ * several threads.
+ * <p>
+ * Each file is read and compressed on its own by up to {@link #MAX_THREADS}
+ * worker threads, while the thread that calls {@link #write(IFile, String)}
+ * and {@link #finished()} writes the entries to the archive in the order they
+ * were given. At most {@link #MAX_PENDING_ENTRIES} entries are in flight, and
+ * only the files up to {@link #BUFFERED_SIZE} bytes are held in memory; larger
+ * files are streamed to the archive by the writing thread, which then fills
+ * in the header of their entry.
+ * </p>
+ * <p>
+ * The sizes, offsets and entry counts that do not fit the zip format are
+ * written to ZIP64 records, as a {@link java.util.zip.ZipOutputStream} writes
+ * them.
+ * </p>
+ * <p>
+ * The archive is written by the receiver rather than by a
+ * {@link java.util.zip.ZipOutputStream}, which can only compress the entries
+ * itself, one after the other.
+ * </p>
+ *
+ * @since 3.8
+ */
+public class PipelinedZipFileExporter implements IFileExporter {
+
+	/**
+	 * The most threads that read and compress files.
+	 */
+	public static final int MAX_THREADS = 4;
+
+	/**
+	 * The most entries that are queued, being compressed or waiting to be
+	 * written.
+	 */
+	public static final int MAX_PENDING_ENTRIES = 16;
+
+	/**
+	 * The largest file that is read and compressed by the worker threads.
+	 */
+	public static final int BUFFERED_SIZE = 512 * 1024;
+
+	/**
+	 * The ErrorHandler is notified of the files that could not be exported.
+	 * It is notified from the thread that writes the archive.
+	 */
+	public interface ErrorHandler {
+
+		/**
+		 * The file could not be read or compressed.
+		 *
+		 * @param file
+		 * @param exception
+		 *            the {@link IOException} or {@link CoreException}, or the
+		 *            {@link RuntimeException} a worker failed with
+		 */
+		void handleError(IFile file, Exception exception);
+	}
+
+	private static final int LOCAL_HEADER = 0x04034b50;
+
+	private static final int CENTRAL_HEADER = 0x02014b50;
+
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+	private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+
+	private static final int ZIP64_END_LOCATOR = 0x07064b50;
+
+	private static final int ZIP64_EXTRA = 0x0001;
+
+	private static final int FLAG_UTF8 = 0x800;
+
+	/*
+	 * The sizes and offsets from which ZIP64 records are needed
+	 */
+	private static final long MAX_ZIP_SIZE = 0xffffffffL;
+
+	private static final int MAX_ZIP_ENTRIES = 0xffff;
+
+	/*
+	 * An entry of the archive, filled in by a worker thread.
+	 */
+	private static final class Entry {
+		final String name;
+
+		final IFile file;
+
+		final int dosTime;
+
+		int flags = FLAG_UTF8;
+
+		int method = ZipEntry.STORED;
+
+		long crc;
+
+		long compressedSize;
+
+		long size;
+
+		long offset;
+
+		/*
+		 * The length of the file, or EFS.NONE if it is not known
+		 */
+		long length = EFS.NONE;
+
+		byte[] encodedName;
+
+		byte[] data;
+
+		boolean streamed;
+
+		/*
+		 * Whether the local header has a ZIP64 extra field
+		 */
+		boolean zip64;
+
+		boolean done;
+
+		Exception error;
+
+		Entry(String name, IFile file, int dosTime) {
+			this.name = name;
+			this.file = file;
+			this.dosTime = dosTime;
+		}
+	}
+
+	private final FileOutputStream fileStream;
+
+	private final OutputStream outputStream;
+
+	private final boolean useCompression;
+
+	private final ErrorHandler errorHandler;
+
+	private final Thread[] workers;
+
+	private final Calendar calendar = Calendar.getInstance();
+
+	private final byte[] readBuffer = new byte[8192];
+
+	private final byte[] deflateBuffer = new byte[8192];
+
+	/*
+	 * The entries to compress, guarded by the receiver
+	 */
+	private final LinkedList work = new LinkedList();
+
+	/*
+	 * The entries not written yet, in the order they were given
+	 */
+	private final LinkedList pending = new LinkedList();
+
+	/*
+	 * The entries written, for the central directory
+	 */
+	private final List written = new ArrayList();
+
+	private long offset = 0;
+
+	private boolean disposed = false;
+
+	/**
+	 * Create an instance of this class.
+	 *
+	 * @param filename
+	 *            java.lang.String
+	 * @param compress
+	 *            boolean
+	 * @param errorHandler
+	 *            the handler of the files that cannot be read
+	 * @exception java.io.IOException
+	 */
+	public PipelinedZipFileExporter(String filename, boolean compress,
+			ErrorHandler errorHandler) throws IOException {
+		fileStream = new FileOutputStream(filename);
+		outputStream = new BufferedOutputStream(fileStream, 64 * 1024);
+		useCompression = compress;
+		this.errorHandler = errorHandler;
+
+		int threadCount = Math.min(MAX_THREADS, Runtime.getRuntime()
+				.availableProcessors());
+		workers = new Thread[Math.max(threadCount, 1)];
+		Runnable worker = new Runnable() {
+			public void run() {
+				Entry entry;
+				while ((entry = nextWork()) != null) {
+					compress(entry);
+				}
+			}
+		};
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(worker, "Archive file exporter"); //$NON-NLS-1$
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Write the entries not written yet and the central directory, and close
+	 * the archive.
+	 *
+	 * @exception java.io.IOException
+	 */
+	public void finished() throws IOException {
+		try {
+			while (!pending.isEmpty()) {
+				writeNextEntry();
+			}
+			writeCentralDirectory();
+		} finally {
+			dispose();
+		}
+	}
+
+	/**
+	 * Stop the worker threads and close the archive. Does nothing if the
+	 * receiver is already disposed.
+	 */
+	public void dispose() {
+		synchronized (this) {
+			if (disposed) {
+				return;
+			}
+			disposed = true;
+			work.clear();
+			notifyAll();
+		}
+		try {
+			outputStream.close();
+		} catch (IOException e) {
+			// the archive is abandoned or the error was reported by finished()
+		}
+	}
+
+	public void write(IContainer container, String destinationPath)
+			throws IOException {
+		Entry entry = new Entry(destinationPath, null, toDosTime(System
+				.currentTimeMillis()));
+		entry.done = true;
+		enqueue(entry);
+	}
+
+	/**
+	 * Queue the passed resource to be written to the current archive. The
+	 * archive may not contain the file until {@link #finished()} is called, and
+	 * the files that cannot be read are reported to the error handler.
+	 *
+	 * @param resource
+	 *            org.eclipse.core.resources.IFile
+	 * @param destinationPath
+	 *            java.lang.String
+	 * @exception java.io.IOException
+	 *                if an entry cannot be written to the archive
+	 */
+	public void write(IFile resource, String destinationPath)
+			throws IOException {
+		long localTimeStamp = resource.getLocalTimeStamp();
+		if (localTimeStamp == IResource.NULL_STAMP) {
+			localTimeStamp = System.currentTimeMillis();
+		}
+		Entry entry = new Entry(destinationPath, resource,
+				toDosTime(localTimeStamp));
+		synchronized (this) {
+			work.addLast(entry);
+			notify();
+		}
+		enqueue(entry);
+	}
+
+	private void enqueue(Entry entry) throws IOException {
+		pending.addLast(entry);
+		while (pending.size() > MAX_PENDING_ENTRIES) {
+			writeNextEntry();
+		}
+	}
+
+	/**
+	 * Return the next entry to compress, waiting for one. Return
+	 * <code>null</code> once the receiver is disposed.
+	 */
+	private synchronized Entry nextWork() {
+		while (work.isEmpty() && !disposed) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				return null;
+			}
+		}
+		if (disposed) {
+			return null;
+		}
+		return (Entry) work.removeFirst();
+	}
+
+	/*
+	 * Read and compress the entry unless it is too large to be held in
+	 * memory, in which case it is left to be streamed by the writing thread.
+	 */
+	private void compress(Entry entry) {
+		try {
+			entry.length = getLength(entry.file);
+			if (entry.length > BUFFERED_SIZE) {
+				entry.streamed = true;
+				return;
+			}
+			byte[] contents = read(entry.file);
+			if (contents == null) {
+				entry.streamed = true;
+				return;
+			}
+			CRC32 checksum = new CRC32();
+			checksum.update(contents);
+			entry.crc = checksum.getValue();
+			entry.size = contents.length;
+			if (useCompression) {
+				entry.method = ZipEntry.DEFLATED;
+				entry.data = deflate(contents);
+			} else {
+				entry.data = contents;
+			}
+			entry.compressedSize = entry.data.length;
+		} catch (IOException e) {
+			entry.error = e;
+		} catch (CoreException e) {
+			entry.error = e;
+		} catch (RuntimeException e) {
+			// reported by the writing thread instead of an empty entry
+			entry.error = e;
+		} finally {
+			synchronized (this) {
+				entry.done = true;
+				notifyAll();
+			}
+		}
+	}
+
+	/*
+	 * Return the length of the file in its store, or EFS.NONE if it is not
+	 * known.
+	 */
+	private static long getLength(IFile file) {
+		URI location = file.getLocationURI();
+		if (location == null) {
+			return EFS.NONE;
+		}
+		try {
+			return EFS.getStore(location).fetchInfo().getLength();
+		} catch (CoreException e) {
+			return EFS.NONE;
+		}
+	}
+
+	/*
+	 * Return the contents of the file, or null if it has more than
+	 * BUFFERED_SIZE bytes.
+	 */
+	private static byte[] read(IFile file) throws IOException, CoreException {
+		byte[] buffer = new byte[8192];
+		ByteArrayOutputStream contents = new ByteArrayOutputStream();
+		InputStream contentStream = file.getContents(false);
+		try {
+			int n;
+			while ((n = contentStream.read(buffer)) > 0) {
+				if (contents.size() + n > BUFFERED_SIZE) {
+					return null;
+				}
+				contents.write(buffer, 0, n);
+			}
+		} finally {
+			contentStream.close();
+		}
+		return contents.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] contents) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(contents);
+			deflater.finish();
+			byte[] buffer = new byte[8192];
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+					contents.length / 2 + 64);
+			while (!deflater.finished()) {
+				int n = deflater.deflate(buffer);
+				compressed.write(buffer, 0, n);
+			}
+			return compressed.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/*
+	 * Write the first pending entry, compressing it on the writing thread if
+	 * no worker has taken it yet.
+	 */
+	private void writeNextEntry() throws IOException {
+		Entry entry = (Entry) pending.removeFirst();
+		boolean compressHere;
+		synchronized (this) {
+			compressHere = work.remove(entry);
+		}
+		if (compressHere) {
+			compress(entry);
+		} else {
+			waitFor(entry);
+		}
+
+		if (entry.error != null) {
+			errorHandler.handleError(entry.file, entry.error);
+			return;
+		}
+		if (entry.streamed) {
+			writeStreamed(entry);
+			return;
+		}
+		writeLocalHeader(entry);
+		if (entry.data != null) {
+			write(entry.data, 0, entry.data.length);
+			entry.data = null;
+		}
+	}
+
+	private synchronized void waitFor(Entry entry) {
+		boolean interrupted = false;
+		while (!entry.done) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// the entry is done once its worker is
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Write the entry as its file is read, then fill in the checksum and the
+	 * sizes of its local header. The entry is removed from the archive if the
+	 * file cannot be read.
+	 */
+	private void writeStreamed(Entry entry) throws IOException {
+		Deflater deflater = null;
+		if (useCompression) {
+			entry.method = ZipEntry.DEFLATED;
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			// deflate adds at most 5 bytes to each 64 KB it cannot compress
+			entry.zip64 = entry.length + (entry.length >> 10) + 1024
+					>= MAX_ZIP_SIZE;
+		} else {
+			entry.zip64 = entry.length >= MAX_ZIP_SIZE;
+		}
+		try {
+			writeLocalHeader(entry);
+			long start = offset;
+			CRC32 checksum = new CRC32();
+			Exception error = copyContents(entry, checksum, deflater);
+			if (error == null && !entry.zip64
+					&& (entry.size >= MAX_ZIP_SIZE
+							|| offset - start >= MAX_ZIP_SIZE)) {
+				// the file grew past the size its header was written for
+				error = new IOException(
+						DataTransferMessages.ZipExport_tooLarge);
+			}
+			if (error != null) {
+				discard(entry);
+				errorHandler.handleError(entry.file, error);
+				return;
+			}
+			entry.crc = checksum.getValue();
+			entry.compressedSize = offset - start;
+			fillLocalHeader(entry);
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+		}
+	}
+
+	/*
+	 * Write the contents of the entry's file, deflated if there is a deflater.
+	 * Return the exception that prevented the file from being read, or null.
+	 * Exceptions writing the archive are thrown.
+	 */
+	private Exception copyContents(Entry entry, CRC32 checksum,
+			Deflater deflater) throws IOException {
+		InputStream contentStream;
+		try {
+			contentStream = entry.file.getContents(false);
+		} catch (CoreException e) {
+			return e;
+		}
+		try {
+			while (true) {
+				int n;
+				try {
+					n = contentStream.read(readBuffer);
+				} catch (IOException e) {
+					return e;
+				}
+				if (n <= 0) {
+					break;
+				}
+				checksum.update(readBuffer, 0, n);
+				entry.size += n;
+				if (deflater == null) {
+					write(readBuffer, 0, n);
+				} else {
+					deflater.setInput(readBuffer, 0, n);
+					while (!deflater.needsInput()) {
+						write(deflateBuffer, 0, deflater.deflate(deflateBuffer));
+					}
+				}
+			}
+		} finally {
+			try {
+				contentStream.close();
+			} catch (IOException e) {
+				// the contents were read
+			}
+		}
+		if (deflater != null) {
+			deflater.finish();
+			while (!deflater.finished()) {
+				write(deflateBuffer, 0, deflater.deflate(deflateBuffer));
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Remove the last entry written from the archive.
+	 */
+	private void discard(Entry entry) throws IOException {
+		outputStream.flush();
+		fileStream.getChannel().truncate(entry.offset);
+		offset = entry.offset;
+		written.remove(written.size() - 1);
+	}
+
+	/*
+	 * Write the checksum and the sizes of the entry into its local header,
+	 * which was written with zeros in their place.
+	 */
+	private void fillLocalHeader(Entry entry) throws IOException {
+		outputStream.flush();
+		ByteBuffer header = ByteBuffer.allocate(12).order(
+				ByteOrder.LITTLE_ENDIAN);
+		header.putInt((int) entry.crc);
+		if (entry.zip64) {
+			header.putInt((int) MAX_ZIP_SIZE);
+			header.putInt((int) MAX_ZIP_SIZE);
+		} else {
+			header.putInt((int) entry.compressedSize);
+			header.putInt((int) entry.size);
+		}
+		writeAt(header, entry.offset + 14);
+		if (entry.zip64) {
+			ByteBuffer extra = ByteBuffer.allocate(16).order(
+					ByteOrder.LITTLE_ENDIAN);
+			extra.putLong(entry.size);
+			extra.putLong(entry.compressedSize);
+			writeAt(extra, entry.offset + 30 + entry.encodedName.length + 4);
+		}
+	}
+
+	private void writeAt(ByteBuffer buffer, long position) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			fileStream.getChannel().write(buffer, position + buffer.position());
+		}
+	}
+
+	private void writeLocalHeader(Entry entry) throws IOException {
+		entry.offset = offset;
+		entry.encodedName = entry.name.getBytes("UTF-8"); //$NON-NLS-1$
+		written.add(entry);
+
+		writeInt(LOCAL_HEADER);
+		writeShort(versionNeeded(entry, entry.zip64));
+		writeShort(entry.flags);
+		writeShort(entry.method);
+		writeInt(entry.dosTime);
+		writeInt(entry.crc);
+		if (entry.zip64) {
+			writeInt(MAX_ZIP_SIZE);
+			writeInt(MAX_ZIP_SIZE);
+		} else {
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+		}
+		writeShort(entry.encodedName.length);
+		writeShort(entry.zip64 ? 20 : 0);
+		write(entry.encodedName, 0, entry.encodedName.length);
+		if (entry.zip64) {
+			writeShort(ZIP64_EXTRA);
+			writeShort(16);
+			writeLong(entry.size);
+			writeLong(entry.compressedSize);
+		}
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		long start = offset;
+		for (int i = 0; i < written.size(); i++) {
+			Entry entry = (Entry) written.get(i);
+			// the values that do not fit go to the ZIP64 extra field
+			boolean size64 = entry.size >= MAX_ZIP_SIZE;
+			boolean compressedSize64 = entry.compressedSize >= MAX_ZIP_SIZE;
+			boolean offset64 = entry.offset >= MAX_ZIP_SIZE;
+			int extraLength = (size64 ? 8 : 0) + (compressedSize64 ? 8 : 0)
+					+ (offset64 ? 8 : 0);
+			writeInt(CENTRAL_HEADER);
+			writeShort(extraLength > 0 ? 45 : 20);
+			writeShort(versionNeeded(entry, extraLength > 0));
+			writeShort(entry.flags);
+			writeShort(entry.method);
+			writeInt(entry.dosTime);
+			writeInt(entry.crc);
+			writeInt(compressedSize64 ? MAX_ZIP_SIZE : entry.compressedSize);
+			writeInt(size64 ? MAX_ZIP_SIZE : entry.size);
+			writeShort(entry.encodedName.length);
+			writeShort(extraLength > 0 ? extraLength + 4 : 0);
+			writeShort(0); // comment length
+			writeShort(0); // disk number
+			writeShort(0); // internal attributes
+			writeInt(0); // external attributes
+			writeInt(offset64 ? MAX_ZIP_SIZE : entry.offset);
+			write(entry.encodedName, 0, entry.encodedName.length);
+			if (extraLength > 0) {
+				writeShort(ZIP64_EXTRA);
+				writeShort(extraLength);
+				if (size64) {
+					writeLong(entry.size);
+				}
+				if (compressedSize64) {
+					writeLong(entry.compressedSize);
+				}
+				if (offset64) {
+					writeLong(entry.offset);
+				}
+			}
+		}
+		long size = offset - start;
+		int count = written.size();
+		if (count >= MAX_ZIP_ENTRIES || size >= MAX_ZIP_SIZE
+				|| start >= MAX_ZIP_SIZE) {
+			long end = offset;
+			writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY);
+			writeLong(44); // size of the rest of the record
+			writeShort(45); // version made by
+			writeShort(45); // version needed
+			writeInt(0); // number of this disk
+			writeInt(0); // disk of the central directory
+			writeLong(count);
+			writeLong(count);
+			writeLong(size);
+			writeLong(start);
+			writeInt(ZIP64_END_LOCATOR);
+			writeInt(0); // disk of the ZIP64 end of central directory
+			writeLong(end);
+			writeInt(1); // number of disks
+		}
+		writeInt(END_OF_CENTRAL_DIRECTORY);
+		writeShort(0); // number of this disk
+		writeShort(0); // disk of the central directory
+		writeShort(Math.min(count, MAX_ZIP_ENTRIES));
+		writeShort(Math.min(count, MAX_ZIP_ENTRIES));
+		writeInt(Math.min(size, MAX_ZIP_SIZE));
+		writeInt(Math.min(start, MAX_ZIP_SIZE));
+		writeShort(0); // comment length
+		outputStream.flush();
+	}
+
+	private static int versionNeeded(Entry entry, boolean zip64) {
+		if (zip64) {
+			return 45;
+		}
+		return entry.method == ZipEntry.DEFLATED ? 20 : 10;
+	}
+
+	/*
+	 * Answer the time in the MS-DOS format used by zip files.
+	 */
+	private int toDosTime(long time) {
+		calendar.setTimeInMillis(time);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return (year - 1980) << 25
+				| (calendar.get(Calendar.MONTH) + 1) << 21
+				| calendar.get(Calendar.DAY_OF_MONTH) << 16
+				| calendar.get(Calendar.HOUR_OF_DAY) << 11
+				| calendar.get(Calendar.MINUTE) << 5
+				| calendar.get(Calendar.SECOND) >> 1;
+	}
+
+	private void write(byte[] bytes, int start, int length)
+			throws IOException {
+		outputStream.write(bytes, start, length);
+		offset += length;
+	}
+
+	private void writeShort(int value) throws IOException {
+		outputStream.write(value & 0xff);
+		outputStream.write((value >>> 8) & 0xff);
+		offset += 2;
+	}
+
+	private void writeInt(long value) throws IOException {
+		writeShort((int) (value & 0xffff));
+		writeShort((int) ((value >>> 16) & 0xffff));
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value & 0xffffffffL);
+		writeInt(value >>> 32);
+	}
+}
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.wizards.datatransfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.ui.internal.ide.StatusUtil;
+import org.eclipse.ui.statushandlers.StatusManager;
+
+/**
+ * The ProjectFilesCollector finds the project description files under a
+ * directory, listing several directories at a time.
+ * <p>
+ * The directories to list are queued and taken by up to {@link #MAX_THREADS}
+ * threads: the calling one and system jobs. Directories are visited once by
+ * their canonical path, which guards against cyclic symbolic links. Unless
+ * nested projects are searched, the directories of a project are not listed.
+ * The description files are reported to a {@link ProjectFileListener} as they
+ * are found.
+ * </p>
+ *
+ * @since 3.8
+ */
+public class ProjectFilesCollector {
+
+	/**
+	 * The most threads that list directories, including the calling one.
+	 */
+	public static final int MAX_THREADS = 4;
+
+	/**
+	 * The ProjectFileListener is notified of the project description files
+	 * found by a {@link ProjectFilesCollector}. It is notified from the threads
+	 * that list the directories, possibly at the same time.
+	 */
+	public interface ProjectFileListener {
+
+		/**
+		 * A project description file was found.
+		 *
+		 * @param file
+		 */
+		void projectFileFound(File file);
+	}
+
+	private final boolean nestedProjects;
+
+	private final ProjectFileListener listener;
+
+	private final IProgressMonitor monitor;
+
+	private final LinkedList queue = new LinkedList();
+
+	private final Set directoriesVisited = new HashSet();
+
+	/*
+	 * The number of directories that are queued or being listed
+	 */
+	private int pending = 0;
+
+	private boolean cancelled = false;
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param nestedProjects
+	 *            whether to search the directories of the projects found
+	 * @param listener
+	 *            the listener to report the project description files to
+	 * @param monitor
+	 *            the monitor to report to
+	 */
+	public ProjectFilesCollector(boolean nestedProjects,
+			ProjectFileListener listener, IProgressMonitor monitor) {
+		this.nestedProjects = nestedProjects;
+		this.listener = listener;
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Find the project description files under directory. Returns once all
+	 * the directories were listed or the monitor was canceled.
+	 *
+	 * @param directory
+	 * @return boolean <code>true</code> if the operation was completed.
+	 */
+	public boolean collect(File directory) {
+		if (monitor.isCanceled() || directory.listFiles() == null) {
+			return false;
+		}
+		try {
+			directoriesVisited.add(directory.getCanonicalPath());
+		} catch (IOException exception) {
+			handle(exception);
+		}
+		enqueue(directory);
+
+		int threadCount = Math.min(MAX_THREADS, Runtime.getRuntime()
+				.availableProcessors());
+		Job[] listers = new Job[Math.max(threadCount - 1, 0)];
+		for (int i = 0; i < listers.length; i++) {
+			listers[i] = new Job(
+					DataTransferMessages.WizardProjectsImportPage_SearchingMessage) {
+				protected IStatus run(IProgressMonitor jobMonitor) {
+					listDirectories();
+					return Status.OK_STATUS;
+				}
+
+				protected void canceling() {
+					// stop the other listers too
+					ProjectFilesCollector.this.cancel();
+				}
+			};
+			listers[i].setSystem(true);
+			listers[i].schedule();
+		}
+		listDirectories();
+		boolean interrupted = false;
+		for (int i = 0; i < listers.length; i++) {
+			try {
+				listers[i].join();
+			} catch (InterruptedException e) {
+				// keep waiting, the listing stops on its own
+				interrupted = true;
+				i--;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return !cancelled;
+	}
+
+	private synchronized void enqueue(File directory) {
+		queue.addLast(directory);
+		pending++;
+		notify();
+	}
+
+	/**
+	 * Return the next directory to list, waiting for one if other threads
+	 * are still listing. Return <code>null</code> when there is nothing left
+	 * to list.
+	 */
+	private synchronized File nextDirectory() {
+		while (queue.isEmpty() && pending > 0 && !cancelled) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				cancelled = true;
+			}
+		}
+		if (cancelled || queue.isEmpty()) {
+			return null;
+		}
+		return (File) queue.removeFirst();
+	}
+
+	private synchronized void directoryListed() {
+		pending--;
+		if (pending == 0) {
+			notifyAll();
+		}
+	}
+
+	private synchronized void cancel() {
+		cancelled = true;
+		notifyAll();
+	}
+
+	private void listDirectories() {
+		File directory;
+		while ((directory = nextDirectory()) != null) {
+			try {
+				if (monitor.isCanceled()) {
+					cancel();
+				} else {
+					listDirectory(directory);
+				}
+			} finally {
+				directoryListed();
+			}
+		}
+	}
+
+	private void listDirectory(File directory) {
+		monitor.subTask(NLS.bind(
+				DataTransferMessages.WizardProjectsImportPage_CheckingMessage,
+				directory.getPath()));
+		File[] contents = directory.listFiles();
+		if (contents == null) {
+			return;
+		}
+
+		// first look for project description files
+		final String dotProject = IProjectDescription.DESCRIPTION_FILE_NAME;
+		for (int i = 0; i < contents.length; i++) {
+			File file = contents[i];
+			if (file.isFile() && file.getName().equals(dotProject)) {
+				listener.projectFileFound(file);
+				if (!nestedProjects) {
+					// don't search sub-directories since we can't have nested
+					// projects
+					return;
+				}
+			}
+		}
+		// no project description found or search for nested projects enabled,
+		// so queue the sub-directories
+		for (int i = 0; i < contents.length; i++) {
+			if (contents[i].isDirectory()
+					&& !contents[i].getName().equals(
+							WizardProjectsImportPage.METADATA_FOLDER)) {
+				try {
+					String canonicalPath = contents[i].getCanonicalPath();
+					if (!visit(canonicalPath)) {
+						// already been here --> do not recurse
+						continue;
+					}
+				} catch (IOException exception) {
+					handle(exception);
+				}
+				enqueue(contents[i]);
+			}
+		}
+	}
+
+	private synchronized boolean visit(String canonicalPath) {
+		return directoriesVisited.add(canonicalPath);
+	}
+
+	private void handle(IOException exception) {
+		StatusManager.getManager().handle(
+				StatusUtil.newStatus(IStatus.ERROR, exception
+						.getLocalizedMessage(), exception));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2008 IBM Corporation and others.
+ * Copyright (c) 2004, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,18 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.wizards.datatransfer;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 
@@ -23,16 +30,24 @@ import java.util.zip.GZIPInputStream;
  * Reads a .tar or .tar.gz archive file, providing an index enumeration
  * and allows for accessing an InputStream for arbitrary files in the
  * archive.
+ * <p>
+ * The index of the entries is built in one pass over the archive, the first
+ * time it is needed. The contents of the entries are then read at their
+ * offsets: in the file itself for a .tar archive, and in a decompressed copy
+ * spooled while indexing for a .tar.gz archive. The copy is deleted when the
+ * receiver is closed, after which the entries are read sequentially.
+ * </p>
  * 
  * @since 3.1
  */
 public class TarFile {
 	private File file;
-	private TarInputStream entryEnumerationStream;
-	private TarEntry curEntry;
-	private TarInputStream entryStream;
+	private boolean compressed;
 
-	private InputStream internalEntryStream;
+	private List index;
+	private File spool;
+	private RandomAccessFile randomAccess;
+	private boolean closed;
 	
 	/**
 	 * Create a new TarFile for the given file.
@@ -44,23 +59,32 @@ public class TarFile {
 	public TarFile(File file) throws TarException, IOException {
 		this.file = file;
 
+		// Read the first entry to check that the file is a tar archive.
+		InputStream in = open();
+		try {
+			new TarInputStream(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/*
+	 * Open the uncompressed contents of the file.
+	 */
+	private InputStream open() throws IOException {
 		InputStream in = new FileInputStream(file);
 		// First, check if it's a GZIPInputStream.
 		try {
 			in = new GZIPInputStream(in);
+			compressed = true;
 		} catch(IOException e) {
 			//If it is not compressed we close
 			//the old one and recreate
 			in.close();
 			in = new FileInputStream(file);
+			compressed = false;
 		}
-		try {
-			entryEnumerationStream = new TarInputStream(in);
-		} catch (TarException ex) {
-			in.close();
-			throw ex;
-		}
-		curEntry = entryEnumerationStream.getNextEntry();
+		return in;
 	}
 	
 	/**
@@ -68,11 +92,18 @@ public class TarFile {
 	 * 
 	 * @throws IOException if the file cannot be successfully closed
 	 */
-	public void close() throws IOException {
-		if (entryEnumerationStream != null)
-			entryEnumerationStream.close();
-		if (internalEntryStream != null)
-			internalEntryStream.close();
+	public synchronized void close() throws IOException {
+		closed = true;
+		try {
+			if (randomAccess != null)
+				randomAccess.close();
+		} finally {
+			randomAccess = null;
+			if (spool != null) {
+				spool.delete();
+				spool = null;
+			}
+		}
 	}
 
 	/**
@@ -92,23 +123,58 @@ public class TarFile {
 	 * @return enumeration of all files in the archive
 	 */
 	public Enumeration entries() {
-		return new Enumeration() {
-			public boolean hasMoreElements() {
-				return (curEntry != null);
+		return Collections.enumeration(getIndex());
+	}
+
+	/*
+	 * Return the entries of the archive, reading them the first time. The
+	 * contents of a compressed archive are spooled meanwhile.
+	 */
+	private synchronized List getIndex() {
+		if (index != null) {
+			return index;
+		}
+		index = new ArrayList();
+		InputStream in = null;
+		try {
+			in = open();
+			if (compressed && !closed) {
+				spool = File.createTempFile("tarfile", ".tar"); //$NON-NLS-1$ //$NON-NLS-2$
+				spool.deleteOnExit();
+				in = new SpoolingInputStream(in, new BufferedOutputStream(
+						new FileOutputStream(spool)));
 			}
-			
-			public Object nextElement() {
-				TarEntry oldEntry = curEntry;
+			TarInputStream entryStream = new TarInputStream(in);
+			TarEntry entry;
+			while ((entry = entryStream.getNextEntry()) != null) {
+				index.add(entry);
+			}
+		} catch (TarException e) {
+			// keep the entries read so far, as the enumeration always did
+			discardSpool();
+		} catch (IOException e) {
+			discardSpool();
+		} finally {
+			if (in != null) {
 				try {
-					curEntry = entryEnumerationStream.getNextEntry();
-				} catch(TarException e) {
-					curEntry = null;
-				} catch(IOException e) {
-					curEntry = null;
+					in.close();
+				} catch (IOException e) {
+					discardSpool();
 				}
-				return oldEntry;
 			}
-		};
+		}
+		return index;
+	}
+
+	/*
+	 * Forget a spool that may be incomplete, the entries are then read from
+	 * the archive itself.
+	 */
+	private void discardSpool() {
+		if (spool != null) {
+			spool.delete();
+			spool = null;
+		}
 	}
 
 	/**
@@ -120,27 +186,31 @@ public class TarFile {
 	 * @throws IOException
 	 */
 	public InputStream getInputStream(TarEntry entry) throws TarException, IOException {
-		if(entryStream == null || !entryStream.skipToEntry(entry)) {
-			if (internalEntryStream != null) {
-				internalEntryStream.close();
-			}
-			internalEntryStream = new FileInputStream(file);
-			// First, check if it's a GZIPInputStream.
-			try {
-				internalEntryStream = new GZIPInputStream(internalEntryStream);
-			} catch(IOException e) {
-				//If it is not compressed we close
-				//the old one and recreate
-				internalEntryStream.close();
-				internalEntryStream = new FileInputStream(file);
-			}
-			entryStream = new TarInputStream(internalEntryStream, entry) {
-				public void close() {
-					// Ignore close() since we want to reuse the stream.
+		RandomAccessFile contents = getRandomAccess();
+		if (contents == null) {
+			// read the archive up to the entry
+			return new TarInputStream(open(), entry);
+		}
+		return new EntryInputStream(contents, entry.filepos + 512L, entry.getSize());
+	}
+
+	/*
+	 * Return the uncompressed contents of the archive, or null if they can
+	 * only be read sequentially. Once the receiver is closed, nothing is left
+	 * open for finalize() to close.
+	 */
+	private synchronized RandomAccessFile getRandomAccess() throws IOException {
+		if (randomAccess == null && !closed) {
+			if (compressed) {
+				getIndex();
+				if (spool != null) {
+					randomAccess = new RandomAccessFile(spool, "r"); //$NON-NLS-1$
 				}
-			};
+			} else {
+				randomAccess = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+			}
 		}
-		return entryStream;
+		return randomAccess;
 	}
 
 	/**
@@ -159,4 +229,102 @@ public class TarFile {
 	protected void finalize() throws Throwable {
 		close();
 	}
+
+	/*
+	 * Copies the bytes read, including the skipped ones, to a spool.
+	 */
+	private static class SpoolingInputStream extends InputStream {
+		private final InputStream in;
+		private final OutputStream spool;
+		private final byte[] skipBuffer = new byte[8192];
+
+		SpoolingInputStream(InputStream in, OutputStream spool) {
+			this.in = in;
+			this.spool = spool;
+		}
+
+		public int read() throws IOException {
+			int b = in.read();
+			if (b >= 0) {
+				spool.write(b);
+			}
+			return b;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n > 0) {
+				spool.write(b, off, n);
+			}
+			return n;
+		}
+
+		public long skip(long n) throws IOException {
+			int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n));
+			return Math.max(read, 0);
+		}
+
+		public void close() throws IOException {
+			try {
+				in.close();
+			} finally {
+				spool.close();
+			}
+		}
+	}
+
+	/*
+	 * Reads the contents of an entry at its offset in the shared file.
+	 */
+	private static class EntryInputStream extends InputStream {
+		private final RandomAccessFile contents;
+		private long position;
+		private long remaining;
+
+		EntryInputStream(RandomAccessFile contents, long position, long size) {
+			this.contents = contents;
+			this.position = position;
+			this.remaining = size;
+		}
+
+		public int read() throws IOException {
+			byte[] data = new byte[1];
+			int size = read(data, 0, 1);
+			if (size < 0) {
+				return size;
+			}
+			return data[0] & 0xff;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			if (len > remaining) {
+				len = (int) remaining;
+			}
+			int size;
+			synchronized (contents) {
+				contents.seek(position);
+				size = contents.read(b, off, len);
+			}
+			if (size < 0) {
+				throw new IOException("early end of stream"); //$NON-NLS-1$
+			}
+			position += size;
+			remaining -= size;
+			return size;
+		}
+
+		public long skip(long n) {
+			long skipped = Math.max(Math.min(n, remaining), 0);
+			position += skipped;
+			remaining -= skipped;
+			return skipped;
+		}
+
+		public int available() {
+			return (int) Math.min(remaining, Integer.MAX_VALUE);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -111,7 +111,21 @@ public class TarLeveledStructureProvider implements
 			initialize();
 		}
 
-		return ((List) children.get(element));
+		List childList = (List) children.get(element);
+		if (childList == null && isFolder(element)) {
+			// a folder entry of the archive rather than the one of the tree
+			IPath path = new Path(((TarEntry) element).getName());
+			Object directory = directoryEntryCache.get(path
+					.addTrailingSeparator());
+			if (directory == null) {
+				directory = directoryEntryCache.get(path
+						.removeTrailingSeparator());
+			}
+			if (directory != null) {
+				childList = (List) children.get(directory);
+			}
+		}
+		return childList;
 	}
 
 	/*
@@ -167,6 +181,9 @@ public class TarLeveledStructureProvider implements
 	 * @return TarEntry entry
 	 */
 	public Object getRoot() {
+		if (children == null) {
+			initialize();
+		}
 		return root;
 	}
 
@@ -196,9 +213,18 @@ public class TarLeveledStructureProvider implements
 	
 	/**
 	 * Initializes this object's children table based on the contents of the
-	 * specified source file.
+	 * specified source file, unless the table of the file is cached.
 	 */
 	protected void initialize() {
+		ArchiveStructureCache.Tree tree = ArchiveStructureCache
+				.getTree(tarFile.getName());
+		if (tree != null) {
+			root = (TarEntry) tree.getRoot();
+			directoryEntryCache = tree.getDirectories();
+			children = tree.getChildren();
+			return;
+		}
+
 		children = new HashMap(1000);
 		
 		children.put(root, new ArrayList());
@@ -220,6 +246,10 @@ public class TarLeveledStructureProvider implements
 				createFile(entry);
 			}
 		}
+
+		ArchiveStructureCache.putTree(tarFile.getName(),
+				new ArchiveStructureCache.Tree(root, children,
+						directoryEntryCache));
 	}
 	
 	/*
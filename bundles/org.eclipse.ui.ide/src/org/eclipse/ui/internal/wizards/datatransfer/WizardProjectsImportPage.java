@@ -27,10 +27,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -79,6 +77,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
@@ -90,8 +89,7 @@ import org.eclipse.ui.dialogs.IOverwriteQuery;
 import org.eclipse.ui.dialogs.WorkingSetGroup;
 import org.eclipse.ui.internal.ide.IDEWorkbenchMessages;
 import org.eclipse.ui.internal.ide.IDEWorkbenchPlugin;
-import org.eclipse.ui.internal.ide.StatusUtil;
-import org.eclipse.ui.statushandlers.StatusManager;
+import org.eclipse.ui.internal.wizards.datatransfer.ProjectFilesCollector.ProjectFileListener;
 import org.eclipse.ui.wizards.datatransfer.FileSystemStructureProvider;
 import org.eclipse.ui.wizards.datatransfer.ImportOperation;
 
@@ -286,6 +284,71 @@ public class WizardProjectsImportPage extends WizardPage implements
 		}
 	}
 
+	/**
+	 * The ProjectRecordsStream shows the projects found in a directory in the
+	 * projects list while the rest of the directory is searched.
+	 */
+	private class ProjectRecordsStream implements ProjectFileListener {
+
+		private final Display display;
+
+		private final List records = new ArrayList();
+
+		private boolean refreshScheduled = false;
+
+		private boolean closed = false;
+
+		private final Runnable refresh = new Runnable() {
+			public void run() {
+				synchronized (ProjectRecordsStream.this) {
+					refreshScheduled = false;
+					if (closed) {
+						return;
+					}
+					selectedProjects = (ProjectRecord[]) records
+							.toArray(new ProjectRecord[records.size()]);
+				}
+				if (!projectsList.getControl().isDisposed()) {
+					projectsList.refresh(true);
+				}
+			}
+		};
+
+		ProjectRecordsStream(Display display) {
+			this.display = display;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * org.eclipse.ui.internal.wizards.datatransfer.ProjectFilesCollector
+		 * .ProjectFileListener#projectFileFound(java.io.File)
+		 */
+		public void projectFileFound(File file) {
+			ProjectRecord record = new ProjectRecord(file);
+			synchronized (this) {
+				records.add(record);
+				if (refreshScheduled || closed) {
+					return;
+				}
+				refreshScheduled = true;
+			}
+			display.asyncExec(refresh);
+		}
+
+		/**
+		 * Stop showing the projects found.
+		 * 
+		 * @return the records of all the projects found
+		 */
+		synchronized ProjectRecord[] close() {
+			closed = true;
+			return (ProjectRecord[]) records.toArray(new ProjectRecord[records
+					.size()]);
+		}
+	}
+
 	// dialog store id constants
 	private final static String STORE_NESTED_PROJECTS = "WizardProjectsImportPage.STORE_NESTED_PROJECTS"; //$NON-NLS-1$
 	
@@ -900,6 +963,7 @@ public class WizardProjectsImportPage extends WizardPage implements
 		// status beforehand
 		final boolean dirSelected = this.projectFromDirectoryRadio
 				.getSelection();
+		final Display display = getShell().getDisplay();
 		try {
 			getContainer().run(true, true, new IRunnableWithProgress() {
 
@@ -972,21 +1036,18 @@ public class WizardProjectsImportPage extends WizardPage implements
 
 					else if (dirSelected && directory.isDirectory()) {
 
-						if (!collectProjectFilesFromDirectory(files, directory,
-								null, monitor)) {
+						ProjectRecordsStream stream = new ProjectRecordsStream(
+								display);
+						if (!new ProjectFilesCollector(nestedProjects, stream,
+								monitor).collect(directory)) {
+							stream.close();
+							selectedProjects = new ProjectRecord[0];
 							return;
 						}
-						Iterator filesIterator = files.iterator();
-						selectedProjects = new ProjectRecord[files.size()];
-						int index = 0;
 						monitor.worked(50);
 						monitor
 								.subTask(DataTransferMessages.WizardProjectsImportPage_ProcessingMessage);
-						while (filesIterator.hasNext()) {
-							File file = (File) filesIterator.next();
-							selectedProjects[index] = new ProjectRecord(file);
-							index++;
-						}
+						selectedProjects = stream.close();
 					} else {
 						monitor.worked(60);
 					}
@@ -1087,80 +1148,6 @@ public class WizardProjectsImportPage extends WizardPage implements
 		return IDEWorkbenchMessages.WizardExportPage_internalErrorTitle;
 	}
 
-	/**
-	 * Collect the list of .project files that are under directory into files.
-	 * 
-	 * @param files
-	 * @param directory
-	 * @param directoriesVisited
-	 * 		Set of canonical paths of directories, used as recursion guard
-	 * @param monitor
-	 * 		The monitor to report to
-	 * @return boolean <code>true</code> if the operation was completed.
-	 */
-	private boolean collectProjectFilesFromDirectory(Collection files,
-			File directory, Set directoriesVisited, IProgressMonitor monitor) {
-
-		if (monitor.isCanceled()) {
-			return false;
-		}
-		monitor.subTask(NLS.bind(
-				DataTransferMessages.WizardProjectsImportPage_CheckingMessage,
-				directory.getPath()));
-		File[] contents = directory.listFiles();
-		if (contents == null)
-			return false;
-
-		// Initialize recursion guard for recursive symbolic links
-		if (directoriesVisited == null) {
-			directoriesVisited = new HashSet();
-			try {
-				directoriesVisited.add(directory.getCanonicalPath());
-			} catch (IOException exception) {
-				StatusManager.getManager().handle(
-						StatusUtil.newStatus(IStatus.ERROR, exception
-								.getLocalizedMessage(), exception));
-			}
-		}
-
-		// first look for project description files
-		final String dotProject = IProjectDescription.DESCRIPTION_FILE_NAME;
-		for (int i = 0; i < contents.length; i++) {
-			File file = contents[i];
-			if (file.isFile() && file.getName().equals(dotProject)) {
-				files.add(file);
-				if (!nestedProjects) {
-					// don't search sub-directories since we can't have nested
-					// projects
-					return true;
-				}
-			}
-		}
-		// no project description found or search for nested projects enabled,
-		// so recurse into sub-directories
-		for (int i = 0; i < contents.length; i++) {
-			if (contents[i].isDirectory()) {
-				if (!contents[i].getName().equals(METADATA_FOLDER)) {
-					try {
-						String canonicalPath = contents[i].getCanonicalPath();
-						if (!directoriesVisited.add(canonicalPath)) {
-							// already been here --> do not recurse
-							continue;
-						}
-					} catch (IOException exception) {
-						StatusManager.getManager().handle(
-								StatusUtil.newStatus(IStatus.ERROR, exception
-										.getLocalizedMessage(), exception));
-
-					}
-					collectProjectFilesFromDirectory(files, contents[i],
-							directoriesVisited, monitor);
-				}
-			}
-		}
-		return true;
-	}
-
 	/**
 	 * Collect the list of .project files that are under directory into files.
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -114,7 +114,21 @@ public class ZipLeveledStructureProvider implements
 			initialize();
 		}
 
-		return ((List) children.get(element));
+		List childList = (List) children.get(element);
+		if (childList == null && isFolder(element)) {
+			// a folder entry of the archive rather than the one of the tree
+			IPath path = new Path(((ZipEntry) element).getName());
+			Object directory = directoryEntryCache.get(path
+					.addTrailingSeparator());
+			if (directory == null) {
+				directory = directoryEntryCache.get(path
+						.removeTrailingSeparator());
+			}
+			if (directory != null) {
+				childList = (List) children.get(directory);
+			}
+		}
+		return childList;
 	}
 
 	/*
@@ -176,6 +190,9 @@ public class ZipLeveledStructureProvider implements
 	 * @return java.util.zip.ZipEntry
 	 */
 	public Object getRoot() {
+		if (children == null) {
+			initialize();
+		}
 		return root;
 	}
 
@@ -206,9 +223,18 @@ public class ZipLeveledStructureProvider implements
 	
 	/**
 	 * Initializes this object's children table based on the contents of the
-	 * specified source file.
+	 * specified source file, unless the table of the file is cached.
 	 */
 	protected void initialize() {
+		ArchiveStructureCache.Tree tree = ArchiveStructureCache
+				.getTree(zipFile.getName());
+		if (tree != null) {
+			root = (ZipEntry) tree.getRoot();
+			directoryEntryCache = tree.getDirectories();
+			children = tree.getChildren();
+			return;
+		}
+
 		children = new HashMap(1000);
 
 		children.put(root, new ArrayList());
@@ -230,6 +256,10 @@ public class ZipLeveledStructureProvider implements
 				createFile(entry);
 			}
 		}
+
+		ArchiveStructureCache.putTree(zipFile.getName(),
+				new ArchiveStructureCache.Tree(root, children,
+						directoryEntryCache));
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,19 @@ public abstract class MarkerFieldFilter {
 	 * @return boolean <code>true</code> if the marker should be shown.
 	 */
 	public abstract boolean select(MarkerItem item);
+
+	/**
+	 * Return whether or not {@link #select(MarkerItem)} may be called on
+	 * several threads at once. The markers views then select the markers by
+	 * the receiver on the threads that gather them. Filters that return
+	 * <code>false</code>, as they do by default, select on a single thread.
+	 * 
+	 * @return boolean <code>true</code> if the receiver is thread safe
+	 * @since 3.8
+	 */
+	public boolean isThreadSafe() {
+		return false;
+	}
 	
 	/**
 	 * Initialise the receiver with the values in the values Map.
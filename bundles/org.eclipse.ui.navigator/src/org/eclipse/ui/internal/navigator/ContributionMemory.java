@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.navigator;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.ui.navigator.INavigatorContentDescriptor;
+
+/**
+ * Remembers which NCE contributed each element, and the first class NCE it
+ * was contributed for, without keeping the elements alive.
+ * <p>
+ * Elements are weakly referenced, so an entry goes away once neither the
+ * viewer nor anyone else holds on to the element. An element that is equal to
+ * a remembered one but is another instance takes over the entry, so that the
+ * entry follows the instance the viewer is showing rather than one that has
+ * been replaced. Lookups are by equality, as before.
+ * </p>
+ * <p>
+ * This class is not thread safe; the content service synchronizes its use.
+ * </p>
+ */
+public class ContributionMemory {
+
+	private static class Contribution {
+		final WeakReference element;
+		final INavigatorContentDescriptor source;
+		final INavigatorContentDescriptor firstClassSource;
+
+		Contribution(Object element, INavigatorContentDescriptor source,
+				INavigatorContentDescriptor firstClassSource) {
+			this.element = new WeakReference(element);
+			this.source = source;
+			this.firstClassSource = firstClassSource;
+		}
+	}
+
+	private final Map contributions = new WeakHashMap();
+
+	/**
+	 * Remembers the contributor of the element.
+	 * 
+	 * @param element
+	 *            the contributed element
+	 * @param source
+	 *            the NCE that contributed the element
+	 * @param firstClassSource
+	 *            the first class NCE the element was contributed for
+	 */
+	public void put(Object element, INavigatorContentDescriptor source,
+			INavigatorContentDescriptor firstClassSource) {
+		Contribution existing = (Contribution) contributions.get(element);
+		if (existing != null && existing.element.get() != element) {
+			// the map keeps its first key, so replace the entry
+			contributions.remove(element);
+		}
+		contributions.put(element, new Contribution(element, source, firstClassSource));
+	}
+
+	/**
+	 * @param element
+	 * @return the NCE that contributed the element, or <code>null</code>
+	 */
+	public INavigatorContentDescriptor getSource(Object element) {
+		Contribution contribution = (Contribution) contributions.get(element);
+		return contribution == null ? null : contribution.source;
+	}
+
+	/**
+	 * @param element
+	 * @return the first class NCE the element was contributed for, or
+	 *         <code>null</code>
+	 */
+	public INavigatorContentDescriptor getFirstClassSource(Object element) {
+		Contribution contribution = (Contribution) contributions.get(element);
+		return contribution == null ? null : contribution.firstClassSource;
+	}
+
+	/**
+	 * Forgets the contributor of the element.
+	 * 
+	 * @param element
+	 */
+	public void remove(Object element) {
+		contributions.remove(element);
+	}
+
+	/**
+	 * @return the number of elements that are remembered and still reachable
+	 */
+	public int size() {
+		return contributions.size();
+	}
+}
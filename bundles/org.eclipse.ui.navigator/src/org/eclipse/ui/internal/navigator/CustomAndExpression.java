@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import org.eclipse.core.expressions.ElementHandler;
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionConverter;
+import org.eclipse.core.expressions.ExpressionInfo;
 import org.eclipse.core.expressions.IEvaluationContext;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IConfigurationElement;
@@ -79,4 +80,13 @@ public class CustomAndExpression extends Expression {
 		return result;
 	}
 
+	public void collectExpressionInfo(ExpressionInfo info) {
+		if (fExpressions == null) {
+			return;
+		}
+		for (Iterator iter = fExpressions.iterator(); iter.hasNext();) {
+			((Expression) iter.next()).collectExpressionInfo(info);
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -122,10 +122,9 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	/*
 	 * Used when providing objects to the CommonViewer by the contentProvider
 	 * to record the object/description associations which are when stored
-	 * in the Tree associated with the viewer.
+	 * in the Tree associated with the viewer. The elements are weakly held.
 	 */
-	private Map contributionMemory;
-	private Map contributionMemoryFirstClass;
+	private final ContributionMemory contributionMemory = new ContributionMemory();
 	
 	private ILabelProvider labelProvider;
 
@@ -166,8 +165,6 @@ public class NavigatorContentService implements IExtensionActivationListener,
 		assistant = new VisibilityAssistant(viewerDescriptor,
 				getActivationService());
 		getActivationService().addExtensionActivationListener(this);
-		contributionMemory = new HashMap();
-		contributionMemoryFirstClass = new HashMap();
 	}
 
 	/**
@@ -707,13 +704,12 @@ public class NavigatorContentService implements IExtensionActivationListener,
 		 * the first one wins, so we don't update the contribution memory.
 		 */
 		synchronized (this) {
-			if (contributionMemory.get(element) == null
-					|| contributionMemoryFirstClass.get(element) == firstClassSource) {
+			if (contributionMemory.getSource(element) == null
+					|| contributionMemory.getFirstClassSource(element) == firstClassSource) {
 				if (Policy.DEBUG_RESOLUTION)
 					System.out
 							.println("rememberContribution: " + Policy.getObjectString(element) + " source: " + source); //$NON-NLS-1$//$NON-NLS-2$
-				contributionMemory.put(element, source);
-				contributionMemoryFirstClass.put(element, firstClassSource);
+				contributionMemory.put(element, source, firstClassSource);
 			}
 		}
 	}
@@ -727,7 +723,6 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	public void forgetContribution(Object element) {
 		synchronized (this) {
 			contributionMemory.remove(element);
-			contributionMemoryFirstClass.remove(element);
 		}
 	}
 
@@ -739,7 +734,7 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	{
 		NavigatorContentDescriptor desc;
 		synchronized (this) {
-			desc = (NavigatorContentDescriptor) contributionMemory.get(element);
+			desc = (NavigatorContentDescriptor) contributionMemory.getSource(element);
 		}
 		return desc;
 	}
@@ -769,7 +764,7 @@ public class NavigatorContentService implements IExtensionActivationListener,
 		// Try here first because it might not yet be in the tree
 		NavigatorContentDescriptor src;
 		synchronized (this) {
-			src = (NavigatorContentDescriptor) contributionMemory.get(element);
+			src = (NavigatorContentDescriptor) contributionMemory.getSource(element);
 		}
 		if (src != null)
 			return src;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2011 IBM Corporation and others.
+ * Copyright (c) 2003, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,19 +15,29 @@
 package org.eclipse.ui.internal.navigator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.ITreePathContentProvider;
+import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptor;
 import org.eclipse.ui.internal.navigator.extensions.NavigatorContentExtension;
 import org.eclipse.ui.internal.navigator.extensions.NavigatorViewerDescriptor;
@@ -37,6 +47,7 @@ import org.eclipse.ui.navigator.INavigatorContentDescriptor;
 import org.eclipse.ui.navigator.INavigatorViewerDescriptor;
 import org.eclipse.ui.navigator.IPipelinedTreeContentProvider;
 import org.eclipse.ui.navigator.OverridePolicy;
+import org.eclipse.ui.progress.PendingUpdateAdapter;
 
 /**
  * <p>
@@ -53,6 +64,14 @@ import org.eclipse.ui.navigator.OverridePolicy;
  * functionality (filters, sorting, etc) may choose to use this class, in effect
  * using an extensible, aggregating, delegate content provider.
  * </p>
+ * <p>
+ * Extensions that declare <code>concurrent="true"</code> are asked for
+ * children in background jobs. The children of the other extensions are
+ * returned at once, together with a {@link PendingUpdateAdapter} while any of
+ * the concurrent extensions has not answered yet. The parent is refreshed as
+ * the answers arrive, and the children are merged in the priority order of the
+ * extensions.
+ * </p>
  * 
  * @see org.eclipse.ui.internal.navigator.NavigatorContentService
  * @see org.eclipse.ui.internal.navigator.NavigatorContentServiceLabelProvider
@@ -72,6 +91,32 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 
 	private Viewer viewer;
 
+	/**
+	 * The children being fetched by concurrent extensions. This is a map of
+	 * the key of the parent (see {@link #getFetchKey(Object, boolean)}) to its
+	 * {@link ChildrenFetch}. Accessed from the background jobs, so guarded by
+	 * itself.
+	 */
+	private final Map fetches = new HashMap();
+
+	/**
+	 * The children of one parent being fetched by the concurrent extensions.
+	 */
+	private static class ChildrenFetch {
+		/**
+		 * Map of the descriptor of an extension to the children it returned.
+		 */
+		final Map results = new HashMap();
+
+		final List jobs = new ArrayList();
+
+		int pending;
+
+		boolean refreshScheduled;
+
+		final PendingUpdateAdapter placeholder = new PendingUpdateAdapter();
+	}
+
 	/**
 	 * <p>
 	 * Creates a cached {@link NavigatorContentService}&nbsp;from the given
@@ -105,6 +150,7 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 	}
 
 	public void inputChanged(Viewer aViewer, Object anOldInput, Object aNewInput) {
+		cancelFetches();
 		viewer = aViewer;
 		contentService.updateService(aViewer, anOldInput, aNewInput);
 	}
@@ -134,6 +180,8 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 		}
 		final Set finalSet = new LinkedHashSet();
 		final ContributorTrackingSet localSet = new ContributorTrackingSet(contentService);
+		final ChildrenFetch fetch = startFetch(aParentElement, aParentElementOrPath,
+				enabledExtensions, elements);
 
 		for (final Iterator itr = enabledExtensions.iterator(); itr.hasNext();) {
 			SafeRunner.run(new NavigatorSafeRunnable() {
@@ -144,7 +192,17 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 				public void run() throws Exception {
 					if (!isOverridingExtensionInSet(foundExtension.getDescriptor(),
 							enabledExtensions)) {
-						if (elements)
+						if (fetch != null && isConcurrent(foundExtension)) {
+							synchronized (fetches) {
+								if (!fetch.results.containsKey(foundExtension.getDescriptor())) {
+									// its children are merged in when they arrive
+									finalSet.add(fetch.placeholder);
+									return;
+								}
+								contributedChildren = (Object[]) fetch.results.get(foundExtension
+										.getDescriptor());
+							}
+						} else if (elements)
 							contributedChildren = foundExtension.internalGetContentProvider()
 									.getElements(aParentElementOrPath);
 						else
@@ -173,9 +231,175 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 			});
 		}		
 
+		if (fetch != null) {
+			synchronized (fetches) {
+				if (fetch.pending == 0) {
+					fetches.remove(getFetchKey(aParentElementOrPath, elements));
+				}
+			}
+			if (finalSet.remove(fetch.placeholder)) {
+				// a single placeholder after the children that are available
+				finalSet.add(fetch.placeholder);
+			}
+		}
 		return finalSet.toArray();
 	}
 
+	/**
+	 * Returns whether the extension may be asked for children in the
+	 * background.
+	 */
+	private static boolean isConcurrent(NavigatorContentExtension anExtension) {
+		return ((NavigatorContentDescriptor) anExtension.getDescriptor()).isConcurrent();
+	}
+
+	private static Object getFetchKey(Object aParentElementOrPath, boolean elements) {
+		return Arrays.asList(new Object[] { aParentElementOrPath, Boolean.valueOf(elements) });
+	}
+
+	/**
+	 * Returns the children being fetched in the background for the parent,
+	 * scheduling a job for each concurrent extension if there is no such fetch
+	 * yet.
+	 * 
+	 * @return the fetch, or <code>null</code> if none of the extensions are
+	 *         concurrent or the viewer cannot be refreshed from this thread
+	 */
+	private ChildrenFetch startFetch(final Object aParentElement, final Object aParentElementOrPath,
+			Set enabledExtensions, final boolean elements) {
+		if (!(viewer instanceof StructuredViewer)) {
+			return null;
+		}
+		Control control = viewer.getControl();
+		if (control == null || control.isDisposed() || control.getDisplay() != Display.getCurrent()) {
+			return null;
+		}
+		List concurrentExtensions = null;
+		for (Iterator itr = enabledExtensions.iterator(); itr.hasNext();) {
+			NavigatorContentExtension anExtension = (NavigatorContentExtension) itr.next();
+			if (isConcurrent(anExtension)
+					&& !isOverridingExtensionInSet(anExtension.getDescriptor(), enabledExtensions)) {
+				if (concurrentExtensions == null) {
+					concurrentExtensions = new ArrayList();
+				}
+				concurrentExtensions.add(anExtension);
+			}
+		}
+		if (concurrentExtensions == null) {
+			return null;
+		}
+
+		final Object key = getFetchKey(aParentElementOrPath, elements);
+		final ChildrenFetch fetch;
+		synchronized (fetches) {
+			ChildrenFetch existing = (ChildrenFetch) fetches.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			fetch = new ChildrenFetch();
+			fetch.pending = concurrentExtensions.size();
+			fetches.put(key, fetch);
+		}
+		final Display display = control.getDisplay();
+		for (Iterator itr = concurrentExtensions.iterator(); itr.hasNext();) {
+			final NavigatorContentExtension anExtension = (NavigatorContentExtension) itr.next();
+			// the provider is created and initialized in the UI thread, only
+			// the queries run in the job
+			final SafeDelegateTreeContentProvider provider = anExtension.internalGetContentProvider();
+			Job job = new Job(NLS.bind(CommonNavigatorMessages.NavigatorContentServiceContentProvider_Fetching_children,
+					anExtension.getDescriptor().getName())) {
+				protected IStatus run(IProgressMonitor monitor) {
+					final Object[][] children = new Object[1][];
+					SafeRunner.run(new NavigatorSafeRunnable() {
+						public void run() throws Exception {
+							if (elements)
+								children[0] = provider.getElements(aParentElementOrPath);
+							else
+								children[0] = provider.getChildren(aParentElementOrPath);
+						}
+
+						public void handleException(Throwable e) {
+							NavigatorPlugin.logError(0, NLS.bind(
+									CommonNavigatorMessages.Exception_Invoking_Extension, new Object[] {
+											anExtension.getDescriptor().getId(), aParentElement }), e);
+						}
+					});
+					fetchCompleted(display, key, fetch, anExtension.getDescriptor(),
+							children[0] == null ? NO_CHILDREN : children[0], aParentElement);
+					return Status.OK_STATUS;
+				}
+			};
+			job.setSystem(true);
+			fetch.jobs.add(job);
+		}
+		for (Iterator itr = fetch.jobs.iterator(); itr.hasNext();) {
+			((Job) itr.next()).schedule();
+		}
+		return fetch;
+	}
+
+	/**
+	 * Records the children returned by a concurrent extension and refreshes
+	 * the parent so that they are merged in.
+	 */
+	private void fetchCompleted(final Display display, final Object key, final ChildrenFetch fetch,
+			INavigatorContentDescriptor aDescriptor, Object[] children, final Object aParentElement) {
+		synchronized (fetches) {
+			if (fetches.get(key) != fetch) {
+				return;
+			}
+			fetch.results.put(aDescriptor, children);
+			fetch.pending--;
+			if (fetch.refreshScheduled) {
+				return;
+			}
+			fetch.refreshScheduled = true;
+		}
+		if (display.isDisposed()) {
+			return;
+		}
+		display.asyncExec(new Runnable() {
+			public void run() {
+				synchronized (fetches) {
+					fetch.refreshScheduled = false;
+					if (fetches.get(key) != fetch) {
+						return;
+					}
+				}
+				if (viewer == null || viewer.getControl() == null || viewer.getControl().isDisposed()) {
+					return;
+				}
+				if (aParentElement == viewer.getInput()) {
+					viewer.refresh();
+				} else {
+					((StructuredViewer) viewer).refresh(aParentElement);
+				}
+				synchronized (fetches) {
+					// not asked for by the refresh, e.g. because the parent is collapsed
+					if (fetch.pending == 0 && fetches.get(key) == fetch) {
+						fetches.remove(key);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Cancels the children being fetched in the background.
+	 */
+	private void cancelFetches() {
+		List jobs = new ArrayList();
+		synchronized (fetches) {
+			for (Iterator itr = fetches.values().iterator(); itr.hasNext();) {
+				jobs.addAll(((ChildrenFetch) itr.next()).jobs);
+			}
+			fetches.clear();
+		}
+		for (Iterator itr = jobs.iterator(); itr.hasNext();) {
+			((Job) itr.next()).cancel();
+		}
+	}
+
 	/**
 	 * Query each of <code>theOverridingExtensions</code> for children, and then
 	 * pipe them through the Pipeline content provider.
@@ -466,6 +690,7 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 	 * @see org.eclipse.jface.viewers.IContentProvider#dispose()
 	 */
 	public void dispose() {
+		cancelFetches();
 		if (disposeContentService) {
 			contentService.dispose();
 		}
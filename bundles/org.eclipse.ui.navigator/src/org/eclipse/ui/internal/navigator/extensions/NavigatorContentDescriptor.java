@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -76,6 +76,10 @@ public final class NavigatorContentDescriptor implements
 
 	private Expression possibleChildren;
 
+	private TypeEvaluationCache enablementByType;
+
+	private TypeEvaluationCache possibleChildrenByType;
+
 	private Expression initialActivation;
 	
 	private String icon;
@@ -99,6 +103,8 @@ public final class NavigatorContentDescriptor implements
 
 	private boolean providesSaveables;
 
+	private boolean concurrent;
+
 	/**
 	 * Creates a new content descriptor from a configuration element.
 	 * 
@@ -170,6 +176,16 @@ public final class NavigatorContentDescriptor implements
 	public boolean isSortOnly() {
 		return sortOnly;
 	}
+
+	/**
+	 * 
+	 * @return True if the content provider of this extension may be asked for
+	 *         elements and children from a background thread, concurrently
+	 *         with the other extensions.
+	 */
+	public boolean isConcurrent() {
+		return concurrent;
+	}
 	
 	/**
 	 * Parses the configuration element.
@@ -218,6 +234,10 @@ public final class NavigatorContentDescriptor implements
 		String sortOnlyString = configElement.getAttribute(ATT_SORT_ONLY);
 		sortOnly = (sortOnlyString != null && sortOnlyString.length() > 0) ? Boolean.valueOf(
 				sortOnlyString).booleanValue() : false;
+
+		String concurrentString = configElement.getAttribute(ATT_CONCURRENT);
+		concurrent = (concurrentString != null && concurrentString.length() > 0) ? Boolean.valueOf(
+				concurrentString).booleanValue() : false;
 		
 		if (id == null) {
 			throw new WorkbenchException(NLS.bind(
@@ -264,6 +284,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_TRIGGER_POINTS);
 			if (children.length == 1) {
 				enablement = new CustomAndExpression(children[0]);
+				enablementByType = TypeEvaluationCache.create(enablement, children[0]);
 			} else {
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -277,6 +298,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_POSSIBLE_CHILDREN);
 			if (children.length == 1) {
 				possibleChildren = new CustomAndExpression(children[0]);
+				possibleChildrenByType = TypeEvaluationCache.create(possibleChildren, children[0]);
 			} else if(children.length > 1){
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -290,6 +312,7 @@ public final class NavigatorContentDescriptor implements
 			try {
 				enablement = ElementHandler.getDefault().create(
 						ExpressionConverter.getDefault(), children[0]);
+				enablementByType = TypeEvaluationCache.create(enablement, children[0]);
 			} catch (CoreException e) {
 				NavigatorPlugin.log(IStatus.ERROR, 0, e.getMessage(), e);
 			}
@@ -422,6 +445,9 @@ public final class NavigatorContentDescriptor implements
 			return false;
 		}
 
+		if (enablementByType != null) {
+			return enablementByType.evaluate(anElement) == EvaluationResult.TRUE;
+		}
 		IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
 		return NavigatorPlugin.safeEvaluate(enablement, context) == EvaluationResult.TRUE;
 	}
@@ -449,6 +475,14 @@ public final class NavigatorContentDescriptor implements
 			return arePossibleChildren((IStructuredSelection) anElement);
 		}
 
+		if (possibleChildren != null) {
+			if (possibleChildrenByType != null) {
+				return possibleChildrenByType.evaluate(anElement) == EvaluationResult.TRUE;
+			}
+		} else if (enablementByType != null) {
+			return enablementByType.evaluate(anElement) == EvaluationResult.TRUE;
+		}
+
 		IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
 		if (possibleChildren != null) {
 			return NavigatorPlugin.safeEvaluate(possibleChildren, context) == EvaluationResult.TRUE;
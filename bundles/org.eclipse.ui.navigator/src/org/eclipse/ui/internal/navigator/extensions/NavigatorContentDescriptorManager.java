@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2011 IBM Corporation and others.
+ * Copyright (c) 2003, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,9 +13,11 @@ package org.eclipse.ui.internal.navigator.extensions;
 
 import java.lang.ref.SoftReference;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -49,10 +51,34 @@ public class NavigatorContentDescriptorManager {
 
 	private final Map allDescriptors = new HashMap();
 
+	/* The number of elements each evaluation cache remembers at most */
+	private static final int MAX_CACHED_EVALUATIONS = 1000;
+
+	/**
+	 * Forgets the least recently used element once it holds more than
+	 * {@link #MAX_CACHED_EVALUATIONS} elements.
+	 */
+	private static class BoundedCache extends LinkedHashMap {
+
+		private static final long serialVersionUID = 1L;
+
+		BoundedCache() {
+			super(16, 0.75f, true);
+		}
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_CACHED_EVALUATIONS;
+		}
+	}
+
 	private class EvaluationCache implements VisibilityListener {
 
-		private final Map evaluations/* <Object, NavigatorContentDescriptor[]> */= new HashMap();
-		private final Map evaluationsWithOverrides/*<Object, NavigatorContentDescriptor[]>*/ = new HashMap();
+		/*
+		 * An access ordered map changes on lookups, and the caches are read
+		 * from any thread
+		 */
+		private final Map evaluations/* <Object, NavigatorContentDescriptor[]> */= Collections.synchronizedMap(new BoundedCache());
+		private final Map evaluationsWithOverrides/*<Object, NavigatorContentDescriptor[]>*/ = Collections.synchronizedMap(new BoundedCache());
 
 		EvaluationCache(VisibilityAssistant anAssistant) {
 			anAssistant.addListener(this);
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.navigator.extensions;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.core.expressions.EvaluationResult;
+import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionInfo;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.ui.internal.navigator.NavigatorPlugin;
+
+/**
+ * Remembers the result of an expression for each class of element, for the
+ * expressions whose result only depends on the class of the element they are
+ * evaluated for.
+ * <p>
+ * Those are the expressions that only combine <b>instanceof</b> tests with
+ * <b>and</b>, <b>or</b> and <b>not</b>, and read no variable or property
+ * according to their {@link ExpressionInfo}. Expressions with an <b>adapt</b>
+ * test are evaluated for each element, since adapter factories can be
+ * registered at any time and adaptables may adapt differently than other
+ * instances of their class.
+ * </p>
+ */
+public class TypeEvaluationCache {
+
+	private static final String AND = "and"; //$NON-NLS-1$
+	private static final String OR = "or"; //$NON-NLS-1$
+	private static final String NOT = "not"; //$NON-NLS-1$
+	private static final String INSTANCEOF = "instanceof"; //$NON-NLS-1$
+
+	private final Expression expression;
+
+	/* Map of (Class, EvaluationResult)-pairs */
+	private final Map results = Collections.synchronizedMap(new WeakHashMap());
+
+	private TypeEvaluationCache(Expression anExpression) {
+		expression = anExpression;
+	}
+
+	/**
+	 * Returns a cache for the expression if its result only depends on the
+	 * class of the element.
+	 * 
+	 * @param anExpression
+	 *            The expression, may be <code>null</code>
+	 * @param anElement
+	 *            The configuration element the expression was created from,
+	 *            whose children are combined with <b>and</b>
+	 * @return The cache, or <code>null</code> if the expression must be
+	 *         evaluated for each element
+	 */
+	public static TypeEvaluationCache create(Expression anExpression,
+			IConfigurationElement anElement) {
+		if (anExpression == null || anElement == null) {
+			return null;
+		}
+		ExpressionInfo info = anExpression.computeExpressionInfo();
+		if (info.getMisbehavingExpressionTypes() != null
+				|| info.getAccessedVariableNames().length > 0
+				|| info.getAccessedPropertyNames().length > 0
+				|| info.hasSystemPropertyAccess()) {
+			return null;
+		}
+		if (!isTypeOnly(anElement.getChildren())) {
+			return null;
+		}
+		return new TypeEvaluationCache(anExpression);
+	}
+
+	private static boolean isTypeOnly(IConfigurationElement[] elements) {
+		for (int i = 0; i < elements.length; i++) {
+			String name = elements[i].getName();
+			if (AND.equals(name) || OR.equals(name) || NOT.equals(name)) {
+				if (!isTypeOnly(elements[i].getChildren())) {
+					return false;
+				}
+			} else if (!INSTANCEOF.equals(name)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Evaluates the expression for the class of the element, unless it was
+	 * evaluated for an element of the same class before. Results that depend on
+	 * a plug-in that is not loaded yet are not remembered.
+	 * 
+	 * @param anElement
+	 *            The element to evaluate the expression for
+	 * @return The result of the expression for the element
+	 */
+	public EvaluationResult evaluate(Object anElement) {
+		Class type = anElement.getClass();
+		EvaluationResult result = (EvaluationResult) results.get(type);
+		if (result == null) {
+			result = NavigatorPlugin.safeEvaluate(expression, NavigatorPlugin
+					.getEvalContext(anElement));
+			if (result != EvaluationResult.NOT_LOADED) {
+				results.put(type, result);
+			}
+		}
+		return result;
+	}
+}
@@ -10,12 +10,16 @@
  *******************************************************************************/
 package org.eclipse.ui.internal;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.eclipse.core.expressions.EvaluationContext;
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionConverter;
+import org.eclipse.core.expressions.ExpressionTagNames;
 import org.eclipse.core.expressions.IEvaluationContext;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
@@ -45,7 +49,21 @@ public class ObjectActionContributor extends PluginActionBuilder implements
 
     private IConfigurationElement config;
 
-    private boolean configRead = false;
+    private volatile boolean configRead = false;
+
+    /**
+     * Whether applicability only depends on the class of the tested object.
+     * Only valid once the configuration element has been read.
+     */
+    private boolean classInvariant = false;
+
+    /**
+     * Applicability by class (<code>Class</code> to <code>Boolean</code>)
+     * if the contribution is class invariant. Weak so that it does not keep
+     * the classes of selected objects alive.
+     */
+    private final Map applicableClasses = Collections
+            .synchronizedMap(new WeakHashMap());
 
     private boolean adaptable = false;
     
@@ -234,6 +252,17 @@ public class ObjectActionContributor extends PluginActionBuilder implements
 			}
 		}
 			
+        if (classInvariant) {
+			Class clazz = object.getClass();
+			Boolean applicable = (Boolean) applicableClasses.get(clazz);
+			if (applicable == null) {
+				applicable = ((ObjectContribution) currentContribution)
+						.isApplicableTo(object) ? Boolean.TRUE : Boolean.FALSE;
+				applicableClasses.put(clazz, applicable);
+			}
+			return applicable.booleanValue();
+		}
+
         if (!testName(object)) {
 			return false;
 		}
@@ -246,12 +275,65 @@ public class ObjectActionContributor extends PluginActionBuilder implements
      * Reads the configuration element and all the children.
      * This creates an action descriptor for every action in the extension.
      */
-    private void readConfigElement() {
+    private synchronized void readConfigElement() {
+        if (configRead) {
+        	return;
+        }
         currentContribution = createContribution();
         readElementChildren(config);
+        classInvariant = computeClassInvariant();
         configRead = true;
     }
 
+    /**
+     * Returns whether applicability of this contribution only depends on
+     * the class of the tested object. This is the case if there is no name
+     * filter, no visibility or filter test, and the enablement only consists
+     * of type tests.
+     */
+    private boolean computeClassInvariant() {
+        if (config.getAttribute(IWorkbenchRegistryConstants.ATT_NAME_FILTER) != null) {
+			return false;
+		}
+        IConfigurationElement[] children = config.getChildren();
+        for (int i = 0; i < children.length; i++) {
+			String tag = children[i].getName();
+			if (tag.equals(IWorkbenchRegistryConstants.TAG_VISIBILITY)
+					|| tag.equals(IWorkbenchRegistryConstants.TAG_FILTER)) {
+				return false;
+			}
+			if (tag.equals(IWorkbenchRegistryConstants.TAG_ENABLEMENT)
+					&& !isTypeTest(children[i])) {
+				return false;
+			}
+		}
+        return true;
+    }
+
+    /**
+     * Returns whether all children of the expression element are
+     * <code>instanceof</code> tests, possibly combined with
+     * <code>and</code>, <code>or</code> and <code>not</code>.
+     */
+    private static boolean isTypeTest(IConfigurationElement element) {
+        IConfigurationElement[] children = element.getChildren();
+        for (int i = 0; i < children.length; i++) {
+			String tag = children[i].getName();
+			if (tag.equals(ExpressionTagNames.INSTANCEOF)) {
+				continue;
+			}
+			if (!tag.equals(ExpressionTagNames.AND)
+					&& !tag.equals(ExpressionTagNames.OR)
+					&& !tag.equals(ExpressionTagNames.NOT)) {
+				return false;
+			}
+			if (!isTypeTest(children[i])) {
+				return false;
+			}
+		}
+        return true;
+    }
+
     /* (non-Javadoc)
      * Method declared on PluginActionBuilder.
      */
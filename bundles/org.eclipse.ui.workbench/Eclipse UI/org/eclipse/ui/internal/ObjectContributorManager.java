@@ -162,11 +162,9 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
     }
 
     /**
-     * Flushes the cache of contributor search paths.  This is generally required
-     * whenever a contributor is added or removed.  
-     * <p>
-     * It is likely easier to just toss the whole cache rather than trying to be
-     * smart and remove only those entries affected.
+     * Flushes the cache of contributor search paths.  This is required
+     * whenever the contributors change in a way that cannot be attributed
+     * to a single target type.
      */
     public void flushLookup() {
         objectLookup = null;
@@ -174,6 +172,48 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         adaptableLookup = null;
     }
 
+    /**
+     * Flushes the cached contributor search paths that include the given
+     * target type.  Search paths of unrelated types stay cached, so adding
+     * or removing a contributor does not cost every other type a lookup.
+     * 
+     * @param targetType the name of the type whose contributors changed
+     * @since 3.8
+     */
+    protected void flushLookup(String targetType) {
+        flushClassLookup(objectLookup, targetType);
+        flushClassLookup(resourceAdapterLookup, targetType);
+        if (adaptableLookup != null) {
+            adaptableLookup.remove(targetType);
+        }
+    }
+
+    /**
+     * Removes the entries of a class keyed cache whose search order contains
+     * the given type.
+     */
+    private void flushClassLookup(Map lookup, String targetType) {
+        if (lookup == null) {
+            return;
+        }
+        for (Iterator it = lookup.keySet().iterator(); it.hasNext();) {
+            List classList = computeClassOrder((Class) it.next());
+            if (containsType(classList, targetType)
+                    || containsType(computeInterfaceOrder(classList), targetType)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean containsType(List types, String typeName) {
+        for (int i = 0, size = types.size(); i < size; i++) {
+            if (((Class) types.get(i)).getName().equals(typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Cache the real adapter class contributor search path.
      */
@@ -321,7 +361,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
             contributors.put(targetType, contributorList);
         }
         contributorList.add(contributor);
-        flushLookup();
+        flushLookup(targetType);
 
         IConfigurationElement element = (IConfigurationElement) Util.getAdapter(contributor,
         	IConfigurationElement.class);
@@ -361,7 +401,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         if (contributorList.isEmpty()) {
 			contributors.remove(targetType);
 		}
-        flushLookup();
+        flushLookup(targetType);
     }
 
 
@@ -372,7 +412,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      */
     public void unregisterContributors(String targetType) {
         contributors.remove(targetType);
-        flushLookup();
+        flushLookup(targetType);
     }
     
     protected List getContributors(Object object) {
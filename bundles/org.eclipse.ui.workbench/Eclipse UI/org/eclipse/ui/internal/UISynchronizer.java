@@ -17,6 +17,7 @@ import java.util.List;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Synchronizer;
 import org.eclipse.ui.internal.StartupThreading.StartupRunnable;
+import org.eclipse.ui.internal.progress.JobTelemetry;
 
 public class UISynchronizer extends Synchronizer {
     protected UILockListener lockListener;
@@ -126,10 +127,25 @@ public class UISynchronizer extends Synchronizer {
 				}
 			}
 		}
-    	super.asyncExec(runnable);
+    	super.asyncExec(JobTelemetry.getInstance().trackDisplayLatency(runnable));
     }
 
 	public void syncExec(Runnable runnable) {
+		JobTelemetry telemetry = JobTelemetry.getInstance();
+		if (!telemetry.isEnabled() || lockListener.isUI()) {
+			doSyncExec(runnable);
+			return;
+		}
+		// record how long the calling thread waits for the UI thread
+		long start = System.nanoTime();
+		try {
+			doSyncExec(runnable);
+		} finally {
+			telemetry.recordUIBlocking(System.nanoTime() - start);
+		}
+	}
+
+	private void doSyncExec(Runnable runnable) {
 		
 		synchronized (this) {
 			// the following block should not be invoked if we're using 3.2 threading.
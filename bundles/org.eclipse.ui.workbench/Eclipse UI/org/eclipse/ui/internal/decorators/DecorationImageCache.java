@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.PooledDeviceResourceManager;
+import org.eclipse.jface.resource.ResourceManager;
+import org.eclipse.jface.viewers.DecorationOverlayIcon;
+import org.eclipse.swt.graphics.Device;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+
+/**
+ * The DecorationImageCache shares the images composed for decorated labels
+ * between all of the viewers using the decorator manager.
+ * <p>
+ * Composed images are keyed by the base image and the tuple of overlay
+ * descriptors (see {@link DecorationOverlayIcon#equals(Object)}) and are
+ * allocated in a {@link PooledDeviceResourceManager}, so an image that is no
+ * longer shown is kept for a while in case another viewer (or the same viewer
+ * after being reopened) asks for the same combination. The pixel data of the
+ * overlays themselves is kept in a bounded LRU cache so that composing a new
+ * combination does not reload every overlay from its source.
+ * </p>
+ *
+ * @since 3.8
+ */
+public class DecorationImageCache {
+
+	/**
+	 * The maximum number of unreferenced composed images kept alive.
+	 */
+	static final int MAX_IDLE_IMAGES = 256;
+
+	/**
+	 * The number of milliseconds an unreferenced composed image is kept alive.
+	 */
+	static final long MAX_IDLE_TIME = 60000;
+
+	/**
+	 * The maximum number of overlay image data entries kept in memory.
+	 */
+	static final int MAX_OVERLAY_DATA = 128;
+
+	/**
+	 * An ImageDescriptor that answers the cached image data of the overlay it
+	 * wraps. Equality is that of the wrapped descriptor so composed images
+	 * keep the same identity whether or not the data was cached.
+	 */
+	private class CachedOverlayDescriptor extends ImageDescriptor {
+
+		private final ImageDescriptor overlay;
+
+		CachedOverlayDescriptor(ImageDescriptor overlay) {
+			this.overlay = overlay;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.jface.resource.ImageDescriptor#getImageData()
+		 */
+		public ImageData getImageData() {
+			return getOverlayData(overlay);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object obj) {
+			if (obj instanceof CachedOverlayDescriptor) {
+				return overlay.equals(((CachedOverlayDescriptor) obj).overlay);
+			}
+			return overlay.equals(obj);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			return overlay.hashCode();
+		}
+	}
+
+	private final PooledDeviceResourceManager pool;
+
+	/**
+	 * Map of ImageDescriptor onto ImageData in least recently used order.
+	 */
+	private final Map overlayData = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_OVERLAY_DATA;
+		}
+	};
+
+	private long overlayDataHits = 0;
+
+	private long overlayDataMisses = 0;
+
+	private long compositions = 0;
+
+	/**
+	 * Create a new instance of the receiver for the given device.
+	 *
+	 * @param device
+	 */
+	public DecorationImageCache(Device device) {
+		pool = new PooledDeviceResourceManager(device, MAX_IDLE_IMAGES,
+				MAX_IDLE_TIME);
+	}
+
+	/**
+	 * Return the shared resource manager that composed images are allocated
+	 * in. Clients should wrap it in a LocalResourceManager rather than
+	 * allocating from it directly.
+	 *
+	 * @return ResourceManager
+	 */
+	public ResourceManager getResourceManager() {
+		return pool;
+	}
+
+	/**
+	 * Return the image for base decorated with the given overlays, allocated in
+	 * manager. The indices of overlays are those used by
+	 * {@link DecorationOverlayIcon}.
+	 *
+	 * @param base
+	 * @param overlays
+	 * @param manager
+	 *            a manager that delegates to {@link #getResourceManager()}
+	 * @return Image
+	 */
+	public Image decorate(Image base, ImageDescriptor[] overlays,
+			ResourceManager manager) {
+		Rectangle bounds = base.getBounds();
+		ImageDescriptor[] cached = new ImageDescriptor[overlays.length];
+		for (int i = 0; i < overlays.length; i++) {
+			if (overlays[i] != null) {
+				cached[i] = new CachedOverlayDescriptor(overlays[i]);
+			}
+		}
+		synchronized (overlayData) {
+			compositions++;
+		}
+		return manager.createImage(new DecorationOverlayIcon(base, cached,
+				new Point(bounds.width, bounds.height)));
+	}
+
+	/**
+	 * Return the image data for overlay, loading it if it is not cached. The
+	 * result is shared and must be treated as read only.
+	 *
+	 * @param overlay
+	 * @return ImageData or <code>null</code> if the data cannot be loaded
+	 */
+	private ImageData getOverlayData(ImageDescriptor overlay) {
+		synchronized (overlayData) {
+			ImageData data = (ImageData) overlayData.get(overlay);
+			if (data != null) {
+				overlayDataHits++;
+				return data;
+			}
+			overlayDataMisses++;
+		}
+		ImageData data = overlay.getImageData();
+		if (data != null) {
+			synchronized (overlayData) {
+				overlayData.put(overlay, data);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Release any cached overlay data and any composed images that are not
+	 * referenced.
+	 */
+	public void flush() {
+		synchronized (overlayData) {
+			overlayData.clear();
+		}
+		pool.flushIdle();
+	}
+
+	/**
+	 * Dispose the receiver and every image allocated through it.
+	 */
+	public void dispose() {
+		synchronized (overlayData) {
+			overlayData.clear();
+		}
+		pool.dispose();
+	}
+
+	/**
+	 * Return the number of decorated images requested from the receiver.
+	 *
+	 * @return long
+	 */
+	public long getCompositionCount() {
+		synchronized (overlayData) {
+			return compositions;
+		}
+	}
+
+	/**
+	 * Return the number of OS resources allocated in the shared pool. For
+	 * images this is lower than {@link #getCompositionCount()} when composed
+	 * images are shared.
+	 *
+	 * @return long
+	 */
+	public long getAllocationCount() {
+		return pool.getAllocationCount();
+	}
+
+	/**
+	 * Return the number of resources revived from the idle pool.
+	 *
+	 * @return long
+	 */
+	public long getPoolHitCount() {
+		return pool.getPoolHitCount();
+	}
+
+	/**
+	 * Return the number of OS resources currently held in the shared pool.
+	 *
+	 * @return int
+	 */
+	public int getLiveCount() {
+		return pool.getLiveCount();
+	}
+
+	/**
+	 * Return the number of overlay image data lookups served from the cache.
+	 *
+	 * @return long
+	 */
+	public long getOverlayDataHitCount() {
+		synchronized (overlayData) {
+			return overlayDataHits;
+		}
+	}
+
+	/**
+	 * Return the number of overlay image data lookups that had to load the
+	 * data.
+	 *
+	 * @return long
+	 */
+	public long getOverlayDataMissCount() {
+		synchronized (overlayData) {
+			return overlayDataMisses;
+		}
+	}
+}
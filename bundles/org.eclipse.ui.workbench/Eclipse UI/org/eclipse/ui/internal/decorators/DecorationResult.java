@@ -15,12 +15,9 @@ import java.util.ListIterator;
 
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ResourceManager;
-import org.eclipse.jface.viewers.DecorationOverlayIcon;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.graphics.Point;
-import org.eclipse.swt.graphics.Rectangle;
 
 /**
  * The Decoration Result is the result of a decoration.
@@ -74,19 +71,19 @@ public class DecorationResult {
 	 * 
 	 * @param image
 	 * @param manager
+	 * @param cache
+	 *            the cache used to share the composed image
 	 * @return Image
 	 */
-	Image decorateWithOverlays(Image image, ResourceManager manager) {
+	Image decorateWithOverlays(Image image, ResourceManager manager,
+			DecorationImageCache cache) {
 
 		// Do not try to do anything if there is no source or overlays
 		if (image == null || descriptors == null) {
 			return image;
 		}
-		
-		Rectangle bounds = image.getBounds();
-		Point size = new Point(bounds.width, bounds.height);
-		DecorationOverlayIcon icon = new DecorationOverlayIcon(image, descriptors, size);
-		return manager.createImage(icon);
+
+		return cache.decorate(image, descriptors, manager);
 	}
 
 	/**
@@ -183,7 +183,8 @@ public class DecorationScheduler {
 		if (decoration == null) {
 			return image;
 		}
-		return decoration.decorateWithOverlays(image, manager);
+		return decoration.decorateWithOverlays(image, manager,
+				decoratorManager.getImageCache());
 	}
 
 	/**
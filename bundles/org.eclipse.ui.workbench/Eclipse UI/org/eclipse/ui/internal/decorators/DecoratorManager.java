@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -29,7 +29,6 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.dynamichelpers.ExtensionTracker;
 import org.eclipse.core.runtime.dynamichelpers.IExtensionChangeHandler;
 import org.eclipse.core.runtime.dynamichelpers.IExtensionTracker;
-import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.resource.LocalResourceManager;
 import org.eclipse.jface.resource.ResourceManager;
 import org.eclipse.jface.util.SafeRunnable;
@@ -103,6 +102,8 @@ public class DecoratorManager implements ILabelProviderListener,
 
 	private LocalResourceManager resourceManager;
 
+	private DecorationImageCache imageCache;
+
 	
 	/**
 	 * ManagedWorkbenchLabelDecorator is the internal LabelDecorator
@@ -755,7 +756,14 @@ public class DecoratorManager implements ILabelProviderListener,
 	 * @see IBaseLabelProvider#dispose()
 	 */
 	public void dispose() {
-		// do nothing
+		if (resourceManager != null) {
+			resourceManager.dispose();
+			resourceManager = null;
+		}
+		if (imageCache != null) {
+			imageCache.dispose();
+			imageCache = null;
+		}
 	}
 
 	/**
@@ -766,6 +774,9 @@ public class DecoratorManager implements ILabelProviderListener,
 		getLightweightManager().reset();
 		fullTextRunnable.clearReferences();
 		fullImageRunnable.clearReferences();
+		if (imageCache != null) {
+			imageCache.flush();
+		}
 	}
 
 	/**
@@ -948,12 +959,25 @@ public class DecoratorManager implements ILabelProviderListener,
 	 */
 	public ResourceManager getResourceManager() {
 		if (resourceManager == null) {
-			resourceManager = new LocalResourceManager(JFaceResources
-					.getResources(PlatformUI.getWorkbench().getDisplay()));
+			resourceManager = new LocalResourceManager(getImageCache()
+					.getResourceManager());
 		}
 		return resourceManager;
 	}
 
+	/**
+	 * Returns the cache used to share decorated images between viewers.
+	 * 
+	 * @return the decoration image cache
+	 */
+	public DecorationImageCache getImageCache() {
+		if (imageCache == null) {
+			imageCache = new DecorationImageCache(PlatformUI.getWorkbench()
+					.getDisplay());
+		}
+		return imageCache;
+	}
+
 	/**
 	 * @see IDecoratorManager#setEnabled(String, boolean)
 	 */
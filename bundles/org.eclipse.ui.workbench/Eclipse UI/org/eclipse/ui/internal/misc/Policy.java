@@ -159,6 +159,13 @@ public class Policy {
      */
     public static boolean DEBUG_WORKING_SETS = DEFAULT;
 
+    /**
+     * Whether or not job and UI thread telemetry is recorded from startup.
+     * 
+     * @since 3.8
+     */
+    public static boolean DEBUG_JOB_TELEMETRY = DEFAULT;
+
     static {
         if (getDebugOption("/debug")) { //$NON-NLS-1$
             DEBUG_SWT_GRAPHICS = getDebugOption("/trace/graphics"); //$NON-NLS-1$
@@ -191,6 +198,7 @@ public class Policy {
             EXPERIMENTAL_MENU = getDebugOption("/experimental/menus"); //$NON-NLS-1$
             DEBUG_MPE = getDebugOption("/trace/multipageeditor"); //$NON-NLS-1$
             DEBUG_WORKING_SETS = getDebugOption("/debug/workingSets"); //$NON-NLS-1$
+            DEBUG_JOB_TELEMETRY = getDebugOption("/trace/jobTelemetry"); //$NON-NLS-1$
             
             if(DEBUG_SWT_DEBUG_GLOBAL)
             	Device.DEBUG = true;
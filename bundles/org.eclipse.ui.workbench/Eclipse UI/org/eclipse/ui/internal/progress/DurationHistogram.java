@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.progress;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The DurationHistogram is a thread safe histogram of durations with
+ * logarithmic buckets. Bucket 0 holds durations below one millisecond and
+ * bucket <code>i</code> holds durations from 2<sup>i-1</sup> up to 2<sup>i</sup>
+ * milliseconds. Recording a value never allocates.
+ *
+ * @since 3.8
+ */
+public class DurationHistogram {
+
+	/**
+	 * The number of buckets. The last bucket holds everything longer than
+	 * about 35 minutes.
+	 */
+	public static final int BUCKET_COUNT = 32;
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong total = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param nanos
+	 *            the duration in nanoseconds. Negative values are ignored.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		buckets.incrementAndGet(bucketFor(nanos));
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+		long currentMax;
+		while (nanos > (currentMax = max.get())) {
+			if (max.compareAndSet(currentMax, nanos)) {
+				break;
+			}
+		}
+	}
+
+	private static int bucketFor(long nanos) {
+		long millis = nanos / NANOS_PER_MILLI;
+		int bucket = 0;
+		while (millis > 0 && bucket < BUCKET_COUNT - 1) {
+			millis >>= 1;
+			bucket++;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Return the upper bound of the given bucket in milliseconds.
+	 *
+	 * @param bucket
+	 * @return long
+	 */
+	public static long getBucketLimit(int bucket) {
+		return 1L << bucket;
+	}
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the sum of all recorded durations in nanoseconds
+	 */
+	public long getTotal() {
+		return total.get();
+	}
+
+	/**
+	 * @return the longest recorded duration in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Return the number of durations recorded in the given bucket.
+	 *
+	 * @param bucket
+	 * @return long
+	 */
+	public long getBucketCount(int bucket) {
+		return buckets.get(bucket);
+	}
+
+	/**
+	 * Return an upper bound in milliseconds of the given percentile of the
+	 * recorded durations. The result is the limit of the bucket the percentile
+	 * falls into.
+	 *
+	 * @param percentile
+	 *            a value between 0 and 100
+	 * @return long or 0 if nothing was recorded
+	 */
+	public long getPercentile(int percentile) {
+		long recorded = 0;
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			recorded += counts[i];
+		}
+		if (recorded == 0) {
+			return 0;
+		}
+		long threshold = (recorded * percentile + 99) / 100;
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= threshold) {
+				return getBucketLimit(i);
+			}
+		}
+		return getBucketLimit(BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * Clear all recorded durations.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+}
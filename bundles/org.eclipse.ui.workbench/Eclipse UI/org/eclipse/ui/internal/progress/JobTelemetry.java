@@ -0,0 +1,429 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.progress;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * The JobTelemetry aggregates timing information about jobs and the UI thread
+ * so that responsiveness regressions can be found in running products.
+ * <p>
+ * For every job family it records how long jobs wait between being scheduled
+ * (including the requested delay) and starting to run, how long they run, how
+ * much CPU time their worker thread uses and how long they are blocked
+ * waiting for the UI thread in <code>syncExec</code>. It also records how long runnables posted with
+ * <code>asyncExec</code> wait before the UI thread runs them, which measures
+ * how long the display thread stalls.
+ * </p>
+ * <p>
+ * Jobs do not expose their families, so the family of a job is the name of its
+ * class. Telemetry is off by default. It is turned on by the
+ * <code>org.eclipse.ui.workbench/trace/jobTelemetry</code> debug option or
+ * programmatically with {@link #setEnabled(boolean)}.
+ * </p>
+ *
+ * @since 3.8
+ */
+public class JobTelemetry {
+
+	/**
+	 * The family used for UI blocking that did not happen inside a job.
+	 */
+	public static final String NO_JOB_FAMILY = "<no job>"; //$NON-NLS-1$
+
+	/*
+	 * Holds the singleton, so that getInstance() needs no lock on the
+	 * asyncExec and syncExec paths.
+	 */
+	private static class Holder {
+		static final JobTelemetry INSTANCE = new JobTelemetry();
+	}
+
+	/**
+	 * The statistics collected for one job family.
+	 */
+	public static class FamilyStatistics {
+
+		private final String family;
+
+		final DurationHistogram queueLatency = new DurationHistogram();
+
+		final DurationHistogram runTime = new DurationHistogram();
+
+		final DurationHistogram cpuTime = new DurationHistogram();
+
+		final DurationHistogram uiBlockingTime = new DurationHistogram();
+
+		FamilyStatistics(String family) {
+			this.family = family;
+		}
+
+		/**
+		 * @return the name of the family
+		 */
+		public String getFamily() {
+			return family;
+		}
+
+		/**
+		 * @return the time between scheduling and running
+		 */
+		public DurationHistogram getQueueLatency() {
+			return queueLatency;
+		}
+
+		/**
+		 * @return the wall clock time spent running
+		 */
+		public DurationHistogram getRunTime() {
+			return runTime;
+		}
+
+		/**
+		 * @return the CPU time of the worker thread while running
+		 */
+		public DurationHistogram getCpuTime() {
+			return cpuTime;
+		}
+
+		/**
+		 * @return the time spent waiting for the UI thread
+		 */
+		public DurationHistogram getUIBlockingTime() {
+			return uiBlockingTime;
+		}
+
+		void reset() {
+			queueLatency.reset();
+			runTime.reset();
+			cpuTime.reset();
+			uiBlockingTime.reset();
+		}
+	}
+
+	/**
+	 * The timestamps of a job that has been scheduled or is running.
+	 */
+	private static class JobTiming {
+		long expectedStart;
+
+		long started;
+
+		long cpuStarted = -1;
+
+		Thread thread;
+	}
+
+	private final ConcurrentMap families = new ConcurrentHashMap();
+
+	private final ConcurrentMap timings = new ConcurrentHashMap();
+
+	private final DurationHistogram displayLatency = new DurationHistogram();
+
+	/*
+	 * Set up by setEnabled(true), before the job listener is added
+	 */
+	private ThreadMXBean threads;
+
+	private boolean cpuTimeSupported = false;
+
+	private volatile boolean enabled = false;
+
+	private final IJobChangeListener jobListener = new JobChangeAdapter() {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#scheduled(org.eclipse.core.runtime.jobs.IJobChangeEvent)
+		 */
+		public void scheduled(IJobChangeEvent event) {
+			JobTiming timing = new JobTiming();
+			timing.expectedStart = System.nanoTime() + event.getDelay()
+					* 1000000L;
+			timings.put(event.getJob(), timing);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#running(org.eclipse.core.runtime.jobs.IJobChangeEvent)
+		 */
+		public void running(IJobChangeEvent event) {
+			JobTiming timing = (JobTiming) timings.get(event.getJob());
+			if (timing == null) {
+				return;
+			}
+			timing.started = System.nanoTime();
+			timing.thread = Thread.currentThread();
+			if (cpuTimeSupported) {
+				timing.cpuStarted = threads.getCurrentThreadCpuTime();
+			}
+			getStatistics(event.getJob()).queueLatency.record(Math.max(0,
+					timing.started - timing.expectedStart));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#sleeping(org.eclipse.core.runtime.jobs.IJobChangeEvent)
+		 */
+		public void sleeping(IJobChangeEvent event) {
+			timings.remove(event.getJob());
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#awake(org.eclipse.core.runtime.jobs.IJobChangeEvent)
+		 */
+		public void awake(IJobChangeEvent event) {
+			scheduled(event);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#done(org.eclipse.core.runtime.jobs.IJobChangeEvent)
+		 */
+		public void done(IJobChangeEvent event) {
+			Job job = event.getJob();
+			JobTiming timing = (JobTiming) timings.remove(job);
+			if (timing == null || timing.started == 0) {
+				// Cancelled before it ran
+				return;
+			}
+			long elapsed = System.nanoTime() - timing.started;
+			FamilyStatistics statistics = getStatistics(job);
+			statistics.runTime.record(elapsed);
+			if (timing.cpuStarted >= 0
+					&& timing.thread == Thread.currentThread()) {
+				statistics.cpuTime.record(threads.getCurrentThreadCpuTime()
+						- timing.cpuStarted);
+			}
+		}
+	};
+
+	/**
+	 * Return the singleton telemetry.
+	 *
+	 * @return JobTelemetry
+	 */
+	public static JobTelemetry getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	private JobTelemetry() {
+		// use getInstance()
+	}
+
+	/**
+	 * Turn on the measurement of the CPU time of threads, which the virtual
+	 * machine may not do by default. Called on the first enablement only.
+	 */
+	private void enableCpuTime() {
+		if (threads != null) {
+			return;
+		}
+		threads = ManagementFactory.getThreadMXBean();
+		boolean supported = false;
+		try {
+			supported = threads.isCurrentThreadCpuTimeSupported();
+			if (supported && !threads.isThreadCpuTimeEnabled()) {
+				threads.setThreadCpuTimeEnabled(true);
+			}
+		} catch (UnsupportedOperationException e) {
+			supported = false;
+		} catch (SecurityException e) {
+			supported = false;
+		}
+		cpuTimeSupported = supported;
+	}
+
+	/**
+	 * Return whether or not telemetry is being recorded.
+	 *
+	 * @return boolean
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Start or stop recording telemetry. Statistics recorded so far are kept.
+	 *
+	 * @param enable
+	 */
+	public synchronized void setEnabled(boolean enable) {
+		if (enable == enabled) {
+			return;
+		}
+		if (enable) {
+			enableCpuTime();
+		}
+		enabled = enable;
+		if (enable) {
+			Job.getJobManager().addJobChangeListener(jobListener);
+		} else {
+			Job.getJobManager().removeJobChangeListener(jobListener);
+			timings.clear();
+		}
+	}
+
+	private FamilyStatistics getStatistics(Job job) {
+		return getOrCreateStatistics(job == null ? NO_JOB_FAMILY : job
+				.getClass().getName());
+	}
+
+	private FamilyStatistics getOrCreateStatistics(String family) {
+		FamilyStatistics statistics = (FamilyStatistics) families.get(family);
+		if (statistics == null) {
+			statistics = new FamilyStatistics(family);
+			FamilyStatistics existing = (FamilyStatistics) families
+					.putIfAbsent(family, statistics);
+			if (existing != null) {
+				statistics = existing;
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Record that the current thread was blocked waiting for the UI thread.
+	 *
+	 * @param nanos
+	 *            the time spent waiting
+	 */
+	public void recordUIBlocking(long nanos) {
+		if (!enabled) {
+			return;
+		}
+		getStatistics(Job.getJobManager().currentJob()).uiBlockingTime
+				.record(nanos);
+	}
+
+	/**
+	 * Wrap the runnable so that the time until the UI thread runs it is
+	 * recorded. Answers the runnable itself if telemetry is off.
+	 *
+	 * @param runnable
+	 * @return Runnable
+	 */
+	public Runnable trackDisplayLatency(final Runnable runnable) {
+		if (!enabled || runnable == null) {
+			return runnable;
+		}
+		final long posted = System.nanoTime();
+		return new Runnable() {
+			public void run() {
+				displayLatency.record(System.nanoTime() - posted);
+				runnable.run();
+			}
+		};
+	}
+
+	/**
+	 * Return the names of the families that statistics have been recorded
+	 * for, sorted alphabetically.
+	 *
+	 * @return String[]
+	 */
+	public String[] getFamilies() {
+		String[] names = (String[]) families.keySet().toArray(
+				new String[families.size()]);
+		Arrays.sort(names);
+		return names;
+	}
+
+	/**
+	 * Return the statistics for the given family.
+	 *
+	 * @param family
+	 * @return FamilyStatistics or <code>null</code> if nothing was recorded
+	 */
+	public FamilyStatistics getStatistics(String family) {
+		return (FamilyStatistics) families.get(family);
+	}
+
+	/**
+	 * Return the time runnables posted to the UI thread waited to be run.
+	 *
+	 * @return DurationHistogram
+	 */
+	public DurationHistogram getDisplayLatency() {
+		return displayLatency;
+	}
+
+	/**
+	 * Clear all recorded statistics.
+	 */
+	public void reset() {
+		families.clear();
+		displayLatency.reset();
+	}
+
+	/**
+	 * Write a snapshot of the statistics as comma separated values. Each line
+	 * describes one metric of one family; durations are in milliseconds.
+	 *
+	 * @param writer
+	 */
+	public void writeSnapshot(PrintWriter writer) {
+		writer.println("family,metric,count,total,max,p50,p90,p99"); //$NON-NLS-1$
+		String[] names = getFamilies();
+		for (int i = 0; i < names.length; i++) {
+			FamilyStatistics statistics = getStatistics(names[i]);
+			if (statistics == null) {
+				continue;
+			}
+			writeHistogram(writer, names[i], "queueLatency", //$NON-NLS-1$
+					statistics.queueLatency);
+			writeHistogram(writer, names[i], "runTime", statistics.runTime); //$NON-NLS-1$
+			writeHistogram(writer, names[i], "cpuTime", statistics.cpuTime); //$NON-NLS-1$
+			writeHistogram(writer, names[i], "uiBlockingTime", //$NON-NLS-1$
+					statistics.uiBlockingTime);
+		}
+		writeHistogram(writer, "<display>", "dispatchLatency", displayLatency); //$NON-NLS-1$ //$NON-NLS-2$
+		writer.flush();
+	}
+
+	private static void writeHistogram(PrintWriter writer, String family,
+			String metric, DurationHistogram histogram) {
+		if (histogram.getCount() == 0) {
+			return;
+		}
+		writer.print('"');
+		writer.print(family);
+		writer.print("\","); //$NON-NLS-1$
+		writer.print(metric);
+		writer.print(',');
+		writer.print(histogram.getCount());
+		writer.print(',');
+		writer.print(histogram.getTotal() / 1000000L);
+		writer.print(',');
+		writer.print(histogram.getMax() / 1000000L);
+		writer.print(',');
+		writer.print(histogram.getPercentile(50));
+		writer.print(',');
+		writer.print(histogram.getPercentile(90));
+		writer.print(',');
+		writer.println(histogram.getPercentile(99));
+	}
+}
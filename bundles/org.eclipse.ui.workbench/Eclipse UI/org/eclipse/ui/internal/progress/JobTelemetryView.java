@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.progress;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.action.IMenuManager;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.ui.IActionBars;
+import org.eclipse.ui.internal.progress.JobTelemetry.FamilyStatistics;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * The JobTelemetryView shows the statistics recorded by the
+ * {@link JobTelemetry} for each job family and exports snapshots of them.
+ *
+ * @since 3.8
+ */
+public class JobTelemetryView extends ViewPart {
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	TableViewer viewer;
+
+	Label displayLatencyLabel;
+
+	Action enableAction;
+
+	Action refreshAction;
+
+	Action resetAction;
+
+	Action exportAction;
+
+	private class StatisticsLabelProvider extends LabelProvider implements
+			ITableLabelProvider {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.jface.viewers.ITableLabelProvider#getColumnImage(java.lang.Object,
+		 *      int)
+		 */
+		public Image getColumnImage(Object element, int columnIndex) {
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.jface.viewers.ITableLabelProvider#getColumnText(java.lang.Object,
+		 *      int)
+		 */
+		public String getColumnText(Object element, int columnIndex) {
+			FamilyStatistics statistics = (FamilyStatistics) element;
+			switch (columnIndex) {
+			case 0:
+				return statistics.getFamily();
+			case 1:
+				return String.valueOf(statistics.getRunTime().getCount());
+			case 2:
+				return String.valueOf(statistics.getQueueLatency()
+						.getPercentile(90));
+			case 3:
+				return String.valueOf(statistics.getRunTime().getPercentile(90));
+			case 4:
+				return millis(statistics.getRunTime().getMax());
+			case 5:
+				return millis(statistics.getCpuTime().getTotal());
+			case 6:
+				return millis(statistics.getUIBlockingTime().getTotal());
+			}
+			return ""; //$NON-NLS-1$
+		}
+	}
+
+	static String millis(long nanos) {
+		return String.valueOf(nanos / NANOS_PER_MILLI);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.ui.IWorkbenchPart#createPartControl(org.eclipse.swt.widgets.Composite)
+	 */
+	public void createPartControl(Composite parent) {
+		GridLayout layout = new GridLayout();
+		layout.marginWidth = 0;
+		layout.marginHeight = 0;
+		parent.setLayout(layout);
+
+		displayLatencyLabel = new Label(parent, SWT.NONE);
+		displayLatencyLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER,
+				true, false));
+
+		viewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL
+				| SWT.V_SCROLL | SWT.FULL_SELECTION);
+		Table table = viewer.getTable();
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+		table.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+		createColumn(table, ProgressMessages.JobTelemetryView_FamilyColumn,
+				SWT.LEFT, 300);
+		createColumn(table, ProgressMessages.JobTelemetryView_CountColumn,
+				SWT.RIGHT, 60);
+		createColumn(table, ProgressMessages.JobTelemetryView_QueueColumn,
+				SWT.RIGHT, 100);
+		createColumn(table, ProgressMessages.JobTelemetryView_RunColumn,
+				SWT.RIGHT, 100);
+		createColumn(table, ProgressMessages.JobTelemetryView_MaxRunColumn,
+				SWT.RIGHT, 100);
+		createColumn(table, ProgressMessages.JobTelemetryView_CpuColumn,
+				SWT.RIGHT, 100);
+		createColumn(table, ProgressMessages.JobTelemetryView_UIBlockedColumn,
+				SWT.RIGHT, 120);
+
+		viewer.setContentProvider(new ArrayContentProvider());
+		viewer.setLabelProvider(new StatisticsLabelProvider());
+
+		createActions();
+		initToolBar();
+		refresh();
+	}
+
+	private void createColumn(Table table, String text, int style, int width) {
+		TableColumn column = new TableColumn(table, style);
+		column.setText(text);
+		column.setWidth(width);
+	}
+
+	private void createActions() {
+		enableAction = new Action(
+				ProgressMessages.JobTelemetryView_EnableAction,
+				IAction.AS_CHECK_BOX) {
+			/*
+			 * (non-Javadoc)
+			 *
+			 * @see org.eclipse.jface.action.Action#run()
+			 */
+			public void run() {
+				JobTelemetry.getInstance().setEnabled(isChecked());
+				refresh();
+			}
+		};
+		enableAction.setChecked(JobTelemetry.getInstance().isEnabled());
+
+		refreshAction = new Action(
+				ProgressMessages.JobTelemetryView_RefreshAction) {
+			/*
+			 * (non-Javadoc)
+			 *
+			 * @see org.eclipse.jface.action.Action#run()
+			 */
+			public void run() {
+				refresh();
+			}
+		};
+
+		resetAction = new Action(ProgressMessages.JobTelemetryView_ResetAction) {
+			/*
+			 * (non-Javadoc)
+			 *
+			 * @see org.eclipse.jface.action.Action#run()
+			 */
+			public void run() {
+				JobTelemetry.getInstance().reset();
+				refresh();
+			}
+		};
+
+		exportAction = new Action(
+				ProgressMessages.JobTelemetryView_ExportAction) {
+			/*
+			 * (non-Javadoc)
+			 *
+			 * @see org.eclipse.jface.action.Action#run()
+			 */
+			public void run() {
+				exportSnapshot();
+			}
+		};
+	}
+
+	private void initToolBar() {
+		IActionBars bars = getViewSite().getActionBars();
+		IToolBarManager toolBar = bars.getToolBarManager();
+		toolBar.add(refreshAction);
+		IMenuManager menu = bars.getMenuManager();
+		menu.add(enableAction);
+		menu.add(refreshAction);
+		menu.add(resetAction);
+		menu.add(exportAction);
+	}
+
+	/**
+	 * Update the receiver with the statistics recorded so far.
+	 */
+	void refresh() {
+		if (viewer == null || viewer.getControl().isDisposed()) {
+			return;
+		}
+		JobTelemetry telemetry = JobTelemetry.getInstance();
+		String[] families = telemetry.getFamilies();
+		FamilyStatistics[] statistics = new FamilyStatistics[families.length];
+		int count = 0;
+		for (int i = 0; i < families.length; i++) {
+			FamilyStatistics familyStatistics = telemetry
+					.getStatistics(families[i]);
+			if (familyStatistics != null) {
+				statistics[count++] = familyStatistics;
+			}
+		}
+		if (count < statistics.length) {
+			FamilyStatistics[] trimmed = new FamilyStatistics[count];
+			System.arraycopy(statistics, 0, trimmed, 0, count);
+			statistics = trimmed;
+		}
+		viewer.setInput(statistics);
+
+		if (telemetry.isEnabled()) {
+			DurationHistogram latency = telemetry.getDisplayLatency();
+			displayLatencyLabel.setText(NLS.bind(
+					ProgressMessages.JobTelemetryView_DisplayLatency,
+					new Object[] { String.valueOf(latency.getCount()),
+							String.valueOf(latency.getPercentile(90)),
+							millis(latency.getMax()) }));
+		} else {
+			displayLatencyLabel
+					.setText(ProgressMessages.JobTelemetryView_Disabled);
+		}
+	}
+
+	/**
+	 * Ask for a file and write a snapshot of the statistics to it.
+	 */
+	void exportSnapshot() {
+		FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+		dialog.setFilterExtensions(new String[] { "*.csv" }); //$NON-NLS-1$
+		String path = dialog.open();
+		if (path == null) {
+			return;
+		}
+		PrintWriter writer = null;
+		try {
+			writer = new PrintWriter(new FileWriter(path));
+			JobTelemetry.getInstance().writeSnapshot(writer);
+			if (writer.checkError()) {
+				throw new IOException();
+			}
+		} catch (IOException e) {
+			MessageDialog.openError(getSite().getShell(),
+					ProgressMessages.JobTelemetryView_ExportErrorTitle, NLS
+							.bind(ProgressMessages.JobTelemetryView_ExportErrorMessage,
+									path));
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.ui.IWorkbenchPart#setFocus()
+	 */
+	public void setFocus() {
+		if (viewer != null) {
+			viewer.getControl().setFocus();
+		}
+	}
+}
@@ -369,6 +369,10 @@ public class ProgressManager extends ProgressProvider implements
 		Job.getJobManager().setProgressProvider(this);
 		Job.getJobManager().addJobChangeListener(this.changeListener);
 		StatusManager.getManager().addListener(notificationListener);
+
+		if (Policy.DEBUG_JOB_TELEMETRY) {
+			JobTelemetry.getInstance().setEnabled(true);
+		}
 	}
 
 	private void setUpImages() {
@@ -1031,6 +1035,7 @@ public class ProgressManager extends ProgressProvider implements
 		listeners.clear();
 		Job.getJobManager().setProgressProvider(null);
 		Job.getJobManager().removeJobChangeListener(this.changeListener);
+		JobTelemetry.getInstance().setEnabled(false);
 	}
 
 	/*
@@ -71,6 +71,22 @@ public class ProgressMessages extends NLS {
 	public static String JobsViewPreferenceDialog_Title;
 	public static String JobErrorDialog_DoNotShowAgainMessage;
 
+	public static String JobTelemetryView_EnableAction;
+	public static String JobTelemetryView_RefreshAction;
+	public static String JobTelemetryView_ResetAction;
+	public static String JobTelemetryView_ExportAction;
+	public static String JobTelemetryView_ExportErrorTitle;
+	public static String JobTelemetryView_ExportErrorMessage;
+	public static String JobTelemetryView_FamilyColumn;
+	public static String JobTelemetryView_CountColumn;
+	public static String JobTelemetryView_QueueColumn;
+	public static String JobTelemetryView_RunColumn;
+	public static String JobTelemetryView_MaxRunColumn;
+	public static String JobTelemetryView_CpuColumn;
+	public static String JobTelemetryView_UIBlockedColumn;
+	public static String JobTelemetryView_DisplayLatency;
+	public static String JobTelemetryView_Disabled;
+
 	static {
 		// load message values from bundle file
 		NLS.initializeMessages(BUNDLE_NAME, ProgressMessages.class);
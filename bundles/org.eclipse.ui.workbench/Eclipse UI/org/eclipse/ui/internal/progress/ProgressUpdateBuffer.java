@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.progress;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The ProgressUpdateBuffer is a bounded, lock free ring buffer of the changes
+ * reported to the progress viewers. Any number of threads may post changes
+ * while a single consumer drains them. Draining collapses all of the changes
+ * posted for an element into the minimal delta for that element, so a job
+ * that is created, updated and finished between two drains never reaches the
+ * viewers at all.
+ * <p>
+ * If the producers get more than the capacity of the buffer ahead of the
+ * consumer, further changes are not recorded and the next drain asks for a
+ * full refresh instead. The memory used is therefore bounded no matter how
+ * many jobs churn.
+ * </p>
+ *
+ * @since 3.8
+ */
+public class ProgressUpdateBuffer {
+
+	/**
+	 * The default number of changes held between two drains.
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	static final int ADD = 0;
+
+	static final int REMOVE = 1;
+
+	static final int REFRESH = 2;
+
+	/**
+	 * A change posted to the buffer.
+	 */
+	private static final class Update {
+		final JobTreeElement element;
+
+		final int kind;
+
+		Update(JobTreeElement element, int kind) {
+			this.element = element;
+			this.kind = kind;
+		}
+	}
+
+	/**
+	 * The net effect of the changes to one element within a drain.
+	 */
+	private static final class NetChange {
+		static final int UNCHANGED = 0;
+
+		static final int ADDED = 1;
+
+		static final int REMOVED = 2;
+
+		static final int REFRESHED = 3;
+
+		// Added and removed before the viewers ever saw it
+		static final int CANCELLED = 4;
+
+		int state = UNCHANGED;
+
+		// Whether the element has to be removed before it is added again
+		boolean removeFirst = false;
+
+		void apply(int kind) {
+			switch (kind) {
+			case ADD:
+				if (state == REMOVED) {
+					removeFirst = true;
+				}
+				state = ADDED;
+				break;
+			case REMOVE:
+				if (state == ADDED && !removeFirst) {
+					state = CANCELLED;
+				} else if (state != CANCELLED) {
+					removeFirst = false;
+					state = REMOVED;
+				}
+				break;
+			case REFRESH:
+				if (state == UNCHANGED) {
+					state = REFRESHED;
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * The Delta is the minimal set of changes the viewers need to apply. If
+	 * {@link #isUpdateAll()} is <code>true</code> the viewers must refresh
+	 * completely and the arrays are empty.
+	 */
+	public static final class Delta {
+
+		private static final Object[] EMPTY = new Object[0];
+
+		final Object[] additions;
+
+		final Object[] deletions;
+
+		final Object[] refreshes;
+
+		final boolean updateAll;
+
+		Delta(Object[] additions, Object[] deletions, Object[] refreshes,
+				boolean updateAll) {
+			this.additions = additions;
+			this.deletions = deletions;
+			this.refreshes = refreshes;
+			this.updateAll = updateAll;
+		}
+
+		/**
+		 * @return the elements to add
+		 */
+		public Object[] getAdditions() {
+			return additions;
+		}
+
+		/**
+		 * @return the elements to remove. These must be removed before the
+		 *         additions are applied.
+		 */
+		public Object[] getDeletions() {
+			return deletions;
+		}
+
+		/**
+		 * @return the elements to refresh
+		 */
+		public Object[] getRefreshes() {
+			return refreshes;
+		}
+
+		/**
+		 * @return <code>true</code> if the viewers must refresh completely
+		 */
+		public boolean isUpdateAll() {
+			return updateAll;
+		}
+
+		/**
+		 * @return <code>true</code> if there is nothing to update
+		 */
+		public boolean isEmpty() {
+			return !updateAll && additions.length == 0
+					&& deletions.length == 0 && refreshes.length == 0;
+		}
+	}
+
+	private final AtomicReferenceArray slots;
+
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	// Only written by the consumer
+	private volatile long head = 0;
+
+	private final AtomicBoolean updateAll = new AtomicBoolean();
+
+	/**
+	 * Create a buffer with the {@link #DEFAULT_CAPACITY}.
+	 */
+	public ProgressUpdateBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a buffer that holds at least capacity changes between drains.
+	 *
+	 * @param capacity
+	 */
+	public ProgressUpdateBuffer(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		slots = new AtomicReferenceArray(size);
+		mask = size - 1;
+	}
+
+	/**
+	 * Return the number of changes the buffer holds between two drains.
+	 *
+	 * @return int
+	 */
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	/**
+	 * Post that element was added.
+	 *
+	 * @param element
+	 */
+	public void add(JobTreeElement element) {
+		post(element, ADD);
+	}
+
+	/**
+	 * Post that element was removed.
+	 *
+	 * @param element
+	 */
+	public void remove(JobTreeElement element) {
+		post(element, REMOVE);
+	}
+
+	/**
+	 * Post that element changed.
+	 *
+	 * @param element
+	 */
+	public void refresh(JobTreeElement element) {
+		post(element, REFRESH);
+	}
+
+	/**
+	 * Post that everything has to be refreshed.
+	 */
+	public void refreshAll() {
+		updateAll.set(true);
+	}
+
+	private void post(JobTreeElement element, int kind) {
+		while (true) {
+			long slot = tail.get();
+			if (slot - head >= slots.length()) {
+				// The consumer is too far behind. Stop recording and refresh
+				// everything on the next drain.
+				updateAll.set(true);
+				return;
+			}
+			if (tail.compareAndSet(slot, slot + 1)) {
+				slots.set((int) (slot & mask), new Update(element, kind));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Return whether or not there are changes that have not been drained.
+	 *
+	 * @return boolean
+	 */
+	public boolean hasPending() {
+		return updateAll.get() || head != tail.get();
+	}
+
+	/**
+	 * Remove all of the changes posted so far and return their collapsed
+	 * delta. Must only be called by one thread at a time.
+	 *
+	 * @return Delta
+	 */
+	public Delta drain() {
+		boolean all = updateAll.getAndSet(false);
+		Map changes = new LinkedHashMap();
+
+		long next = head;
+		long last = tail.get();
+		while (next < last) {
+			int index = (int) (next & mask);
+			Update update = (Update) slots.get(index);
+			if (update == null) {
+				// Claimed but not yet published. Leave it for the next drain.
+				break;
+			}
+			slots.set(index, null);
+			next++;
+			if (!all) {
+				NetChange change = (NetChange) changes.get(update.element);
+				if (change == null) {
+					change = new NetChange();
+					changes.put(update.element, change);
+				}
+				change.apply(update.kind);
+			}
+		}
+		head = next;
+
+		if (all) {
+			return new Delta(Delta.EMPTY, Delta.EMPTY, Delta.EMPTY, true);
+		}
+		return createDelta(changes);
+	}
+
+	private Delta createDelta(Map changes) {
+		List additions = new ArrayList();
+		List deletions = new ArrayList();
+		List refreshes = new ArrayList();
+
+		Iterator iterator = changes.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry entry = (Map.Entry) iterator.next();
+			JobTreeElement element = (JobTreeElement) entry.getKey();
+			NetChange change = (NetChange) entry.getValue();
+			switch (change.state) {
+			case NetChange.ADDED:
+				if (change.removeFirst) {
+					deletions.add(element);
+				}
+				additions.add(element);
+				break;
+			case NetChange.REMOVED:
+				deletions.add(element);
+				break;
+			case NetChange.REFRESHED:
+				if (!element.isActive()) {
+					// If it is done then delete it
+					deletions.add(element);
+					break;
+				}
+				// Groups being added or removed refresh their children anyway
+				NetChange parentChange = (NetChange) changes.get(element
+						.getParent());
+				if (parentChange == null
+						|| (parentChange.state != NetChange.ADDED && parentChange.state != NetChange.REMOVED)) {
+					refreshes.add(element);
+				}
+				break;
+			}
+		}
+
+		return new Delta(additions.toArray(), deletions.toArray(), refreshes
+				.toArray(), false);
+	}
+}
@@ -10,9 +10,7 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.progress;
 
-import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -34,113 +32,11 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 
     Job updateJob;
 
-    UpdatesInfo currentInfo = new UpdatesInfo();
-
-    Object updateLock = new Object();
+    ProgressUpdateBuffer updates = new ProgressUpdateBuffer();
 
     boolean debug;
     
    
-    /**
-     * The UpdatesInfo is a private class for keeping track of the updates
-     * required.
-     */
-    class UpdatesInfo {
-
-        Collection additions = new HashSet();
-
-        Collection deletions = new HashSet();
-
-        Collection refreshes = new HashSet();
-
-        boolean updateAll = false;
-
-        private UpdatesInfo() {
-            //Create a new instance of the info
-        }
-
-        /**
-         * Add an add update
-         * 
-         * @param addition
-         */
-        void add(JobTreeElement addition) {
-            additions.add(addition);
-        }
-
-        /**
-         * Add a remove update
-         * 
-         * @param removal
-         */
-        void remove(JobTreeElement removal) {
-            deletions.add(removal);
-        }
-
-        /**
-         * Add a refresh update
-         * 
-         * @param refresh
-         */
-        void refresh(JobTreeElement refresh) {
-            refreshes.add(refresh);
-        }
-
-        /**
-         * Reset the caches after completion of an update.
-         */
-        void reset() {
-            additions.clear();
-            deletions.clear();
-            refreshes.clear();
-            updateAll = false;
-        }
-
-        void processForUpdate() {
-            HashSet staleAdditions = new HashSet();
-
-            Iterator additionsIterator = additions.iterator();
-            while (additionsIterator.hasNext()) {
-                JobTreeElement treeElement = (JobTreeElement) additionsIterator
-                        .next();
-                if (!treeElement.isActive()) {
-                    if (deletions.contains(treeElement)) {
-						staleAdditions.add(treeElement);
-					}
-                }
-            }
-
-            additions.removeAll(staleAdditions);
-
-            HashSet obsoleteRefresh = new HashSet();
-            Iterator refreshIterator = refreshes.iterator();
-            while (refreshIterator.hasNext()) {
-                JobTreeElement treeElement = (JobTreeElement) refreshIterator
-                        .next();
-                if (deletions.contains(treeElement)
-                        || additions.contains(treeElement)) {
-					obsoleteRefresh.add(treeElement);
-				}
-                
-                //Also check for groups that are being added
-               Object parent = treeElement.getParent();
-               if(parent != null && (deletions.contains(parent)
-                       || additions.contains(parent))){
-            	   obsoleteRefresh.add(treeElement);
-               }
-               
-                if (!treeElement.isActive()) {
-                    //If it is done then delete it
-                    obsoleteRefresh.add(treeElement);
-                    deletions.add(treeElement);
-                }
-            }
-
-            refreshes.removeAll(obsoleteRefresh);
-
-        }
-    }
-
     /**
      * Return a new instance of the receiver.
      * 
@@ -252,44 +148,43 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 					return Status.CANCEL_STATUS;
 				}
 
-                if (currentInfo.updateAll) {
-                    synchronized (updateLock) {
-                        currentInfo.reset();
-                    }
+                ProgressUpdateBuffer.Delta delta = updates.drain();
+                if (delta.isUpdateAll()) {
                     for (int i = 0; i < collectors.length; i++) {
                         collectors[i].refresh();
                     }
 
-                } else {
-                    //Lock while getting local copies of the caches.
-                    Object[] updateItems;
-                    Object[] additionItems;
-                    Object[] deletionItems;
-                    synchronized (updateLock) {
-                        currentInfo.processForUpdate();
-
-                        updateItems = currentInfo.refreshes.toArray();
-                        additionItems = currentInfo.additions.toArray();
-                        deletionItems = currentInfo.deletions.toArray();
-
-                        currentInfo.reset();
-                    }
+                } else if (!delta.isEmpty()) {
+                    Object[] updateItems = delta.getRefreshes();
+                    Object[] additionItems = delta.getAdditions();
+                    Object[] deletionItems = delta.getDeletions();
 
                     for (int v = 0; v < collectors.length; v++) {
+                        if (monitor.isCanceled()) {
+                            //The remaining collectors missed this delta
+                            updates.refreshAll();
+                            scheduleUpdate();
+                            return Status.CANCEL_STATUS;
+                        }
                         IProgressUpdateCollector collector = collectors[v];
 
-                        if (updateItems.length > 0) {
-							collector.refresh(updateItems);
+                        if (deletionItems.length > 0) {
+							collector.remove(deletionItems);
 						}
                         if (additionItems.length > 0) {
 							collector.add(additionItems);
 						}
-                        if (deletionItems.length > 0) {
-							collector.remove(deletionItems);
+                        if (updateItems.length > 0) {
+							collector.refresh(updateItems);
 						}
                     }
                 }
 
+                //Pick up anything that was still being posted
+                if (updates.hasPending()) {
+                    updateJob.schedule(100);
+                }
+
                 return Status.OK_STATUS;
             }
         };
@@ -299,15 +194,6 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 
     }
 
-    /**
-     * Get the updates info that we are using in the receiver.
-     * 
-     * @return Returns the currentInfo.
-     */
-    UpdatesInfo getCurrentInfo() {
-        return currentInfo;
-    }
-
     /**
      * Refresh the supplied JobInfo.
      * @param info
@@ -318,13 +204,11 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 			return;
 		}
 
-        synchronized (updateLock) {
-            currentInfo.refresh(info);
-            GroupInfo group = info.getGroupInfo();
-            if (group != null) {
-				currentInfo.refresh(group);
-			}
-        }
+        updates.refresh(info);
+        GroupInfo group = info.getGroupInfo();
+        if (group != null) {
+			updates.refresh(group);
+		}
         //Add in a 100ms delay so as to keep priority low
         scheduleUpdate();
 
@@ -339,9 +223,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 			return;
 		}
 
-        synchronized (updateLock) {
-            currentInfo.refresh(info);
-        }
+        updates.refresh(info);
         //Add in a 100ms delay so as to keep priority low
         scheduleUpdate();
 
@@ -351,9 +233,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
      * @see org.eclipse.ui.internal.progress.IJobProgressManagerListener#refreshGroup(org.eclipse.ui.internal.progress.GroupInfo)
      */
     public void refreshGroup(GroupInfo info) {
-        synchronized (updateLock) {
-            currentInfo.refresh(info);
-        }
+        updates.refresh(info);
         //Add in a 100ms delay so as to keep priority low
         scheduleUpdate();
 
@@ -364,9 +244,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
      */
     public void addGroup(GroupInfo info) {
 
-        synchronized (updateLock) {
-            currentInfo.add(info);
-        }
+        updates.add(info);
         scheduleUpdate();
 
     }
@@ -378,9 +256,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
      */
     public void refreshAll() {
 
-        synchronized (updateLock) {
-            currentInfo.updateAll = true;
-        }
+        updates.refreshAll();
 
         //Add in a 100ms delay so as to keep priority low
         scheduleUpdate();
@@ -398,14 +274,11 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 			return;
 		}
 
-        synchronized (updateLock) {
-            GroupInfo group = info.getGroupInfo();
-
-            if (group == null) {
-				currentInfo.add(info);
-			} else {
-                currentInfo.refresh(group);
-            }
+        GroupInfo group = info.getGroupInfo();
+        if (group == null) {
+			updates.add(info);
+		} else {
+            updates.refresh(group);
         }
         scheduleUpdate();
 
@@ -422,13 +295,11 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 			return;
 		}
 
-        synchronized (updateLock) {
-            GroupInfo group = info.getGroupInfo();
-            if (group == null) {
-				currentInfo.remove(info);
-			} else {
-                currentInfo.refresh(group);
-            }
+        GroupInfo group = info.getGroupInfo();
+        if (group == null) {
+			updates.remove(info);
+		} else {
+            updates.refresh(group);
         }
         scheduleUpdate();
     }
@@ -437,9 +308,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
      * @see org.eclipse.ui.internal.progress.IJobProgressManagerListener#removeGroup(org.eclipse.ui.internal.progress.GroupInfo)
      */
     public void removeGroup(GroupInfo group) {
-        synchronized (updateLock) {
-            currentInfo.remove(group);
-        }
+        updates.remove(group);
         scheduleUpdate();
 
     }
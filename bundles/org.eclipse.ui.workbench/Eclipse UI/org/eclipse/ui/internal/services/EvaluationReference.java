@@ -13,6 +13,7 @@ package org.eclipse.ui.internal.services;
 
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionInfo;
 import org.eclipse.core.expressions.IEvaluationContext;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.contexts.IEclipseContext;
@@ -38,6 +39,7 @@ public class EvaluationReference extends RunAndTrack implements IEvaluationRefer
 	boolean participating = true;
 	boolean postingChanges = true;
 	boolean hasRun = false;
+	private ExpressionInfo expressionInfo;
 
 	public EvaluationReference(IEclipseContext context, Expression expression,
 			IPropertyChangeListener listener, String property) {
@@ -78,6 +80,20 @@ public class EvaluationReference extends RunAndTrack implements IEvaluationRefer
 		return sourcePriority;
 	}
 
+	/**
+	 * Returns the variables and properties the expression depends on. It is
+	 * computed once, as the expression never changes.
+	 * 
+	 * @return the expression info; never <code>null</code>
+	 */
+	ExpressionInfo getExpressionInfo() {
+		if (expressionInfo == null) {
+			expressionInfo = expression == null ? new ExpressionInfo() : expression
+					.computeExpressionInfo();
+		}
+		return expressionInfo;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -128,6 +144,17 @@ public class EvaluationReference extends RunAndTrack implements IEvaluationRefer
 	public void evaluate() {
 		boolean value = cache;
 		evaluate(new ExpressionContext(context));
+		firePropertyChange(value);
+	}
+
+	/**
+	 * Notifies the listener of the current result, given the result before
+	 * the last evaluation.
+	 * 
+	 * @param value
+	 *            the result before the last evaluation
+	 */
+	void firePropertyChange(boolean value) {
 		if (!postingChanges) {
 			return;
 		}
@@ -14,11 +14,14 @@ package org.eclipse.ui.internal.services;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionInfo;
 import org.eclipse.core.expressions.IEvaluationContext;
@@ -59,19 +62,60 @@ public final class EvaluationService implements IEvaluationService {
 	private ISourceProviderListener contextUpdater;
 
 	private HashSet<String> ratVariables = new HashSet<String>();
+
+	/**
+	 * The values last copied into the ratContext, used to tell which
+	 * variables actually changed.
+	 */
+	private HashMap<String, Object> ratValues = new HashMap<String, Object>();
+
+	/**
+	 * The references to re-evaluate when a variable changes. References whose
+	 * expression accesses the default variable are listed under the active
+	 * selection.
+	 */
+	private HashMap<String, Set<EvaluationReference>> refsByVariable = new HashMap<String, Set<EvaluationReference>>();
+
+	/**
+	 * The references to re-evaluate when a property is requested to be
+	 * re-evaluated.
+	 */
+	private HashMap<String, Set<EvaluationReference>> refsByProperty = new HashMap<String, Set<EvaluationReference>>();
+
+	/**
+	 * The references whose expressions may read context values they do not
+	 * report. The context tracks the values these actually read while they
+	 * are evaluated, so they are not in refsByVariable.
+	 */
+	private HashSet<EvaluationReference> trackedRefs = new HashSet<EvaluationReference>();
+
 	private RunAndTrack ratUpdater = new RunAndTrack() {
 		@Override
 		public boolean changed(IEclipseContext context) {
 			context.get(RE_EVAL);
 			String[] vars = ratVariables.toArray(new String[ratVariables.size()]);
+			final Set<String> changedVars = new HashSet<String>();
 			for (String var : vars) {
 				Object value = context.getActive(var);
 				if (value == null) {
-					ratContext.remove(var);
-				} else {
+					if (ratValues.remove(var) != null) {
+						ratContext.remove(var);
+						changedVars.add(var);
+					}
+				} else if (ratValues.put(var, value) != value) {
 					ratContext.set(var, value);
+					changedVars.add(var);
 				}
 			}
+			if (!changedVars.isEmpty()) {
+				// only the variables above are dependencies of the updater,
+				// not what the expressions and listeners read
+				runExternalCode(new Runnable() {
+					public void run() {
+						evaluateAffected(changedVars);
+					}
+				});
+			}
 			return true;
 		}
 	};
@@ -134,6 +178,136 @@ public final class EvaluationService implements IEvaluationService {
 			legacyContext.addVariable(name, value);
 		}
 	}
+	/**
+	 * Re-evaluates the indexed references that depend on any of the changed
+	 * variables. The tracked references are re-evaluated by the context.
+	 * 
+	 * @param changedVars
+	 *            the names of the variables whose values changed
+	 */
+	private void evaluateAffected(Set<String> changedVars) {
+		LinkedHashSet<EvaluationReference> affected = new LinkedHashSet<EvaluationReference>();
+		for (String var : changedVars) {
+			Set<EvaluationReference> dependents = refsByVariable.get(var);
+			if (dependents != null) {
+				affected.addAll(dependents);
+			}
+		}
+		evaluateBatch(affected, changedVars.toArray(new String[changedVars.size()]));
+	}
+
+	/**
+	 * Evaluates all of the given references before notifying any listener,
+	 * so listeners see one consistent change set bracketed by a single
+	 * {@link IEvaluationService#PROP_NOTIFYING} notification.
+	 * 
+	 * @param batch
+	 *            the references to evaluate
+	 * @param sourceNames
+	 *            the names of the sources that changed
+	 */
+	private void evaluateBatch(Set<EvaluationReference> batch, String[] sourceNames) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		EvaluationReference[] evaluated = batch.toArray(new EvaluationReference[batch.size()]);
+		boolean[] oldValues = new boolean[evaluated.length];
+		ExpressionContext evaluationContext = new ExpressionContext(ratContext);
+		for (int i = 0; i < evaluated.length; i++) {
+			oldValues[i] = evaluated[i].cache;
+			if (evaluated[i].participating) {
+				evaluated[i].evaluate(evaluated[i].context == ratContext ? evaluationContext
+						: new ExpressionContext(evaluated[i].context));
+			}
+		}
+		startSourceChange(sourceNames);
+		try {
+			for (int i = 0; i < evaluated.length; i++) {
+				if (evaluated[i].participating) {
+					evaluated[i].firePropertyChange(oldValues[i]);
+				}
+			}
+		} finally {
+			endSourceChange(sourceNames);
+		}
+	}
+
+	/**
+	 * Returns whether the expression may read context values that its
+	 * expression info does not report. Expressions of unknown types, property
+	 * testers and expressions that report no variable at all are evaluated
+	 * with the context tracking what they read.
+	 */
+	private static boolean needsTracking(ExpressionInfo info) {
+		return info.getMisbehavingExpressionTypes() != null
+				|| info.getAccessedPropertyNames().length > 0
+				|| (info.getAccessedVariableNames().length == 0 && !info
+						.hasDefaultVariableAccess());
+	}
+
+	/**
+	 * Indexes the reference by the properties it tests, and by the variables
+	 * it reads unless the context tracks its reads.
+	 * 
+	 * @return whether the context must track the reads of the reference
+	 */
+	private boolean index(EvaluationReference ref) {
+		if (ref.getExpression() == null) {
+			return false;
+		}
+		ExpressionInfo info = ref.getExpressionInfo();
+		for (String propertyName : info.getAccessedPropertyNames()) {
+			addToIndex(refsByProperty, propertyName, ref);
+		}
+		if (needsTracking(info)) {
+			trackedRefs.add(ref);
+			return true;
+		}
+		for (String varName : info.getAccessedVariableNames()) {
+			addToIndex(refsByVariable, varName, ref);
+		}
+		if (info.hasDefaultVariableAccess()) {
+			addToIndex(refsByVariable, IServiceConstants.ACTIVE_SELECTION, ref);
+		}
+		return false;
+	}
+
+	private void unindex(EvaluationReference ref) {
+		if (ref.getExpression() == null) {
+			return;
+		}
+		ExpressionInfo info = ref.getExpressionInfo();
+		if (!trackedRefs.remove(ref)) {
+			for (String varName : info.getAccessedVariableNames()) {
+				removeFromIndex(refsByVariable, varName, ref);
+			}
+			if (info.hasDefaultVariableAccess()) {
+				removeFromIndex(refsByVariable, IServiceConstants.ACTIVE_SELECTION, ref);
+			}
+		}
+		for (String propertyName : info.getAccessedPropertyNames()) {
+			removeFromIndex(refsByProperty, propertyName, ref);
+		}
+	}
+
+	private static void addToIndex(Map<String, Set<EvaluationReference>> index, String key,
+			EvaluationReference ref) {
+		Set<EvaluationReference> set = index.get(key);
+		if (set == null) {
+			set = new LinkedHashSet<EvaluationReference>();
+			index.put(key, set);
+		}
+		set.add(ref);
+	}
+
+	private static void removeFromIndex(Map<String, Set<EvaluationReference>> index,
+			String key, EvaluationReference ref) {
+		Set<EvaluationReference> set = index.get(key);
+		if (set != null && set.remove(ref) && set.isEmpty()) {
+			index.remove(key);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -195,6 +369,9 @@ public final class EvaluationService implements IEvaluationService {
 			invalidate(ref, false);
 		}
 		refs.clear();
+		refsByVariable.clear();
+		refsByProperty.clear();
+		trackedRefs.clear();
 		serviceListeners.clear();
 	}
 
@@ -248,8 +425,7 @@ public final class EvaluationService implements IEvaluationService {
 		refs.add(eref);
 		boolean changed = false;
 		if (eref.getExpression() != null) {
-			ExpressionInfo info = new ExpressionInfo();
-			eref.getExpression().collectExpressionInfo(info);
+			ExpressionInfo info = eref.getExpressionInfo();
 			for (String varName : info.getAccessedVariableNames()) {
 				if (ratVariables.add(varName)) {
 					changed = true;
@@ -261,22 +437,29 @@ public final class EvaluationService implements IEvaluationService {
 				changed = true;
 			}
 		}
+		eref.participating = true;
+		boolean tracked = index(eref);
 		if (changed) {
+			// copies the new variables, which may already evaluate the reference
 			contextEvaluate();
 		}
-		eref.participating = true;
-		ratContext.runAndTrack(eref);
+		if (tracked) {
+			// evaluates the reference, and again whenever what it read changes
+			ratContext.runAndTrack(eref);
+		} else if (!eref.hasRun) {
+			eref.evaluate();
+		}
 	}
 
 	private void invalidate(IEvaluationReference ref, boolean remove) {
+		EvaluationReference eref = (EvaluationReference) ref;
 		if (remove) {
 			refs.remove(ref);
+			unindex(eref);
 		}
-		EvaluationReference eref = (EvaluationReference) ref;
 		eref.participating = false;
 		eref.evaluate();
 		eref.hasRun = false;
-		contextEvaluate();
 	}
 
 	/*
@@ -308,22 +491,12 @@ public final class EvaluationService implements IEvaluationService {
 		context.remove(pokeVar);
 		context.set(pokeVar, "link"); //$NON-NLS-1$
 
-		String[] sourceNames = new String[] { propertyName };
-		startSourceChange(sourceNames);
-		for (EvaluationReference ref : refs) {
-			Expression expr = ref.getExpression();
-			if (expr != null) {
-				ExpressionInfo info = expr.computeExpressionInfo();
-				String[] names = info.getAccessedPropertyNames();
-				for (String name : names) {
-					if (propertyName.equals(name)) {
-						ref.evaluate();
-						break;
-					}
-				}
-			}
+		Set<EvaluationReference> dependents = refsByProperty.get(propertyName);
+		if (dependents == null) {
+			return;
 		}
-		endSourceChange(sourceNames);
+		evaluateBatch(new LinkedHashSet<EvaluationReference>(dependents),
+				new String[] { propertyName });
 	}
 
 	/**
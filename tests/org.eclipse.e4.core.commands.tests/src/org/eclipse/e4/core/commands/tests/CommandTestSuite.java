@@ -11,5 +11,6 @@ public class CommandTestSuite extends TestSuite {
 	public CommandTestSuite() {
 		addTestSuite(DefineCommandsTest.class);
 		addTestSuite(HandlerTest.class);
+		addTestSuite(HandlerLookupTest.class);
 	}
 }
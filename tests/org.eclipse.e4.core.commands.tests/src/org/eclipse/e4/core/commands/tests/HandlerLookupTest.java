@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.core.commands.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.commands.Category;
+import org.eclipse.core.commands.ParameterizedCommand;
+import org.eclipse.e4.core.commands.CommandServiceAddon;
+import org.eclipse.e4.core.commands.ECommandService;
+import org.eclipse.e4.core.commands.EHandlerService;
+import org.eclipse.e4.core.contexts.ContextFunction;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.contexts.RunAndTrack;
+import org.eclipse.e4.core.di.annotations.Execute;
+
+/**
+ * Tests the lookup of handlers for the active leaf.
+ */
+public class HandlerLookupTest extends TestCase {
+
+	private static final int COMMAND_COUNT = 100;
+	private static final String COMMAND_PREFIX = "test.lookup.";
+	private static final String TEST_CAT = "test.lookup.cat";
+	private static final String ACTIVE_HANDLER = "activeHandler";
+	private static final String HANDLER_KEY = "handler::";
+
+	static class IdentityHandler {
+		@Execute
+		public Object execute() {
+			return this;
+		}
+	}
+
+	private IEclipseContext workbenchContext;
+
+	private ECommandService commandService;
+
+	@Override
+	protected void setUp() throws Exception {
+		IEclipseContext globalContext = TestActivator.getDefault().getGlobalContext();
+		workbenchContext = globalContext.createChild("workbenchContext");
+		ContextInjectionFactory.make(CommandServiceAddon.class, workbenchContext);
+		commandService = (ECommandService) workbenchContext.get(ECommandService.class.getName());
+		commandService.defineCategory(TEST_CAT, "CAT", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		workbenchContext.dispose();
+	}
+
+	private EHandlerService getHandlerService(IEclipseContext context) {
+		return (EHandlerService) context.get(EHandlerService.class.getName());
+	}
+
+	private ParameterizedCommand defineCommand(String id) {
+		Category category = commandService.getCategory(TEST_CAT);
+		commandService.defineCommand(id, id, null, category, null);
+		return commandService.createCommand(id, null);
+	}
+
+	/**
+	 * Returns the handler that handles the command for the active leaf.
+	 */
+	private Object lookUp(ParameterizedCommand command) {
+		return getHandlerService(workbenchContext).executeHandler(command);
+	}
+
+	public void testClosestHandlerWins() throws Exception {
+		ParameterizedCommand command = defineCommand(COMMAND_PREFIX);
+		IEclipseContext c1 = workbenchContext.createChild("c1");
+		IEclipseContext c2 = c1.createChild("c2");
+		c2.activate();
+
+		Object workbenchHandler = new IdentityHandler();
+		Object c1Handler = new IdentityHandler();
+		getHandlerService(workbenchContext).activateHandler(COMMAND_PREFIX, workbenchHandler);
+		assertSame(workbenchHandler,
+				lookUp(command));
+
+		getHandlerService(c1).activateHandler(COMMAND_PREFIX, c1Handler);
+		assertSame(c1Handler, lookUp(command));
+
+		getHandlerService(c1).deactivateHandler(COMMAND_PREFIX, c1Handler);
+		assertSame(workbenchHandler,
+				lookUp(command));
+	}
+
+	public void testLeafSwitch() throws Exception {
+		ParameterizedCommand command = defineCommand(COMMAND_PREFIX);
+		IEclipseContext c1 = workbenchContext.createChild("c1");
+		IEclipseContext c2 = workbenchContext.createChild("c2");
+		Object handler1 = new IdentityHandler();
+		Object handler2 = new IdentityHandler();
+		getHandlerService(c1).activateHandler(COMMAND_PREFIX, handler1);
+		getHandlerService(c2).activateHandler(COMMAND_PREFIX, handler2);
+
+		c1.activate();
+		assertSame(handler1, lookUp(command));
+		c2.activate();
+		assertSame(handler2, lookUp(command));
+		c2.dispose();
+		c1.activate();
+		assertSame(handler1, lookUp(command));
+	}
+
+	public void testContextFunctionHandler() throws Exception {
+		ParameterizedCommand command = defineCommand(COMMAND_PREFIX);
+		IEclipseContext c1 = workbenchContext.createChild("c1");
+		c1.activate();
+		Object handler1 = new IdentityHandler();
+		Object handler2 = new IdentityHandler();
+		c1.set(ACTIVE_HANDLER, handler1);
+		getHandlerService(workbenchContext).activateHandler(COMMAND_PREFIX,
+				new ContextFunction() {
+					@Override
+					public Object compute(IEclipseContext context) {
+						return context.get(ACTIVE_HANDLER);
+					}
+				});
+		assertSame(handler1, lookUp(command));
+		// the computed handler must not be answered from the table
+		c1.set(ACTIVE_HANDLER, handler2);
+		assertSame(handler2, lookUp(command));
+	}
+
+	public void testHandlerSetInCloserContext() throws Exception {
+		ParameterizedCommand command = defineCommand(COMMAND_PREFIX);
+		IEclipseContext c1 = workbenchContext.createChild("c1");
+		c1.activate();
+		Object workbenchHandler = new IdentityHandler();
+		Object c1Handler = new IdentityHandler();
+		getHandlerService(workbenchContext).activateHandler(COMMAND_PREFIX, workbenchHandler);
+		assertSame(workbenchHandler, lookUp(command));
+
+		// set without going through the handler service
+		c1.set(HANDLER_KEY + COMMAND_PREFIX, c1Handler);
+		assertSame(c1Handler, lookUp(command));
+		c1.remove(HANDLER_KEY + COMMAND_PREFIX);
+		assertSame(workbenchHandler, lookUp(command));
+	}
+
+	public void testLookUpIsTracked() throws Exception {
+		final ParameterizedCommand command = defineCommand(COMMAND_PREFIX);
+		IEclipseContext c1 = workbenchContext.createChild("c1");
+		c1.activate();
+		final boolean[] enabled = new boolean[1];
+		workbenchContext.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				enabled[0] = getHandlerService(context).canExecute(command);
+				return true;
+			}
+		});
+		assertFalse(enabled[0]);
+
+		getHandlerService(c1).activateHandler(COMMAND_PREFIX, new IdentityHandler());
+		assertTrue(enabled[0]);
+		getHandlerService(c1).deactivateHandler(COMMAND_PREFIX, null);
+		assertFalse(enabled[0]);
+	}
+
+	public void testManyHandlersFollowActiveLeaf() throws Exception {
+		IEclipseContext c1 = workbenchContext.createChild("c1");
+		IEclipseContext c2 = workbenchContext.createChild("c2");
+		ParameterizedCommand[] commands = new ParameterizedCommand[COMMAND_COUNT];
+		Object[] handlers = new Object[COMMAND_COUNT];
+		Object[] c2Handlers = new Object[COMMAND_COUNT];
+		EHandlerService workbenchService = getHandlerService(workbenchContext);
+		EHandlerService c2Service = getHandlerService(c2);
+		for (int i = 0; i < COMMAND_COUNT; i++) {
+			commands[i] = defineCommand(COMMAND_PREFIX + i);
+			handlers[i] = new IdentityHandler();
+			workbenchService.activateHandler(commands[i].getId(), handlers[i]);
+			if (i % 2 == 0) {
+				c2Handlers[i] = new IdentityHandler();
+				c2Service.activateHandler(commands[i].getId(), c2Handlers[i]);
+			}
+		}
+
+		for (int round = 0; round < 4; round++) {
+			IEclipseContext leaf = round % 2 == 0 ? c1 : c2;
+			leaf.activate();
+			for (int i = 0; i < COMMAND_COUNT; i++) {
+				Object expected = leaf == c2 && c2Handlers[i] != null ? c2Handlers[i]
+						: handlers[i];
+				assertSame(expected,
+						lookUp(commands[i]));
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ package org.eclipse.e4.ui.bindings.tests;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -201,6 +202,50 @@ public class BindingTableTests extends TestCase {
 		assertContextSet(set, ORDERED_IDS);
 	}
 
+	public void testContextSetUpdate() throws Exception {
+		BindingTableManager manager = createManager();
+		Context winContext = contextManager.getContext(ID_WINDOW);
+		Context dawContext = contextManager.getContext(ID_DIALOG_AND_WINDOW);
+		Context textContext = contextManager.getContext(ID_TEXT);
+		Context javaContext = contextManager.getContext(ID_JAVA);
+		Context jsContext = contextManager.getContext(ID_JS);
+		ArrayList<Context> window = new ArrayList<Context>();
+		window.add(winContext);
+		window.add(dawContext);
+		ContextSet windowSet = manager.createContextSet(window);
+
+		ArrayList<Context> added = new ArrayList<Context>();
+		added.add(jsContext);
+		added.add(textContext);
+		ContextSet jsSet = manager.updateContextSet(windowSet, added,
+				new ArrayList<Context>());
+		assertContextSet(jsSet, new String[] { ID_DIALOG_AND_WINDOW,
+				ID_WINDOW, ID_TEXT, ID_JS });
+		ArrayList<Context> all = new ArrayList<Context>(window);
+		all.addAll(added);
+		assertEquals(manager.createContextSet(all), jsSet);
+
+		Binding correctIndent = getTestBinding(CORR_INDENT_ID);
+		Binding indentLine = getTestBinding(INDENT_LINE_ID);
+		assertEquals(indentLine, manager.getPerfectMatch(jsSet, indentLine
+				.getTriggerSequence()));
+
+		ArrayList<Context> removed = new ArrayList<Context>();
+		removed.add(jsContext);
+		ContextSet javaSet = manager.updateContextSet(jsSet, Collections
+				.singletonList(javaContext), removed);
+		assertContextSet(javaSet, new String[] { ID_DIALOG_AND_WINDOW,
+				ID_WINDOW, ID_TEXT, ID_JAVA });
+		assertEquals(correctIndent, manager.getPerfectMatch(javaSet,
+				correctIndent.getTriggerSequence()));
+		// the previous set is not changed
+		assertContextSet(jsSet, new String[] { ID_DIALOG_AND_WINDOW,
+				ID_WINDOW, ID_TEXT, ID_JS });
+
+		assertSame(javaSet, manager.updateContextSet(javaSet, Collections
+				.singletonList(textContext), Collections.singletonList(jsContext)));
+	}
+
 	public void testSingleParentChainPerfectMatch() throws Exception {
 		BindingTableManager manager = (BindingTableManager) ContextInjectionFactory
 				.make(BindingTableManager.class, workbenchContext);
@@ -8,6 +8,7 @@ import org.eclipse.e4.ui.tests.css.core.parser.FontFaceRulesTest;
 import org.eclipse.e4.ui.tests.css.core.parser.RGBColorImplTest;
 import org.eclipse.e4.ui.tests.css.core.parser.SelectorTest;
 import org.eclipse.e4.ui.tests.css.core.parser.StyleRuleTest;
+import org.eclipse.e4.ui.tests.css.core.parser.StyleSheetSerializerTest;
 import org.eclipse.e4.ui.tests.css.core.parser.ValueTest;
 import org.eclipse.e4.ui.tests.css.core.parser.ViewCSSTest;
 
@@ -27,7 +28,9 @@ public class CssCoreTestSuite extends TestSuite {
 		addTestSuite(ViewCSSTest.class);
 		addTestSuite(ValueTest.class);
 		addTestSuite(SelectorTest.class);
+		addTestSuite(StyleSheetSerializerTest.class);
 		addTestSuite(CSSEngineTest.class);
+		addTestSuite(ResourcesRegistryTest.class);
 		// $JUnit-END$
 	}
 }
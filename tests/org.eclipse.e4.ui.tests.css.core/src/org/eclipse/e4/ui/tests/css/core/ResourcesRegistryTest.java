@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.tests.css.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.e4.ui.css.core.resources.AbstractResourcesRegistry;
+
+public class ResourcesRegistryTest extends TestCase {
+
+	private static class TestResourcesRegistry extends AbstractResourcesRegistry {
+		List disposed = new ArrayList();
+
+		public void disposeResource(Object type, String key, Object resource) {
+			disposed.add(resource);
+		}
+	}
+
+	private TestResourcesRegistry registry;
+
+	protected void setUp() throws Exception {
+		registry = new TestResourcesRegistry();
+	}
+
+	public void testReleaseLastReference() {
+		Object red = new Object();
+		registry.registerReferencedResource(String.class, "red", red);
+		assertSame(red, registry.getReferencedResource(String.class, "red"));
+		assertEquals(1, registry.getResourceCount(String.class));
+
+		registry.releaseResource(String.class, "red");
+		assertTrue(registry.disposed.isEmpty());
+		registry.releaseResource(String.class, "red");
+		assertEquals(1, registry.disposed.size());
+		assertSame(red, registry.disposed.get(0));
+		assertEquals(0, registry.getResourceCount(String.class));
+		assertNull(registry.getReferencedResource(String.class, "red"));
+	}
+
+	public void testSharedResourceIsKept() {
+		Object red = new Object();
+		registry.registerReferencedResource(String.class, "red", red);
+		// handed out to a caller that does not release it
+		assertSame(red, registry.getResource(String.class, "red"));
+		registry.releaseResource(String.class, "red");
+		assertTrue(registry.disposed.isEmpty());
+		assertSame(red, registry.getReferencedResource(String.class, "red"));
+
+		registry.dispose();
+		assertEquals(1, registry.disposed.size());
+	}
+
+	public void testUnregisterResource() {
+		Object red = new Object();
+		registry.registerResource(String.class, "red", red);
+		registry.unregisterResource(String.class, "red");
+		assertNull(registry.getResource(String.class, "red"));
+
+		registry.registerResource(Object.class, "red", red);
+		registry.unregisterResource(red);
+		assertNull(registry.getResource(Object.class, "red"));
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.tests.css.core.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.dom.ExtendedDocumentCSS;
+import org.eclipse.e4.ui.css.core.impl.engine.AbstractCSSEngine;
+import org.eclipse.e4.ui.tests.css.core.util.ParserTestUtil;
+import org.eclipse.e4.ui.tests.css.core.util.TestElement;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleRule;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Tests that style sheets read back from their binary form are the parsed
+ * ones, including a large style sheet.
+ */
+public class StyleSheetSerializerTest extends TestCase {
+
+	private static final int RULE_COUNT = 2000;
+
+	private AbstractCSSEngine engine;
+
+	protected void setUp() throws Exception {
+		engine = (AbstractCSSEngine) ParserTestUtil.createEngine();
+	}
+
+	public void testRoundTrip() throws Exception {
+		String css = "Label { color: #FF0220; font: Arial 12px; font-style: italic }\n"
+				+ ".cls > Button#b1:focus, Shell Composite { background-color: rgb(1, 2, 3); margin: 2px 3px }\n"
+				+ "Text[style~='SWT.MULTI'] { border-width: 1.5em !important; background-image: url(./a.png) }\n"
+				+ "CTabFolder.MPartStack { swt-selected-tab-fill: #FFFFFF #EEEEEE 100% 100%; swt-corner-radius: 16 }";
+		CSSStyleSheet parsed = parse(css);
+		CSSStyleSheet read = read(write(parsed));
+		assertEquals(parsed, read);
+	}
+
+	public void testMatchAfterRead() throws Exception {
+		String css = "Button.cls { color: red }\n"
+				+ "#b1 { color: blue; font-weight: bold }";
+		byte[] bytes = write(parse(css));
+		// only match the rules that were read back
+		((ExtendedDocumentCSS) engine.getDocumentCSS()).removeAllStyleSheets();
+		read(bytes);
+
+		TestElement button = new TestElement("Button", engine);
+		button.setClass("cls");
+		CSSStyleDeclaration style = engine.getViewCSS().getComputedStyle(
+				button, null);
+		assertNotNull(style);
+		assertEquals("red", style.getPropertyCSSValue("color").getCssText());
+
+		TestElement other = new TestElement("Button", engine);
+		other.setId("b1");
+		style = engine.getViewCSS().getComputedStyle(other, null);
+		assertNotNull(style);
+		assertEquals(2, style.getLength());
+	}
+
+	public void testUnsupportedRule() throws Exception {
+		CSSStyleSheet parsed = parse("@page { margin: 1in }\n"
+				+ "Label { color: red }");
+		try {
+			write(parsed);
+			fail("Rules other than style rules cannot be written");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testLoadLargeStyleSheet() throws Exception {
+		StringBuffer css = new StringBuffer();
+		for (int i = 0; i < RULE_COUNT; i++) {
+			css.append("Composite.c").append(i).append(" > Button#b").append(i)
+					.append(":focus, Shell Label.l").append(i).append(" {")
+					.append(" color: rgb(").append(i % 256).append(", 0, 0);")
+					.append(" font: Verdana ").append(i % 20).append("px;")
+					.append(" background-color: #").append(i % 10)
+					.append("0FF00 #FFFFFF 100%;").append(" margin: ")
+					.append(i % 7).append("px 1.5em }\n");
+		}
+		String text = css.toString();
+		CSSStyleSheet parsed = parse(text);
+		byte[] bytes = write(parsed);
+		assertEquals(parsed, read(bytes));
+	}
+
+	private CSSStyleSheet parse(String css) throws IOException {
+		return (CSSStyleSheet) engine.parseStyleSheet(new StringReader(css));
+	}
+
+	private byte[] write(CSSStyleSheet styleSheet) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		engine.writeStyleSheet(styleSheet, new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	private CSSStyleSheet read(byte[] bytes) throws IOException {
+		return (CSSStyleSheet) engine.readStyleSheet(new DataInputStream(
+				new ByteArrayInputStream(bytes)));
+	}
+
+	private static void assertEquals(CSSStyleSheet expected,
+			CSSStyleSheet actual) {
+		CSSRuleList expectedRules = expected.getCssRules();
+		CSSRuleList actualRules = actual.getCssRules();
+		assertEquals(expectedRules.getLength(), actualRules.getLength());
+		for (int i = 0; i < expectedRules.getLength(); i++) {
+			SelectorList expectedSelectors = ((ExtendedCSSRule) expectedRules
+					.item(i)).getSelectorList();
+			SelectorList actualSelectors = ((ExtendedCSSRule) actualRules
+					.item(i)).getSelectorList();
+			assertEquals(expectedSelectors.getLength(), actualSelectors
+					.getLength());
+			for (int j = 0; j < expectedSelectors.getLength(); j++) {
+				assertEquals(expectedSelectors.item(j).toString(),
+						actualSelectors.item(j).toString());
+			}
+			CSSStyleDeclaration expectedStyle = ((CSSStyleRule) expectedRules
+					.item(i)).getStyle();
+			CSSStyleDeclaration actualStyle = ((CSSStyleRule) actualRules
+					.item(i)).getStyle();
+			assertEquals(expectedStyle.getCssText(), actualStyle.getCssText());
+			for (int j = 0; j < expectedStyle.getLength(); j++) {
+				String name = expectedStyle.item(j);
+				assertEquals(expectedStyle.getPropertyPriority(name),
+						actualStyle.getPropertyPriority(name));
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.workbench;
+
+import junit.framework.TestCase;
+import org.eclipse.core.expressions.EvaluationContext;
+import org.eclipse.core.expressions.EvaluationResult;
+import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionInfo;
+import org.eclipse.core.expressions.IEvaluationContext;
+import org.eclipse.e4.ui.internal.workbench.ExpressionResultCache;
+
+/**
+ * Tests the hits, misses and invalidation of the results remembered by an
+ * {@link ExpressionResultCache}.
+ */
+public class ExpressionResultCacheTest extends TestCase {
+
+	private static final String VARIABLE = "activePart";
+
+	/**
+	 * Tests whether a variable, or the default variable, has a value.
+	 * Expressions with the same variable are equal.
+	 */
+	static class VariableExpression extends Expression {
+		private final String name;
+
+		VariableExpression(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) {
+			Object value = name == null ? context.getDefaultVariable() : context
+					.getVariable(name);
+			return EvaluationResult.valueOf(value != null);
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			if (name == null) {
+				info.markDefaultVariableAccessed();
+			} else {
+				info.addVariableNameAccess(name);
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof VariableExpression)) {
+				return false;
+			}
+			String other = ((VariableExpression) obj).name;
+			return name == null ? other == null : name.equals(other);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return name == null ? 0 : name.hashCode();
+		}
+	}
+
+	private ExpressionResultCache cache;
+
+	private EvaluationContext context;
+
+	@Override
+	protected void setUp() throws Exception {
+		cache = new ExpressionResultCache();
+		context = new EvaluationContext(null, "default");
+		context.addVariable(VARIABLE, "part");
+	}
+
+	public void testEqualExpressionsHit() throws Exception {
+		Expression expression = new VariableExpression(VARIABLE);
+		assertNull(cache.get(expression, context));
+		assertEquals(1, cache.getMissCount());
+		cache.put(expression, context, true);
+
+		assertEquals(Boolean.TRUE, cache.get(expression, context));
+		assertEquals(Boolean.TRUE,
+				cache.get(new VariableExpression(VARIABLE), context));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	public void testDifferentExpressionsMiss() throws Exception {
+		cache.put(new VariableExpression(VARIABLE), context, true);
+		assertNull(cache.get(new VariableExpression("activeShell"), context));
+		assertNull(cache.get(new VariableExpression(null), context));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testVariableChangeInvalidates() throws Exception {
+		Expression expression = new VariableExpression(VARIABLE);
+		cache.put(expression, context, true);
+		context.addVariable(VARIABLE, "otherPart");
+		assertNull(cache.get(expression, context));
+		context.removeVariable(VARIABLE);
+		assertNull(cache.get(expression, context));
+		cache.put(expression, context, false);
+		assertEquals(Boolean.FALSE, cache.get(expression, context));
+
+		// variables the expression does not read do not matter
+		context.addVariable("activeShell", "shell");
+		assertEquals(Boolean.FALSE, cache.get(expression, context));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testDefaultVariableChangeInvalidates() throws Exception {
+		Expression expression = new VariableExpression(null);
+		cache.put(expression, context, true);
+		assertEquals(Boolean.TRUE, cache.get(expression, context));
+		EvaluationContext child = new EvaluationContext(context, "selection");
+		assertNull(cache.get(expression, child));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	public void testExpressionInfoIsShared() throws Exception {
+		ExpressionInfo info = cache.getExpressionInfo(new VariableExpression(
+				VARIABLE));
+		assertSame(info, cache.getExpressionInfo(new VariableExpression(
+				VARIABLE)));
+		assertEquals(1, info.getAccessedVariableNames().length);
+		assertNotSame(info, cache.getExpressionInfo(new VariableExpression(
+				null)));
+	}
+}
@@ -818,6 +818,78 @@ public class MMenuItemTest extends TestCase {
 		application.getMenuContributions().add(mmc);
 	}
 
+	public void testLazySubMenuCreation() throws Exception {
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		MMenu menuBar = MenuFactoryImpl.eINSTANCE.createMenu();
+		menuBar.setElementId("org.eclipse.ui.main.menu");
+		menuBar.getTags().add(MenuManagerRenderer.LAZY_SUBMENUS);
+		window.setMainMenu(menuBar);
+
+		MMenu fileMenu = MenuFactoryImpl.eINSTANCE.createMenu();
+		fileMenu.setElementId("file");
+		fileMenu.setLabel("File");
+		menuBar.getChildren().add(fileMenu);
+
+		MMenu editMenu = MenuFactoryImpl.eINSTANCE.createMenu();
+		editMenu.setElementId("edit");
+		editMenu.setLabel("Edit");
+		menuBar.getChildren().add(editMenu);
+
+		MMenu recentMenu = MenuFactoryImpl.eINSTANCE.createMenu();
+		recentMenu.setElementId("recent");
+		recentMenu.setLabel("Recent");
+		fileMenu.getChildren().add(recentMenu);
+
+		MMenuItem item1 = MenuFactoryImpl.eINSTANCE.createDirectMenuItem();
+		item1.setElementId("item1");
+		item1.setLabel("item1");
+		fileMenu.getChildren().add(item1);
+
+		MMenuItem item2 = MenuFactoryImpl.eINSTANCE.createDirectMenuItem();
+		item2.setElementId("item2");
+		item2.setLabel("item2");
+		recentMenu.getChildren().add(item2);
+
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		application.getChildren().add(window);
+		application.setContext(appContext);
+		appContext.set(MApplication.class.getName(), application);
+
+		wb = new E4Workbench(window, appContext);
+		wb.createAndRunUI(window);
+
+		MenuManagerRenderer renderer = getRenderer(appContext, menuBar);
+		MenuManager fileManager = renderer.getManager(fileMenu);
+		assertNotNull(fileManager);
+		assertFalse(renderer.isRendered(fileMenu));
+		assertTrue(fileManager.isVisible());
+		assertNull(renderer.getContribution(item1));
+
+		assertTrue(renderer.renderPendingMenu(fileMenu));
+		assertTrue(renderer.isRendered(fileMenu));
+		assertFalse(renderer.renderPendingMenu(fileMenu));
+		assertEquals(2, fileManager.getSize());
+		assertNotNull(renderer.getContribution(item1));
+
+		// submenus of a rendered submenu wait for their own show
+		assertNotNull(renderer.getManager(recentMenu));
+		assertFalse(renderer.isRendered(recentMenu));
+		assertNull(renderer.getContribution(item2));
+		// items of a submenu that was not shown yet wait for its show
+		item2.setToBeRendered(false);
+		item2.setToBeRendered(true);
+		assertNull(renderer.getContribution(item2));
+		renderer.renderPendingMenu(recentMenu);
+		assertNotNull(renderer.getContribution(item2));
+
+		// submenus that are never shown are forgotten with their manager
+		assertFalse(renderer.isRendered(editMenu));
+		renderer.clearModelToManager(editMenu, renderer.getManager(editMenu));
+		assertTrue(renderer.isRendered(editMenu));
+		assertFalse(renderer.renderPendingMenu(editMenu));
+	}
+
 	private MenuManagerRenderer getRenderer(IEclipseContext context,
 			MUIElement element) {
 		IRendererFactory rendererFactory = context.get(IRendererFactory.class);
@@ -16,6 +16,7 @@ import junit.framework.TestSuite;
 
 import org.eclipse.ui.tests.forms.layout.AllLayoutTests;
 import org.eclipse.ui.tests.forms.util.AllUtilityTests;
+import org.eclipse.ui.tests.forms.widgets.AllWidgetsTests;
 
 /*
  * Tests all cheat sheet functionality (automated).
@@ -35,5 +36,6 @@ public class AllFormsTests extends TestSuite {
 	public AllFormsTests() {
 		addTest(AllLayoutTests.suite());
 		addTest(AllUtilityTests.suite());
+		addTest(AllWidgetsTests.suite());
 	}
 }
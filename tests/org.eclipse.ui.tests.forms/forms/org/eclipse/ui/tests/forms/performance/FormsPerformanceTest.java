@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -92,6 +92,69 @@ public class FormsPerformanceTest extends PerformanceTestCase {
 		assertPerformance();
 	}
 	
+	public void test_toggleSections() {
+		tagAsSummary("Toggle Sections", Dimension.ELAPSED_PROCESS);
+
+		Display display = PlatformUI.getWorkbench().getDisplay();
+
+		FormToolkit toolkit = new FormToolkit(display);
+		Shell shell = new Shell(display);
+		shell.setSize(400, 600);
+		shell.setLayout(new FillLayout());
+		shell.open();
+		Section[] sections = createSections(shell, toolkit, 50);
+		shell.layout(true);
+		while(display.readAndDispatch()){/*empty*/}
+
+		// Warm up.
+		toggleSections(display, sections);
+
+		for(int samples = 0; samples < 20; samples++) {
+			startMeasuring();
+			toggleSections(display, sections);
+			stopMeasuring();
+		}
+		shell.dispose();
+		while(display.readAndDispatch()){/*empty*/}
+		toolkit.dispose();
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private Section[] createSections(Composite parent, FormToolkit toolkit, int count) {
+		ScrolledForm form = toolkit.createScrolledForm(parent);
+		form.setText("Sections");
+		form.getBody().setLayout(new TableWrapLayout());
+		Section[] sections = new Section[count];
+		for (int i = 0; i < count; i++) {
+			Section section = toolkit.createSection(form.getBody(), Section.DESCRIPTION|Section.TWISTIE|Section.EXPANDED);
+			section.setLayoutData(new TableWrapData(TableWrapData.FILL_GRAB));
+			section.setText("Section " + i);
+			section.setDescription("This is the description that goes below the title");
+			Composite sectionClient = toolkit.createComposite(section);
+			sectionClient.setLayout(new GridLayout(2, false));
+			for (int j = 0; j < 4; j++) {
+				toolkit.createLabel(sectionClient, "Text field label:");
+				toolkit.createText(sectionClient, "");
+			}
+			section.setClient(sectionClient);
+			sections[i] = section;
+		}
+		return sections;
+	}
+
+	/*
+	 * Collapses and expands the sections one at a time.
+	 */
+	private void toggleSections(Display display, Section[] sections) {
+		for (int i = 0; i < sections.length; i++) {
+			sections[i].setExpanded(false);
+			while(display.readAndDispatch()){/*empty*/}
+			sections[i].setExpanded(true);
+			while(display.readAndDispatch()){/*empty*/}
+		}
+	}
+
 	public void createPartControl(Composite parent, FormToolkit toolkit) {
 		//Label l = new Label(parent, SWT.NULL);
 		//l.setText ("a label");
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.forms.widgets;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWTException;
+import org.eclipse.ui.internal.forms.widgets.AggregateHyperlinkSegment;
+import org.eclipse.ui.internal.forms.widgets.BreakSegment;
+import org.eclipse.ui.internal.forms.widgets.BulletParagraph;
+import org.eclipse.ui.internal.forms.widgets.FormTextModel;
+import org.eclipse.ui.internal.forms.widgets.ImageHyperlinkSegment;
+import org.eclipse.ui.internal.forms.widgets.ImageSegment;
+import org.eclipse.ui.internal.forms.widgets.Paragraph;
+import org.eclipse.ui.internal.forms.widgets.ParagraphSegment;
+import org.eclipse.ui.internal.forms.widgets.TextHyperlinkSegment;
+import org.eclipse.ui.internal.forms.widgets.TextSegment;
+
+public class FormTextModelTest extends TestCase {
+
+	private FormTextModel parse(String taggedText) {
+		FormTextModel model = new FormTextModel();
+		model.parseTaggedText(taggedText, false);
+		return model;
+	}
+
+	public void testParagraphs() {
+		FormTextModel model = parse("<form>\n  <p>first</p>\n  implicit text\n"
+				+ "<li style=\"text\" value=\"1.\">item</li>"
+				+ "<unknown><p>ignored</p></unknown></form>");
+		Paragraph[] paragraphs = model.getParagraphs();
+		assertEquals(3, paragraphs.length);
+		assertEquals("first", getText(paragraphs[0].getSegments()[0]));
+		assertEquals(" implicit text ", getText(paragraphs[1].getSegments()[0]));
+		assertTrue(paragraphs[2] instanceof BulletParagraph);
+		assertEquals("1.", ((BulletParagraph) paragraphs[2]).getBulletText());
+	}
+
+	public void testSegments() {
+		FormTextModel model = parse("<form><p>plain <b>  bold \n text </b>"
+				+ "<br/><img href=\"image\"/><![CDATA[skipped]]>"
+				+ "<span font=\"code\">code</span></p></form>");
+		ParagraphSegment[] segments = model.getParagraphs()[0].getSegments();
+		assertEquals(5, segments.length);
+		assertEquals("plain ", getText(segments[0]));
+		assertEquals("bold text", getText(segments[1]));
+		assertTrue(segments[2] instanceof BreakSegment);
+		assertEquals("i.image", ((ImageSegment) segments[3]).getObjectId());
+		assertEquals("code", getText(segments[4]));
+	}
+
+	public void testHyperlinks() {
+		FormTextModel model = parse("<form><p><a href=\"text\"> some <!-- c --> text </a>"
+				+ "<a href=\"image\"><img href=\"i\"/></a>"
+				+ "<a href=\"both\">text<img href=\"i\"/></a></p></form>");
+		ParagraphSegment[] segments = model.getParagraphs()[0].getSegments();
+		assertEquals(3, segments.length);
+		TextHyperlinkSegment text = (TextHyperlinkSegment) segments[0];
+		assertEquals("text", text.getHref());
+		assertEquals("some text", text.getText());
+		assertEquals("image", ((ImageHyperlinkSegment) segments[1]).getHref());
+		assertEquals("both", ((AggregateHyperlinkSegment) segments[2]).getHref());
+		assertEquals(3, model.getHyperlinkCount());
+	}
+
+	public void testParseError() {
+		FormTextModel model = parse("<form><p>text</p></form>");
+		try {
+			model.parseTaggedText("<form><p>unclosed</form>", false);
+			fail("The tagged text is not well formed");
+		} catch (SWTException e) {
+			// expected
+		}
+		assertEquals(0, model.getParagraphs().length);
+	}
+
+	private String getText(ParagraphSegment segment) {
+		return ((TextSegment) segment).getText();
+	}
+}
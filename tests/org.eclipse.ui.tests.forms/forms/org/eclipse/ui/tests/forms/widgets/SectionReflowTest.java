@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.forms.widgets;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.forms.widgets.ColumnLayout;
+import org.eclipse.ui.forms.widgets.FormToolkit;
+import org.eclipse.ui.forms.widgets.ScrolledForm;
+import org.eclipse.ui.forms.widgets.Section;
+import org.eclipse.ui.forms.widgets.TableWrapData;
+import org.eclipse.ui.forms.widgets.TableWrapLayout;
+
+/*
+ * Tests that toggling a section lays out the form as a full reflow does.
+ */
+public class SectionReflowTest extends TestCase {
+
+	private FormToolkit toolkit;
+
+	private Shell shell;
+
+	private ScrolledForm form;
+
+	private Section[] sections;
+
+	protected void setUp() throws Exception {
+		Display display = PlatformUI.getWorkbench().getDisplay();
+		toolkit = new FormToolkit(display);
+		shell = new Shell(display);
+		shell.setSize(400, 300);
+		shell.setLayout(new FillLayout());
+		form = toolkit.createScrolledForm(shell);
+	}
+
+	protected void tearDown() throws Exception {
+		shell.dispose();
+		toolkit.dispose();
+	}
+
+	private void createSections(int count, boolean tableWrap) {
+		sections = new Section[count];
+		for (int i = 0; i < count; i++) {
+			Section section = toolkit.createSection(form.getBody(),
+					Section.DESCRIPTION | Section.TWISTIE | Section.EXPANDED);
+			if (tableWrap)
+				section.setLayoutData(new TableWrapData(TableWrapData.FILL_GRAB));
+			section.setText("Section " + i);
+			section.setDescription("A description that wraps below the title of the section");
+			Composite client = toolkit.createComposite(section);
+			client.setLayout(new GridLayout(2, false));
+			for (int j = 0; j <= i % 3; j++) {
+				toolkit.createLabel(client, "Label " + j);
+				toolkit.createText(client, "");
+			}
+			section.setClient(client);
+			sections[i] = section;
+		}
+		shell.layout(true);
+		form.reflow(true);
+	}
+
+	private Rectangle[] getBounds() {
+		Rectangle[] bounds = new Rectangle[sections.length];
+		for (int i = 0; i < sections.length; i++) {
+			bounds[i] = sections[i].getBounds();
+		}
+		return bounds;
+	}
+
+	private void assertSameAsFullReflow() {
+		Rectangle[] bounds = getBounds();
+		Point bodySize = form.getBody().getSize();
+		form.reflow(true);
+		Point expectedSize = form.getBody().getSize();
+		assertEquals(expectedSize, bodySize);
+		Rectangle[] expected = getBounds();
+		for (int i = 0; i < sections.length; i++) {
+			assertEquals("Section " + i, expected[i], bounds[i]);
+		}
+	}
+
+	private void toggle(int index) {
+		sections[index].setExpanded(false);
+		assertSameAsFullReflow();
+		sections[index].setExpanded(true);
+		assertSameAsFullReflow();
+	}
+
+	public void testTableWrapLayout() {
+		form.getBody().setLayout(new TableWrapLayout());
+		createSections(10, true);
+		toggle(0);
+		toggle(5);
+		toggle(9);
+	}
+
+	public void testTableWrapLayoutTwoColumns() {
+		TableWrapLayout layout = new TableWrapLayout();
+		layout.numColumns = 2;
+		form.getBody().setLayout(layout);
+		createSections(10, true);
+		toggle(0);
+		toggle(5);
+		toggle(9);
+	}
+
+	public void testColumnLayout() {
+		ColumnLayout layout = new ColumnLayout();
+		layout.maxNumColumns = 2;
+		form.getBody().setLayout(layout);
+		createSections(10, false);
+		toggle(0);
+		toggle(5);
+		toggle(9);
+	}
+
+	public void testCollapsedSection() {
+		form.getBody().setLayout(new TableWrapLayout());
+		createSections(5, true);
+		Rectangle expanded = sections[2].getBounds();
+		sections[2].setExpanded(false);
+		assertTrue(sections[2].getSize().y < expanded.height);
+		assertEquals(sections[2].getLocation().y + sections[2].getSize().y,
+				sections[3].getLocation().y
+						- ((TableWrapLayout) form.getBody().getLayout()).verticalSpacing);
+	}
+}
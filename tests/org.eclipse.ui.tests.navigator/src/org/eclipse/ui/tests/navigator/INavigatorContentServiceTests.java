@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2009 IBM Corporation and others.
+ * Copyright (c) 2003, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.ui.internal.navigator.NavigatorContentService;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptor;
 import org.eclipse.ui.navigator.INavigatorContentDescriptor;
 import org.eclipse.ui.navigator.INavigatorContentExtension;
 import org.eclipse.ui.navigator.INavigatorContentService;
@@ -190,6 +191,77 @@ public class INavigatorContentServiceTests extends NavigatorTestBase {
 
 	}
 
+	public void testContributionMemory() {
+		final int elementCount = 100;
+		NavigatorContentService ncs = (NavigatorContentService) _contentService;
+		INavigatorContentDescriptor descriptor = ncs
+				.getContentDescriptorById(COMMON_NAVIGATOR_RESOURCE_EXT);
+		int initialSize = ncs.getContributionMemorySize();
+
+		Object[] elements = new Object[elementCount];
+		for (int i = 0; i < elementCount; i++) {
+			elements[i] = new StringBuffer("element").append(i).toString();
+			ncs.rememberContribution(descriptor, descriptor, elements[i]);
+		}
+		assertEquals(initialSize + elementCount, ncs.getContributionMemorySize());
+
+		// equal instances take over the entries of the remembered ones
+		Object[] copies = new Object[elementCount];
+		for (int i = 0; i < elementCount; i++) {
+			copies[i] = new StringBuffer("element").append(i).toString();
+			ncs.rememberContribution(descriptor, descriptor, copies[i]);
+		}
+		assertEquals(initialSize + elementCount, ncs.getContributionMemorySize());
+		for (int i = 0; i < elementCount; i++) {
+			assertSame(descriptor, ncs.getContribution(elements[i]));
+			assertSame(descriptor, ncs.getContribution(copies[i]));
+		}
+
+		for (int i = 0; i < elementCount; i++) {
+			ncs.forgetContribution(elements[i]);
+		}
+		assertEquals(initialSize, ncs.getContributionMemorySize());
+		assertNull(ncs.getContribution(copies[0]));
+	}
+
+	public void testContributionMemoryReleasesElements() throws Exception {
+		final int elementCount = 500000;
+		final int pageSize = 1000;
+		NavigatorContentService ncs = (NavigatorContentService) _contentService;
+		INavigatorContentDescriptor descriptor = ncs
+				.getContentDescriptorById(COMMON_NAVIGATOR_RESOURCE_EXT);
+		int initialSize = ncs.getContributionMemorySize();
+
+		// an element the viewer still shows must be remembered throughout
+		Object kept = new StringBuffer("kept").toString();
+		ncs.rememberContribution(descriptor, descriptor, kept);
+
+		// scroll through the elements a page at a time, dropping each page
+		for (int page = 0; page < elementCount / pageSize; page++) {
+			Object[] elements = new Object[pageSize];
+			for (int i = 0; i < pageSize; i++) {
+				elements[i] = new StringBuffer("element").append(
+						page * pageSize + i).toString();
+				ncs.rememberContribution(descriptor, descriptor, elements[i]);
+			}
+		}
+
+		int size = ncs.getContributionMemorySize();
+		for (int i = 0; i < 100 && size > initialSize + 1; i++) {
+			System.runFinalization();
+			System.gc();
+			Thread.yield();
+			Thread.sleep(10);
+			size = ncs.getContributionMemorySize();
+		}
+		assertEquals("Unreachable elements are still remembered",
+				initialSize + 1, size);
+		assertSame(descriptor, ncs.getContribution(kept));
+
+		ncs.forgetContribution(kept);
+		assertEquals(initialSize, ncs.getContributionMemorySize());
+	}
+
 	// Bug 267722 [CommonNavigator] ClassCastException when synchronizing
 	public void testNonCommonViewer() throws Exception {
 		EditorTestHelper.showView(TEST_VIEW_NON_COMMONVIEWER, true);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,10 +18,13 @@ import org.eclipse.swt.widgets.TreeItem;
 
 import org.eclipse.ui.navigator.INavigatorContentDescriptor;
 import org.eclipse.ui.navigator.INavigatorSorterService;
+import org.eclipse.ui.progress.PendingUpdateAdapter;
+import org.eclipse.ui.tests.harness.util.DisplayHelper;
 import org.eclipse.ui.tests.navigator.extension.TestLabelProviderBlue;
 import org.eclipse.ui.tests.navigator.extension.TestLabelProviderCyan;
 import org.eclipse.ui.tests.navigator.extension.TestLabelProviderStyledGreen;
 import org.eclipse.ui.tests.navigator.extension.TestSimpleChildrenContentProvider;
+import org.eclipse.ui.tests.navigator.extension.TestSimpleChildrenContentProviderSlow;
 import org.eclipse.ui.tests.navigator.extension.TestSorterData;
 
 public class ProgrammaticOpenTest extends NavigatorTestBase {
@@ -153,6 +156,66 @@ public class ProgrammaticOpenTest extends NavigatorTestBase {
 		checkItems(rootItems, TestLabelProviderBlue.instance);
 	}
 
+	public void testConcurrentContent() throws Exception {
+		_contentService.bindExtensions(new String[] { COMMON_NAVIGATOR_RESOURCE_EXT,
+				TEST_SIMPLE_CHILDREN1, TEST_SIMPLE_CHILDREN_CONCURRENT }, false);
+		_contentService.getActivationService().activateExtensions(
+				new String[] { COMMON_NAVIGATOR_RESOURCE_EXT, TEST_SIMPLE_CHILDREN1,
+						TEST_SIMPLE_CHILDREN_CONCURRENT }, true);
+
+		final TreeItem[] rootItems = _viewer.getTree().getItems();
+		final TreeItem p1Item = findItem(rootItems, _p1);
+		TestSimpleChildrenContentProviderSlow.hold();
+		try {
+			// the concurrent extension cannot answer before it is released
+			_viewer.setExpandedState(_p1, true);
+			assertTrue(hasPendingItem(p1Item));
+			assertTrue(hasItem(p1Item, "10"));
+			assertFalse(hasItem(p1Item, "40"));
+		} finally {
+			TestSimpleChildrenContentProviderSlow.release();
+		}
+
+		boolean fetched = new DisplayHelper() {
+			protected boolean condition() {
+				return !hasPendingItem(p1Item);
+			}
+		}.waitForCondition(_viewer.getTree().getDisplay(), 10000);
+		assertTrue("The children of the concurrent extension did not arrive", fetched);
+		assertEquals(TestSimpleChildrenContentProvider.NUM_ITEMS * 2, p1Item.getItems().length);
+		assertTrue(hasItem(p1Item, "10"));
+		assertTrue(hasItem(p1Item, "40"));
+		assertNotSame(_viewer.getTree().getDisplay().getThread(),
+				TestSimpleChildrenContentProviderSlow.getLastThread());
+	}
+
+	private TreeItem findItem(TreeItem[] items, Object data) {
+		for (int i = 0; i < items.length; i++) {
+			if (data.equals(items[i].getData()))
+				return items[i];
+		}
+		fail("No item for " + data);
+		return null;
+	}
+
+	private boolean hasPendingItem(TreeItem item) {
+		TreeItem[] items = item.getItems();
+		for (int i = 0; i < items.length; i++) {
+			if (items[i].getData() instanceof PendingUpdateAdapter)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean hasItem(TreeItem item, String text) {
+		TreeItem[] items = item.getItems();
+		for (int i = 0; i < items.length; i++) {
+			if (text.equals(items[i].getText()))
+				return true;
+		}
+		return false;
+	}
+
 	// bug 228022 add ordering of content
 	public void testNceOrdering() throws Exception {
 		_contentService.bindExtensions(new String[] { 
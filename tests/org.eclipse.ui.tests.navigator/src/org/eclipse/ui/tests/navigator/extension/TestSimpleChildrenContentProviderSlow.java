@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator.extension;
+
+/**
+ * Provides its children only once a test lets it, like a content provider
+ * backed by a remote model.
+ */
+public class TestSimpleChildrenContentProviderSlow extends TestSimpleChildrenContentProvider {
+
+	/**
+	 * How long a held request waits at most, so that a provider called in the
+	 * UI thread does not hang the test.
+	 */
+	private static final long TIMEOUT = 10000;
+
+	private static final Object gate = new Object();
+
+	private static boolean held = false;
+
+	private static Thread lastThread;
+
+	public TestSimpleChildrenContentProviderSlow() {
+		_name = "4";
+	}
+
+	/**
+	 * Makes the requests for children wait until {@link #release()}.
+	 */
+	public static void hold() {
+		synchronized (gate) {
+			held = true;
+			lastThread = null;
+		}
+	}
+
+	/**
+	 * Lets the waiting and further requests for children return.
+	 */
+	public static void release() {
+		synchronized (gate) {
+			held = false;
+			gate.notifyAll();
+		}
+	}
+
+	/**
+	 * @return the thread of the last request for children, or
+	 *         <code>null</code>
+	 */
+	public static Thread getLastThread() {
+		synchronized (gate) {
+			return lastThread;
+		}
+	}
+
+	public synchronized Object[] getChildren(Object parentElement) {
+		synchronized (gate) {
+			lastThread = Thread.currentThread();
+			long end = System.currentTimeMillis() + TIMEOUT;
+			long remaining = TIMEOUT;
+			while (held && remaining > 0) {
+				try {
+					gate.wait(remaining);
+				} catch (InterruptedException e) {
+					break;
+				}
+				remaining = end - System.currentTimeMillis();
+			}
+		}
+		return super.getChildren(parentElement);
+	}
+
+}
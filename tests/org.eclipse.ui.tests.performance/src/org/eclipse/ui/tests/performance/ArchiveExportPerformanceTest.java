@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.internal.wizards.datatransfer.ArchiveFileExportOperation;
+
+/**
+ * The ArchiveExportPerformanceTest measures the throughput of the export of a
+ * generated tree to a compressed zip file.
+ * <p>
+ * The tree holds 2 GB of files unless the
+ * <code>org.eclipse.ui.tests.performance.exportSize</code> system property
+ * gives another size in megabytes.
+ * </p>
+ *
+ * @since 3.8
+ */
+public class ArchiveExportPerformanceTest extends BasicPerformanceTest {
+
+	private static final String SIZE_PROPERTY = "org.eclipse.ui.tests.performance.exportSize";
+
+	private static final int[] FILE_SIZES = { 4 * 1024, 64 * 1024,
+			1024 * 1024, 8 * 1024 * 1024 };
+
+	private static final String[] WORDS = { "public", "class", "void",
+			"return", "import", "org.eclipse", "if", "else", "for", "int",
+			"String", "null", "new", "this", "while", "\n", "\t", "{", "}",
+			";" };
+
+	private IProject project;
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param testName
+	 */
+	public ArchiveExportPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject(
+				"archiveExportPerformance");
+		if (!project.exists())
+			project.create(null);
+		project.open(null);
+	}
+
+	protected void doTearDown() throws Exception {
+		try {
+			project.delete(true, true, null);
+		} finally {
+			project = null;
+			super.doTearDown();
+		}
+	}
+
+	/**
+	 * Test the export of the generated tree to a compressed zip file.
+	 *
+	 * @throws Exception
+	 */
+	public void testExportZipThroughput() throws Exception {
+		long size = Long.getLong(SIZE_PROPERTY, 2048).longValue() * 1024 * 1024;
+		generateTree(new File(project.getLocation().toOSString()), size);
+		project.refreshLocal(IResource.DEPTH_INFINITE, null);
+
+		File destination = File.createTempFile("archiveExport", ".zip");
+		tagIfNecessary("UI - Export of a generated tree to a zip file",
+				Dimension.ELAPSED_PROCESS);
+		try {
+			for (int i = 0; i < 3; i++) {
+				ArchiveFileExportOperation operation = new ArchiveFileExportOperation(
+						project, destination.getAbsolutePath());
+				operation.setUseCompression(true);
+				operation.setUseTarFormat(false);
+
+				processEvents();
+				startMeasuring();
+				operation.run(new NullProgressMonitor());
+				stopMeasuring();
+
+				assertTrue(operation.getStatus().isOK());
+			}
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			destination.delete();
+		}
+	}
+
+	/**
+	 * Fill directory with folders of files of mixed sizes, of a total size of
+	 * at least size bytes. The contents compress about as well as source
+	 * code.
+	 */
+	private void generateTree(File directory, long size) throws IOException {
+		Random random = new Random(0);
+		long generated = 0;
+		for (int i = 0; generated < size; i++) {
+			File folder = new File(directory, "folder" + i / 100);
+			folder.mkdirs();
+			int fileSize = FILE_SIZES[i % FILE_SIZES.length];
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(
+					new File(folder, "file" + i + ".txt")));
+			try {
+				int written = 0;
+				while (written < fileSize) {
+					byte[] word = WORDS[random.nextInt(WORDS.length)]
+							.getBytes();
+					out.write(word);
+					out.write(' ');
+					written += word.length + 1;
+				}
+				generated += written;
+			} finally {
+				out.close();
+			}
+		}
+	}
+}
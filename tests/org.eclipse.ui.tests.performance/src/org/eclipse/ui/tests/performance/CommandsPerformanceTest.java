@@ -471,4 +471,41 @@ public final class CommandsPerformanceTest extends BasicPerformanceTest {
 		commitMeasurements();
 		assertPerformance();
 	}
+
+	/**
+	 * <p>
+	 * Tests how long it takes to compute the bindings when the active contexts
+	 * change and the cache does not contain a matching entry. The active
+	 * context tree is shortened by one context at a time, so that each
+	 * computation only has to remove the bindings of one context.
+	 * </p>
+	 * 
+	 * @throws ParseException
+	 *             If "CTRL+F" can't be parsed for some strange reason.
+	 */
+	public final void testBindingCacheMissIncremental() throws ParseException {
+		// Constants
+		final KeySequence keySequence = KeySequence.getInstance("CTRL+F");
+
+		// Compute once for the full context tree.
+		final Set contextIds = contextManager.getActiveContextIds();
+		bindingManager.getPartialMatches(keySequence);
+		final Set[] contextSets = new Set[contextIds.size() - 1];
+		for (int i = 0; i < contextSets.length; i++) {
+			contextSets[i] = new HashSet();
+			for (int j = 0; j < contextIds.size() - 1 - i; j++) {
+				contextSets[i].add("context" + j);
+			}
+		}
+
+		// Time how long it takes to solve each of the smaller trees.
+		startMeasuring();
+		for (int i = 0; i < contextSets.length; i++) {
+			contextManager.setActiveContextIds(contextSets[i]);
+			bindingManager.getPartialMatches(keySequence);
+		}
+		stopMeasuring();
+		commitMeasurements();
+		assertPerformance();
+	}
 }
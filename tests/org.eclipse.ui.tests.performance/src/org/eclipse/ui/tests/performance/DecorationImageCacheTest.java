@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.LocalResourceManager;
+import org.eclipse.jface.tests.performance.JFacePerformanceSuite;
+import org.eclipse.jface.viewers.IDecoration;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.ISharedImages;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.internal.decorators.DecorationImageCache;
+
+/**
+ * Measures the time to decorate the images of a large number of labels in two
+ * viewers that are repeatedly closed and reopened.
+ *
+ * @since 3.8
+ */
+public class DecorationImageCacheTest extends BasicPerformanceTest {
+
+	private static final int LABEL_COUNT = 2000;
+	private static final int ITERATIONS = 10;
+
+	private DecorationImageCache cache;
+	private Image[] bases;
+	private ImageDescriptor[] quadrantOverlays;
+
+	public DecorationImageCacheTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		Display display = Display.getCurrent();
+		cache = new DecorationImageCache(display);
+		bases = new Image[] { display.getSystemImage(SWT.ICON_WARNING),
+				display.getSystemImage(SWT.ICON_ERROR),
+				display.getSystemImage(SWT.ICON_QUESTION),
+				display.getSystemImage(SWT.ICON_INFORMATION) };
+		ISharedImages images = PlatformUI.getWorkbench().getSharedImages();
+		quadrantOverlays = new ImageDescriptor[] {
+				images.getImageDescriptor(ISharedImages.IMG_DEC_FIELD_ERROR),
+				images.getImageDescriptor(ISharedImages.IMG_DEC_FIELD_WARNING),
+				images.getImageDescriptor(ISharedImages.IMG_DEC_FIELD_ERROR),
+				images.getImageDescriptor(ISharedImages.IMG_DEC_FIELD_WARNING) };
+	}
+
+	protected void doTearDown() throws Exception {
+		cache.dispose();
+		super.doTearDown();
+	}
+
+	/**
+	 * Return the overlays for the label at index. Labels cycle through every
+	 * combination of the four quadrants.
+	 */
+	private ImageDescriptor[] getOverlays(int index) {
+		ImageDescriptor[] overlays = new ImageDescriptor[5];
+		int combination = index % 16;
+		overlays[IDecoration.TOP_LEFT] = (combination & 1) == 0 ? null
+				: quadrantOverlays[0];
+		overlays[IDecoration.TOP_RIGHT] = (combination & 2) == 0 ? null
+				: quadrantOverlays[1];
+		overlays[IDecoration.BOTTOM_LEFT] = (combination & 4) == 0 ? null
+				: quadrantOverlays[2];
+		overlays[IDecoration.BOTTOM_RIGHT] = (combination & 8) == 0 ? null
+				: quadrantOverlays[3];
+		return overlays;
+	}
+
+	private void decorateAll(LocalResourceManager viewerResources) {
+		for (int i = 0; i < LABEL_COUNT; i++) {
+			cache.decorate(bases[i % bases.length], getOverlays(i),
+					viewerResources);
+		}
+	}
+
+	protected void runTest() throws Throwable {
+		exercise(new TestRunnable() {
+			public void run() {
+				startMeasuring();
+				LocalResourceManager first = new LocalResourceManager(cache
+						.getResourceManager());
+				LocalResourceManager second = new LocalResourceManager(cache
+						.getResourceManager());
+				decorateAll(first);
+				decorateAll(second);
+				first.dispose();
+				second.dispose();
+				stopMeasuring();
+			}
+		}, ITERATIONS, ITERATIONS, JFacePerformanceSuite.MAX_TIME);
+
+		commitMeasurements();
+		assertPerformance();
+
+		// 4 bases and 16 overlay combinations (one without overlays)
+		assertTrue("Composed images should be shared",
+				cache.getAllocationCount() <= bases.length * 16);
+		assertTrue("Composed images should be reused after the viewers close",
+				cache.getPoolHitCount() > 0);
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.core.commands.Category;
+import org.eclipse.core.commands.ParameterizedCommand;
+import org.eclipse.e4.core.commands.ECommandService;
+import org.eclipse.e4.core.commands.EHandlerService;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.internal.Workbench;
+
+/**
+ * Looks up the handlers of 5000 commands while the active leaf switches
+ * between two contexts, one of which overrides half of the handlers.
+ *
+ * @since 3.8
+ */
+public class HandlerLookupTest extends BasicPerformanceTest {
+
+	private static final int COMMAND_COUNT = 5000;
+
+	private static final String COMMAND_PREFIX = "org.eclipse.ui.tests.performance.lookup.";
+
+	/**
+	 * @param tagging
+	 */
+	public HandlerLookupTest(int tagging) {
+		super("testHandlerLookup", tagging);
+	}
+
+	protected void runTest() throws Throwable {
+		tagIfNecessary("UI - Handler Lookup", Dimension.ELAPSED_PROCESS);
+
+		MApplication application = ((Workbench) PlatformUI.getWorkbench())
+				.getApplication();
+		IEclipseContext parent = application.getContext();
+		IEclipseContext previousLeaf = parent.getActiveLeaf();
+		final IEclipseContext root = parent.createChild("handlerLookup");
+		final IEclipseContext c1 = root.createChild("c1");
+		final IEclipseContext c2 = root.createChild("c2");
+		ECommandService commandService = (ECommandService) root
+				.get(ECommandService.class.getName());
+		final EHandlerService handlerService = (EHandlerService) root
+				.get(EHandlerService.class.getName());
+		EHandlerService c2Service = (EHandlerService) c2
+				.get(EHandlerService.class.getName());
+		Category category = commandService.defineCategory(COMMAND_PREFIX
+				+ "category", "Lookup", null);
+		final ParameterizedCommand[] commands = new ParameterizedCommand[COMMAND_COUNT];
+		try {
+			for (int i = 0; i < COMMAND_COUNT; i++) {
+				String id = COMMAND_PREFIX + i;
+				commandService.defineCommand(id, id, null, category, null);
+				commands[i] = commandService.createCommand(id, null);
+				handlerService.activateHandler(id, new Object());
+				if (i % 2 == 0) {
+					c2Service.activateHandler(id, new Object());
+				}
+			}
+
+			exercise(new TestRunnable() {
+				public void run() throws Exception {
+					startMeasuring();
+					for (int round = 0; round < 10; round++) {
+						(round % 2 == 0 ? c1 : c2).activate();
+						for (int i = 0; i < COMMAND_COUNT; i++) {
+							assertTrue(handlerService.canExecute(commands[i]));
+						}
+					}
+					stopMeasuring();
+				}
+			});
+		} finally {
+			for (int i = 0; i < COMMAND_COUNT; i++) {
+				if (commands[i] != null) {
+					commands[i].getCommand().undefine();
+				}
+			}
+			category.undefine();
+			root.dispose();
+			if (previousLeaf != null) {
+				previousLeaf.activate();
+			}
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
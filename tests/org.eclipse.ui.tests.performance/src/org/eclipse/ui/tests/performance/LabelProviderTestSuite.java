@@ -28,5 +28,6 @@ public class LabelProviderTestSuite extends TestSuite {
         addTest(new LabelProviderTest("DecoratingStyledCellLabelProvider", true, false));
         addTest(new LabelProviderTest("DecoratingLabelProvider with Colors", false, true));
         addTest(new LabelProviderTest("DecoratingLabelProvider", false, false));
+        addTest(new DecorationImageCacheTest("Decorated images in two viewers"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
+import org.eclipse.e4.ui.model.application.ui.menu.MMenuItem;
+import org.eclipse.e4.ui.model.application.ui.menu.impl.MenuFactoryImpl;
+import org.eclipse.e4.ui.workbench.IPresentationEngine;
+import org.eclipse.e4.ui.workbench.renderers.swt.MenuManagerRenderer;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.internal.Workbench;
+
+/**
+ * Renders a window with a main menu of 5000 items, 50 menus of 10 submenus of
+ * 10 items, and shows one of its submenus. The main menu is either rendered
+ * at once or tagged to render its submenus when they are first shown.
+ *
+ * @since 3.8
+ */
+public class MenuRenderingTest extends BasicPerformanceTest {
+
+	private final boolean lazy;
+
+	private MMenu parentMenu;
+
+	private MMenu lastMenu;
+
+	/**
+	 * @param lazy
+	 *            whether submenus are rendered when they are first shown
+	 * @param tagging
+	 */
+	public MenuRenderingTest(boolean lazy, int tagging) {
+		super("testMenuRendering:" + (lazy ? "lazy" : "eager"), tagging);
+		this.lazy = lazy;
+	}
+
+	private MWindow createWindow() {
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		MMenu menuBar = MenuFactoryImpl.eINSTANCE.createMenu();
+		menuBar.setElementId("org.eclipse.ui.main.menu");
+		if (lazy) {
+			menuBar.getTags().add(MenuManagerRenderer.LAZY_SUBMENUS);
+		}
+		window.setMainMenu(menuBar);
+		for (int i = 0; i < 50; i++) {
+			MMenu menu = MenuFactoryImpl.eINSTANCE.createMenu();
+			menu.setElementId("menu" + i);
+			menu.setLabel("Menu " + i);
+			menuBar.getChildren().add(menu);
+			for (int j = 0; j < 10; j++) {
+				MMenu subMenu = MenuFactoryImpl.eINSTANCE.createMenu();
+				subMenu.setElementId("menu" + i + "." + j);
+				subMenu.setLabel("Menu " + i + "." + j);
+				menu.getChildren().add(subMenu);
+				for (int k = 0; k < 10; k++) {
+					MMenuItem item = MenuFactoryImpl.eINSTANCE
+							.createDirectMenuItem();
+					item.setElementId("item" + i + "." + j + "." + k);
+					item.setLabel("Item " + k);
+					subMenu.getChildren().add(item);
+				}
+				parentMenu = menu;
+				lastMenu = subMenu;
+			}
+		}
+		return window;
+	}
+
+	protected void runTest() throws Throwable {
+		tagIfNecessary("UI - Render Main Menu", Dimension.ELAPSED_PROCESS);
+
+		final MApplication application = ((Workbench) PlatformUI
+				.getWorkbench()).getApplication();
+		final IPresentationEngine engine = (IPresentationEngine) application
+				.getContext().get(IPresentationEngine.class.getName());
+		exercise(new TestRunnable() {
+			public void run() throws Exception {
+				MWindow window = createWindow();
+				processEvents();
+
+				startMeasuring();
+				application.getChildren().add(window);
+				if (window.getWidget() == null) {
+					engine.createGui(window);
+				}
+				MenuManagerRenderer renderer = (MenuManagerRenderer) window
+						.getMainMenu().getRenderer();
+				renderer.renderPendingMenu(parentMenu);
+				renderer.renderPendingMenu(lastMenu);
+				processEvents();
+				stopMeasuring();
+
+				assertNotNull(renderer.getContribution((MMenuItem) lastMenu
+						.getChildren().get(0)));
+				engine.removeGui(window);
+				application.getChildren().remove(window);
+				processEvents();
+			}
+		});
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,10 +15,13 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.test.performance.Dimension;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
@@ -83,6 +86,84 @@ public class ProblemsViewPerformanceTest extends BasicPerformanceTest {
 
 	}
 
+	/**
+	 * Test the population of the problems view with the markers of several
+	 * projects. The markers of the projects are found and selected by the
+	 * thread safe filters on several threads at once.
+	 * 
+	 * @throws CoreException
+	 */
+	public void testPopulationAcrossProjects() throws CoreException {
+		IWorkbenchWindow window = openTestWindow(EMPTY_PERSPECTIVE_ID);
+		final IWorkbenchPage page = window.getActivePage();
+
+		PerformanceProblemsView view;
+
+		try {
+			view = (PerformanceProblemsView) page.showView(PROBLEMS_VIEW_ID);
+		} catch (PartInitException e) {
+			e.printStackTrace();
+			fail();
+			return;
+		}
+
+		final IProject[] projects = new IProject[8];
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		for (int i = 0; i < projects.length; i++) {
+			projects[i] = root.getProject("problemsViewPerformance" + i);
+			if (!projects[i].exists())
+				projects[i].create(null);
+			projects[i].open(null);
+		}
+
+		try {
+			for (int i = 0; i < 20; i++) {
+				ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+					public void run(IProgressMonitor monitor)
+							throws CoreException {
+						for (int j = 0; j < projects.length; j++) {
+							createMarkers(projects[j], 5000);
+						}
+					}
+				}, null);
+				processEvents();
+				startMeasuring();
+				while (view.getTreeWidget().getItemCount() == 0)
+					processEvents();
+				stopMeasuring();
+				for (int j = 0; j < projects.length; j++) {
+					projects[j].deleteMarkers(IMarker.PROBLEM, false,
+							IResource.DEPTH_INFINITE);
+				}
+				while (view.getTreeWidget().getItemCount() > 0)
+					processEvents();
+			}
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			for (int i = 0; i < projects.length; i++) {
+				projects[i].delete(true, null);
+			}
+		}
+	}
+
+	/**
+	 * Create count markers on the resource.
+	 * 
+	 * @param resource
+	 * @param count
+	 * @throws CoreException
+	 */
+	private void createMarkers(IResource resource, int count)
+			throws CoreException {
+		Map attribs = new HashMap();
+		for (int i = 0; i < count; i++) {
+			attribs.put(IMarker.SEVERITY, new Integer(i % 3));
+			attribs.put(IMarker.MESSAGE, "this is a test " + i);
+			MarkerUtilities.createMarker(resource, attribs, IMarker.PROBLEM);
+		}
+	}
+
 	/**
 	 * Remove the created markers
 	 */
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+
+import org.eclipse.e4.ui.css.core.dom.ExtendedDocumentCSS;
+import org.eclipse.e4.ui.css.core.impl.engine.AbstractCSSEngine;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.PlatformUI;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Loads a style sheet of 2000 rules, either by parsing it or by reading the
+ * binary form the theme engine caches it in.
+ *
+ * @since 3.8
+ */
+public class StyleSheetLoadTest extends BasicPerformanceTest {
+
+	private static final int RULE_COUNT = 2000;
+
+	private final boolean serialized;
+
+	/**
+	 * @param serialized
+	 *            whether the style sheet is read from its binary form
+	 * @param tagging
+	 */
+	public StyleSheetLoadTest(boolean serialized, int tagging) {
+		super("testStyleSheetLoad:" + (serialized ? "read" : "parse"), tagging);
+		this.serialized = serialized;
+	}
+
+	private static String createStyleSheet() {
+		StringBuffer css = new StringBuffer();
+		for (int i = 0; i < RULE_COUNT; i++) {
+			css.append("Composite.c").append(i).append(" > Button#b").append(i)
+					.append(":focus, Shell Label.l").append(i).append(" {")
+					.append(" color: rgb(").append(i % 256).append(", 0, 0);")
+					.append(" font: Verdana ").append(i % 20).append("px;")
+					.append(" background-color: #").append(i % 10)
+					.append("0FF00 #FFFFFF 100%;").append(" margin: ")
+					.append(i % 7).append("px 1.5em }\n");
+		}
+		return css.toString();
+	}
+
+	protected void runTest() throws Throwable {
+		tagIfNecessary("UI - Load Style Sheet", Dimension.ELAPSED_PROCESS);
+
+		final AbstractCSSEngine engine = new CSSSWTEngineImpl(PlatformUI
+				.getWorkbench().getDisplay());
+		try {
+			final String css = createStyleSheet();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			engine.writeStyleSheet(engine.parseStyleSheet(new StringReader(
+					css)), new DataOutputStream(bytes));
+			final byte[] serializedForm = bytes.toByteArray();
+
+			exercise(new TestRunnable() {
+				public void run() throws Exception {
+					((ExtendedDocumentCSS) engine.getDocumentCSS())
+							.removeAllStyleSheets();
+
+					startMeasuring();
+					CSSStyleSheet styleSheet;
+					if (serialized) {
+						styleSheet = (CSSStyleSheet) engine
+								.readStyleSheet(new DataInputStream(
+										new ByteArrayInputStream(
+												serializedForm)));
+					} else {
+						styleSheet = (CSSStyleSheet) engine
+								.parseStyleSheet(new StringReader(css));
+					}
+					stopMeasuring();
+
+					assertEquals(RULE_COUNT, styleSheet.getCssRules()
+							.getLength());
+				}
+			});
+		} finally {
+			engine.dispose();
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2009 IBM Corporation and others.
+ * Copyright (c) 2004, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -84,6 +84,43 @@ class WorkbenchPerformanceSuite extends TestSuite {
         addPerspectiveOpenCloseScenarios();
         addWindowOpenCloseScenarios();
         addContributionScenarios();
+        addMenuScenarios();
+        addHandlerScenarios();
+        addStyleSheetScenarios();
+        addExportScenarios();
+    }
+
+    /**
+     * Add performance tests for the export of a large tree to a zip file.
+     */
+    private void addExportScenarios() {
+        addTest(new ArchiveExportPerformanceTest("testExportZipThroughput"));
+    }
+
+    /**
+     * Add performance tests for loading a large style sheet, parsed and read
+     * from the form the theme engine caches it in.
+     */
+    private void addStyleSheetScenarios() {
+        addTest(new StyleSheetLoadTest(false, BasicPerformanceTest.NONE));
+        addTest(new StyleSheetLoadTest(true, BasicPerformanceTest.NONE));
+    }
+
+    /**
+     * Add performance tests for the lookup of the handlers of many commands
+     * as the active leaf changes.
+     */
+    private void addHandlerScenarios() {
+        addTest(new HandlerLookupTest(BasicPerformanceTest.NONE));
+    }
+
+    /**
+     * Add performance tests for the rendering of a large main menu, at once
+     * and when its submenus are shown.
+     */
+    private void addMenuScenarios() {
+        addTest(new MenuRenderingTest(false, BasicPerformanceTest.NONE));
+        addTest(new MenuRenderingTest(true, BasicPerformanceTest.NONE));
     }
 
     /**
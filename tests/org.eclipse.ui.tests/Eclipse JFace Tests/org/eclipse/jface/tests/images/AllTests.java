@@ -26,6 +26,7 @@ public class AllTests extends TestSuite {
     public AllTests() {
         addTestSuite(ImageRegistryTest.class);
         addTestSuite(ResourceManagerTest.class);
+        addTestSuite(PooledResourceManagerTest.class);
         addTestSuite(FileImageDescriptorTest.class);
     }
 }
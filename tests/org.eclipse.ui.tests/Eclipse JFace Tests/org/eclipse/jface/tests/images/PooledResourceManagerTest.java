@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.images;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ColorDescriptor;
+import org.eclipse.jface.resource.DeviceResourceDescriptor;
+import org.eclipse.jface.resource.DeviceResourceException;
+import org.eclipse.jface.resource.LocalResourceManager;
+import org.eclipse.jface.resource.PooledDeviceResourceManager;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Device;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Tests for {@link PooledDeviceResourceManager}.
+ *
+ * @since 3.8
+ */
+public class PooledResourceManagerTest extends TestCase {
+
+	private static final class CountingDescriptor extends DeviceResourceDescriptor {
+		static int allocated = 0;
+
+		private final ColorDescriptor toWrap;
+
+		CountingDescriptor(int red) {
+			toWrap = ColorDescriptor.createFrom(new RGB(red, 0, 0));
+		}
+
+		public Object createResource(Device device)
+				throws DeviceResourceException {
+			synchronized (CountingDescriptor.class) {
+				allocated++;
+			}
+			return toWrap.createResource(device);
+		}
+
+		public void destroyResource(Object previouslyCreatedObject) {
+			synchronized (CountingDescriptor.class) {
+				allocated--;
+			}
+			toWrap.destroyResource(previouslyCreatedObject);
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof CountingDescriptor
+					&& ((CountingDescriptor) obj).toWrap.equals(toWrap);
+		}
+
+		public int hashCode() {
+			return toWrap.hashCode();
+		}
+	}
+
+	private PooledDeviceResourceManager manager;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		CountingDescriptor.allocated = 0;
+		manager = new PooledDeviceResourceManager(Display.getCurrent(), 2, -1);
+	}
+
+	protected void tearDown() throws Exception {
+		manager.dispose();
+		assertEquals("Detected leaks", 0, CountingDescriptor.allocated);
+		super.tearDown();
+	}
+
+	public void testReleasedResourceIsPooled() {
+		CountingDescriptor descriptor = new CountingDescriptor(10);
+		Color first = (Color) manager.create(descriptor);
+		manager.destroy(descriptor);
+
+		assertFalse("Pooled resource should not be disposed", first.isDisposed());
+		assertEquals(1, manager.getIdleCount());
+		assertEquals(1, manager.getLiveCount());
+		assertNull("Pooled resources are not referenced", manager.find(descriptor));
+
+		Color second = (Color) manager.create(new CountingDescriptor(10));
+		assertSame("Pooled resource should be reused", first, second);
+		assertEquals(1, manager.getPoolHitCount());
+		assertEquals(1, manager.getAllocationCount());
+		assertEquals(0, manager.getIdleCount());
+		assertEquals(1, CountingDescriptor.allocated);
+		manager.destroy(descriptor);
+	}
+
+	public void testIdleCountIsBounded() {
+		CountingDescriptor[] descriptors = new CountingDescriptor[5];
+		Color[] colors = new Color[descriptors.length];
+		for (int i = 0; i < descriptors.length; i++) {
+			descriptors[i] = new CountingDescriptor(i);
+			colors[i] = (Color) manager.create(descriptors[i]);
+		}
+		assertEquals(descriptors.length, manager.getLiveCount());
+
+		for (int i = 0; i < descriptors.length; i++) {
+			manager.destroy(descriptors[i]);
+		}
+
+		// Only the two most recently released resources should survive
+		assertEquals(2, manager.getIdleCount());
+		assertEquals(2, manager.getLiveCount());
+		assertEquals(3, manager.getDisposalCount());
+		assertTrue(colors[0].isDisposed());
+		assertTrue(colors[2].isDisposed());
+		assertFalse(colors[3].isDisposed());
+		assertFalse(colors[4].isDisposed());
+	}
+
+	public void testReferencedResourcesAreNotEvicted() {
+		CountingDescriptor descriptor = new CountingDescriptor(10);
+		Color color = (Color) manager.create(descriptor);
+		manager.create(descriptor);
+		manager.destroy(descriptor);
+
+		manager.flushIdle();
+		assertFalse(color.isDisposed());
+		assertSame(color, manager.find(descriptor));
+
+		manager.destroy(descriptor);
+		manager.flushIdle();
+		assertTrue(color.isDisposed());
+		assertEquals(0, manager.getLiveCount());
+	}
+
+	public void testIdleTimeout() throws Exception {
+		manager.dispose();
+		manager = new PooledDeviceResourceManager(Display.getCurrent(), 10, 1);
+
+		CountingDescriptor descriptor = new CountingDescriptor(10);
+		Color color = (Color) manager.create(descriptor);
+		manager.destroy(descriptor);
+		Thread.sleep(20);
+		manager.trimIdle();
+
+		assertTrue(color.isDisposed());
+		assertEquals(0, manager.getIdleCount());
+	}
+
+	public void testZeroIdleCountDisposesImmediately() {
+		manager.dispose();
+		manager = new PooledDeviceResourceManager(Display.getCurrent(), 0, -1);
+
+		CountingDescriptor descriptor = new CountingDescriptor(10);
+		Color color = (Color) manager.create(descriptor);
+		manager.destroy(descriptor);
+
+		assertTrue(color.isDisposed());
+		assertEquals(0, manager.getLiveCount());
+	}
+
+	public void testLocalManagerOnPool() {
+		LocalResourceManager local = new LocalResourceManager(manager);
+		CountingDescriptor descriptor = new CountingDescriptor(10);
+		Color color = (Color) local.create(descriptor);
+		local.dispose();
+
+		assertFalse(color.isDisposed());
+		assertEquals(1, manager.getIdleCount());
+
+		LocalResourceManager other = new LocalResourceManager(manager);
+		assertSame(color, other.create(descriptor));
+		other.dispose();
+	}
+
+	public void testConcurrentCreate() throws Exception {
+		final CountingDescriptor descriptor = new CountingDescriptor(10);
+		final Object[] results = new Object[8];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					results[index] = manager.create(descriptor);
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		// The resources allocated by the losing threads are disposed in the
+		// UI thread
+		processEvents();
+
+		for (int i = 1; i < results.length; i++) {
+			assertSame(results[0], results[i]);
+		}
+		assertEquals(1, CountingDescriptor.allocated);
+		for (int i = 0; i < results.length; i++) {
+			manager.destroy(descriptor);
+		}
+		assertEquals(1, manager.getIdleCount());
+	}
+
+	public void testEvictionInOtherThread() throws Exception {
+		final Color[] colors = new Color[3];
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					for (int i = 0; i < colors.length; i++) {
+						CountingDescriptor next = new CountingDescriptor(i);
+						colors[i] = (Color) manager.create(next);
+						manager.destroy(next);
+					}
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNull(error[0]);
+
+		// The oldest color was evicted, but only the UI thread may dispose it
+		assertEquals(2, manager.getIdleCount());
+		assertFalse(colors[0].isDisposed());
+		processEvents();
+		assertTrue(colors[0].isDisposed());
+		assertFalse(colors[2].isDisposed());
+	}
+
+	public void testCreateAfterDispose() {
+		manager.dispose();
+		try {
+			manager.create(new CountingDescriptor(10));
+			fail("Expected a DeviceResourceException");
+		} catch (DeviceResourceException e) {
+			// expected
+		}
+		assertEquals(0, CountingDescriptor.allocated);
+	}
+
+	private void processEvents() {
+		Display display = Display.getCurrent();
+		while (display.readAndDispatch()) {
+			// process the pending disposals
+		}
+	}
+}
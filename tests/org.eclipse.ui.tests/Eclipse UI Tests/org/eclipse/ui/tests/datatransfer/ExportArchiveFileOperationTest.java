@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.ui.tests.datatransfer;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -20,10 +21,12 @@ import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -35,6 +38,7 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.tests.harness.FileSystemHelper;
 import org.eclipse.ui.dialogs.IOverwriteQuery;
 import org.eclipse.ui.internal.wizards.datatransfer.ArchiveFileExportOperation;
+import org.eclipse.ui.internal.wizards.datatransfer.PipelinedZipFileExporter;
 import org.eclipse.ui.internal.wizards.datatransfer.TarEntry;
 import org.eclipse.ui.internal.wizards.datatransfer.TarException;
 import org.eclipse.ui.internal.wizards.datatransfer.TarFile;
@@ -175,6 +179,93 @@ public class ExportArchiveFileOperationTest extends UITestCase implements
 		verifyFolders(directoryNames.length + emptyDirectoryNames.length, ZIP_FILE_EXT);
 	}
 	
+	public void testExportZipContents() throws Exception {
+		IFolder folder = project.getFolder("contents");
+		folder.create(false, true, new NullProgressMonitor());
+		List files = new ArrayList();
+		Random random = new Random(0);
+		// more files than are in flight, some too large to be held in memory
+		for (int i = 0; i < 3 * PipelinedZipFileExporter.MAX_PENDING_ENTRIES; i++) {
+			int size = i % 10 == 0 ? PipelinedZipFileExporter.BUFFERED_SIZE + i
+					: random.nextInt(4096);
+			byte[] contents = new byte[size];
+			if (i % 2 == 0)
+				random.nextBytes(contents);
+			IFile file = folder.getFile("file" + i + ".bin");
+			file.create(new ByteArrayInputStream(contents), true,
+					new NullProgressMonitor());
+			files.add(file);
+		}
+
+		for (int compress = 0; compress < 2; compress++) {
+			filePath = localDirectory + "/" + FILE_NAME + compress + "." + ZIP_FILE_EXT;
+			ArchiveFileExportOperation operation = new ArchiveFileExportOperation(
+					folder, files, filePath);
+			operation.setCreateLeadupStructure(false);
+			operation.setUseCompression(compress == 1);
+			operation.setUseTarFormat(false);
+			operation.run(new NullProgressMonitor());
+			assertTrue(operation.getStatus().isOK());
+
+			ZipFile zipFile = new ZipFile(filePath);
+			try {
+				Enumeration entries = zipFile.entries();
+				for (int i = 0; i < files.size(); i++) {
+					IFile file = (IFile) files.get(i);
+					ZipEntry entry = (ZipEntry) entries.nextElement();
+					assertEquals(file.getName(), entry.getName());
+					assertContents(file, zipFile.getInputStream(entry));
+				}
+				assertFalse(entries.hasMoreElements());
+			} finally {
+				zipFile.close();
+			}
+
+			// the local headers of the streamed entries are filled in
+			ZipInputStream zipStream = new ZipInputStream(new FileInputStream(
+					filePath));
+			try {
+				for (int i = 0; i < files.size(); i++) {
+					IFile file = (IFile) files.get(i);
+					ZipEntry entry = zipStream.getNextEntry();
+					assertEquals(file.getName(), entry.getName());
+					assertContents(file, new FilterInputStream(zipStream) {
+						public void close() {
+							// the next entry is read from the stream
+						}
+					});
+				}
+				assertNull(zipStream.getNextEntry());
+			} finally {
+				zipStream.close();
+			}
+		}
+	}
+
+	public void testExportZipManyEntries() throws Exception {
+		filePath = localDirectory + "/" + FILE_NAME + "." + ZIP_FILE_EXT;
+		PipelinedZipFileExporter exporter = new PipelinedZipFileExporter(
+				filePath, true, new PipelinedZipFileExporter.ErrorHandler() {
+					public void handleError(IFile file, Exception exception) {
+						fail(exception.getMessage());
+					}
+				});
+		// more entries than the end of central directory record can count
+		int count = 0xffff + 1;
+		for (int i = 0; i < count; i++) {
+			exporter.write(project, "folder" + i + "/");
+		}
+		exporter.finished();
+
+		ZipFile zipFile = new ZipFile(filePath);
+		try {
+			assertEquals(count, zipFile.size());
+			assertNotNull(zipFile.getEntry("folder" + (count - 1) + "/"));
+		} finally {
+			zipFile.close();
+		}
+	}
+
 	public void testExportTar() throws Exception {
 		filePath = localDirectory + "/" + FILE_NAME + "." + TAR_FILE_EXT;
 		List resources = new ArrayList();
@@ -338,6 +429,23 @@ public class ExportArchiveFileOperationTest extends UITestCase implements
     	}
     }
     
+    private void assertContents(IFile file, InputStream actual)
+			throws IOException, CoreException {
+		InputStream expected = file.getContents();
+		try {
+			int offset = 0;
+			int b;
+			while ((b = expected.read()) != -1) {
+				assertEquals(file.getName() + " at " + offset, b, actual.read());
+				offset++;
+			}
+			assertEquals(file.getName() + " is too long", -1, actual.read());
+		} finally {
+			expected.close();
+			actual.close();
+		}
+	}
+
     private void verifyCompressed(String type){
     	String fileName = "";
 		boolean compressed = false;
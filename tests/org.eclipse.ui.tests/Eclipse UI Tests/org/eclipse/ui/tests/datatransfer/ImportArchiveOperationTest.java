@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,20 @@
  *******************************************************************************/
 package org.eclipse.ui.tests.datatransfer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -30,6 +37,8 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.ui.dialogs.IOverwriteQuery;
+import org.eclipse.ui.internal.wizards.datatransfer.ArchiveStructureCache;
+import org.eclipse.ui.internal.wizards.datatransfer.TarEntry;
 import org.eclipse.ui.internal.wizards.datatransfer.TarFile;
 import org.eclipse.ui.internal.wizards.datatransfer.TarLeveledStructureProvider;
 import org.eclipse.ui.internal.wizards.datatransfer.ZipLeveledStructureProvider;
@@ -278,6 +287,92 @@ public class ImportArchiveOperationTest extends UITestCase implements IOverwrite
     
     }
     
+    public void testTarRandomAccess() throws Exception {
+    	setup(ARCHIVE_SOURCE_PROPERTY);
+        project = FileUtil.createProject("ImportTarRandomAccess");
+        File compressedFile = File.createTempFile("ImportTarRandomAccess", ".tar.gz");
+        TarFile tarFile = new TarFile(tarFileURL.getPath());
+        TarFile compressedTarFile = null;
+        try {
+        	OutputStream out = new GZIPOutputStream(new FileOutputStream(compressedFile));
+        	try {
+        		copy(new FileInputStream(tarFileURL.getPath()), out);
+        	} finally {
+        		out.close();
+        	}
+        	compressedTarFile = new TarFile(compressedFile);
+
+        	List entries = Collections.list(tarFile.entries());
+        	List compressedEntries = Collections.list(compressedTarFile.entries());
+        	assertEquals(entries.size(), compressedEntries.size());
+        	// read the entries backwards, which the stream could not do
+        	int files = 0;
+        	for (int i = entries.size() - 1; i >= 0; i--) {
+        		TarEntry entry = (TarEntry) entries.get(i);
+        		TarEntry compressedEntry = (TarEntry) compressedEntries.get(i);
+        		assertEquals(entry.getName(), compressedEntry.getName());
+        		if (entry.getFileType() == TarEntry.DIRECTORY)
+        			continue;
+        		byte[] contents = read(tarFile.getInputStream(entry));
+        		assertEquals(entry.getName(), entry.getSize(), contents.length);
+        		assertEquals(entry.getName(), new String(contents), new String(
+        				read(compressedTarFile.getInputStream(compressedEntry))));
+        		files++;
+        	}
+        	assertEquals(directoryNames.length * fileNames.length, files);
+        } finally {
+        	tarFile.close();
+        	if (compressedTarFile != null)
+        		compressedTarFile.close();
+        	compressedFile.delete();
+        }
+    }
+
+    public void testSharedStructure() throws Exception {
+    	setup(ARCHIVE_SOURCE_PROPERTY);
+        project = FileUtil.createProject("ImportSharedStructure");
+        ArchiveStructureCache.clear();
+        TarFile tarFile = new TarFile(tarFileURL.getPath());
+        TarFile otherTarFile = new TarFile(tarFileURL.getPath());
+        try {
+        	TarLeveledStructureProvider structureProvider = new TarLeveledStructureProvider(tarFile);
+        	TarLeveledStructureProvider otherStructureProvider = new TarLeveledStructureProvider(otherTarFile);
+        	Object root = structureProvider.getRoot();
+        	assertSame(root, otherStructureProvider.getRoot());
+        	List children = structureProvider.getChildren(root);
+        	assertSame(children, otherStructureProvider.getChildren(root));
+        	assertEquals(1, children.size());
+
+        	// the folder entries of the archive find the folders of the tree
+        	Enumeration tarEntries = otherTarFile.entries();
+        	while (tarEntries.hasMoreElements()) {
+        		TarEntry entry = (TarEntry) tarEntries.nextElement();
+        		if (otherStructureProvider.isFolder(entry))
+        			assertNotNull(entry.getName(), otherStructureProvider.getChildren(entry));
+        	}
+        } finally {
+        	tarFile.close();
+        	otherTarFile.close();
+        }
+    }
+
+    private byte[] read(InputStream in) throws IOException {
+    	ByteArrayOutputStream out = new ByteArrayOutputStream();
+    	copy(in, out);
+    	return out.toByteArray();
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+    	try {
+    		byte[] buffer = new byte[4096];
+    		int n;
+    		while ((n = in.read(buffer)) > 0)
+    			out.write(buffer, 0, n);
+    	} finally {
+    		in.close();
+    	}
+    }
+
     /**
      * Verifies that all files were imported.
      * 
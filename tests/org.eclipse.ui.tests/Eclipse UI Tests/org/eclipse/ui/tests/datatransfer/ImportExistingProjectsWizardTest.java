@@ -17,8 +17,10 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.zip.ZipFile;
 
 import junit.framework.TestSuite;
@@ -47,6 +49,8 @@ import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.internal.WorkbenchPlugin;
 import org.eclipse.ui.internal.dialogs.ImportExportWizard;
+import org.eclipse.ui.internal.wizards.datatransfer.ProjectFilesCollector;
+import org.eclipse.ui.internal.wizards.datatransfer.ProjectFilesCollector.ProjectFileListener;
 import org.eclipse.ui.internal.wizards.datatransfer.WizardProjectsImportPage;
 import org.eclipse.ui.internal.wizards.datatransfer.WizardProjectsImportPage.ProjectRecord;
 import org.eclipse.ui.tests.TestPlugin;
@@ -94,6 +98,7 @@ public class ImportExistingProjectsWizardTest extends UITestCase {
 		ts.addTest(new ImportExistingProjectsWizardTest("testInitialValue"));
 		ts.addTest(new ImportExistingProjectsWizardTest("testImportArchiveMultiProject"));
 		ts.addTest(new ImportExistingProjectsWizardTest("testGetProjectRecords"));
+		ts.addTest(new ImportExistingProjectsWizardTest("testCollectProjectFilesInDeepTree"));
 		return ts;
 	}
 	
@@ -875,6 +880,75 @@ public class ImportExistingProjectsWizardTest extends UITestCase {
 		}
 	}
 
+	public void testCollectProjectFilesInDeepTree() throws IOException {
+		File root = new File(FileSystemHelper.getRandomLocation(
+				FileSystemHelper.getTempDir()).toOSString());
+		dataLocation = root.getAbsolutePath();
+		Set allProjects = new HashSet();
+		Set outerProjects = new HashSet();
+		createTree(root, 0, false, allProjects, outerProjects);
+
+		assertEquals(allProjects, collectProjectFiles(root, true));
+		assertEquals(outerProjects, collectProjectFiles(root, false));
+
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		assertFalse(new ProjectFilesCollector(true, new ProjectFileListener() {
+			public void projectFileFound(File file) {
+				fail("Searched a canceled collection");
+			}
+		}, monitor).collect(root));
+	}
+
+	/**
+	 * Create a tree of directories four wide and six deep, with projects at
+	 * every other level. The projects that are not nested in another are
+	 * added to outerProjects.
+	 */
+	private void createTree(File directory, int depth, boolean inProject,
+			Set allProjects, Set outerProjects) throws IOException {
+		assertTrue(directory.mkdirs());
+		boolean project = depth > 0 && depth % 2 == 0
+				&& directory.getName().endsWith("1");
+		if (project) {
+			File file = new File(directory, ".project");
+			assertTrue(file.createNewFile());
+			allProjects.add(file);
+			if (!inProject) {
+				outerProjects.add(file);
+			}
+		}
+		if (depth == 2) {
+			// metadata folders are not searched
+			File metadata = new File(directory,
+					WizardProjectsImportPage.METADATA_FOLDER);
+			assertTrue(metadata.mkdir());
+			assertTrue(new File(metadata, ".project").createNewFile());
+		}
+		if (depth == 6) {
+			return;
+		}
+		for (int i = 0; i < 4; i++) {
+			createTree(new File(directory, "d" + i), depth + 1, inProject
+					|| project, allProjects, outerProjects);
+		}
+	}
+
+	private Set collectProjectFiles(File root, boolean nestedProjects) {
+		// the listener is notified from other threads, so check afterwards
+		final List found = Collections.synchronizedList(new ArrayList());
+		assertTrue(new ProjectFilesCollector(nestedProjects,
+				new ProjectFileListener() {
+					public void projectFileFound(File file) {
+						found.add(file);
+					}
+				}, new NullProgressMonitor()).collect(root));
+		Set files = new HashSet(found);
+		assertEquals("Found a project more than once", found.size(), files
+				.size());
+		return files;
+	}
+
 	public void testInitialValue() {
 
 		try {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.ui.tests.keys;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -954,4 +955,156 @@ public final class BindingManagerTest extends UITestCase {
 		final TriggerSequence bestBinding2 = bindingManager.getBestActiveBindingFor(console);
 		assertEquals(b3.getTriggerSequence(), bestBinding2);
 	}
+
+	/**
+	 * The triggers whose matches are compared in
+	 * <code>testIncrementalRecomputation()</code>.
+	 */
+	private static final String[] TRIGGERS = { "CTRL+A", "CTRL+B", "CTRL+C",
+			"CTRL+D", "CTRL+X", "CTRL+X CTRL+S", "CTRL+X CTRL+C" };
+
+	/**
+	 * The contexts of <code>testIncrementalRecomputation()</code>, as pairs
+	 * of context and parent identifiers.
+	 */
+	private static final String[][] CONTEXTS = { { "root", null },
+			{ "a", "root" }, { "a1", "a" }, { "b", "root" }, { "c", null } };
+
+	private static final String[] COMMAND_IDS = { "cmd1", "cmd2", "cmd3",
+			"cmd4", "cmd5", "cmd6", "cmd7", "cmd8", "cmd9" };
+
+	private static void defineContexts(final ContextManager manager) {
+		for (int i = 0; i < CONTEXTS.length; i++) {
+			manager.getContext(CONTEXTS[i][0]).define(CONTEXTS[i][0],
+					CONTEXTS[i][0], CONTEXTS[i][1]);
+		}
+	}
+
+	private static void defineSchemes(final BindingManager manager) {
+		manager.getScheme("default").define("default", "default", null);
+		manager.getScheme("emacs").define("emacs", "emacs", "default");
+	}
+
+	private Binding createBinding(final String trigger, final String commandId,
+			final String schemeId, final String contextId, final String locale,
+			final String platform) throws ParseException {
+		return new KeyBinding(KeySequence.getInstance(trigger),
+				new ParameterizedCommand(commandManager.getCommand(commandId),
+						null), schemeId, contextId, locale, platform, null,
+				Binding.SYSTEM);
+	}
+
+	private void setActiveContexts(final String[] contextIds) {
+		contextManager.setActiveContextIds(new HashSet(Arrays
+				.asList(contextIds)));
+	}
+
+	/**
+	 * Asserts that the active bindings of the binding manager, which derives
+	 * them from its previous solution where it can, are the ones a new
+	 * binding manager computes from scratch for the same state.
+	 */
+	private void assertSameAsFullRecomputation() throws NotDefinedException,
+			ParseException {
+		final ContextManager fullContextManager = new ContextManager();
+		defineContexts(fullContextManager);
+		fullContextManager.setActiveContextIds(new HashSet(contextManager
+				.getActiveContextIds()));
+		final BindingManager full = new BindingManager(fullContextManager,
+				commandManager);
+		defineSchemes(full);
+		full.setActiveScheme(full.getScheme(bindingManager.getActiveScheme()
+				.getId()));
+		full.setLocale(bindingManager.getLocale());
+		full.setPlatform(bindingManager.getPlatform());
+		full.setBindings(bindingManager.getBindings());
+
+		final String state = contextManager.getActiveContextIds() + " "
+				+ bindingManager.getActiveScheme().getId() + " "
+				+ bindingManager.getLocale() + " "
+				+ bindingManager.getPlatform() + ": ";
+		for (int i = 0; i < TRIGGERS.length; i++) {
+			final KeySequence trigger = KeySequence.getInstance(TRIGGERS[i]);
+			assertSame(state + TRIGGERS[i], full.getPerfectMatch(trigger),
+					bindingManager.getPerfectMatch(trigger));
+			assertEquals(state + TRIGGERS[i], full.isPartialMatch(trigger),
+					bindingManager.isPartialMatch(trigger));
+			assertEquals(state + TRIGGERS[i], full.getPartialMatches(trigger),
+					bindingManager.getPartialMatches(trigger));
+		}
+		for (int i = 0; i < COMMAND_IDS.length; i++) {
+			assertEquals(state + COMMAND_IDS[i], new HashSet(Arrays
+					.asList(full.getActiveBindingsFor(COMMAND_IDS[i]))),
+					new HashSet(Arrays.asList(bindingManager
+							.getActiveBindingsFor(COMMAND_IDS[i]))));
+		}
+		assertEquals(state, full.getCurrentConflicts().keySet(),
+				bindingManager.getCurrentConflicts().keySet());
+	}
+
+	/**
+	 * Tests that the active bindings derived from the previous solution when
+	 * the active contexts change are the ones computed from scratch, across
+	 * changes of the scheme, the locale and the platform.
+	 */
+	public final void testIncrementalRecomputation() throws Exception {
+		defineContexts(contextManager);
+		defineSchemes(bindingManager);
+		bindingManager.setActiveScheme(bindingManager.getScheme("default"));
+		bindingManager.setLocale("en_US");
+		bindingManager.setPlatform("gtk");
+		bindingManager.setBindings(new Binding[] {
+				createBinding("CTRL+A", "cmd1", "default", "root", null, null),
+				createBinding("CTRL+A", "cmd2", "default", "a", null, null),
+				createBinding("CTRL+B", "cmd3", "emacs", "a1", null, null),
+				createBinding("CTRL+X CTRL+S", "cmd4", "default", "b", null,
+						null),
+				createBinding("CTRL+X CTRL+C", "cmd5", "default", "c", null,
+						null),
+				createBinding("CTRL+C", "cmd6", "default", "root", "de", null),
+				createBinding("CTRL+C", "cmd7", "default", "root", null,
+						"carbon"),
+				createBinding("CTRL+D", "cmd8", "default", "b", null, null),
+				createBinding("CTRL+D", "cmd9", "default", "c", null, null),
+				createBinding("CTRL+D", "cmd1", "emacs", "a", null, null) });
+
+		setActiveContexts(new String[] { "root" });
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "a" });
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "a", "a1" });
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "b" });
+		assertSameAsFullRecomputation();
+
+		bindingManager.setActiveScheme(bindingManager.getScheme("emacs"));
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "a", "a1", "b", "c" });
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "a", "c" });
+		assertSameAsFullRecomputation();
+
+		bindingManager.setLocale("de");
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "a" });
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "b", "c" });
+		assertSameAsFullRecomputation();
+
+		bindingManager.setPlatform("carbon");
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "a", "a1", "c" });
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root" });
+		assertSameAsFullRecomputation();
+
+		// back to a state that was cached before
+		bindingManager.setActiveScheme(bindingManager.getScheme("default"));
+		bindingManager.setLocale("en_US");
+		bindingManager.setPlatform("gtk");
+		setActiveContexts(new String[] { "root", "b" });
+		assertSameAsFullRecomputation();
+		setActiveContexts(new String[] { "root", "a", "a1" });
+		assertSameAsFullRecomputation();
+	}
 }
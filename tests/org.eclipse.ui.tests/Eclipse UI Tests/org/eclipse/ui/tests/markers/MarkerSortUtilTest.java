@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,8 +14,17 @@ package org.eclipse.ui.tests.markers;
 import java.util.Arrays;
 import java.util.Comparator;
 
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.internal.views.markers.MarkerAttributeColumns;
+import org.eclipse.ui.internal.views.markers.MarkerDescriptionField;
+import org.eclipse.ui.internal.views.markers.MarkerLocationField;
+import org.eclipse.ui.internal.views.markers.MarkerPathField;
+import org.eclipse.ui.internal.views.markers.MarkerSeverityField;
 import org.eclipse.ui.internal.views.markers.MarkerSortUtil;
 import org.eclipse.ui.internal.views.markers.MockMarkerEntry;
+import org.eclipse.ui.views.markers.MarkerField;
+import org.eclipse.ui.views.markers.MarkerItem;
 import org.eclipse.ui.tests.harness.util.UITestCase;
 
 /**
@@ -48,6 +57,50 @@ public class MarkerSortUtilTest extends UITestCase {
 	public void testCompleteSort() {
 		sortToLimit(ARRAYSIZE,ARRAYSIZE);
 	}
+	public void testSortByColumns() {
+		MockMarkerEntry[] fArray1 = generateArray(ARRAYSIZE);
+		for (int i = 0; i < fArray1.length; i++) {
+			fArray1[i].setAttribute(IMarker.SEVERITY, new Integer(i % 3));
+			fArray1[i].setAttribute(IMarker.MESSAGE, fArray1[i].name);
+			fArray1[i].setAttribute(IMarker.LINE_NUMBER, new Integer(i % 100));
+		}
+		MockMarkerEntry[] fArray2 = (MockMarkerEntry[]) fArray1.clone();
+		final MarkerField[] fields = new MarkerField[] {
+				new MarkerSeverityField(), new MarkerDescriptionField(),
+				new MarkerLocationField() };
+		final boolean[] descending = new boolean[] { false, true, false };
+		Comparator comparator = new Comparator() {
+			public int compare(Object o1, Object o2) {
+				for (int i = 0; i < fields.length; i++) {
+					int value = descending[i] ? fields[i].compare(
+							(MarkerItem) o2, (MarkerItem) o1) : fields[i]
+							.compare((MarkerItem) o1, (MarkerItem) o2);
+					if (value != 0)
+						return value;
+				}
+				return 0;
+			}
+		};
+
+		assertTrue(MarkerAttributeColumns.sort(fArray1, 0, fArray1.length - 1,
+				fields, descending, new NullProgressMonitor()));
+		Arrays.sort(fArray2, comparator);
+
+		for (int i = 0; i < fArray1.length; i++) {
+			assertSame("Incorrect sorting by columns at " + i, fArray2[i],
+					fArray1[i]);
+		}
+	}
+
+	public void testPathWithoutMarkerIsNotSortedByColumns() {
+		MockMarkerEntry[] entries = generateArray(10);
+		MockMarkerEntry[] unsorted = (MockMarkerEntry[]) entries.clone();
+		assertFalse(MarkerAttributeColumns.sort(entries, 0,
+				entries.length - 1, new MarkerField[] { new MarkerPathField() },
+				new boolean[] { false }, new NullProgressMonitor()));
+		assertTrue(Arrays.equals(unsorted, entries));
+	}
+
 	/**
 	 * 
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -292,6 +292,47 @@ public final class ObjectContributionTest extends UITestCase {
 				false);
 	}
 
+	/**
+	 * Tests large selections of few distinct classes, whose applicability is
+	 * remembered per class. A single element that does not match must still
+	 * remove the contribution, wherever it is in the selection.
+	 * 
+	 * @since 3.8
+	 */
+	public final void testLargeSelections() {
+		List elements = new ArrayList();
+		for (int i = 0; i < 5000; i++) {
+			switch (i % 4) {
+			case 0:
+				elements.add(new ObjectContributionClasses.A());
+				break;
+			case 1:
+				elements.add(new ObjectContributionClasses.B());
+				break;
+			case 2:
+				elements.add(new ObjectContributionClasses.C());
+				break;
+			default:
+				elements.add(new ObjectContributionClasses.Common());
+			}
+		}
+		assertPopupMenus("1", new String[] { "ICommon.1" },
+				new StructuredSelection(elements), ICommon.class, true);
+		// repeat on purpose so that remembered results are used
+		assertPopupMenus("2", new String[] { "ICommon.1" },
+				new StructuredSelection(elements), ICommon.class, true);
+		elements.add(new Object());
+		assertPopupMenus("3", new String[] { "ICommon.1" },
+				new StructuredSelection(elements), ICommon.class, false);
+		elements.add(0, new Object());
+		elements.remove(elements.size() - 1);
+		assertPopupMenus("4", new String[] { "ICommon.1" },
+				new StructuredSelection(elements), ICommon.class, false);
+		elements.remove(0);
+		assertPopupMenus("5", new String[] { "ICommon.1" },
+				new StructuredSelection(elements), ICommon.class, true);
+	}
+
 	/**
 	 * Helper class that will create a popup menu based on the given selection
 	 * and then ensure that the provided commandIds are added to the menu.
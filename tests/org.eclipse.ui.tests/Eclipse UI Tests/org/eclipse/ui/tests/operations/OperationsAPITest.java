@@ -211,6 +211,59 @@ public class OperationsAPITest extends TestCase {
 		assertTrue(history.getUndoHistory(contextA).length == 0);		
 	}
 	
+	public void testManyContextHistories() throws ExecutionException {
+		history.dispose(IOperationHistory.GLOBAL_UNDO_CONTEXT, true, true, false);
+		ObjectUndoContext[] contexts = new ObjectUndoContext[50];
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = new ObjectUndoContext("context" + i);
+			history.setLimit(contexts[i], 10);
+		}
+		IUndoableOperation[] last = new IUndoableOperation[contexts.length];
+		for (int i = 0; i < 1000; i++) {
+			IUndoableOperation op = new TestOperation("op" + i);
+			op.addContext(contexts[i % contexts.length]);
+			history.execute(op, null, null);
+			last[i % contexts.length] = op;
+		}
+		for (int i = 0; i < contexts.length; i++) {
+			assertSame(last[i], history.getUndoOperation(contexts[i]));
+			IUndoableOperation[] ops = history.getUndoHistory(contexts[i]);
+			assertEquals(10, ops.length);
+			assertSame(last[i], ops[ops.length - 1]);
+		}
+		assertEquals(500, history.getUndoHistory(IOperationHistory.GLOBAL_UNDO_CONTEXT).length);
+
+		// matches added after the operations were added are honored
+		ObjectUndoContext parent = new ObjectUndoContext("parent");
+		parent.addMatch(contexts[3]);
+		parent.addMatch(contexts[7]);
+		assertSame(last[7], history.getUndoOperation(parent));
+		assertEquals(20, history.getUndoHistory(parent).length);
+
+		// contexts added to an operation in the history are indexed once
+		// the history is told about the change
+		last[0].addContext(contextA);
+		history.operationChanged(last[0]);
+		assertSame(last[0], history.getUndoOperation(contextA));
+
+		// and when the history is not told
+		ObjectUndoContext contextE = new ObjectUndoContext("E");
+		last[1].addContext(contextE);
+		assertSame(last[1], history.getUndoOperation(contextE));
+		assertEquals(1, history.getUndoHistory(contextE).length);
+		last[2].addContext(contextE);
+		assertSame(last[2], history.getUndoOperation(contextE));
+		assertEquals(2, history.getUndoHistory(contextE).length);
+		last[1].removeContext(contextE);
+		assertEquals(1, history.getUndoHistory(contextE).length);
+		last[2].removeContext(contextE);
+		assertNull(history.getUndoOperation(contextE));
+
+		history.undo(contexts[5], null, null);
+		assertSame(last[5], history.getRedoOperation(contexts[5]));
+		assertEquals(9, history.getUndoHistory(contexts[5]).length);
+	}
+
 	public void testOpenOperation() throws ExecutionException {
 		// clear out history which will also reset operation execution counts
 		history.dispose(IOperationHistory.GLOBAL_UNDO_CONTEXT, true, true, false);
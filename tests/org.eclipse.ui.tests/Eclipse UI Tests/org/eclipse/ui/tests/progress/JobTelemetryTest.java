@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.progress;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.internal.progress.DurationHistogram;
+import org.eclipse.ui.internal.progress.JobTelemetry;
+
+/**
+ * Tests the recording of job telemetry.
+ *
+ * @since 3.8
+ */
+public class JobTelemetryTest extends TestCase {
+
+	private static class TelemetryTestJob extends Job {
+		TelemetryTestJob() {
+			super("Telemetry test job");
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			long end = System.currentTimeMillis() + 20;
+			while (System.currentTimeMillis() < end) {
+				// keep the CPU busy
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private boolean wasEnabled;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		wasEnabled = JobTelemetry.getInstance().isEnabled();
+	}
+
+	protected void tearDown() throws Exception {
+		JobTelemetry.getInstance().setEnabled(wasEnabled);
+		super.tearDown();
+	}
+
+	public void testHistogramPercentiles() {
+		DurationHistogram histogram = new DurationHistogram();
+		assertEquals(0, histogram.getPercentile(50));
+		for (int i = 0; i < 90; i++) {
+			histogram.record(500000L); // 0.5 ms
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(100000000L); // 100 ms
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(100000000L, histogram.getMax());
+		assertEquals(1, histogram.getPercentile(50));
+		assertEquals(1, histogram.getPercentile(90));
+		assertEquals(128, histogram.getPercentile(99));
+
+		histogram.record(-1);
+		assertEquals(100, histogram.getCount());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+
+	public void testJobIsRecorded() throws Exception {
+		JobTelemetry telemetry = JobTelemetry.getInstance();
+		telemetry.setEnabled(true);
+		telemetry.reset();
+
+		Job job = new TelemetryTestJob();
+		job.schedule();
+		job.join();
+
+		// done listeners may be notified after join returns
+		JobTelemetry.FamilyStatistics statistics = null;
+		long timeout = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < timeout) {
+			statistics = telemetry.getStatistics(TelemetryTestJob.class
+					.getName());
+			if (statistics != null
+					&& statistics.getRunTime().getCount() > 0) {
+				break;
+			}
+			Thread.sleep(10);
+		}
+		assertNotNull(statistics);
+		assertEquals(1, statistics.getQueueLatency().getCount());
+		assertEquals(1, statistics.getRunTime().getCount());
+		assertTrue(statistics.getRunTime().getMax() >= 20000000L);
+
+		StringWriter snapshot = new StringWriter();
+		telemetry.writeSnapshot(new PrintWriter(snapshot));
+		assertTrue(snapshot.toString().indexOf(
+				TelemetryTestJob.class.getName()) > 0);
+	}
+
+	public void testDisabledRecordsNothing() throws Exception {
+		JobTelemetry telemetry = JobTelemetry.getInstance();
+		telemetry.setEnabled(false);
+		telemetry.reset();
+
+		Job job = new TelemetryTestJob();
+		job.schedule();
+		job.join();
+
+		assertNull(telemetry.getStatistics(TelemetryTestJob.class.getName()));
+		Runnable runnable = new Runnable() {
+			public void run() {
+			}
+		};
+		assertSame(runnable, telemetry.trackDisplayLatency(runnable));
+	}
+}
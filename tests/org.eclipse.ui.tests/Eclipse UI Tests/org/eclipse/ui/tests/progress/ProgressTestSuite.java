@@ -35,5 +35,7 @@ public class ProgressTestSuite extends TestSuite {
 		addTest(new TestSuite(ProgressViewTests.class));
 		addTest(new TestSuite(JobInfoTest.class));
 		addTest(new TestSuite(JobInfoTestOrdering.class));
+		addTest(new TestSuite(ProgressUpdateBufferTest.class));
+		addTest(new TestSuite(JobTelemetryTest.class));
 	}
 }
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.progress;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.internal.progress.JobInfo;
+import org.eclipse.ui.internal.progress.ProgressUpdateBuffer;
+
+/**
+ * Tests the collapsing of progress updates and the behaviour of the update
+ * buffer under heavy job churn.
+ *
+ * @since 3.8
+ */
+public class ProgressUpdateBufferTest extends TestCase {
+
+	private static class TestJobInfo extends JobInfo {
+		TestJobInfo(String name) {
+			super(new Job(name) {
+				protected IStatus run(IProgressMonitor monitor) {
+					return Status.OK_STATUS;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Mimics the elements shown by a progress viewer.
+	 */
+	private static class ViewerModel {
+		Set shown = new HashSet();
+		int fullRefreshes = 0;
+		int largestDelta = 0;
+
+		void apply(ProgressUpdateBuffer.Delta delta) {
+			if (delta.isUpdateAll()) {
+				// None of the test jobs are running, so nothing is shown
+				// after a full refresh
+				shown.clear();
+				fullRefreshes++;
+				return;
+			}
+			largestDelta = Math.max(largestDelta, delta.getAdditions().length
+					+ delta.getDeletions().length
+					+ delta.getRefreshes().length);
+			shown.removeAll(Arrays.asList(delta.getDeletions()));
+			shown.addAll(Arrays.asList(delta.getAdditions()));
+		}
+	}
+
+	public void testAddRefreshRemoveCollapses() {
+		ProgressUpdateBuffer buffer = new ProgressUpdateBuffer();
+		JobInfo info = new TestJobInfo("job");
+		buffer.add(info);
+		buffer.refresh(info);
+		buffer.refresh(info);
+		buffer.remove(info);
+
+		ProgressUpdateBuffer.Delta delta = buffer.drain();
+		assertTrue("A finished job should not reach the viewer", delta
+				.isEmpty());
+		assertFalse(buffer.hasPending());
+	}
+
+	public void testAddRefreshCollapsesToAdd() {
+		ProgressUpdateBuffer buffer = new ProgressUpdateBuffer();
+		JobInfo info = new TestJobInfo("job");
+		buffer.add(info);
+		buffer.refresh(info);
+
+		ProgressUpdateBuffer.Delta delta = buffer.drain();
+		assertEquals(1, delta.getAdditions().length);
+		assertEquals(0, delta.getRefreshes().length);
+		assertEquals(0, delta.getDeletions().length);
+	}
+
+	public void testRefreshOfFinishedJobRemovesIt() {
+		ProgressUpdateBuffer buffer = new ProgressUpdateBuffer();
+		JobInfo info = new TestJobInfo("job");
+		buffer.add(info);
+		buffer.drain();
+
+		buffer.refresh(info);
+		ProgressUpdateBuffer.Delta delta = buffer.drain();
+		assertEquals(0, delta.getRefreshes().length);
+		assertEquals(1, delta.getDeletions().length);
+	}
+
+	public void testRemoveThenAddKeepsBoth() {
+		ProgressUpdateBuffer buffer = new ProgressUpdateBuffer();
+		JobInfo info = new TestJobInfo("job");
+		buffer.add(info);
+		buffer.drain();
+
+		buffer.remove(info);
+		buffer.add(info);
+		ProgressUpdateBuffer.Delta delta = buffer.drain();
+		assertEquals(1, delta.getDeletions().length);
+		assertEquals(1, delta.getAdditions().length);
+	}
+
+	public void testOverflowRequestsFullRefresh() {
+		ProgressUpdateBuffer buffer = new ProgressUpdateBuffer(16);
+		for (int i = 0; i < 100; i++) {
+			buffer.add(new TestJobInfo("job" + i));
+		}
+		ProgressUpdateBuffer.Delta delta = buffer.drain();
+		assertTrue(delta.isUpdateAll());
+		assertFalse(buffer.hasPending());
+	}
+
+	/**
+	 * Simulates 100k short lived jobs, each of which is added, updated a few
+	 * times and finished, posted from several threads while the consumer
+	 * drains concurrently.
+	 *
+	 * @throws Exception
+	 */
+	public void testJobChurn() throws Exception {
+		final int threadCount = 4;
+		final int jobsPerThread = 25000;
+		final ProgressUpdateBuffer buffer = new ProgressUpdateBuffer(1024);
+
+		Thread[] producers = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int threadIndex = t;
+			producers[t] = new Thread("Progress producer " + t) {
+				public void run() {
+					for (int i = 0; i < jobsPerThread; i++) {
+						JobInfo info = new TestJobInfo("job" + threadIndex
+								+ "_" + i);
+						buffer.add(info);
+						buffer.refresh(info);
+						buffer.refresh(info);
+						buffer.refresh(info);
+						buffer.remove(info);
+					}
+				}
+			};
+		}
+
+		ViewerModel viewer = new ViewerModel();
+		for (int t = 0; t < threadCount; t++) {
+			producers[t].start();
+		}
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (int t = 0; t < threadCount; t++) {
+				running |= producers[t].isAlive();
+			}
+			viewer.apply(buffer.drain());
+			Thread.sleep(1);
+		}
+		while (buffer.hasPending()) {
+			viewer.apply(buffer.drain());
+		}
+
+		assertTrue("Every finished job should be gone from the viewer",
+				viewer.shown.isEmpty());
+		assertTrue("Deltas should be bounded by the buffer capacity",
+				viewer.largestDelta <= buffer.getCapacity());
+	}
+}
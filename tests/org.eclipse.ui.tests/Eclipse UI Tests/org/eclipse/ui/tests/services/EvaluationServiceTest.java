@@ -490,6 +490,102 @@ public class EvaluationServiceTest extends UITestCase {
 		assertEquals(2, listener.count);
 	}
 	
+	private static class CountingExpression extends ActiveContextExpression {
+		int evaluations = 0;
+
+		public CountingExpression(String id, String[] info) {
+			super(id, info);
+		}
+
+		public EvaluationResult evaluate(IEvaluationContext context) {
+			evaluations++;
+			return super.evaluate(context);
+		}
+	}
+
+	public void testOnlyDependentReferencesEvaluated() throws Exception {
+		IWorkbenchWindow window = openTestWindow();
+		IEvaluationService service = (IEvaluationService) window
+				.getService(IEvaluationService.class);
+		assertNotNull(service);
+
+		MyEval listener = new MyEval();
+		CountingExpression expression = new CountingExpression(CONTEXT_ID1,
+				new String[] { ISources.ACTIVE_CONTEXT_NAME });
+		IContextActivation context1 = null;
+		IEvaluationReference evalRef = null;
+		IContextService contextService = null;
+		try {
+			SelectionProviderView view = (SelectionProviderView) window
+					.getActivePage().showView(
+							"org.eclipse.ui.tests.SelectionProviderView");
+			processEvents();
+
+			evalRef = service.addEvaluationListener(expression, listener,
+					IEvaluationService.RESULT);
+			assertEquals(1, listener.count);
+			int evaluations = expression.evaluations;
+
+			// the expression accesses no properties
+			service.requestEvaluation("org.eclipse.ui.tests.class.method");
+			assertEquals(evaluations, expression.evaluations);
+
+			// nor the selection
+			view.setSelection(new StructuredSelection("unrelated selection"));
+			processEvents();
+			assertEquals(evaluations, expression.evaluations);
+			assertEquals(1, listener.count);
+
+			contextService = (IContextService) window
+					.getService(IContextService.class);
+			context1 = contextService.activateContext(CONTEXT_ID1);
+			assertTrue(expression.evaluations > evaluations);
+			assertEquals(2, listener.count);
+			assertTrue(listener.currentValue);
+		} finally {
+			if (context1 != null) {
+				contextService.deactivateContext(context1);
+			}
+			if (evalRef != null) {
+				service.removeEvaluationListener(evalRef);
+			}
+		}
+	}
+
+	public void testUnreportedVariableIsTracked() throws Exception {
+		IWorkbenchWindow window = openTestWindow();
+		IEvaluationService service = (IEvaluationService) window
+				.getService(IEvaluationService.class);
+		assertNotNull(service);
+
+		MyEval listener = new MyEval();
+		// reads the active contexts without reporting it
+		ActiveContextExpression expression = new ActiveContextExpression(
+				CONTEXT_ID1, new String[0]);
+		IContextActivation context1 = null;
+		IEvaluationReference evalRef = null;
+		IContextService contextService = null;
+		try {
+			evalRef = service.addEvaluationListener(expression, listener,
+					IEvaluationService.RESULT);
+			assertEquals(1, listener.count);
+			assertFalse(listener.currentValue);
+
+			contextService = (IContextService) window
+					.getService(IContextService.class);
+			context1 = contextService.activateContext(CONTEXT_ID1);
+			assertEquals(2, listener.count);
+			assertTrue(listener.currentValue);
+		} finally {
+			if (context1 != null) {
+				contextService.deactivateContext(context1);
+			}
+			if (evalRef != null) {
+				service.removeEvaluationListener(evalRef);
+			}
+		}
+	}
+
 	public void testPlatformProperty() throws Exception {
 		IEvaluationService evaluationService = (IEvaluationService) PlatformUI
 				.getWorkbench().getService(IEvaluationService.class);